@@ -2,43 +2,243 @@ package com.bro.quicklink;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
-import software.amazon.awssdk.regions.Region;
+import com.bro.quicklink.aws.AwsClients;
+import com.bro.quicklink.metrics.Counter;
+import com.bro.quicklink.metrics.Histogram;
+import com.bro.quicklink.metrics.Metrics;
+import com.bro.quicklink.metrics.SdkMetricPublisher;
+import com.bro.quicklink.metrics.Unit;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
-import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
-public class AnalyticsHandler implements RequestHandler<Map<String, Object>, Void> {
+public class AnalyticsHandler implements RequestHandler<Map<String, Object>, Object> {
 
-    private final DynamoDbClient dynamoDbClient;
-    private final String tableName;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ShardedCounterWriter counterWriter;
+    private final TimeBucketWriter bucketWriter;
+    private final SketchStore sketches;
+    private final Metrics metrics;
+    private final Histogram batchSizes;
+    private final Histogram distinctCodes;
+    private final Counter failedRecords;
+    private final Counter sketchFailures;
+    private final Counter bucketFailures;
 
     public AnalyticsHandler() {
-        this.dynamoDbClient = DynamoDbClient.builder()
-                .region(Region.US_EAST_1)
-                .build();
-        this.tableName = System.getenv("ANALYTICS_TABLE_NAME");
+        this(Metrics.fromEnvironment("analytics-service"));
+    }
+
+    private AnalyticsHandler(Metrics metrics) {
+        this(AwsClients.sync(DynamoDbClient.builder(), new SdkMetricPublisher(metrics)), metrics);
+    }
+
+    private AnalyticsHandler(DynamoDbClient dynamoDbClient, Metrics metrics) {
+        this(ShardedCounterWriter.fromEnvironment(dynamoDbClient, System.getenv("ANALYTICS_TABLE_NAME")),
+                bucketWriterFromEnvironment(dynamoDbClient), sketchStoreFromEnvironment(dynamoDbClient), metrics);
+    }
+
+    /**
+     * @param bucketWriter Writes the time buckets; null to keep only the running totals.
+     * @param sketches     Keeps the top-links and unique-visitor sketches; null to skip them.
+     */
+    public AnalyticsHandler(ShardedCounterWriter counterWriter, TimeBucketWriter bucketWriter, SketchStore sketches,
+                            Metrics metrics) {
+        this.counterWriter = counterWriter;
+        this.bucketWriter = bucketWriter;
+        this.sketches = sketches;
+        this.metrics = metrics;
+        this.batchSizes = metrics.histogram("AnalyticsBatchSize", Unit.COUNT);
+        this.distinctCodes = metrics.histogram("AnalyticsDistinctCodes", Unit.COUNT);
+        this.failedRecords = metrics.counter("AnalyticsFailedRecords");
+        this.sketchFailures = metrics.counter("AnalyticsSketchFailures");
+        this.bucketFailures = metrics.counter("AnalyticsBucketFailures");
     }
 
     @Override
-    public Void handleRequest(Map<String, Object> event, Context context) {
+    public Object handleRequest(Map<String, Object> event, Context context) {
+        try {
+            return route(event, context);
+        } finally {
+            metrics.flush();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object route(Map<String, Object> event, Context context) {
+        // Batched delivery (SQS event source mapping)
+        if (event.get("Records") instanceof List<?> records) {
+            return handleBatch((List<Map<String, Object>>) records, context);
+        }
+
         // Manually parse the 'detail' field from the EventBridge event
         if (event.containsKey("detail")) {
             Map<String, Object> detail = (Map<String, Object>) event.get("detail");
             String shortCode = (String) detail.get("shortCode");
 
             if (shortCode != null) {
-                UpdateItemRequest request = UpdateItemRequest.builder()
-                        .tableName(tableName)
-                        .key(Map.of("shortCode", AttributeValue.builder().s(shortCode).build()))
-                        .updateExpression("ADD clicks :inc")
-                        .expressionAttributeValues(Map.of(":inc", AttributeValue.builder().n("1").build()))
-                        .build();
-
-                dynamoDbClient.updateItem(request);
+                ClickAggregator single = new ClickAggregator();
+                single.add(shortCode, null, eventTime(event.get("time")), visitor(detail.get("visitor")),
+                        detail.get("weight") instanceof Number weight && weight.longValue() >= 0 ? weight.longValue() : 1,
+                        detail.get("expiresAt") instanceof Number expiresAt ? Math.max(0, expiresAt.longValue()) : 0);
+                ClickAggregator.Delta delta = single.deltas().get(shortCode);
+                if (delta.clicks() > 0) {
+                    addClicks(shortCode, delta, context);
+                }
+                updateSketches(single, context);
             }
         }
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Collapses every click in the batch into one ADD per distinct shortCode (plus one per
+     * time bucket it touches) and reports the records behind a failed counter write as
+     * batch item failures, so only those are retried.
+     */
+    private Map<String, Object> handleBatch(List<Map<String, Object>> records, Context context) {
+        batchSizes.record(records.size());
+        ClickAggregator aggregator = new ClickAggregator();
+        List<Map<String, String>> batchItemFailures = new ArrayList<>();
+
+        for (Map<String, Object> record : records) {
+            String itemIdentifier = (String) record.get("messageId");
+            try {
+                Click click = extractClick(record);
+                if (click != null) {
+                    aggregator.add(click.shortCode(), itemIdentifier, click.epochSecond(), click.visitor(), click.weight(),
+                            click.expiresAt());
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                context.getLogger().log("Failed to parse click record " + itemIdentifier + ": " + e.getMessage());
+                batchItemFailures.add(Map.of("itemIdentifier", itemIdentifier));
+            }
+        }
+
+        distinctCodes.record(aggregator.deltas().size());
+        aggregator.deltas().forEach((shortCode, delta) -> {
+            // Only zero-weight clicks (cache-served visitors outside the sample): nothing to count.
+            if (delta.clicks() == 0) return;
+            try {
+                addClicks(shortCode, delta, context);
+            } catch (SdkException e) {
+                context.getLogger().log("Failed to add " + delta.clicks() + " clicks to " + shortCode + ": " + e.getMessage());
+                delta.itemIdentifiers().forEach(id -> batchItemFailures.add(Map.of("itemIdentifier", id)));
+            }
+        });
+
+        updateSketches(aggregator, context);
+
+        failedRecords.add(batchItemFailures.size());
+        return Map.of("batchItemFailures", batchItemFailures);
+    }
+
+    /**
+     * Adds a code's clicks to its lifetime counter, then to its time buckets. Only a failed
+     * counter write is thrown, when nothing has been counted yet and the records can safely
+     * be retried. Once the counter holds the clicks, a retry would add them to it again, so
+     * a failed bucket write is logged and counted instead, leaving those buckets short.
+     */
+    private void addClicks(String shortCode, ClickAggregator.Delta delta, Context context) {
+        counterWriter.add(shortCode, delta.clicks(), delta.expiresAt());
+        if (bucketWriter == null) return;
+        try {
+            bucketWriter.add(shortCode, delta);
+        } catch (SdkException e) {
+            context.getLogger().log("Failed to add " + delta.clicks() + " clicks to the buckets of " + shortCode + ": "
+                    + e.getMessage());
+            bucketFailures.increment();
+        }
+    }
+
+    /**
+     * Sketch failures are logged and counted rather than failing records: the sketches are
+     * approximate anyway, while a retried record would add its clicks to the exact counters
+     * a second time.
+     */
+    private void updateSketches(ClickAggregator aggregator, Context context) {
+        if (sketches == null || aggregator.isEmpty()) return;
+        try {
+            sketches.addClicks(aggregator);
+        } catch (SdkException e) {
+            context.getLogger().log("Failed to update the top-links sketch: " + e.getMessage());
+            sketchFailures.increment();
+        }
+        aggregator.deltas().forEach((shortCode, delta) -> {
+            try {
+                sketches.addVisitors(shortCode, delta);
+            } catch (SdkException e) {
+                context.getLogger().log("Failed to update the visitors sketch of " + shortCode + ": " + e.getMessage());
+                sketchFailures.increment();
+            }
+        });
+    }
+
+    private static TimeBucketWriter bucketWriterFromEnvironment(DynamoDbClient dynamoDbClient) {
+        String tableName = System.getenv("ANALYTICS_BUCKETS_TABLE_NAME");
+        return tableName == null || tableName.isBlank() ? null : TimeBucketWriter.fromEnvironment(dynamoDbClient, tableName);
+    }
+
+    private static SketchStore sketchStoreFromEnvironment(DynamoDbClient dynamoDbClient) {
+        String tableName = System.getenv("ANALYTICS_SKETCHES_TABLE_NAME");
+        return tableName == null || tableName.isBlank() ? null : SketchStore.fromEnvironment(dynamoDbClient, tableName);
+    }
+
+    /**
+     * The SQS body carries the original EventBridge event as JSON.
+     */
+    private Click extractClick(Map<String, Object> record) throws IOException {
+        JsonNode eventNode = objectMapper.readTree((String) record.get("body"));
+        JsonNode shortCode = eventNode.path("detail").path("shortCode");
+        if (!shortCode.isTextual()) return null;
+        JsonNode time = eventNode.path("time");
+        JsonNode visitor = eventNode.path("detail").path("visitor");
+        JsonNode weight = eventNode.path("detail").path("weight");
+        JsonNode expiresAt = eventNode.path("detail").path("expiresAt");
+        return new Click(shortCode.asText(), eventTime(time.isTextual() ? time.asText() : null),
+                visitor(visitor.isTextual() ? visitor.asText() : null),
+                weight.isIntegralNumber() && weight.asLong() >= 0 ? weight.asLong() : 1,
+                expiresAt.isIntegralNumber() ? Math.max(0, expiresAt.asLong()) : 0);
+    }
+
+    /**
+     * The 64-bit visitor ID the redirect service sends as 16 hex digits, or 0 if there is
+     * none or it is malformed; the click still counts, just not as a visitor.
+     */
+    private static long visitor(Object visitor) {
+        if (visitor instanceof String hex && hex.length() == 16) {
+            try {
+                return Long.parseUnsignedLong(hex, 16);
+            } catch (NumberFormatException e) {
+                // Not a visitor ID.
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The EventBridge {@code time} of a click in epoch seconds, or now if the envelope has
+     * none (clicks then land in the bucket they are processed in).
+     */
+    private static long eventTime(Object time) {
+        if (time instanceof String text) {
+            try {
+                return Instant.parse(text).getEpochSecond();
+            } catch (DateTimeParseException e) {
+                // Fall through to the processing time.
+            }
+        }
+        return Instant.now().getEpochSecond();
+    }
+
+    private record Click(String shortCode, long epochSecond, long visitor, long weight, long expiresAt) {
+    }
+}
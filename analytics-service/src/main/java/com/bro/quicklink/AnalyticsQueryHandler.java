@@ -0,0 +1,210 @@
+package com.bro.quicklink;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.bro.quicklink.aws.AwsClients;
+import com.bro.quicklink.metrics.Histogram;
+import com.bro.quicklink.metrics.Metrics;
+import com.bro.quicklink.metrics.SdkMetricPublisher;
+import com.bro.quicklink.metrics.Unit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Read side of the analytics:
+ * <ul>
+ * <li>{@code GET /analytics/{shortCode}?granularity=minute|hour|day&from=...&to=...}: the
+ * clicks of a link per time bucket. {@code from} and {@code to} are ISO-8601 instants or
+ * epoch seconds; without them the last {@value #DEFAULT_BUCKETS} buckets up to now are returned.</li>
+ * <li>{@code GET /analytics/{shortCode}/visitors}: the estimated unique visitors of a link.</li>
+ * <li>{@code GET /analytics/top-links?k=100&hours=1}: the most clicked links of the last
+ * {@code hours} hours, the current one included. Short codes are base62, so the route
+ * can't shadow a link.</li>
+ * </ul>
+ */
+public class AnalyticsQueryHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+
+    static final int DEFAULT_BUCKETS = 60;
+    static final int MAX_BUCKETS = 1500;
+    static final int MAX_TOP_HOURS = 7 * 24;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TimeBucketReader reader;
+    private final SketchStore sketches;
+    private final LongSupplier clock;
+    private final Metrics metrics;
+    private final Histogram bucketsRead;
+
+    public AnalyticsQueryHandler() {
+        this(Metrics.fromEnvironment("analytics-query"));
+    }
+
+    private AnalyticsQueryHandler(Metrics metrics) {
+        this(AwsClients.sync(DynamoDbClient.builder(), new SdkMetricPublisher(metrics)), metrics);
+    }
+
+    private AnalyticsQueryHandler(DynamoDbClient dynamoDbClient, Metrics metrics) {
+        this(new TimeBucketReader(dynamoDbClient, System.getenv("ANALYTICS_BUCKETS_TABLE_NAME")),
+                SketchStore.fromEnvironment(dynamoDbClient, System.getenv("ANALYTICS_SKETCHES_TABLE_NAME")),
+                () -> Instant.now().getEpochSecond(), metrics);
+    }
+
+    /**
+     * @param clock Epoch seconds; the end of the default range.
+     */
+    public AnalyticsQueryHandler(TimeBucketReader reader, SketchStore sketches, LongSupplier clock, Metrics metrics) {
+        this.reader = reader;
+        this.sketches = sketches;
+        this.clock = clock;
+        this.metrics = metrics;
+        this.bucketsRead = metrics.histogram("AnalyticsQueryBuckets", Unit.COUNT);
+    }
+
+    @Override
+    public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+        try {
+            return switch (event.getRouteKey() == null ? "" : event.getRouteKey()) {
+                case "GET /analytics/top-links" -> topLinks(event);
+                case "GET /analytics/{shortCode}/visitors" -> visitors(event);
+                default -> buckets(event);
+            };
+        } finally {
+            metrics.flush();
+        }
+    }
+
+    private APIGatewayV2HTTPResponse buckets(APIGatewayV2HTTPEvent event) {
+        String shortCode = shortCode(event);
+        if (shortCode == null) {
+            return createErrorResponse(400, "Short code is missing.");
+        }
+
+        Map<String, String> params = queryParameters(event);
+        Granularity granularity;
+        long from;
+        long to;
+        try {
+            granularity = Granularity.parse(params.getOrDefault("granularity", Granularity.MINUTE.label()));
+            to = params.containsKey("to") ? parseTime(params.get("to")) : clock.getAsLong();
+            from = params.containsKey("from") ? parseTime(params.get("from"))
+                    : to - (DEFAULT_BUCKETS - 1) * granularity.seconds();
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return createErrorResponse(400, "Invalid query: " + e.getMessage().replace("\"", "'"));
+        }
+        from = granularity.truncate(from);
+        to = granularity.truncate(to);
+        if (from > to) {
+            return createErrorResponse(400, "from must not be after to.");
+        }
+        if ((to - from) / granularity.seconds() + 1 > MAX_BUCKETS) {
+            return createErrorResponse(400, "At most " + MAX_BUCKETS + " buckets can be requested; use a coarser granularity.");
+        }
+
+        long[] clicks = reader.read(shortCode, granularity, from, to);
+        bucketsRead.record(clicks.length);
+
+        ObjectNode body = objectMapper.createObjectNode()
+                .put("shortCode", shortCode)
+                .put("granularity", granularity.label())
+                .put("from", Instant.ofEpochSecond(from).toString())
+                .put("to", Instant.ofEpochSecond(to + granularity.seconds()).toString());
+        long total = 0;
+        ArrayNode buckets = body.putArray("buckets");
+        for (int i = 0; i < clicks.length; i++) {
+            total += clicks[i];
+            buckets.addObject()
+                    .put("start", Instant.ofEpochSecond(from + i * granularity.seconds()).toString())
+                    .put("clicks", clicks[i]);
+        }
+        body.put("total", total);
+
+        return createJsonResponse(body);
+    }
+
+    private APIGatewayV2HTTPResponse visitors(APIGatewayV2HTTPEvent event) {
+        String shortCode = shortCode(event);
+        if (shortCode == null) {
+            return createErrorResponse(400, "Short code is missing.");
+        }
+        HyperLogLog visitors = sketches.visitors(shortCode);
+        return createJsonResponse(objectMapper.createObjectNode()
+                .put("shortCode", shortCode)
+                .put("uniqueVisitors", visitors.estimate())
+                .put("relativeStandardError", visitors.relativeStandardError()));
+    }
+
+    private APIGatewayV2HTTPResponse topLinks(APIGatewayV2HTTPEvent event) {
+        Map<String, String> params = queryParameters(event);
+        int k;
+        int hours;
+        try {
+            k = Integer.parseInt(params.getOrDefault("k", "100").trim());
+            hours = Integer.parseInt(params.getOrDefault("hours", "1").trim());
+        } catch (NumberFormatException e) {
+            return createErrorResponse(400, "k and hours must be integers.");
+        }
+        if (k < 1 || hours < 1 || hours > MAX_TOP_HOURS) {
+            return createErrorResponse(400, "k must be positive and hours between 1 and " + MAX_TOP_HOURS + ".");
+        }
+
+        long to = Granularity.HOUR.truncate(clock.getAsLong());
+        long from = to - (hours - 1) * Granularity.HOUR.seconds();
+        SpaceSaving summary = sketches.topLinks(from, to);
+        bucketsRead.record(hours);
+
+        ObjectNode body = objectMapper.createObjectNode()
+                .put("from", Instant.ofEpochSecond(from).toString())
+                .put("to", Instant.ofEpochSecond(to + Granularity.HOUR.seconds()).toString())
+                .put("totalClicks", summary.total());
+        ArrayNode links = body.putArray("links");
+        for (SpaceSaving.Estimate estimate : summary.top(Math.min(k, summary.capacity()))) {
+            links.addObject()
+                    .put("shortCode", estimate.shortCode())
+                    .put("clicks", estimate.count())
+                    .put("maxOvercount", estimate.error());
+        }
+        return createJsonResponse(body);
+    }
+
+    private static String shortCode(APIGatewayV2HTTPEvent event) {
+        String shortCode = event.getPathParameters() == null ? null : event.getPathParameters().get("shortCode");
+        return shortCode == null || shortCode.isBlank() ? null : shortCode;
+    }
+
+    private static Map<String, String> queryParameters(APIGatewayV2HTTPEvent event) {
+        return event.getQueryStringParameters() == null ? Map.of() : event.getQueryStringParameters();
+    }
+
+    private static long parseTime(String value) {
+        String trimmed = value.trim();
+        if (!trimmed.isEmpty() && trimmed.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(trimmed);
+        }
+        return Instant.parse(trimmed).getEpochSecond();
+    }
+
+    private static APIGatewayV2HTTPResponse createJsonResponse(ObjectNode body) {
+        return APIGatewayV2HTTPResponse.builder()
+                .withStatusCode(200)
+                .withHeaders(Map.of("Content-Type", "application/json"))
+                .withBody(body.toString())
+                .build();
+    }
+
+    private APIGatewayV2HTTPResponse createErrorResponse(int statusCode, String message) {
+        return APIGatewayV2HTTPResponse.builder()
+                .withStatusCode(statusCode)
+                .withHeaders(Map.of("Content-Type", "application/json"))
+                .withBody("{\"error\": \"" + message + "\"}")
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package com.bro.quicklink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collapses the click events of one batch into a single delta per shortCode, remembering
+ * which batch items contributed to each delta so a failed write can be reported back.
+ * Each delta also splits its clicks by the minute they happened in, for the time buckets,
+ * and collects the visitor IDs of its clicks, for the unique-visitor sketch.
+ * Deltas of expiring links carry the expiry, which their analytics items take as TTL.
+ */
+public class ClickAggregator {
+
+    private final Map<String, Delta> deltas = new LinkedHashMap<>();
+
+    public void add(String shortCode, String itemIdentifier, long epochSecond) {
+        add(shortCode, itemIdentifier, epochSecond, 0, 1);
+    }
+
+    /**
+     * @param visitor The click's 64-bit visitor ID, or 0 if it has none.
+     * @param weight  How many clicks the event stands for; see the redirect service's
+     *                cached-click sampling. Usually 1.
+     */
+    public void add(String shortCode, String itemIdentifier, long epochSecond, long visitor, long weight) {
+        add(shortCode, itemIdentifier, epochSecond, visitor, weight, 0);
+    }
+
+    /**
+     * @param expiresAt Epoch second the link expires at, or 0 if it never does.
+     */
+    public void add(String shortCode, String itemIdentifier, long epochSecond, long visitor, long weight,
+                    long expiresAt) {
+        Delta delta = deltas.computeIfAbsent(shortCode, code -> new Delta());
+        delta.clicks += weight;
+        // A link's expiry never changes; max() only guards against events that left it out.
+        delta.expiresAt = Math.max(delta.expiresAt, expiresAt);
+        delta.addToMinute(Granularity.MINUTE.truncate(epochSecond), weight);
+        if (visitor != 0) {
+            delta.addVisitor(visitor);
+        }
+        if (itemIdentifier != null) {
+            delta.itemIdentifiers.add(itemIdentifier);
+        }
+    }
+
+    public Map<String, Delta> deltas() {
+        return deltas;
+    }
+
+    public boolean isEmpty() {
+        return deltas.isEmpty();
+    }
+
+    public static final class Delta {
+        private long clicks;
+        private long expiresAt;
+        private final List<String> itemIdentifiers = new ArrayList<>(1);
+        // A batch spans a few seconds, so a delta rarely touches more than two minutes:
+        // parallel arrays with a linear search beat a boxed map here.
+        private long[] minutes = new long[2];
+        private long[] minuteClicks = new long[2];
+        private int minuteCount;
+        private long[] visitors;
+        private int visitorCount;
+
+        public long clicks() {
+            return clicks;
+        }
+
+        /**
+         * Epoch second the link expires at, or 0 if it never does.
+         */
+        public long expiresAt() {
+            return expiresAt;
+        }
+
+        public List<String> itemIdentifiers() {
+            return itemIdentifiers;
+        }
+
+        /**
+         * The number of distinct minutes with clicks; see {@link #minute} and {@link #clicksInMinute}.
+         */
+        public int minuteCount() {
+            return minuteCount;
+        }
+
+        /**
+         * The start (epoch second) of the i-th minute with clicks.
+         */
+        public long minute(int i) {
+            return minutes[i];
+        }
+
+        public long clicksInMinute(int i) {
+            return minuteClicks[i];
+        }
+
+        public int visitorCount() {
+            return visitorCount;
+        }
+
+        public long visitor(int i) {
+            return visitors[i];
+        }
+
+        private void addVisitor(long visitor) {
+            if (visitors == null) {
+                visitors = new long[4];
+            } else if (visitorCount == visitors.length) {
+                visitors = Arrays.copyOf(visitors, visitorCount * 2);
+            }
+            visitors[visitorCount++] = visitor;
+        }
+
+        private void addToMinute(long minute, long weight) {
+            if (weight == 0) return;
+            for (int i = 0; i < minuteCount; i++) {
+                if (minutes[i] == minute) {
+                    minuteClicks[i] += weight;
+                    return;
+                }
+            }
+            if (minuteCount == minutes.length) {
+                minutes = Arrays.copyOf(minutes, minuteCount * 2);
+                minuteClicks = Arrays.copyOf(minuteClicks, minuteCount * 2);
+            }
+            minutes[minuteCount] = minute;
+            minuteClicks[minuteCount++] = weight;
+        }
+    }
+}
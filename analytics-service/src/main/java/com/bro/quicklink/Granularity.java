@@ -0,0 +1,48 @@
+package com.bro.quicklink;
+
+/**
+ * The sizes of the time buckets clicks are counted in. Buckets are aligned to UTC epoch
+ * boundaries, so a bucket's start identifies it.
+ */
+public enum Granularity {
+    MINUTE("minute", 60),
+    HOUR("hour", 60 * 60),
+    DAY("day", 24 * 60 * 60);
+
+    private final String label;
+    private final long seconds;
+
+    Granularity(String label, long seconds) {
+        this.label = label;
+        this.seconds = seconds;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public long seconds() {
+        return seconds;
+    }
+
+    /**
+     * The start of the bucket containing {@code epochSecond}.
+     */
+    public long truncate(long epochSecond) {
+        return Math.floorDiv(epochSecond, seconds) * seconds;
+    }
+
+    /**
+     * The partition key of a code's buckets at this granularity, e.g. {@code abc123#minute}.
+     */
+    public String bucketKey(String shortCode) {
+        return shortCode + "#" + label;
+    }
+
+    public static Granularity parse(String label) {
+        for (Granularity granularity : values()) {
+            if (granularity.label.equalsIgnoreCase(label)) return granularity;
+        }
+        throw new IllegalArgumentException("Unknown granularity: " + label);
+    }
+}
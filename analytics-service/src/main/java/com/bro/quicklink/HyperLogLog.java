@@ -0,0 +1,123 @@
+package com.bro.quicklink;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A HyperLogLog sketch of distinct 64-bit hashes: 2^precision one-byte registers, about
+ * 1.6% standard error at the default precision of 12, whatever the number of hashes.
+ * Adding a hash twice, or merging a sketch into itself, changes nothing, so replayed
+ * clicks never inflate the estimate.
+ *
+ * Serialized sketches are sparse (index and value of each non-zero register) while that
+ * is smaller than the dense form, so links with few visitors take a few bytes, not 4 KB.
+ */
+public final class HyperLogLog {
+
+    static final int DEFAULT_PRECISION = 12;
+
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("Precision must be between 4 and 16: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * @return Whether the sketch changed.
+     */
+    public boolean offer(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        // The sentinel bit caps the rank at 64 - precision + 1 when the remaining bits are all zero.
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank <= registers[index]) return false;
+        registers[index] = (byte) rank;
+        return true;
+    }
+
+    /**
+     * @return Whether the sketch changed.
+     */
+    public boolean merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge precision " + other.precision + " into " + precision);
+        }
+        boolean changed = false;
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) zeros++;
+        }
+        double alpha = switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+        double estimate = alpha * m * m / sum;
+        // Small-range correction: linear counting is more accurate while registers are still empty.
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public double relativeStandardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) nonZero++;
+        }
+        if (nonZero * 3 + 2 < registers.length) {
+            ByteBuffer buffer = ByteBuffer.allocate(4 + nonZero * 3)
+                    .put((byte) precision).put(SPARSE).putShort((short) nonZero);
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] != 0) buffer.putShort((short) i).put(registers[i]);
+            }
+            return buffer.array();
+        }
+        return ByteBuffer.allocate(2 + registers.length).put((byte) precision).put(DENSE).put(registers).array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+        byte format = buffer.get();
+        if (format == SPARSE) {
+            int nonZero = Short.toUnsignedInt(buffer.getShort());
+            for (int i = 0; i < nonZero; i++) {
+                sketch.registers[Short.toUnsignedInt(buffer.getShort())] = buffer.get();
+            }
+        } else if (format == DENSE) {
+            buffer.get(sketch.registers);
+        } else {
+            throw new IllegalArgumentException("Unknown HyperLogLog format: " + format);
+        }
+        return sketch;
+    }
+}
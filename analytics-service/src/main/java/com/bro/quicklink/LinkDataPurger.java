@@ -0,0 +1,116 @@
+package com.bro.quicklink;
+
+import com.bro.quicklink.aws.RetryBackoff;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deletes everything the analytics pipeline keeps about one link: the counter item and
+ * its shards, every minute, hour and day bucket, and the unique-visitors sketch. Buckets
+ * are queried a page at a time and deleted in BatchWriteItem batches as each page arrives,
+ * so a link with years of history never has to be held in memory.
+ *
+ * Deletes are idempotent, so a purge that fails halfway is simply run again. Shards go
+ * before the base item, which is what records how many shards there are. The hourly
+ * top-links summaries span all links and are left to their own TTL. Clicks still queued
+ * when a link is purged write its items again, but with the link's expiry as their TTL, so
+ * DynamoDB removes them in turn.
+ */
+public class LinkDataPurger {
+
+    private static final int MAX_BATCH_WRITE_ITEMS = 25; // BatchWriteItem limit
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String analyticsTableName;
+    private final String bucketsTableName;
+    private final String sketchesTableName;
+
+    /**
+     * @param bucketsTableName  Null when time buckets aren't kept.
+     * @param sketchesTableName Null when sketches aren't kept.
+     */
+    public LinkDataPurger(DynamoDbClient dynamoDbClient, String analyticsTableName, String bucketsTableName,
+                          String sketchesTableName) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.analyticsTableName = analyticsTableName;
+        this.bucketsTableName = bucketsTableName;
+        this.sketchesTableName = sketchesTableName;
+    }
+
+    /**
+     * @return The number of delete requests issued, whether or not the items existed.
+     * @throws IllegalStateException When some deletes were still unprocessed after all attempts.
+     */
+    public int purge(String shortCode) {
+        int deleted = 0;
+        if (bucketsTableName != null) {
+            for (Granularity granularity : Granularity.values()) {
+                deleted += purgeBuckets(granularity.bucketKey(shortCode));
+            }
+        }
+        if (sketchesTableName != null) {
+            deleted += deleteAll(sketchesTableName, List.of(Map.of(
+                    "sketchKey", AttributeValue.builder().s(SketchStore.visitorsKey(shortCode)).build())));
+        }
+        return deleted + purgeCounters(shortCode);
+    }
+
+    private int purgeBuckets(String bucketKey) {
+        int[] deleted = {0};
+        dynamoDbClient.queryPaginator(QueryRequest.builder()
+                        .tableName(bucketsTableName)
+                        .keyConditionExpression("bucketKey = :k")
+                        .expressionAttributeValues(Map.of(":k", AttributeValue.builder().s(bucketKey).build()))
+                        .projectionExpression("bucketKey, bucketStart")
+                        .build())
+                .forEach(page -> deleted[0] += deleteAll(bucketsTableName, page.items()));
+        return deleted[0];
+    }
+
+    private int purgeCounters(String shortCode) {
+        Map<String, AttributeValue> base = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(analyticsTableName)
+                .key(Map.of("shortCode", AttributeValue.builder().s(shortCode).build()))
+                .projectionExpression("shards")
+                .consistentRead(true)
+                .build()).item();
+        int shards = base != null && base.containsKey("shards") ? Integer.parseInt(base.get("shards").n()) : 1;
+
+        List<Map<String, AttributeValue>> shardKeys = new ArrayList<>(shards - 1);
+        for (int shard = 1; shard < shards; shard++) {
+            shardKeys.add(Map.of("shortCode", AttributeValue.builder()
+                    .s(shortCode + ShardedCounterWriter.SHARD_SEPARATOR + shard).build()));
+        }
+        return deleteAll(analyticsTableName, shardKeys)
+                + deleteAll(analyticsTableName, List.of(Map.of("shortCode", AttributeValue.builder().s(shortCode).build())));
+    }
+
+    private int deleteAll(String tableName, List<Map<String, AttributeValue>> keys) {
+        for (int from = 0; from < keys.size(); from += MAX_BATCH_WRITE_ITEMS) {
+            List<WriteRequest> pending = keys.subList(from, Math.min(keys.size(), from + MAX_BATCH_WRITE_ITEMS)).stream()
+                    .map(key -> WriteRequest.builder().deleteRequest(DeleteRequest.builder().key(key).build()).build())
+                    .toList();
+            for (int attempt = 1; !pending.isEmpty(); attempt++) {
+                if (attempt > RetryBackoff.MAX_ATTEMPTS) {
+                    throw new IllegalStateException(pending.size() + " deletes from " + tableName + " were not processed");
+                }
+                if (attempt > 1) RetryBackoff.pause(attempt - 1);
+                pending = dynamoDbClient.batchWriteItem(BatchWriteItemRequest.builder()
+                                .requestItems(Map.of(tableName, pending))
+                                .build())
+                        .unprocessedItems()
+                        .getOrDefault(tableName, List.of());
+            }
+        }
+        return keys.size();
+    }
+}
@@ -0,0 +1,93 @@
+package com.bro.quicklink;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.bro.quicklink.aws.AwsClients;
+import com.bro.quicklink.metrics.Counter;
+import com.bro.quicklink.metrics.Metrics;
+import com.bro.quicklink.metrics.SdkMetricPublisher;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consumes the mappings table's stream and purges the analytics of every link whose
+ * mapping was removed, which for expiring links is DynamoDB's TTL deleting it. Records
+ * are handled in stream order; the first one that can't be purged is reported as a batch
+ * item failure so it and everything after it are retried.
+ */
+public class PurgeHandler implements RequestHandler<Map<String, Object>, Object> {
+
+    private final LinkDataPurger purger;
+    private final Metrics metrics;
+    private final Counter purgedLinks;
+    private final Counter purgedItems;
+    private final Counter failedRecords;
+
+    public PurgeHandler() {
+        this(Metrics.fromEnvironment("analytics-purge"));
+    }
+
+    private PurgeHandler(Metrics metrics) {
+        this(new LinkDataPurger(AwsClients.sync(DynamoDbClient.builder(), new SdkMetricPublisher(metrics)),
+                System.getenv("ANALYTICS_TABLE_NAME"),
+                blankToNull(System.getenv("ANALYTICS_BUCKETS_TABLE_NAME")),
+                blankToNull(System.getenv("ANALYTICS_SKETCHES_TABLE_NAME"))), metrics);
+    }
+
+    public PurgeHandler(LinkDataPurger purger, Metrics metrics) {
+        this.purger = purger;
+        this.metrics = metrics;
+        this.purgedLinks = metrics.counter("PurgedLinks");
+        this.purgedItems = metrics.counter("PurgedItems");
+        this.failedRecords = metrics.counter("PurgeFailedRecords");
+    }
+
+    @Override
+    public Object handleRequest(Map<String, Object> event, Context context) {
+        try {
+            return purge(event, context);
+        } finally {
+            metrics.flush();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> purge(Map<String, Object> event, Context context) {
+        List<Map<String, String>> batchItemFailures = new ArrayList<>();
+        if (!(event.get("Records") instanceof List<?> records)) {
+            return Map.of("batchItemFailures", batchItemFailures);
+        }
+
+        for (Map<String, Object> record : (List<Map<String, Object>>) records) {
+            if (!"REMOVE".equals(record.get("eventName"))) continue;
+            Map<String, Object> dynamodb = (Map<String, Object>) record.get("dynamodb");
+            String shortCode = shortCode(dynamodb);
+            if (shortCode == null) continue;
+            try {
+                purgedItems.add(purger.purge(shortCode));
+                purgedLinks.increment();
+            } catch (SdkException | IllegalStateException e) {
+                // Streams retry from the first reported failure on, so nothing after it is attempted now.
+                context.getLogger().log("Failed to purge the analytics of " + shortCode + ": " + e.getMessage());
+                failedRecords.increment();
+                batchItemFailures.add(Map.of("itemIdentifier", (String) dynamodb.get("SequenceNumber")));
+                break;
+            }
+        }
+        return Map.of("batchItemFailures", batchItemFailures);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String shortCode(Map<String, Object> dynamodb) {
+        if (dynamodb == null || !(dynamodb.get("Keys") instanceof Map<?, ?> keys)) return null;
+        return keys.get("shortCode") instanceof Map<?, ?> shortCode ? (String) ((Map<String, Object>) shortCode).get("S") : null;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
@@ -0,0 +1,166 @@
+package com.bro.quicklink;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Writes click deltas to the analytics table, spreading the writes of hot links over
+ * several items so a single viral shortCode can't throttle its partition.
+ *
+ * Shard 0 is the plain {@code shortCode} item; shards 1..N-1 are stored as {@code shortCode#k}
+ * with a {@code baseCode} attribute. Once a code is promoted, the base item carries a
+ * {@code shards} attribute and readers sum all N items. A code is promoted when the click
+ * rate observed by this container passes the configured threshold.
+ *
+ * Counters of expiring links carry the link's expiry as their {@code expiresAt} TTL, so
+ * clicks processed after the link's analytics were purged don't leave a counter behind.
+ */
+public class ShardedCounterWriter {
+
+    static final String SHARD_SEPARATOR = "#";
+    private static final int MAX_TRACKED_CODES = 10_000;
+    private static final double RATE_WINDOW_SECONDS = 10.0;
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+    private final int maxShards;
+    private final double promotionClicksPerSecond;
+    private final LongSupplier clock;
+
+    private final Map<String, Integer> knownShards = boundedMap();
+    private final Map<String, ClickRate> clickRates = boundedMap();
+
+    public ShardedCounterWriter(DynamoDbClient dynamoDbClient, String tableName, int maxShards,
+                                double promotionClicksPerSecond) {
+        this(dynamoDbClient, tableName, maxShards, promotionClicksPerSecond, System::nanoTime);
+    }
+
+    ShardedCounterWriter(DynamoDbClient dynamoDbClient, String tableName, int maxShards,
+                         double promotionClicksPerSecond, LongSupplier clock) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+        this.maxShards = Math.max(1, maxShards);
+        this.promotionClicksPerSecond = promotionClicksPerSecond;
+        this.clock = clock;
+    }
+
+    public static ShardedCounterWriter fromEnvironment(DynamoDbClient dynamoDbClient, String tableName) {
+        String maxShards = System.getenv("COUNTER_MAX_SHARDS");
+        String threshold = System.getenv("SHARD_PROMOTION_CLICKS_PER_SECOND");
+        return new ShardedCounterWriter(dynamoDbClient, tableName,
+                maxShards == null || maxShards.isBlank() ? 1 : Integer.parseInt(maxShards.trim()),
+                threshold == null || threshold.isBlank() ? 100.0 : Double.parseDouble(threshold.trim()));
+    }
+
+    public void add(String shortCode, long clicks) {
+        add(shortCode, clicks, 0);
+    }
+
+    /**
+     * @param expiresAt Epoch second the link expires at, or 0 if it never does.
+     */
+    public void add(String shortCode, long clicks, long expiresAt) {
+        int shards = shardCount(shortCode, clicks);
+        int shard = shards <= 1 ? 0 : ThreadLocalRandom.current().nextInt(shards);
+
+        Map<String, AttributeValue> values = new HashMap<>(4);
+        values.put(":inc", AttributeValue.builder().n(Long.toString(clicks)).build());
+        String expiry = "";
+        if (expiresAt > 0) {
+            values.put(":ttl", AttributeValue.builder().n(Long.toString(expiresAt)).build());
+            expiry = "expiresAt = :ttl";
+        }
+
+        if (shard == 0) {
+            UpdateItemResponse response = dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                    .tableName(tableName)
+                    .key(Map.of("shortCode", AttributeValue.builder().s(shortCode).build()))
+                    .updateExpression(expiry.isEmpty() ? "ADD clicks :inc" : "ADD clicks :inc SET " + expiry)
+                    .expressionAttributeValues(values)
+                    .returnValues(maxShards > 1 ? ReturnValue.ALL_NEW : ReturnValue.NONE)
+                    .build());
+            // Pick up promotions made by other containers from the base item.
+            AttributeValue promoted = response.hasAttributes() ? response.attributes().get("shards") : null;
+            if (promoted != null) {
+                knownShards.put(shortCode, Integer.parseInt(promoted.n()));
+            }
+            return;
+        }
+
+        values.put(":base", AttributeValue.builder().s(shortCode).build());
+        dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of("shortCode", AttributeValue.builder().s(shortCode + SHARD_SEPARATOR + shard).build()))
+                .updateExpression(expiry.isEmpty() ? "ADD clicks :inc SET baseCode = :base"
+                        : "ADD clicks :inc SET baseCode = :base, " + expiry)
+                .expressionAttributeValues(values)
+                .build());
+    }
+
+    private int shardCount(String shortCode, long clicks) {
+        if (maxShards <= 1) return 1;
+
+        int shards = knownShards.getOrDefault(shortCode, 1);
+        if (shards >= maxShards) return shards;
+
+        double rate = clickRates.computeIfAbsent(shortCode, code -> new ClickRate()).record(clicks, clock.getAsLong());
+        if (rate > promotionClicksPerSecond) {
+            promote(shortCode);
+            return knownShards.getOrDefault(shortCode, shards);
+        }
+        return shards;
+    }
+
+    private void promote(String shortCode) {
+        try {
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                    .tableName(tableName)
+                    .key(Map.of("shortCode", AttributeValue.builder().s(shortCode).build()))
+                    .updateExpression("SET shards = :n")
+                    .conditionExpression("attribute_not_exists(shards) OR shards < :n")
+                    .expressionAttributeValues(Map.of(":n", AttributeValue.builder().n(Integer.toString(maxShards)).build()))
+                    .build());
+        } catch (ConditionalCheckFailedException e) {
+            // Another container already promoted it.
+        }
+        knownShards.put(shortCode, maxShards);
+        clickRates.remove(shortCode);
+    }
+
+    private static <V> Map<String, V> boundedMap() {
+        return new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > MAX_TRACKED_CODES;
+            }
+        };
+    }
+
+    /**
+     * Exponentially decayed clicks-per-second estimate.
+     */
+    private static final class ClickRate {
+        private double rate;
+        private long lastUpdate = -1;
+
+        double record(long clicks, long now) {
+            if (lastUpdate >= 0) {
+                double elapsedSeconds = (now - lastUpdate) / 1e9;
+                rate *= Math.exp(-elapsedSeconds / RATE_WINDOW_SECONDS);
+            }
+            lastUpdate = now;
+            rate += clicks / RATE_WINDOW_SECONDS;
+            return rate;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.bro.quicklink;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the analytics sketches in the sketches table, one binary item each:
+ * {@code visitors#<shortCode>} holds a link's {@link HyperLogLog} of visitor IDs and
+ * {@code top#<hourStart>} the {@link SpaceSaving} summary of that hour's clicks.
+ *
+ * Every batch touches the current hour's summary, so it is split into shards: shard 0 is
+ * the plain {@code top#<hourStart>} item and shards 1..N-1 are {@code top#<hourStart>#k}.
+ * Each batch writes to one shard picked at random and readers merge all N, so concurrent
+ * containers rarely contend for the same item. Summaries merge without losing their
+ * guarantees, so the split costs only the extra reads.
+ *
+ * Updates are read-merge-write with a {@code version} condition, retried when another
+ * container got there first. Visitor updates that change no register skip the write,
+ * which is the common case for returning visitors.
+ */
+public class SketchStore {
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int MAX_BATCH_GET_KEYS = 100;
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+    private final int topCapacity;
+    private final int topShards;
+    private final Duration topRetention;
+
+    /**
+     * @param topCapacity  Counters per hourly top-links summary.
+     * @param topShards    Items each hourly summary is split over; writers and readers must agree.
+     * @param topRetention How long hourly summaries are kept after the hour ends.
+     */
+    public SketchStore(DynamoDbClient dynamoDbClient, String tableName, int topCapacity, int topShards,
+                       Duration topRetention) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+        this.topCapacity = topCapacity;
+        this.topShards = Math.max(1, topShards);
+        this.topRetention = topRetention;
+    }
+
+    public static SketchStore fromEnvironment(DynamoDbClient dynamoDbClient, String tableName) {
+        String capacity = System.getenv("ANALYTICS_TOP_CAPACITY");
+        String shards = System.getenv("ANALYTICS_TOP_SHARDS");
+        String retention = System.getenv("ANALYTICS_TOP_RETENTION_DAYS");
+        return new SketchStore(dynamoDbClient, tableName,
+                capacity == null || capacity.isBlank() ? 512 : Integer.parseInt(capacity.trim()),
+                shards == null || shards.isBlank() ? 8 : Integer.parseInt(shards.trim()),
+                Duration.ofDays(retention == null || retention.isBlank() ? 7 : Long.parseLong(retention.trim())));
+    }
+
+    /**
+     * Adds the visitor hashes collected for a link to its unique-visitor sketch.
+     * Idempotent, so a replayed batch is harmless. The sketch of an expiring link takes its
+     * expiry as TTL.
+     */
+    public void addVisitors(String shortCode, ClickAggregator.Delta delta) {
+        if (delta.visitorCount() == 0) return;
+        update(visitorsKey(shortCode), HyperLogLog::fromBytes, HyperLogLog::new, sketch -> {
+            boolean changed = false;
+            for (int i = 0; i < delta.visitorCount(); i++) {
+                changed |= sketch.offer(delta.visitor(i));
+            }
+            return changed;
+        }, HyperLogLog::toBytes, delta.expiresAt() > 0 ? delta.expiresAt() : null);
+    }
+
+    /**
+     * Adds the batch's clicks to one shard of the top-links summaries of the hours they
+     * happened in.
+     */
+    public void addClicks(ClickAggregator aggregator) {
+        Map<Long, Map<String, Long>> byHour = new LinkedHashMap<>();
+        aggregator.deltas().forEach((shortCode, delta) -> {
+            for (int i = 0; i < delta.minuteCount(); i++) {
+                byHour.computeIfAbsent(Granularity.HOUR.truncate(delta.minute(i)), hour -> new HashMap<>())
+                        .merge(shortCode, delta.clicksInMinute(i), Long::sum);
+            }
+        });
+        int shard = topShards == 1 ? 0 : ThreadLocalRandom.current().nextInt(topShards);
+        byHour.forEach((hourStart, clicks) -> update(topKey(hourStart, shard), SpaceSaving::fromBytes,
+                () -> new SpaceSaving(topCapacity), summary -> {
+                    clicks.forEach(summary::offer);
+                    return true;
+                }, SpaceSaving::toBytes,
+                topRetention.isZero() ? null : hourStart + Granularity.HOUR.seconds() + topRetention.toSeconds()));
+    }
+
+    /**
+     * A link's unique-visitor sketch, empty if it has had no visitors yet.
+     */
+    public HyperLogLog visitors(String shortCode) {
+        Map<String, AttributeValue> item = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of("sketchKey", AttributeValue.builder().s(visitorsKey(shortCode)).build()))
+                .build()).item();
+        return item == null || !item.containsKey("sketch")
+                ? new HyperLogLog()
+                : HyperLogLog.fromBytes(item.get("sketch").b().asByteArray());
+    }
+
+    /**
+     * The hourly top-links summaries (every shard of them) from the hour containing
+     * {@code fromEpochSecond} to the one containing {@code toEpochSecond}, merged into one.
+     */
+    public SpaceSaving topLinks(long fromEpochSecond, long toEpochSecond) {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        for (long hour = Granularity.HOUR.truncate(fromEpochSecond); hour <= toEpochSecond; hour += Granularity.HOUR.seconds()) {
+            for (int shard = 0; shard < topShards; shard++) {
+                keys.add(Map.of("sketchKey", AttributeValue.builder().s(topKey(hour, shard)).build()));
+            }
+        }
+
+        SpaceSaving merged = new SpaceSaving(topCapacity);
+        for (int start = 0; start < keys.size(); start += MAX_BATCH_GET_KEYS) {
+            Map<String, KeysAndAttributes> requestItems = Map.of(tableName, KeysAndAttributes.builder()
+                    .keys(keys.subList(start, Math.min(start + MAX_BATCH_GET_KEYS, keys.size())))
+                    .build());
+            while (!requestItems.isEmpty()) {
+                BatchGetItemResponse response = dynamoDbClient.batchGetItem(BatchGetItemRequest.builder()
+                        .requestItems(requestItems)
+                        .build());
+                for (Map<String, AttributeValue> item : response.responses().getOrDefault(tableName, List.of())) {
+                    merged.merge(SpaceSaving.fromBytes(item.get("sketch").b().asByteArray()));
+                }
+                requestItems = response.unprocessedKeys();
+            }
+        }
+        return merged;
+    }
+
+    private <S> void update(String key, Function<byte[], S> decode, Supplier<S> create, Predicate<S> apply,
+                            Function<S, byte[]> encode, Long expiresAt) {
+        for (int attempt = 1; ; attempt++) {
+            Map<String, AttributeValue> item = dynamoDbClient.getItem(GetItemRequest.builder()
+                    .tableName(tableName)
+                    .key(Map.of("sketchKey", AttributeValue.builder().s(key).build()))
+                    .consistentRead(true)
+                    .build()).item();
+            boolean exists = item != null && item.containsKey("sketch");
+            long version = exists ? Long.parseLong(item.get("version").n()) : 0;
+            S sketch = exists ? decode.apply(item.get("sketch").b().asByteArray()) : create.get();
+            if (!apply.test(sketch)) return;
+
+            Map<String, AttributeValue> updated = new HashMap<>();
+            updated.put("sketchKey", AttributeValue.builder().s(key).build());
+            updated.put("sketch", AttributeValue.builder().b(SdkBytes.fromByteArray(encode.apply(sketch))).build());
+            updated.put("version", AttributeValue.builder().n(Long.toString(version + 1)).build());
+            if (expiresAt != null) {
+                updated.put("expiresAt", AttributeValue.builder().n(Long.toString(expiresAt)).build());
+            }
+            PutItemRequest.Builder put = PutItemRequest.builder().tableName(tableName).item(updated);
+            if (exists) {
+                put.conditionExpression("version = :v")
+                        .expressionAttributeValues(Map.of(":v", AttributeValue.builder().n(Long.toString(version)).build()));
+            } else {
+                put.conditionExpression("attribute_not_exists(sketchKey)");
+            }
+            try {
+                dynamoDbClient.putItem(put.build());
+                return;
+            } catch (ConditionalCheckFailedException e) {
+                // Another container updated the sketch since we read it: merge again on top of its version.
+                if (attempt == MAX_ATTEMPTS) throw e;
+            }
+        }
+    }
+
+    static String visitorsKey(String shortCode) {
+        return "visitors#" + shortCode;
+    }
+
+    static String topKey(long hourStart, int shard) {
+        return shard == 0 ? "top#" + hourStart : "top#" + hourStart + "#" + shard;
+    }
+}
@@ -0,0 +1,228 @@
+package com.bro.quicklink;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Space-Saving summary of the most clicked links: at most {@code capacity} counters,
+ * however many links there are. A link outside the summary takes over the smallest
+ * counter and inherits its count as error, so every reported count is an upper bound and
+ * count minus error a lower bound. Any link with more than total / capacity clicks is
+ * guaranteed to be in the summary.
+ *
+ * Summaries merge (Agarwal et al., "Mergeable Summaries"), so hourly summaries can be
+ * combined into any longer window.
+ *
+ * Counters are also kept in a min-heap on count, so finding the counter to take over costs
+ * O(1) and an offer O(log capacity) rather than a scan of every counter.
+ */
+public final class SpaceSaving {
+
+    private static final byte FORMAT = 1;
+    private static final Comparator<Entry> BY_COUNT_DESCENDING = Comparator.comparingLong((Entry e) -> e.count).reversed();
+
+    private final int capacity;
+    private final Map<String, Entry> entries;
+    // heap[0] has the smallest count; each entry knows its slot.
+    private final Entry[] heap;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.entries = new HashMap<>(capacity * 4 / 3 + 1);
+        this.heap = new Entry[capacity];
+    }
+
+    public void offer(String key, long count) {
+        total += count;
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.count += count;
+            siftDown(entry.index);
+        } else if (entries.size() < capacity) {
+            add(new Entry(key, count, 0));
+        } else {
+            Entry min = heap[0];
+            entries.remove(min.key);
+            Entry replacement = new Entry(key, min.count + count, min.count);
+            entries.put(key, replacement);
+            heap[0] = replacement;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Adds another summary's counts to this one. Links missing from a full summary may
+     * have had up to its smallest count there, which is added to both their count and error.
+     */
+    public void merge(SpaceSaving other) {
+        long thisMin = entries.size() < capacity ? 0 : heap[0].count;
+        long otherMin = other.entries.size() < other.capacity ? 0 : other.heap[0].count;
+
+        List<Entry> combined = new ArrayList<>(entries.size() + other.entries.size());
+        for (Entry entry : entries.values()) {
+            Entry match = other.entries.get(entry.key);
+            combined.add(match != null
+                    ? new Entry(entry.key, entry.count + match.count, entry.error + match.error)
+                    : new Entry(entry.key, entry.count + otherMin, entry.error + otherMin));
+        }
+        for (Entry entry : other.entries.values()) {
+            if (!entries.containsKey(entry.key)) {
+                combined.add(new Entry(entry.key, entry.count + thisMin, entry.error + thisMin));
+            }
+        }
+        combined.sort(BY_COUNT_DESCENDING);
+
+        entries.clear();
+        // Added smallest first, so the heap fills in sorted order and nothing sifts.
+        for (int i = Math.min(combined.size(), capacity) - 1; i >= 0; i--) {
+            add(combined.get(i));
+        }
+        total += other.total;
+    }
+
+    /**
+     * The {@code k} links with the highest counts, highest first.
+     */
+    public List<Estimate> top(int k) {
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(BY_COUNT_DESCENDING);
+        List<Estimate> top = new ArrayList<>(Math.min(k, sorted.size()));
+        for (int i = 0; i < sorted.size() && i < k; i++) {
+            Entry entry = sorted.get(i);
+            top.add(new Estimate(entry.key, entry.count, entry.error));
+        }
+        return top;
+    }
+
+    /**
+     * The sum of all counts offered, including those of links no longer in the summary.
+     */
+    public long total() {
+        return total;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + entries.size() * 16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeInt(capacity);
+            writeVarLong(out, total);
+            out.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                out.writeUTF(entry.key);
+                writeVarLong(out, entry.count);
+                writeVarLong(out, entry.error);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SpaceSaving fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte format = in.readByte();
+            if (format != FORMAT) throw new IllegalArgumentException("Unknown Space-Saving format: " + format);
+            SpaceSaving summary = new SpaceSaving(in.readInt());
+            summary.total = readVarLong(in);
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String key = in.readUTF();
+                summary.add(new Entry(key, readVarLong(in), readVarLong(in)));
+            }
+            return summary;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt Space-Saving summary", e);
+        }
+    }
+
+    private void add(Entry entry) {
+        int index = entries.size();
+        entries.put(entry.key, entry);
+        heap[index] = entry;
+        entry.index = index;
+        siftUp(index);
+    }
+
+    private void siftUp(int index) {
+        Entry entry = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= entry.count) break;
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(entry, index);
+    }
+
+    private void siftDown(int index) {
+        Entry entry = heap[index];
+        int size = entries.size();
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) child++;
+            if (entry.count <= heap[child].count) break;
+            place(heap[child], index);
+            index = child;
+        }
+        place(entry, index);
+    }
+
+    private void place(Entry entry, int index) {
+        heap[index] = entry;
+        entry.index = index;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    /**
+     * @param count Upper bound of the link's clicks.
+     * @param error How much of the count may belong to other links.
+     */
+    public record Estimate(String shortCode, long count, long error) {
+    }
+
+    private static final class Entry {
+        private final String key;
+        private long count;
+        private final long error;
+        private int index;
+
+        private Entry(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
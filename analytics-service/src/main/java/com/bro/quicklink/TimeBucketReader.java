@@ -0,0 +1,51 @@
+package com.bro.quicklink;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+
+import java.util.Map;
+
+/**
+ * Reads a range of one shortCode's time buckets. The query touches only the items in the
+ * range, so its cost grows with the number of buckets asked for, not with the table.
+ */
+public class TimeBucketReader {
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+
+    public TimeBucketReader(DynamoDbClient dynamoDbClient, String tableName) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+    }
+
+    /**
+     * The clicks of each bucket from the one containing {@code fromEpochSecond} up to and
+     * including the one containing {@code toEpochSecond}; buckets without clicks are zero.
+     */
+    public long[] read(String shortCode, Granularity granularity, long fromEpochSecond, long toEpochSecond) {
+        long from = granularity.truncate(fromEpochSecond);
+        long to = granularity.truncate(toEpochSecond);
+        long[] clicks = new long[(int) ((to - from) / granularity.seconds() + 1)];
+
+        dynamoDbClient.queryPaginator(QueryRequest.builder()
+                        .tableName(tableName)
+                        .keyConditionExpression("bucketKey = :k AND bucketStart BETWEEN :from AND :to")
+                        .expressionAttributeValues(Map.of(
+                                ":k", AttributeValue.builder().s(granularity.bucketKey(shortCode)).build(),
+                                ":from", AttributeValue.builder().n(Long.toString(from)).build(),
+                                ":to", AttributeValue.builder().n(Long.toString(to)).build()))
+                        .projectionExpression("bucketStart, clicks")
+                        .build())
+                .items()
+                .forEach(item -> {
+                    long start = Long.parseLong(item.get("bucketStart").n());
+                    AttributeValue count = item.get("clicks");
+                    if (count != null) {
+                        clicks[(int) ((start - from) / granularity.seconds())] += Long.parseLong(count.n());
+                    }
+                });
+        return clicks;
+    }
+}
@@ -0,0 +1,107 @@
+package com.bro.quicklink;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Adds click deltas to the time buckets table, one item per shortCode, granularity and
+ * bucket: {@code bucketKey = shortCode#minute|hour|day}, {@code bucketStart} = epoch second.
+ *
+ * Minute deltas are rolled up into their hour and day buckets as they are written, so
+ * coarse buckets are always current and no rollup job has to rescan fine-grained data.
+ * Each bucket gets an {@code expiresAt} TTL of its end plus the retention configured for
+ * its granularity; a retention of zero keeps the buckets forever. Buckets of an expiring
+ * link never outlive it, so clicks processed after its analytics were purged don't leave
+ * buckets behind.
+ */
+public class TimeBucketWriter {
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+    private final Map<Granularity, Duration> retention;
+
+    /**
+     * @param retention How long buckets of each granularity are kept after they end;
+     *                  missing or zero means forever.
+     */
+    public TimeBucketWriter(DynamoDbClient dynamoDbClient, String tableName, Map<Granularity, Duration> retention) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+        this.retention = new EnumMap<>(Granularity.class);
+        this.retention.putAll(retention);
+    }
+
+    public static TimeBucketWriter fromEnvironment(DynamoDbClient dynamoDbClient, String tableName) {
+        Map<Granularity, Duration> retention = new EnumMap<>(Granularity.class);
+        retention.put(Granularity.MINUTE, Duration.ofHours(longEnv("ANALYTICS_MINUTE_RETENTION_HOURS", 48)));
+        retention.put(Granularity.HOUR, Duration.ofDays(longEnv("ANALYTICS_HOUR_RETENTION_DAYS", 90)));
+        retention.put(Granularity.DAY, Duration.ofDays(longEnv("ANALYTICS_DAY_RETENTION_DAYS", 0)));
+        return new TimeBucketWriter(dynamoDbClient, tableName, retention);
+    }
+
+    /**
+     * Adds the delta's clicks to every bucket they fall in. A batch usually spans one or two
+     * minutes, which makes this three UpdateItems per shortCode in the common case. A failed
+     * write doesn't stop the others; the first failure is thrown once all have been tried.
+     */
+    public void add(String shortCode, ClickAggregator.Delta delta) {
+        SdkException failure = null;
+        for (Granularity granularity : Granularity.values()) {
+            // Merge the delta's minutes into this granularity's buckets; there are only a few.
+            int count = delta.minuteCount();
+            long[] starts = new long[count];
+            long[] clicks = new long[count];
+            int buckets = 0;
+            for (int i = 0; i < count; i++) {
+                long start = granularity.truncate(delta.minute(i));
+                int b = 0;
+                while (b < buckets && starts[b] != start) b++;
+                if (b == buckets) starts[buckets++] = start;
+                clicks[b] += delta.clicksInMinute(i);
+            }
+            for (int b = 0; b < buckets; b++) {
+                try {
+                    add(shortCode, granularity, starts[b], clicks[b], delta.expiresAt());
+                } catch (SdkException e) {
+                    if (failure == null) failure = e;
+                    else failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    private void add(String shortCode, Granularity granularity, long bucketStart, long clicks, long linkExpiresAt) {
+        Duration keep = retention.getOrDefault(granularity, Duration.ZERO);
+        long expiresAt = keep.isZero() || keep.isNegative() ? 0 : bucketStart + granularity.seconds() + keep.toSeconds();
+        if (linkExpiresAt > 0 && (expiresAt == 0 || linkExpiresAt < expiresAt)) {
+            expiresAt = linkExpiresAt;
+        }
+        UpdateItemRequest.Builder request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of(
+                        "bucketKey", AttributeValue.builder().s(granularity.bucketKey(shortCode)).build(),
+                        "bucketStart", AttributeValue.builder().n(Long.toString(bucketStart)).build()));
+        if (expiresAt == 0) {
+            request.updateExpression("ADD clicks :inc")
+                    .expressionAttributeValues(Map.of(":inc", AttributeValue.builder().n(Long.toString(clicks)).build()));
+        } else {
+            request.updateExpression("ADD clicks :inc SET expiresAt = :ttl")
+                    .expressionAttributeValues(Map.of(
+                            ":inc", AttributeValue.builder().n(Long.toString(clicks)).build(),
+                            ":ttl", AttributeValue.builder().n(Long.toString(expiresAt)).build()));
+        }
+        dynamoDbClient.updateItem(request.build());
+    }
+
+    private static long longEnv(String name, long defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
+    }
+}
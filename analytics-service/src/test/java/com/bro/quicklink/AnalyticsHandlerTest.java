@@ -0,0 +1,206 @@
+package com.bro.quicklink;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.bro.quicklink.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AnalyticsHandlerTest {
+
+	private static final String COUNTERS = "quicklink-analytics";
+	private static final String BUCKETS = "quicklink-analytics-buckets";
+
+	private final FakeTables tables = new FakeTables();
+	private final TestContext context = new TestContext();
+	private final AnalyticsHandler handler = new AnalyticsHandler(
+			new ShardedCounterWriter(tables, COUNTERS, 1, 100),
+			new TimeBucketWriter(tables, BUCKETS, Map.of()), null, Metrics.discarding("analytics-service"));
+
+	@Test
+	void countsEveryClickOnceAndInEveryBucket() {
+		Map<String, Object> response = handle(click("m1", "abc"), click("m2", "abc"), click("m3", "xyz"));
+
+		assertEquals(List.of(), response.get("batchItemFailures"));
+		assertEquals(2, tables.clicks(COUNTERS, "abc"));
+		assertEquals(1, tables.clicks(COUNTERS, "xyz"));
+		assertEquals(2, tables.clicks(BUCKETS, "abc#minute"));
+		assertEquals(2, tables.clicks(BUCKETS, "abc#hour"));
+		assertEquals(2, tables.clicks(BUCKETS, "abc#day"));
+	}
+
+	@Test
+	void retriesTheRecordsOfAFailedCounterWrite() {
+		tables.failing = request -> request.tableName().equals(COUNTERS)
+				&& request.key().get("shortCode").s().equals("abc");
+
+		Map<String, Object> response = handle(click("m1", "abc"), click("m2", "abc"), click("m3", "xyz"));
+
+		assertEquals(List.of(Map.of("itemIdentifier", "m1"), Map.of("itemIdentifier", "m2")),
+				response.get("batchItemFailures"));
+		assertEquals(0, tables.clicks(BUCKETS, "abc#minute"));
+		assertEquals(1, tables.clicks(COUNTERS, "xyz"));
+	}
+
+	@Test
+	void doesNotRetryOnceTheCounterHoldsTheClicks() {
+		tables.failing = request -> request.tableName().equals(BUCKETS)
+				&& request.key().get("bucketKey").s().equals("abc#minute");
+
+		Map<String, Object> response = handle(click("m1", "abc"), click("m2", "abc"));
+
+		assertEquals(List.of(), response.get("batchItemFailures"));
+		assertEquals(2, tables.clicks(COUNTERS, "abc"));
+		// The failed minute bucket doesn't keep the coarser buckets from being written.
+		assertEquals(2, tables.clicks(BUCKETS, "abc#hour"));
+		assertEquals(2, tables.clicks(BUCKETS, "abc#day"));
+		assertEquals(1, context.logged.size());
+	}
+
+	@Test
+	void expiresTheItemsOfAnExpiringLinkWithIt() {
+		handle(click("m1", "abc", 1_900_000_000L), click("m2", "xyz"));
+
+		assertEquals(1_900_000_000L, tables.expiries.get(COUNTERS + "/abc"));
+		assertEquals(1_900_000_000L, tables.expiries.get(BUCKETS + "/abc#minute"));
+		assertEquals(1_900_000_000L, tables.expiries.get(BUCKETS + "/abc#day"));
+		assertNull(tables.expiries.get(COUNTERS + "/xyz"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> handle(Map<String, Object>... records) {
+		return (Map<String, Object>) handler.handleRequest(Map.of("Records", List.of(records)), context);
+	}
+
+	private static Map<String, Object> click(String messageId, String shortCode) {
+		return Map.of("messageId", messageId, "body",
+				"{\"time\": \"2026-03-14T15:09:26Z\", \"detail\": {\"shortCode\": \"" + shortCode + "\"}}");
+	}
+
+	private static Map<String, Object> click(String messageId, String shortCode, long expiresAt) {
+		return Map.of("messageId", messageId, "body", "{\"time\": \"2026-03-14T15:09:26Z\", \"detail\": {\"shortCode\": \""
+				+ shortCode + "\", \"expiresAt\": " + expiresAt + "}}");
+	}
+
+	/**
+	 * Sums the ADDs per table and partition key, keeps the last TTL set on each, and throws
+	 * for the updates {@link #failing} matches.
+	 */
+	private static final class FakeTables implements DynamoDbClient {
+
+		private final Map<String, Long> clicks = new HashMap<>();
+		final Map<String, Long> expiries = new HashMap<>();
+		Predicate<UpdateItemRequest> failing = request -> false;
+
+		@Override
+		public UpdateItemResponse updateItem(UpdateItemRequest request) {
+			if (failing.test(request)) {
+				throw DynamoDbException.builder().message("throttled").build();
+			}
+			AttributeValue key = request.key().getOrDefault("shortCode", request.key().get("bucketKey"));
+			clicks.merge(request.tableName() + "/" + key.s(),
+					Long.parseLong(request.expressionAttributeValues().get(":inc").n()), Long::sum);
+			AttributeValue ttl = request.expressionAttributeValues().get(":ttl");
+			if (ttl != null) expiries.put(request.tableName() + "/" + key.s(), Long.parseLong(ttl.n()));
+			return UpdateItemResponse.builder().build();
+		}
+
+		long clicks(String table, String key) {
+			return clicks.getOrDefault(table + "/" + key, 0L);
+		}
+
+		@Override
+		public String serviceName() {
+			return SERVICE_NAME;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static final class TestContext implements Context {
+
+		final List<String> logged = new ArrayList<>();
+
+		@Override
+		public LambdaLogger getLogger() {
+			return new LambdaLogger() {
+				@Override
+				public void log(String message) {
+					logged.add(message);
+				}
+
+				@Override
+				public void log(byte[] message) {
+					logged.add(new String(message));
+				}
+			};
+		}
+
+		@Override
+		public String getAwsRequestId() {
+			return "request";
+		}
+
+		@Override
+		public String getLogGroupName() {
+			return null;
+		}
+
+		@Override
+		public String getLogStreamName() {
+			return null;
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "analytics";
+		}
+
+		@Override
+		public String getFunctionVersion() {
+			return "$LATEST";
+		}
+
+		@Override
+		public String getInvokedFunctionArn() {
+			return null;
+		}
+
+		@Override
+		public CognitoIdentity getIdentity() {
+			return null;
+		}
+
+		@Override
+		public ClientContext getClientContext() {
+			return null;
+		}
+
+		@Override
+		public int getRemainingTimeInMillis() {
+			return 30_000;
+		}
+
+		@Override
+		public int getMemoryLimitInMB() {
+			return 512;
+		}
+	}
+}
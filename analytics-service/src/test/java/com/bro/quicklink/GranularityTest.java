@@ -0,0 +1,47 @@
+package com.bro.quicklink;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GranularityTest {
+
+	private static final long T = Instant.parse("2026-03-14T15:09:26Z").getEpochSecond();
+
+	@Test
+	void truncatesToTheStartOfTheBucket() {
+		assertEquals(Instant.parse("2026-03-14T15:09:00Z").getEpochSecond(), Granularity.MINUTE.truncate(T));
+		assertEquals(Instant.parse("2026-03-14T15:00:00Z").getEpochSecond(), Granularity.HOUR.truncate(T));
+		assertEquals(Instant.parse("2026-03-14T00:00:00Z").getEpochSecond(), Granularity.DAY.truncate(T));
+	}
+
+	@Test
+	void bucketStartsBelongToTheirOwnBucket() {
+		long hour = Instant.parse("2026-03-14T15:00:00Z").getEpochSecond();
+
+		assertEquals(hour, Granularity.HOUR.truncate(hour));
+		assertEquals(hour, Granularity.HOUR.truncate(hour + 3599));
+		assertEquals(hour + 3600, Granularity.HOUR.truncate(hour + 3600));
+	}
+
+	@Test
+	void truncatesTimesBeforeTheEpochDownwards() {
+		assertEquals(-60, Granularity.MINUTE.truncate(-1));
+		assertEquals(-86_400, Granularity.DAY.truncate(-86_399));
+	}
+
+	@Test
+	void bucketKeyCombinesCodeAndLabel() {
+		assertEquals("abc123#minute", Granularity.MINUTE.bucketKey("abc123"));
+		assertEquals("abc123#day", Granularity.DAY.bucketKey("abc123"));
+	}
+
+	@Test
+	void parsesLabelsIgnoringCase() {
+		assertEquals(Granularity.HOUR, Granularity.parse("Hour"));
+		assertThrows(IllegalArgumentException.class, () -> Granularity.parse("week"));
+	}
+}
@@ -0,0 +1,114 @@
+package com.bro.quicklink;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+	@Test
+	void emptySketchEstimatesZero() {
+		assertEquals(0, new HyperLogLog().estimate());
+	}
+
+	@Test
+	void estimatesStayWithinThreeStandardErrors() {
+		for (int distinct : new int[]{100, 1_000, 10_000, 100_000, 1_000_000}) {
+			HyperLogLog sketch = new HyperLogLog();
+			SplittableRandom hashes = new SplittableRandom(distinct);
+			for (int i = 0; i < distinct; i++) sketch.offer(hashes.nextLong());
+
+			double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+			assertTrue(error <= 3 * sketch.relativeStandardError(),
+					"estimate " + sketch.estimate() + " for " + distinct + " is off by " + error);
+		}
+	}
+
+	@Test
+	void repeatedHashesDoNotInflateTheEstimate() {
+		HyperLogLog sketch = new HyperLogLog();
+		SplittableRandom hashes = new SplittableRandom(7);
+		long[] visitors = new long[500];
+		for (int i = 0; i < visitors.length; i++) visitors[i] = hashes.nextLong();
+		for (long visitor : visitors) sketch.offer(visitor);
+		long estimate = sketch.estimate();
+
+		for (int round = 0; round < 10; round++) {
+			for (long visitor : visitors) assertFalse(sketch.offer(visitor));
+		}
+
+		assertEquals(estimate, sketch.estimate());
+	}
+
+	@Test
+	void mergeEqualsTheSketchOfTheUnion() {
+		HyperLogLog left = new HyperLogLog();
+		HyperLogLog right = new HyperLogLog();
+		HyperLogLog union = new HyperLogLog();
+		SplittableRandom hashes = new SplittableRandom(42);
+		for (int i = 0; i < 20_000; i++) {
+			long hash = hashes.nextLong();
+			// Overlapping halves: every third hash goes to both sides.
+			if (i % 3 == 0 || i % 2 == 0) left.offer(hash);
+			if (i % 3 == 0 || i % 2 == 1) right.offer(hash);
+			union.offer(hash);
+		}
+
+		assertTrue(left.merge(right));
+
+		assertArrayEquals(union.toBytes(), left.toBytes());
+		assertEquals(union.estimate(), left.estimate());
+	}
+
+	@Test
+	void mergingASketchIntoItselfChangesNothing() {
+		HyperLogLog sketch = new HyperLogLog();
+		SplittableRandom hashes = new SplittableRandom(3);
+		for (int i = 0; i < 1000; i++) sketch.offer(hashes.nextLong());
+
+		assertFalse(sketch.merge(HyperLogLog.fromBytes(sketch.toBytes())));
+	}
+
+	@Test
+	void refusesToMergeDifferentPrecisions() {
+		assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(12).merge(new HyperLogLog(10)));
+	}
+
+	@Test
+	void smallSketchesSerializeSparsely() {
+		HyperLogLog sketch = new HyperLogLog();
+		SplittableRandom hashes = new SplittableRandom(11);
+		for (int i = 0; i < 10; i++) sketch.offer(hashes.nextLong());
+
+		byte[] bytes = sketch.toBytes();
+
+		assertTrue(bytes.length <= 4 + 10 * 3, "sparse form is " + bytes.length + " bytes");
+		HyperLogLog copy = HyperLogLog.fromBytes(bytes);
+		assertEquals(sketch.estimate(), copy.estimate());
+		assertArrayEquals(bytes, copy.toBytes());
+	}
+
+	@Test
+	void largeSketchesSerializeDensely() {
+		HyperLogLog sketch = new HyperLogLog();
+		SplittableRandom hashes = new SplittableRandom(13);
+		for (int i = 0; i < 50_000; i++) sketch.offer(hashes.nextLong());
+
+		byte[] bytes = sketch.toBytes();
+
+		assertEquals(2 + (1 << HyperLogLog.DEFAULT_PRECISION), bytes.length);
+		assertEquals(sketch.estimate(), HyperLogLog.fromBytes(bytes).estimate());
+	}
+
+	@Test
+	void rejectsOutOfRangePrecision() {
+		assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+		assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(17));
+	}
+}
@@ -0,0 +1,105 @@
+package com.bro.quicklink;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SketchStoreTest {
+
+	private static final long HOUR = 1_700_002_800;
+	private static final int SHARDS = 4;
+
+	private final FakeSketches table = new FakeSketches();
+	private final SketchStore store = new SketchStore(table, "sketches", 16, SHARDS, Duration.ofDays(7));
+
+	@Test
+	void spreadsBatchesOverTheHoursShardsAndMergesThemOnRead() {
+		for (int i = 0; i < 40; i++) {
+			ClickAggregator batch = new ClickAggregator();
+			batch.add("abc", "m" + i, HOUR + i);
+			batch.add("xyz", "n" + i, HOUR + i);
+			batch.add("abc", "o" + i, HOUR + i);
+			store.addClicks(batch);
+		}
+
+		List<String> shardKeys = new ArrayList<>();
+		for (int shard = 0; shard < SHARDS; shard++) shardKeys.add(SketchStore.topKey(HOUR, shard));
+		assertTrue(shardKeys.containsAll(table.items.keySet()), table.items.keySet().toString());
+		assertTrue(table.items.size() > 1, "every batch went to " + table.items.keySet());
+
+		SpaceSaving merged = store.topLinks(HOUR, HOUR + 3599);
+		assertEquals(List.of(new SpaceSaving.Estimate("abc", 80, 0), new SpaceSaving.Estimate("xyz", 40, 0)),
+				merged.top(10));
+		assertEquals(120, merged.total());
+	}
+
+	@Test
+	void readsSummariesWrittenBeforeSharding() {
+		SpaceSaving unsharded = new SpaceSaving(16);
+		unsharded.offer("old", 7);
+		table.items.put("top#" + HOUR, Map.of(
+				"sketchKey", AttributeValue.builder().s("top#" + HOUR).build(),
+				"sketch", AttributeValue.builder().b(SdkBytes.fromByteArray(unsharded.toBytes())).build(),
+				"version", AttributeValue.builder().n("1").build()));
+
+		assertEquals(List.of(new SpaceSaving.Estimate("old", 7, 0)), store.topLinks(HOUR, HOUR).top(10));
+	}
+
+	/**
+	 * Keeps sketch items by key. Writes are unconditional: the tests never race.
+	 */
+	private static final class FakeSketches implements DynamoDbClient {
+
+		final Map<String, Map<String, AttributeValue>> items = new HashMap<>();
+
+		@Override
+		public GetItemResponse getItem(GetItemRequest request) {
+			return GetItemResponse.builder().item(items.get(request.key().get("sketchKey").s())).build();
+		}
+
+		@Override
+		public PutItemResponse putItem(PutItemRequest request) {
+			items.put(request.item().get("sketchKey").s(), request.item());
+			return PutItemResponse.builder().build();
+		}
+
+		@Override
+		public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+			Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+			request.requestItems().forEach((table, keys) -> {
+				List<Map<String, AttributeValue>> found = new ArrayList<>();
+				for (Map<String, AttributeValue> key : keys.keys()) {
+					Map<String, AttributeValue> item = items.get(key.get("sketchKey").s());
+					if (item != null) found.add(item);
+				}
+				responses.put(table, found);
+			});
+			return BatchGetItemResponse.builder().responses(responses).build();
+		}
+
+		@Override
+		public String serviceName() {
+			return SERVICE_NAME;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
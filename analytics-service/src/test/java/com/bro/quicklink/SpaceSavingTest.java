@@ -0,0 +1,151 @@
+package com.bro.quicklink;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTest {
+
+	@Test
+	void countsExactlyWhileUnderCapacity() {
+		SpaceSaving summary = new SpaceSaving(3);
+		summary.offer("a", 5);
+		summary.offer("b", 2);
+		summary.offer("a", 1);
+
+		assertEquals(List.of(new SpaceSaving.Estimate("a", 6, 0), new SpaceSaving.Estimate("b", 2, 0)), summary.top(10));
+		assertEquals(8, summary.total());
+	}
+
+	@Test
+	void newLinkEvictsTheSmallestCounterAndInheritsItAsError() {
+		SpaceSaving summary = new SpaceSaving(3);
+		summary.offer("a", 10);
+		summary.offer("b", 4);
+		summary.offer("c", 7);
+
+		summary.offer("d", 1);
+
+		assertEquals(List.of(
+				new SpaceSaving.Estimate("a", 10, 0),
+				new SpaceSaving.Estimate("c", 7, 0),
+				new SpaceSaving.Estimate("d", 5, 4)), summary.top(3));
+		assertEquals(22, summary.total());
+	}
+
+	@Test
+	void evictsTheSmallestCounterAfterGrowthAMergeAndARoundTrip() {
+		SpaceSaving summary = new SpaceSaving(3);
+		summary.offer("a", 1);
+		summary.offer("b", 2);
+		summary.offer("c", 3);
+		// "a" grows past the others, so "b" becomes the smallest.
+		summary.offer("a", 10);
+		summary.offer("d", 1);
+		assertEquals(new SpaceSaving.Estimate("d", 3, 2), summary.top(3).get(2));
+
+		SpaceSaving other = new SpaceSaving(3);
+		other.offer("c", 20);
+		summary.merge(other);
+		SpaceSaving restored = SpaceSaving.fromBytes(summary.toBytes());
+		restored.offer("e", 1);
+
+		assertEquals(List.of(
+				new SpaceSaving.Estimate("c", 23, 0),
+				new SpaceSaving.Estimate("a", 11, 0),
+				new SpaceSaving.Estimate("e", 4, 3)), restored.top(3));
+	}
+
+	@Test
+	void keepsEveryHeavyHitterWithBoundedCounts() {
+		int capacity = 20;
+		SpaceSaving summary = new SpaceSaving(capacity);
+		Map<String, Long> actual = new HashMap<>();
+		SplittableRandom random = new SplittableRandom(5);
+		for (int i = 0; i < 100_000; i++) {
+			// Three hot links take about half the clicks; the rest spread over 5000 links.
+			int r = random.nextInt(100);
+			String key = r < 25 ? "hot-a" : r < 40 ? "hot-b" : r < 50 ? "hot-c" : "cold-" + random.nextInt(5000);
+			summary.offer(key, 1);
+			actual.merge(key, 1L, Long::sum);
+		}
+
+		List<SpaceSaving.Estimate> top = summary.top(capacity);
+		assertEquals(List.of("hot-a", "hot-b", "hot-c"), top.subList(0, 3).stream().map(SpaceSaving.Estimate::shortCode).toList());
+		for (SpaceSaving.Estimate estimate : top) {
+			long clicks = actual.get(estimate.shortCode());
+			assertTrue(estimate.count() >= clicks, estimate + " undercounts " + clicks);
+			assertTrue(estimate.count() - estimate.error() <= clicks, estimate + " lower bound above " + clicks);
+		}
+		long threshold = summary.total() / capacity;
+		actual.forEach((key, clicks) -> {
+			if (clicks > threshold) {
+				assertTrue(top.stream().anyMatch(e -> e.shortCode().equals(key)), key + " with " + clicks + " clicks missing");
+			}
+		});
+	}
+
+	@Test
+	void mergeAddsCountsOfSharedLinks() {
+		SpaceSaving left = new SpaceSaving(4);
+		left.offer("a", 5);
+		left.offer("b", 3);
+		SpaceSaving right = new SpaceSaving(4);
+		right.offer("a", 2);
+		right.offer("c", 9);
+
+		left.merge(right);
+
+		assertEquals(List.of(
+				new SpaceSaving.Estimate("c", 9, 0),
+				new SpaceSaving.Estimate("a", 7, 0),
+				new SpaceSaving.Estimate("b", 3, 0)), left.top(4));
+		assertEquals(19, left.total());
+	}
+
+	@Test
+	void mergeChargesLinksMissingFromAFullSummaryWithItsMinimum() {
+		SpaceSaving left = new SpaceSaving(2);
+		left.offer("a", 10);
+		left.offer("b", 4);
+		SpaceSaving right = new SpaceSaving(2);
+		right.offer("c", 6);
+		right.offer("d", 3);
+
+		left.merge(right);
+
+		// a and b may have had up to 3 clicks in right, c and d up to 4 in left.
+		assertEquals(List.of(
+				new SpaceSaving.Estimate("a", 13, 3),
+				new SpaceSaving.Estimate("c", 10, 4)), left.top(2));
+		assertEquals(23, left.total());
+	}
+
+	@Test
+	void roundTripsThroughBytes() {
+		SpaceSaving summary = new SpaceSaving(2);
+		summary.offer("a", 300);
+		summary.offer("b", 1);
+		summary.offer("c", 1);
+
+		SpaceSaving copy = SpaceSaving.fromBytes(summary.toBytes());
+
+		assertEquals(summary.top(2), copy.top(2));
+		assertEquals(summary.total(), copy.total());
+		assertEquals(summary.capacity(), copy.capacity());
+	}
+
+	@Test
+	void rejectsUnknownFormatsAndCapacities() {
+		assertThrows(IllegalArgumentException.class, () -> SpaceSaving.fromBytes(new byte[]{9}));
+		assertThrows(IllegalArgumentException.class, () -> SpaceSaving.fromBytes(new byte[]{1, 0}));
+		assertThrows(IllegalArgumentException.class, () -> new SpaceSaving(0));
+	}
+}
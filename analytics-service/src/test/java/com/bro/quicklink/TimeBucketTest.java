@@ -0,0 +1,198 @@
+package com.bro.quicklink;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TimeBucketTest {
+
+	private static final String TABLE = "quicklink-analytics-buckets";
+	private static final long HOUR = Instant.parse("2026-03-14T15:00:00Z").getEpochSecond();
+
+	private final FakeBucketTable table = new FakeBucketTable();
+	private final TimeBucketWriter writer = new TimeBucketWriter(table, TABLE, Map.of(
+			Granularity.MINUTE, Duration.ofHours(48),
+			Granularity.HOUR, Duration.ofDays(90)));
+	private final TimeBucketReader reader = new TimeBucketReader(table, TABLE);
+
+	@Test
+	void rollsMinuteClicksUpIntoTheirHourAndDay() {
+		writer.add("abc", delta(HOUR + 5, HOUR + 10, HOUR + 65));
+
+		assertEquals(2, table.clicks("abc#minute", HOUR));
+		assertEquals(1, table.clicks("abc#minute", HOUR + 60));
+		assertEquals(3, table.clicks("abc#hour", HOUR));
+		assertEquals(3, table.clicks("abc#day", Granularity.DAY.truncate(HOUR)));
+		// One write per bucket: two minutes, one hour, one day.
+		assertEquals(4, table.updates);
+	}
+
+	@Test
+	void splitsADeltaThatCrossesAnHourBoundary() {
+		writer.add("abc", delta(HOUR - 1, HOUR, HOUR + 1));
+
+		assertEquals(1, table.clicks("abc#hour", HOUR - 3600));
+		assertEquals(2, table.clicks("abc#hour", HOUR));
+		assertEquals(3, table.clicks("abc#day", Granularity.DAY.truncate(HOUR)));
+	}
+
+	@Test
+	void addsToExistingBuckets() {
+		writer.add("abc", delta(HOUR));
+		writer.add("abc", delta(HOUR + 30));
+
+		assertEquals(2, table.clicks("abc#minute", HOUR));
+		assertEquals(2, table.clicks("abc#hour", HOUR));
+	}
+
+	@Test
+	void expiresBucketsAfterTheirEndPlusRetention() {
+		writer.add("abc", delta(HOUR + 5));
+
+		assertEquals(HOUR + 60 + Duration.ofHours(48).toSeconds(), table.expiresAt("abc#minute", HOUR));
+		assertEquals(HOUR + 3600 + Duration.ofDays(90).toSeconds(), table.expiresAt("abc#hour", HOUR));
+		assertNull(table.expiresAt("abc#day", Granularity.DAY.truncate(HOUR)));
+	}
+
+	@Test
+	void readsEveryBucketInTheRangeIncludingEmptyOnes() {
+		writer.add("abc", delta(HOUR, HOUR + 1, HOUR + 120, HOUR + 299));
+		writer.add("other", delta(HOUR + 60));
+
+		assertArrayEquals(new long[]{2, 0, 1, 0, 1},
+				reader.read("abc", Granularity.MINUTE, HOUR + 30, HOUR + 240));
+	}
+
+	@Test
+	void rangeIsWidenedToWholeBuckets() {
+		writer.add("abc", delta(HOUR + 5, HOUR + 3599, HOUR + 3600));
+
+		assertArrayEquals(new long[]{2, 1}, reader.read("abc", Granularity.HOUR, HOUR + 1800, HOUR + 3601));
+		assertArrayEquals(new long[]{2}, reader.read("abc", Granularity.HOUR, HOUR + 3599, HOUR + 3599));
+	}
+
+	@Test
+	void coarserGranularitiesAgreeWithTheMinutes() {
+		writer.add("abc", delta(HOUR - 61, HOUR + 5, HOUR + 1805, HOUR + 3605));
+
+		long[] minutes = reader.read("abc", Granularity.MINUTE, HOUR - 3600, HOUR + 7199);
+		long[] hours = reader.read("abc", Granularity.HOUR, HOUR - 3600, HOUR + 7199);
+		long[] days = reader.read("abc", Granularity.DAY, HOUR - 3600, HOUR + 7199);
+
+		assertEquals(180, minutes.length);
+		assertArrayEquals(new long[]{1, 2, 1}, hours);
+		assertArrayEquals(new long[]{4}, days);
+		assertEquals(4, sum(minutes));
+	}
+
+	@Test
+	void readsOnlyTheRequestedKeyAndRange() {
+		writer.add("abc", delta(HOUR, HOUR + 3600));
+
+		reader.read("abc", Granularity.MINUTE, HOUR, HOUR + 59);
+
+		QueryRequest query = table.queries.get(0);
+		assertEquals("abc#minute", query.expressionAttributeValues().get(":k").s());
+		assertEquals(Long.toString(HOUR), query.expressionAttributeValues().get(":from").n());
+		assertEquals(Long.toString(HOUR), query.expressionAttributeValues().get(":to").n());
+		assertEquals(1, table.returned.size());
+	}
+
+	private static ClickAggregator.Delta delta(long... epochSeconds) {
+		ClickAggregator aggregator = new ClickAggregator();
+		for (long epochSecond : epochSeconds) aggregator.add("code", null, epochSecond);
+		return aggregator.deltas().get("code");
+	}
+
+	private static long sum(long[] values) {
+		long total = 0;
+		for (long value : values) total += value;
+		return total;
+	}
+
+	/**
+	 * Keeps the buckets in memory and evaluates the writer's ADD/SET updates and the
+	 * reader's BETWEEN queries.
+	 */
+	private static final class FakeBucketTable implements DynamoDbClient {
+
+		private final Map<String, Map<String, AttributeValue>> items = new HashMap<>();
+		final List<QueryRequest> queries = new ArrayList<>();
+		final List<Map<String, AttributeValue>> returned = new ArrayList<>();
+		int updates;
+
+		@Override
+		public UpdateItemResponse updateItem(UpdateItemRequest request) {
+			updates++;
+			String bucketKey = request.key().get("bucketKey").s();
+			long bucketStart = Long.parseLong(request.key().get("bucketStart").n());
+			Map<String, AttributeValue> item = items.computeIfAbsent(id(bucketKey, bucketStart), id -> new HashMap<>(request.key()));
+			Map<String, AttributeValue> values = request.expressionAttributeValues();
+			long clicks = item.containsKey("clicks") ? Long.parseLong(item.get("clicks").n()) : 0;
+			item.put("clicks", number(clicks + Long.parseLong(values.get(":inc").n())));
+			if (request.updateExpression().contains("SET expiresAt = :ttl")) {
+				item.put("expiresAt", values.get(":ttl"));
+			}
+			return UpdateItemResponse.builder().build();
+		}
+
+		@Override
+		public QueryResponse query(QueryRequest request) {
+			queries.add(request);
+			Map<String, AttributeValue> values = request.expressionAttributeValues();
+			long from = Long.parseLong(values.get(":from").n());
+			long to = Long.parseLong(values.get(":to").n());
+			List<Map<String, AttributeValue>> matches = items.values().stream()
+					.filter(item -> item.get("bucketKey").s().equals(values.get(":k").s()))
+					.filter(item -> {
+						long start = Long.parseLong(item.get("bucketStart").n());
+						return start >= from && start <= to;
+					})
+					.toList();
+			returned.addAll(matches);
+			return QueryResponse.builder().items(matches).count(matches.size()).build();
+		}
+
+		long clicks(String bucketKey, long bucketStart) {
+			Map<String, AttributeValue> item = items.get(id(bucketKey, bucketStart));
+			return item == null ? 0 : Long.parseLong(item.get("clicks").n());
+		}
+
+		Long expiresAt(String bucketKey, long bucketStart) {
+			AttributeValue expiresAt = items.get(id(bucketKey, bucketStart)).get("expiresAt");
+			return expiresAt == null ? null : Long.parseLong(expiresAt.n());
+		}
+
+		private static String id(String bucketKey, long bucketStart) {
+			return bucketKey + "@" + bucketStart;
+		}
+
+		private static AttributeValue number(long value) {
+			return AttributeValue.builder().n(Long.toString(value)).build();
+		}
+
+		@Override
+		public String serviceName() {
+			return SERVICE_NAME;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.bro.quicklink.aws;
+
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsAsyncClientBuilder;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.awscore.client.builder.AwsSyncClientBuilder;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient;
+import software.amazon.awssdk.http.crt.TcpKeepAliveConfiguration;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.regions.Region;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Builds the AWS SDK clients of every Quicklink service the same way:
+ * <ul>
+ *   <li>one shared HTTP client per container (URL-connection for sync clients, CRT for
+ *       async ones), so all service clients reuse the same kept-alive connections and
+ *       TLS sessions and only one HTTP stack is initialized;</li>
+ *   <li>connection pool sizing and connect/call/attempt timeouts, so a slow dependency
+ *       fails an invocation quickly instead of running it into the Lambda timeout;</li>
+ *   <li>adaptive retries, which back off client-side when a table starts throttling;</li>
+ *   <li>the region from {@code AWS_REGION} and, on Lambda, credentials straight from the
+ *       environment instead of walking the default provider chain, unless the runtime hands
+ *       them out through the container credentials endpoint (SnapStart does).</li>
+ * </ul>
+ *
+ * Setting {@code AWS_ENDPOINT_URL} points every client at a local stand-in (LocalStack,
+ * DynamoDB Local, ...). It wins over an endpoint set on the builder by the caller.
+ * Pool and timeout sizes can be tuned with the {@code AWS_CLIENT_*} variables below. The pool
+ * size caps the async client's connections. The sync client keeps connections alive in the
+ * JDK-wide cache, whose idle limit per destination ({@code http.maxConnections}, 5 by default)
+ * is raised to the pool size unless it is set explicitly. The JDK reads it once, so this only
+ * takes effect if nothing used HttpURLConnection before the first sync client was built.
+ *
+ * Usage: {@code DynamoDbClient dynamoDb = AwsClients.sync(DynamoDbClient.builder());}
+ * Pass a {@link MetricPublisher} as well to receive the SDK's per-call metrics.
+ */
+public final class AwsClients {
+
+    private static final Region REGION = Region.of(env("AWS_REGION", "us-east-1"));
+    private static final String ENDPOINT_URL = env("AWS_ENDPOINT_URL", null);
+    private static final int MAX_CONNECTIONS = Integer.parseInt(env("AWS_CLIENT_MAX_CONNECTIONS", "50"));
+    private static final Duration CONNECTION_TIMEOUT = millisEnv("AWS_CLIENT_CONNECTION_TIMEOUT_MS", 1_000);
+    private static final Duration SOCKET_TIMEOUT = millisEnv("AWS_CLIENT_SOCKET_TIMEOUT_MS", 5_000);
+    private static final Duration API_CALL_ATTEMPT_TIMEOUT = millisEnv("AWS_CLIENT_API_CALL_ATTEMPT_TIMEOUT_MS", 2_000);
+    private static final Duration API_CALL_TIMEOUT = millisEnv("AWS_CLIENT_API_CALL_TIMEOUT_MS", 10_000);
+    private static final Duration CONNECTION_MAX_IDLE_TIME = Duration.ofSeconds(60);
+
+    private static SdkHttpClient syncHttpClient;
+    private static SdkAsyncHttpClient asyncHttpClient;
+
+    private AwsClients() {
+    }
+
+    public static <B extends AwsSyncClientBuilder<B, C> & AwsClientBuilder<B, C>, C> C sync(B builder) {
+        return sync(builder, null);
+    }
+
+    public static <B extends AwsSyncClientBuilder<B, C> & AwsClientBuilder<B, C>, C> C sync(B builder,
+                                                                                               MetricPublisher metricPublisher) {
+        return configure(builder, metricPublisher).httpClient(syncHttpClient()).build();
+    }
+
+    public static <B extends AwsAsyncClientBuilder<B, C> & AwsClientBuilder<B, C>, C> C async(B builder) {
+        return async(builder, null);
+    }
+
+    public static <B extends AwsAsyncClientBuilder<B, C> & AwsClientBuilder<B, C>, C> C async(B builder,
+                                                                                                 MetricPublisher metricPublisher) {
+        return configure(builder, metricPublisher).httpClient(asyncHttpClient()).build();
+    }
+
+    public static Region region() {
+        return REGION;
+    }
+
+    private static <B extends AwsClientBuilder<B, C>, C> B configure(B builder, MetricPublisher metricPublisher) {
+        ClientOverrideConfiguration.Builder overrides = ClientOverrideConfiguration.builder()
+                .retryStrategy(RetryMode.ADAPTIVE_V2)
+                .apiCallAttemptTimeout(API_CALL_ATTEMPT_TIMEOUT)
+                .apiCallTimeout(API_CALL_TIMEOUT);
+        if (metricPublisher != null) {
+            overrides.addMetricPublisher(metricPublisher);
+        }
+        builder.region(REGION).overrideConfiguration(overrides.build());
+        if (ENDPOINT_URL != null) {
+            builder.endpointOverride(URI.create(ENDPOINT_URL));
+        }
+        if (useEnvironmentCredentials()) {
+            builder.credentialsProvider(EnvironmentVariableCredentialsProvider.create());
+        }
+        return builder;
+    }
+
+    /**
+     * SnapStart functions get no keys in the environment: credentials come from the endpoint in
+     * {@code AWS_CONTAINER_CREDENTIALS_FULL_URI}, which the default chain reads and refreshes.
+     */
+    private static boolean useEnvironmentCredentials() {
+        return System.getenv("AWS_LAMBDA_FUNCTION_NAME") != null && ENDPOINT_URL == null
+                && System.getenv("AWS_ACCESS_KEY_ID") != null
+                && System.getenv("AWS_CONTAINER_CREDENTIALS_FULL_URI") == null
+                && !"snap-start".equals(System.getenv("AWS_LAMBDA_INITIALIZATION_TYPE"));
+    }
+
+    private static synchronized SdkHttpClient syncHttpClient() {
+        if (syncHttpClient == null) {
+            // Concurrent callers (RedirectServer's virtual threads) would otherwise close all
+            // but 5 connections after each burst and pay a new TLS handshake for the next one.
+            if (System.getProperty("http.maxConnections") == null) {
+                System.setProperty("http.maxConnections", Integer.toString(MAX_CONNECTIONS));
+            }
+            syncHttpClient = UrlConnectionHttpClient.builder()
+                    .connectionTimeout(CONNECTION_TIMEOUT)
+                    .socketTimeout(SOCKET_TIMEOUT)
+                    .build();
+        }
+        return syncHttpClient;
+    }
+
+    private static synchronized SdkAsyncHttpClient asyncHttpClient() {
+        if (asyncHttpClient == null) {
+            asyncHttpClient = AwsCrtAsyncHttpClient.builder()
+                    .maxConcurrency(MAX_CONNECTIONS)
+                    .connectionTimeout(CONNECTION_TIMEOUT)
+                    .connectionMaxIdleTime(CONNECTION_MAX_IDLE_TIME)
+                    .tcpKeepAliveConfiguration(TcpKeepAliveConfiguration.builder()
+                            .keepAliveInterval(Duration.ofSeconds(30))
+                            .keepAliveTimeout(Duration.ofSeconds(5))
+                            .build())
+                    .build();
+        }
+        return asyncHttpClient;
+    }
+
+    private static Duration millisEnv(String name, long defaultValue) {
+        return Duration.ofMillis(Long.parseLong(env(name, Long.toString(defaultValue))));
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+}
@@ -0,0 +1,29 @@
+package com.bro.quicklink.aws;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter for retrying the unprocessed part of batch calls
+ * and other retries the SDK's own retry strategy doesn't cover.
+ */
+public final class RetryBackoff {
+
+    public static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_DELAY_MILLIS = 25;
+    private static final long MAX_DELAY_MILLIS = 1000;
+
+    private RetryBackoff() {
+    }
+
+    /**
+     * Sleeps before retry number {@code attempt} (1-based).
+     */
+    public static void pause(int attempt) {
+        long cap = Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << Math.min(attempt, 10));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
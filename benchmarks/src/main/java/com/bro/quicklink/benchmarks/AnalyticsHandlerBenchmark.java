@@ -0,0 +1,104 @@
+package com.bro.quicklink.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.bro.quicklink.AnalyticsHandler;
+import com.bro.quicklink.ClickAggregator;
+import com.bro.quicklink.ShardedCounterWriter;
+import com.bro.quicklink.SpaceSaving;
+import com.bro.quicklink.TimeBucketWriter;
+import com.bro.quicklink.metrics.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One SQS batch of click events per operation: parsing, per-code aggregation and the
+ * counter writes (against a stubbed DynamoDB client). {@code aggregateOnly} isolates the
+ * ClickAggregator from JSON parsing and the writer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyticsHandlerBenchmark {
+
+    @Param({"500"})
+    int batchSize;
+
+    @Param({"1000"})
+    int keys;
+
+    // 2024-01-01T00:00:00Z, the time in the event envelopes.
+    private static final long CLICK_TIME = 1_704_067_200L;
+
+    private AnalyticsHandler handler;
+    private Map<String, Object> batch;
+    private String[] shortCodes;
+    private final Context context = new StubContext();
+
+    @Setup
+    public void setUp() {
+        DynamoDbClient dynamoDb = StubClients.dynamoDb(shortCode -> null, List.of());
+        handler = new AnalyticsHandler(new ShardedCounterWriter(dynamoDb, "quicklink-analytics", 1, 100.0),
+                TimeBucketWriter.fromEnvironment(dynamoDb, "quicklink-analytics-buckets"), null,
+                Metrics.discarding("analytics-service"));
+
+        Zipf zipf = new Zipf(keys, 1.0);
+        Random random = new Random(42);
+        List<Map<String, Object>> records = new ArrayList<>(batchSize);
+        shortCodes = new String[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            shortCodes[i] = "code" + zipf.next(random);
+            records.add(Map.of(
+                    "messageId", "message-" + i,
+                    "body", "{\"version\":\"0\",\"id\":\"" + i + "\",\"detail-type\":\"UrlAccessedEvent\","
+                            + "\"source\":\"com.bro.quicklink.redirect-service\",\"time\":\"2024-01-01T00:00:00Z\","
+                            + "\"detail\":{\"shortCode\":\"" + shortCodes[i] + "\"}}"));
+        }
+        batch = Map.of("Records", records);
+    }
+
+    @Benchmark
+    public Object handleBatch() {
+        return handler.handleRequest(batch, context);
+    }
+
+    @Benchmark
+    public ClickAggregator aggregateOnly() {
+        ClickAggregator aggregator = new ClickAggregator();
+        for (int i = 0; i < shortCodes.length; i++) {
+            aggregator.add(shortCodes[i], "message-" + i, CLICK_TIME + i / 100);
+        }
+        return aggregator;
+    }
+
+    /**
+     * Folding one batch into an hourly top-links summary and serializing it, the CPU side
+     * of a sketch update.
+     */
+    @Benchmark
+    public byte[] topLinksSummary() {
+        SpaceSaving summary = new SpaceSaving(512);
+        for (String shortCode : shortCodes) {
+            summary.offer(shortCode, 1);
+        }
+        return summary.toBytes();
+    }
+}
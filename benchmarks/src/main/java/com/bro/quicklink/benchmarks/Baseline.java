@@ -0,0 +1,120 @@
+package com.bro.quicklink.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Runs the benchmarks with the GC profiler and saves the results as a JSON baseline, then
+ * optionally compares them with an earlier baseline. Score and allocated bytes per
+ * operation are printed side by side, so a performance change can be shown with numbers.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.bro.quicklink.benchmarks.Baseline \
+ *     [--include REGEX] [--name NAME] [--compare benchmarks/baselines/OLD.json]
+ * </pre>
+ *
+ * Baselines are written to {@code benchmarks/baselines/NAME.json}; NAME defaults to a timestamp.
+ * {@code --compare OLD.json NEW.json} only compares two existing files.
+ */
+public final class Baseline {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    private Baseline() {
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        String include = ".*";
+        String name = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path compareWith = null;
+        Path compareTo = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--include" -> include = args[++i];
+                case "--name" -> name = args[++i];
+                case "--compare" -> {
+                    compareWith = Path.of(args[++i]);
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) compareTo = Path.of(args[++i]);
+                }
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        if (compareTo == null) {
+            compareTo = Path.of("benchmarks", "baselines", name + ".json");
+            Files.createDirectories(compareTo.getParent());
+            new Runner(new OptionsBuilder()
+                    .include(include)
+                    .exclude(ColdStartBenchmark.class.getSimpleName())
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(compareTo.toString())
+                    .build()).run();
+            System.out.println("Baseline saved to " + compareTo);
+        }
+        if (compareWith != null) {
+            compare(compareWith, compareTo);
+        }
+    }
+
+    private static void compare(Path before, Path after) throws IOException {
+        Map<String, JsonNode> old = index(before);
+        Map<String, JsonNode> current = index(after);
+
+        System.out.printf("%n%-70s %14s %14s %8s %12s %12s%n",
+                "Benchmark", "Before", "After", "Change", "B/op before", "B/op after");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode now = entry.getValue();
+            JsonNode then = old.get(entry.getKey());
+            double score = now.path("primaryMetric").path("score").asDouble();
+            String unit = now.path("primaryMetric").path("scoreUnit").asText();
+            if (then == null) {
+                System.out.printf("%-70s %14s %14.3f %8s %12s %12.0f   %s%n", entry.getKey(), "-", score, "new", "-",
+                        allocation(now), unit);
+                continue;
+            }
+            double previous = then.path("primaryMetric").path("score").asDouble();
+            System.out.printf("%-70s %14.3f %14.3f %+7.1f%% %12.0f %12.0f   %s%n", entry.getKey(), previous, score,
+                    previous == 0 ? 0 : (score - previous) * 100 / previous, allocation(then), allocation(now), unit);
+        }
+    }
+
+    /**
+     * Results keyed by benchmark name plus parameters, e.g. {@code RedirectHandlerBenchmark.handleRequest(cacheTtlMillis=0)}.
+     */
+    private static Map<String, JsonNode> index(Path results) throws IOException {
+        Map<String, JsonNode> byKey = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(results.toFile())) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                    .replace(Baseline.class.getPackageName() + ".", ""));
+            JsonNode params = result.path("params");
+            if (!params.isMissingNode() && params.size() > 0) {
+                StringJoiner joined = new StringJoiner(",", "(", ")");
+                for (Map.Entry<String, JsonNode> param : params.properties()) {
+                    joined.add(param.getKey() + '=' + param.getValue().asText());
+                }
+                key.append(joined);
+            }
+            byKey.put(key.toString(), result);
+        }
+        return byKey;
+    }
+
+    private static double allocation(JsonNode result) {
+        return result.path("secondaryMetrics").path(ALLOCATION_METRIC).path("score").asDouble(Double.NaN);
+    }
+}
@@ -0,0 +1,66 @@
+package com.bro.quicklink.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.bro.quicklink.LambdaHandler;
+import com.bro.quicklink.LightweightLambdaHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of the shortening service's two Lambda entry points: the Spring Boot
+ * container handler against the hand-wired one. Each fork is a fresh JVM that
+ * measures exactly one invocation, covering handler initialization plus the first
+ * request (an empty batch, so no AWS calls are made). Run with a JVM and heap that
+ * resemble the Lambda configuration for numbers that mean something.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 10, jvmArgsAppend = {"-XX:+UseSerialGC", "-XX:TieredStopAtLevel=1", "-Daws.region=us-east-1"})
+public class ColdStartBenchmark {
+
+    private static final byte[] EMPTY_BATCH_REQUEST = """
+            {
+              "version": "2.0",
+              "routeKey": "POST /links/batch",
+              "rawPath": "/links/batch",
+              "rawQueryString": "",
+              "headers": {"content-type": "application/json"},
+              "requestContext": {
+                "http": {"method": "POST", "path": "/links/batch", "protocol": "HTTP/1.1", "sourceIp": "127.0.0.1"},
+                "requestId": "cold-start",
+                "stage": "$default"
+              },
+              "body": "[]",
+              "isBase64Encoded": false
+            }
+            """.getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public byte[] springBootHandler() throws IOException {
+        return invoke(new LambdaHandler());
+    }
+
+    @Benchmark
+    public byte[] lightweightHandler() throws IOException {
+        return invoke(new LightweightLambdaHandler());
+    }
+
+    private static byte[] invoke(RequestStreamHandler handler) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        handler.handleRequest(new ByteArrayInputStream(EMPTY_BATCH_REQUEST), output, new StubContext());
+        return output.toByteArray();
+    }
+}
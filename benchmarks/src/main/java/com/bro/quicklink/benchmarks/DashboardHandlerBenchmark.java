@@ -0,0 +1,99 @@
+package com.bro.quicklink.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.bro.quicklink.DashboardEventParser;
+import com.bro.quicklink.DashboardHandler;
+import com.bro.quicklink.metrics.Metrics;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One DynamoDB stream batch per operation. {@code parse} measures the streaming event
+ * parser alone; {@code handleStreamBatch} runs the whole handler: parsing, coalescing,
+ * frame encoding and fan-out to {@code connections} WebSocket clients, a tenth of which
+ * subscribe to a subset of codes. DynamoDB and API Gateway are stubbed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DashboardHandlerBenchmark {
+
+    @Param({"100"})
+    int records;
+
+    @Param({"10", "1000"})
+    int connections;
+
+    private byte[] streamEvent;
+    private DashboardHandler handler;
+    private DashboardEventParser parser;
+    private final Context context = new StubContext();
+
+    @Setup
+    public void setUp() {
+        Zipf zipf = new Zipf(1000, 1.0);
+        Random random = new Random(42);
+
+        StringBuilder event = new StringBuilder("{\"Records\":[");
+        for (int i = 0; i < records; i++) {
+            if (i > 0) event.append(',');
+            String shortCode = "code" + zipf.next(random);
+            event.append("{\"eventID\":\"").append(i).append("\",\"eventName\":\"MODIFY\",\"eventSource\":\"aws:dynamodb\",")
+                    .append("\"awsRegion\":\"us-east-1\",\"dynamodb\":{\"ApproximateCreationDateTime\":1704067200,")
+                    .append("\"Keys\":{\"shortCode\":{\"S\":\"").append(shortCode).append("\"}},")
+                    .append("\"NewImage\":{\"shortCode\":{\"S\":\"").append(shortCode).append("\"},")
+                    .append("\"clicks\":{\"N\":\"").append(100 + i).append("\"}},")
+                    .append("\"SequenceNumber\":\"").append(1000 + i).append("\",\"SizeBytes\":64,")
+                    .append("\"StreamViewType\":\"NEW_IMAGE\"}}");
+        }
+        streamEvent = event.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+
+        List<Map<String, AttributeValue>> connectionItems = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            connectionItems.add(i % 10 == 0
+                    ? Map.of("connectionId", AttributeValue.builder().s("connection-" + i).build(),
+                             "shortCodes", AttributeValue.builder().ss("code0", "code1", "code" + i).build())
+                    : Map.of("connectionId", AttributeValue.builder().s("connection-" + i).build()));
+        }
+        handler = new DashboardHandler(StubClients.dynamoDb(shortCode -> null, connectionItems),
+                StubClients.apiGatewayManagementApi(), "quicklink-analytics", "quicklink-connections", 60_000, 64,
+                Metrics.discarding("dashboard-service"));
+        parser = new DashboardEventParser(new JsonFactory());
+    }
+
+    @Benchmark
+    public DashboardEventParser.DashboardEvent parse() throws IOException {
+        return parser.parse(new ByteArrayInputStream(streamEvent));
+    }
+
+    @Benchmark
+    public byte[] handleStreamBatch() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(64);
+        handler.handleRequest(new ByteArrayInputStream(streamEvent), output, context);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,81 @@
+package com.bro.quicklink.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.bro.quicklink.ClickEventEmitter;
+import com.bro.quicklink.MappingCache;
+import com.bro.quicklink.RedirectHandler;
+import com.bro.quicklink.metrics.Metrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One redirect per operation through RedirectHandler.handleRequest, including the click
+ * event emitter, against stubbed DynamoDB and EventBridge clients. Lookups follow a Zipf
+ * distribution over {@code keys} codes; a zero cache TTL forces every lookup to DynamoDB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedirectHandlerBenchmark {
+
+    @Param({"10000"})
+    int keys;
+
+    @Param({"0", "60000"})
+    long cacheTtlMillis;
+
+    private RedirectHandler handler;
+    private APIGatewayV2HTTPEvent[] events;
+    private final Context context = new StubContext();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Metrics metrics = Metrics.discarding("redirect-service");
+        handler = new RedirectHandler(
+                StubClients.dynamoDb(shortCode -> Map.of(
+                        "shortCode", AttributeValue.builder().s(shortCode).build(),
+                        "originalUrl", AttributeValue.builder().s("https://example.com/articles/" + shortCode).build()),
+                        List.of()),
+                "quicklink-mappings",
+                new MappingCache(64L << 20, cacheTtlMillis, cacheTtlMillis),
+                new ClickEventEmitter(StubClients.eventBridge(), new ObjectMapper(), "default", 1000, 4, 0, metrics),
+                metrics);
+
+        Zipf zipf = new Zipf(keys, 1.0);
+        Random random = new Random(42);
+        events = new APIGatewayV2HTTPEvent[4096];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = APIGatewayV2HTTPEvent.builder()
+                    .withPathParameters(Map.of("shortCode", "code" + zipf.next(random)))
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public APIGatewayV2HTTPResponse handleRequest() {
+        APIGatewayV2HTTPEvent event = events[next++ & (events.length - 1)];
+        return handler.handleRequest(event, context);
+    }
+}
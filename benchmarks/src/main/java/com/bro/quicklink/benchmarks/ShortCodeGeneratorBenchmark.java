@@ -0,0 +1,63 @@
+package com.bro.quicklink.benchmarks;
+
+import com.bro.quicklink.adapter.out.shortcode.BlockLeasedShortCodeGenerator;
+import com.bro.quicklink.core.ports.out.ShortCodeGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-code generation throughput: the old UUID-prefix approach against the
+ * block-leased Base62 generator, with and without a random suffix. Leasing is
+ * served from memory so only the generator itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ShortCodeGeneratorBenchmark {
+
+    @Param({"1000"})
+    int blockSize;
+
+    private ShortCodeGenerator sequential;
+    private ShortCodeGenerator randomSuffix;
+
+    @Setup
+    public void setUp() {
+        AtomicLong counter = new AtomicLong();
+        sequential = new BlockLeasedShortCodeGenerator(counter::getAndAdd, blockSize, 0);
+        randomSuffix = new BlockLeasedShortCodeGenerator(counter::getAndAdd, blockSize, 3);
+    }
+
+    @Benchmark
+    public String uuidPrefix() {
+        return UUID.randomUUID().toString().substring(0, 7);
+    }
+
+    @Benchmark
+    public String blockLeasedBase62() {
+        return sequential.nextShortCode();
+    }
+
+    @Benchmark
+    public String blockLeasedBase62WithRandomSuffix() {
+        return randomSuffix.nextShortCode();
+    }
+}
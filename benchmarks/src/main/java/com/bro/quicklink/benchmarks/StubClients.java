@@ -0,0 +1,117 @@
+package com.bro.quicklink.benchmarks;
+
+import software.amazon.awssdk.services.apigatewaymanagementapi.ApiGatewayManagementApiAsyncClient;
+import software.amazon.awssdk.services.apigatewaymanagementapi.model.PostToConnectionRequest;
+import software.amazon.awssdk.services.apigatewaymanagementapi.model.PostToConnectionResponse;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * In-memory stand-ins for the SDK clients the handlers call, answering instantly with
+ * canned responses, so the benchmarks measure the handlers rather than the network.
+ */
+final class StubClients {
+
+    private StubClients() {
+    }
+
+    /**
+     * GetItem answers from {@code items}; UpdateItem succeeds without attributes; Scan
+     * returns {@code scanItems} in one page.
+     */
+    static DynamoDbClient dynamoDb(Function<String, Map<String, AttributeValue>> items,
+                                   List<Map<String, AttributeValue>> scanItems) {
+        return new DynamoDbClient() {
+            @Override
+            public GetItemResponse getItem(GetItemRequest request) {
+                Map<String, AttributeValue> item = items.apply(request.key().get("shortCode").s());
+                return item == null ? GetItemResponse.builder().build() : GetItemResponse.builder().item(item).build();
+            }
+
+            @Override
+            public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+                return BatchGetItemResponse.builder().build();
+            }
+
+            @Override
+            public UpdateItemResponse updateItem(UpdateItemRequest request) {
+                return UpdateItemResponse.builder().build();
+            }
+
+            @Override
+            public ScanResponse scan(ScanRequest request) {
+                return ScanResponse.builder().items(scanItems).count(scanItems.size()).build();
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    static EventBridgeAsyncClient eventBridge() {
+        return new EventBridgeAsyncClient() {
+            @Override
+            public CompletableFuture<PutEventsResponse> putEvents(PutEventsRequest request) {
+                List<PutEventsResultEntry> entries = new ArrayList<>(request.entries().size());
+                for (int i = 0; i < request.entries().size(); i++) {
+                    entries.add(PutEventsResultEntry.builder().eventId("event-" + i).build());
+                }
+                return CompletableFuture.completedFuture(PutEventsResponse.builder()
+                        .failedEntryCount(0)
+                        .entries(entries)
+                        .build());
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    static ApiGatewayManagementApiAsyncClient apiGatewayManagementApi() {
+        return new ApiGatewayManagementApiAsyncClient() {
+            @Override
+            public CompletableFuture<PostToConnectionResponse> postToConnection(PostToConnectionRequest request) {
+                return CompletableFuture.completedFuture(PostToConnectionResponse.builder().build());
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
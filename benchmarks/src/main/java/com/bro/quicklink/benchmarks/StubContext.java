@@ -0,0 +1,29 @@
+package com.bro.quicklink.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+/**
+ * Minimal Lambda context for invoking handlers outside the runtime. Logging is discarded.
+ */
+final class StubContext implements Context {
+
+    private static final LambdaLogger NO_OP_LOGGER = new LambdaLogger() {
+        @Override public void log(String message) { }
+        @Override public void log(byte[] message) { }
+    };
+
+    @Override public String getAwsRequestId() { return "benchmark"; }
+    @Override public String getLogGroupName() { return "benchmark"; }
+    @Override public String getLogStreamName() { return "benchmark"; }
+    @Override public String getFunctionName() { return "benchmark"; }
+    @Override public String getFunctionVersion() { return "$LATEST"; }
+    @Override public String getInvokedFunctionArn() { return "arn:aws:lambda:us-east-1:000000000000:function:benchmark"; }
+    @Override public CognitoIdentity getIdentity() { return null; }
+    @Override public ClientContext getClientContext() { return null; }
+    @Override public int getRemainingTimeInMillis() { return 30_000; }
+    @Override public int getMemoryLimitInMB() { return 1024; }
+    @Override public LambdaLogger getLogger() { return NO_OP_LOGGER; }
+}
@@ -0,0 +1,62 @@
+package com.bro.quicklink.benchmarks;
+
+import com.bro.quicklink.core.domain.UrlMapping;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson round trip of UrlMapping with the mapper configuration the shortening service
+ * uses (ISO-8601 instants). The response body of every create and lookup goes through this.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UrlMappingJsonBenchmark {
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private UrlMapping mapping;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        writer = objectMapper.writerFor(UrlMapping.class);
+        reader = objectMapper.readerFor(UrlMapping.class);
+        mapping = new UrlMapping("aZ3kP9", "https://example.com/articles/2024/01/some-long-slug?utm_source=newsletter",
+                Instant.parse("2024-01-01T12:34:56.789Z"));
+        json = writer.writeValueAsBytes(mapping);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(mapping);
+    }
+
+    @Benchmark
+    public UrlMapping deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+}
@@ -0,0 +1,31 @@
+package com.bro.quicklink.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws ranks in [0, n) with Zipf skew: rank 0 is the hottest key. An exponent around 1
+ * matches the click distribution of real short links, where a few links take most traffic.
+ * The load test draws from it too, so both describe the same traffic shape.
+ */
+public final class Zipf {
+
+    private final double[] cumulative;
+
+    public Zipf(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    public int next(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+    }
+}
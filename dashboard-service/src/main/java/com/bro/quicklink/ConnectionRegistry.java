@@ -0,0 +1,112 @@
+package com.bro.quicklink;
+
+import com.bro.quicklink.metrics.Histogram;
+import com.bro.quicklink.metrics.Metrics;
+import com.bro.quicklink.metrics.Unit;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The set of open dashboard connections and the codes each one watches, backed by the
+ * connections table. The full list is loaded with a paginated scan at most once per TTL,
+ * so a stream batch no longer scans the table for every record.
+ */
+public class ConnectionRegistry {
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+    private final long ttlNanos;
+    private final Histogram cacheHit;
+
+    private List<Connection> cached;
+    private long loadedAt;
+
+    public ConnectionRegistry(DynamoDbClient dynamoDbClient, String tableName, long ttlMillis, Metrics metrics) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.cacheHit = metrics.histogram("ConnectionsCacheHit", Unit.NONE);
+    }
+
+    public synchronized List<Connection> connections() {
+        boolean expired = cached == null || System.nanoTime() - loadedAt >= ttlNanos;
+        cacheHit.record(expired ? 0 : 1);
+        if (expired) {
+            List<Connection> connections = new ArrayList<>();
+            dynamoDbClient.scanPaginator(ScanRequest.builder()
+                            .tableName(tableName)
+                            .projectionExpression("connectionId, shortCodes")
+                            .build())
+                    .items()
+                    .forEach(item -> {
+                        AttributeValue shortCodes = item.get("shortCodes");
+                        connections.add(new Connection(item.get("connectionId").s(),
+                                shortCodes != null && shortCodes.hasSs() ? Set.copyOf(shortCodes.ss()) : null));
+                    });
+            cached = connections;
+            loadedAt = System.nanoTime();
+        }
+        return cached;
+    }
+
+    public void add(String connectionId) {
+        dynamoDbClient.putItem(PutItemRequest.builder()
+                .tableName(tableName)
+                .item(key(connectionId))
+                .build());
+        replaceCached(connectionId, new Connection(connectionId, null));
+    }
+
+    /**
+     * Restricts a connection to the given codes; an empty set means all codes again.
+     */
+    public void subscribe(String connectionId, Set<String> shortCodes) {
+        UpdateItemRequest.Builder request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(key(connectionId));
+        if (shortCodes.isEmpty()) {
+            request.updateExpression("REMOVE shortCodes");
+        } else {
+            request.updateExpression("SET shortCodes = :codes")
+                    .expressionAttributeValues(Map.of(":codes", AttributeValue.builder().ss(shortCodes).build()));
+        }
+        dynamoDbClient.updateItem(request.build());
+        replaceCached(connectionId, new Connection(connectionId, shortCodes.isEmpty() ? null : Set.copyOf(shortCodes)));
+    }
+
+    public void remove(String connectionId) {
+        dynamoDbClient.deleteItem(DeleteItemRequest.builder()
+                .tableName(tableName)
+                .key(key(connectionId))
+                .build());
+        replaceCached(connectionId, null);
+    }
+
+    private synchronized void replaceCached(String connectionId, Connection replacement) {
+        if (cached == null) return;
+        List<Connection> copy = new ArrayList<>(cached.size() + 1);
+        for (Connection connection : cached) {
+            if (!connection.connectionId().equals(connectionId)) copy.add(connection);
+        }
+        if (replacement != null) copy.add(replacement);
+        cached = copy;
+    }
+
+    private static Map<String, AttributeValue> key(String connectionId) {
+        return Map.of("connectionId", AttributeValue.builder().s(connectionId).build());
+    }
+
+    /**
+     * @param shortCodes The codes this connection watches, or null for all of them.
+     */
+    public record Connection(String connectionId, Set<String> shortCodes) {}
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+package com.bro.quicklink;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass streaming parser for the raw Lambda input of the dashboard service.
+ * It pulls out only what the handler uses: the eventName and the shortCode, clicks,
+ * baseCode and shards attributes of each stream record's NewImage, or the route,
+ * connection id and body of a WebSocket request. Everything else is skipped without
+ * being materialized, which also means ApproximateCreationDateTime is never bound to
+ * a Date and needs no seconds-to-millis fix-up.
+ */
+public class DashboardEventParser {
+
+    private final JsonFactory jsonFactory;
+
+    public DashboardEventParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * A changed analytics item. {@code baseCode} is set for shard items, {@code shards}
+     * is the shard count recorded on a promoted base item (0 when absent).
+     */
+    public record StreamChange(String shortCode, String baseCode, long clicks, int shards) {}
+
+    public record WebSocketRequest(String routeKey, String connectionId, String body) {}
+
+    /**
+     * Exactly one of {@code changes} (for a DynamoDB stream batch) and
+     * {@code webSocketRequest} is set for a supported event.
+     */
+    public record DashboardEvent(List<StreamChange> changes, WebSocketRequest webSocketRequest) {}
+
+    public DashboardEvent parse(InputStream input) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new DashboardEvent(null, null);
+            }
+
+            List<StreamChange> changes = null;
+            String routeKey = null;
+            String connectionId = null;
+            String body = null;
+            boolean hasRequestContext = false;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "Records" -> changes = value == JsonToken.START_ARRAY ? parseRecords(parser) : skip(parser, null);
+                    case "body" -> body = value == JsonToken.VALUE_STRING ? parser.getText() : skip(parser, null);
+                    case "requestContext" -> {
+                        hasRequestContext = true;
+                        if (value != JsonToken.START_OBJECT) {
+                            parser.skipChildren();
+                            break;
+                        }
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String contextField = parser.currentName();
+                            parser.nextToken();
+                            if ("routeKey".equals(contextField)) {
+                                routeKey = parser.getValueAsString();
+                            } else if ("connectionId".equals(contextField)) {
+                                connectionId = parser.getValueAsString();
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if (changes != null) {
+                return new DashboardEvent(changes, null);
+            }
+            if (hasRequestContext) {
+                return new DashboardEvent(null, new WebSocketRequest(routeKey, connectionId, body));
+            }
+            return new DashboardEvent(null, null);
+        }
+    }
+
+    private List<StreamChange> parseRecords(JsonParser parser) throws IOException {
+        List<StreamChange> changes = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String eventName = null;
+            StreamChange change = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("eventName".equals(field)) {
+                    eventName = parser.getValueAsString();
+                } else if ("dynamodb".equals(field) && value == JsonToken.START_OBJECT) {
+                    change = parseStreamRecord(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (change != null && ("INSERT".equals(eventName) || "MODIFY".equals(eventName))) {
+                changes.add(change);
+            }
+        }
+        return changes;
+    }
+
+    private StreamChange parseStreamRecord(JsonParser parser) throws IOException {
+        StreamChange change = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("NewImage".equals(field) && value == JsonToken.START_OBJECT) {
+                change = parseNewImage(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return change;
+    }
+
+    private StreamChange parseNewImage(JsonParser parser) throws IOException {
+        String shortCode = null;
+        String baseCode = null;
+        long clicks = 0;
+        int shards = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String attribute = parser.currentName();
+            parser.nextToken();
+            switch (attribute) {
+                case "shortCode" -> shortCode = scalar(parser);
+                case "baseCode" -> baseCode = scalar(parser);
+                case "clicks" -> clicks = parseLong(scalar(parser));
+                case "shards" -> shards = (int) parseLong(scalar(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return shortCode == null ? null : new StreamChange(shortCode, baseCode, clicks, shards);
+    }
+
+    /**
+     * Reads a DynamoDB attribute value such as {@code {"S":"abc"}} or {@code {"N":"42"}}.
+     */
+    private static String scalar(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String result = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String type = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (("S".equals(type) || "N".equals(type)) && value.isScalarValue()) {
+                result = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return result;
+    }
+
+    private static long parseLong(String value) {
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    private static <T> T skip(JsonParser parser, T result) throws IOException {
+        parser.skipChildren();
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+package com.bro.quicklink;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import software.amazon.awssdk.core.SdkBytes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encodes click updates into compact, batched WebSocket frames:
+ * {@code {"type":"clicks","updates":[["abc123",42],["xyz789",7]]}}.
+ * Frames are written with a streaming generator and split before they reach
+ * API Gateway's 32 KB frame limit.
+ */
+public class DashboardFrames {
+
+    static final int MAX_FRAME_BYTES = 30 * 1024;
+
+    private final JsonFactory jsonFactory;
+
+    public DashboardFrames(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * @param clicks Latest click totals by shortCode.
+     * @param subscription The codes a connection watches, or null for all of them.
+     */
+    public List<SdkBytes> encode(Map<String, Long> clicks, Set<String> subscription) throws IOException {
+        List<SdkBytes> frames = new ArrayList<>(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        JsonGenerator generator = null;
+
+        for (Map.Entry<String, Long> update : clicks.entrySet()) {
+            if (subscription != null && !subscription.contains(update.getKey())) continue;
+
+            if (generator == null) {
+                generator = jsonFactory.createGenerator(out);
+                generator.writeStartObject();
+                generator.writeStringField("type", "clicks");
+                generator.writeArrayFieldStart("updates");
+            }
+            generator.writeStartArray();
+            generator.writeString(update.getKey());
+            generator.writeNumber(update.getValue());
+            generator.writeEndArray();
+
+            generator.flush();
+            if (out.size() >= MAX_FRAME_BYTES) {
+                frames.add(finish(generator, out));
+                generator = null;
+            }
+        }
+        if (generator != null) {
+            frames.add(finish(generator, out));
+        }
+        return frames;
+    }
+
+    private static SdkBytes finish(JsonGenerator generator, ByteArrayOutputStream out) throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+        SdkBytes frame = SdkBytes.fromByteArray(out.toByteArray());
+        out.reset();
+        return frame;
+    }
+}
@@ -1,141 +1,197 @@
 package com.bro.quicklink;
 
 import com.amazonaws.services.lambda.runtime.Context;
-import com.amazonaws.services.lambda.runtime.RequestHandler;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayV2WebSocketEvent;
-import com.amazonaws.services.lambda.runtime.events.APIGatewayV2WebSocketResponse;
-import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
-import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.bro.quicklink.aws.AwsClients;
+import com.bro.quicklink.metrics.Counter;
+import com.bro.quicklink.metrics.Histogram;
+import com.bro.quicklink.metrics.Metrics;
+import com.bro.quicklink.metrics.SdkMetricPublisher;
+import com.bro.quicklink.metrics.Unit;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.MapperFeature;
 import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.apigatewaymanagementapi.ApiGatewayManagementApiClient;
-import software.amazon.awssdk.services.apigatewaymanagementapi.model.PostToConnectionRequest;
+import software.amazon.awssdk.services.apigatewaymanagementapi.ApiGatewayManagementApiAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
-import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-public class DashboardHandler implements RequestHandler<Map<String, Object>, Object> {
+public class DashboardHandler implements RequestStreamHandler {
 
     private final DynamoDbClient dynamoDbClient;
-    private final ApiGatewayManagementApiClient apiGatewayManagementApiClient;
     private final ObjectMapper objectMapper;
-    private final String connectionsTableName;
+    private final ShardedCounterReader counterReader;
+    private final ConnectionRegistry connectionRegistry;
+    private final WebSocketFanOut fanOut;
+    private final DashboardFrames frames;
+    private final DashboardEventParser eventParser;
+    private final Metrics metrics;
+    private final Histogram streamBatchSizes;
+    private final Histogram connectionCounts;
+    private final Counter pushFailures;
 
     public DashboardHandler() {
-        this.dynamoDbClient = DynamoDbClient.builder().region(Region.of(System.getenv("AWS_REGION"))).build();
-        this.connectionsTableName = System.getenv("CONNECTIONS_TABLE_NAME");
-        String endpoint = "https://" + System.getenv("WEBSOCKET_API_ID") + ".execute-api." + System.getenv("AWS_REGION") + ".amazonaws.com/" + System.getenv("WEBSOCKET_API_STAGE");
-        this.apiGatewayManagementApiClient = ApiGatewayManagementApiClient.builder()
-                .endpointOverride(URI.create(endpoint))
-                .region(Region.of(System.getenv("AWS_REGION")))
-                .build();
-        // This configuration will prevent the error
-        this.objectMapper = new ObjectMapper()
-                .configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true)
-                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
-                .configure(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS, false);
+        this(Metrics.fromEnvironment("dashboard-service"));
     }
 
+    private DashboardHandler(Metrics metrics) {
+        this(AwsClients.sync(DynamoDbClient.builder(), new SdkMetricPublisher(metrics)),
+                AwsClients.async(ApiGatewayManagementApiAsyncClient.builder().endpointOverride(URI.create(
+                        "https://" + System.getenv("WEBSOCKET_API_ID") + ".execute-api." + AwsClients.region() + ".amazonaws.com/" + System.getenv("WEBSOCKET_API_STAGE"))),
+                        new SdkMetricPublisher(metrics)),
+                System.getenv("ANALYTICS_TABLE_NAME"),
+                System.getenv("CONNECTIONS_TABLE_NAME"),
+                intEnv("CONNECTIONS_CACHE_TTL_MS", 5000),
+                intEnv("FANOUT_MAX_CONCURRENCY", 64),
+                metrics);
+    }
+
+    public DashboardHandler(DynamoDbClient dynamoDbClient, ApiGatewayManagementApiAsyncClient apiGatewayManagementApiClient,
+                            String analyticsTableName, String connectionsTableName, long connectionsCacheTtlMillis,
+                            int fanOutConcurrency, Metrics metrics) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.counterReader = new ShardedCounterReader(dynamoDbClient, analyticsTableName);
+        this.connectionRegistry = new ConnectionRegistry(dynamoDbClient, connectionsTableName, connectionsCacheTtlMillis,
+                metrics);
+        this.fanOut = new WebSocketFanOut(apiGatewayManagementApiClient, connectionRegistry, fanOutConcurrency, metrics);
+        this.objectMapper = new ObjectMapper();
+        this.frames = new DashboardFrames(objectMapper.getFactory());
+        this.eventParser = new DashboardEventParser(objectMapper.getFactory());
+        this.metrics = metrics;
+        this.streamBatchSizes = metrics.histogram("DashboardStreamBatchSize", Unit.COUNT);
+        this.connectionCounts = metrics.histogram("DashboardConnections", Unit.COUNT);
+        this.pushFailures = metrics.counter("DashboardPushFailures");
+    }
+
+    /**
+     * Reads the raw invocation payload in a single streaming pass instead of binding
+     * it to a Map and re-serializing it into a DynamodbEvent.
+     */
     @Override
-    public Object handleRequest(Map<String, Object> event, Context context) {
-        if (event.containsKey("Records")) {
-            try {
-                normalizeDdbApproxDate(event); // 👈 clave: normalizar segundos → milisegundos long
-                byte[] json = objectMapper.writeValueAsBytes(event);
-                DynamodbEvent ddbEvent = objectMapper.readValue(json, DynamodbEvent.class);
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+        try {
+            objectMapper.writeValue(output, route(input, context));
+        } finally {
+            metrics.flush();
+        }
+    }
 
-                if (ddbEvent.getRecords() == null || ddbEvent.getRecords().isEmpty()) {
-                    context.getLogger().log("DDB event without records (after mapping): " + new String(json));
-                    return "No DDB records";
-                }
+    private Object route(InputStream input, Context context) {
+        DashboardEventParser.DashboardEvent event;
+        try {
+            event = eventParser.parse(input);
+        } catch (IOException | RuntimeException e) {
+            context.getLogger().log("Failed to parse event: " + e.getMessage());
+            return "Bad DDB event";
+        }
 
-                handleDynamoDbStreamEvent(ddbEvent);
+        if (event.changes() != null) {
+            if (event.changes().isEmpty()) {
+                return "No DDB records";
+            }
+            try {
+                handleDynamoDbStreamEvent(event.changes(), context);
                 return "OK";
             } catch (Exception e) {
-                context.getLogger().log("Failed to parse DDB event: " + e.getMessage());
+                context.getLogger().log("Failed to handle DDB event: " + e.getMessage());
                 return "Bad DDB event";
             }
-        } else if (event.containsKey("requestContext")) {
-            return handleWebSocketEvent(objectMapper.convertValue(event, APIGatewayV2WebSocketEvent.class));
+        } else if (event.webSocketRequest() != null) {
+            return handleWebSocketEvent(event.webSocketRequest());
         }
         return "Unsupported event type";
     }
 
-    @SuppressWarnings("unchecked")
-    private static void normalizeDdbApproxDate(Map<String, Object> eventMap) {
-        Object recs = eventMap.get("Records");
-        if (!(recs instanceof List<?> records)) return;
-
-        for (Object r : records) {
-            if (!(r instanceof Map<?, ?> rm)) continue;
-            Object dyn = rm.get("dynamodb");
-            if (!(dyn instanceof Map<?, ?> dm)) continue;
-
-            Object tsObj = ((Map<String, Object>) dm).get("ApproximateCreationDateTime");
-            if (tsObj instanceof Number n) {
-                // segundos (posible Double) → milisegundos (long entero)
-                long millis = (long) Math.round(n.doubleValue() * 1000d);
-                ((Map<String, Object>) dm).put("ApproximateCreationDateTime", millis);
-            }
+    private WebSocketResponse handleWebSocketEvent(DashboardEventParser.WebSocketRequest request) {
+        String routeKey = request.routeKey();
+        String connectionId = request.connectionId();
+        if (routeKey == null || connectionId == null) {
+            return new WebSocketResponse(400, "Missing route or connection");
         }
-    }
-
-    private APIGatewayV2WebSocketResponse handleWebSocketEvent(APIGatewayV2WebSocketEvent event) {
-        String routeKey = event.getRequestContext().getRouteKey();
-        String connectionId = event.getRequestContext().getConnectionId();
 
         switch (routeKey) {
             case "$connect":
-                dynamoDbClient.putItem(PutItemRequest.builder()
-                        .tableName(connectionsTableName)
-                        .item(Map.of("connectionId", AttributeValue.builder().s(connectionId).build()))
-                        .build());
+                connectionRegistry.add(connectionId);
                 break;
             case "$disconnect":
-                dynamoDbClient.deleteItem(DeleteItemRequest.builder()
-                        .tableName(connectionsTableName)
-                        .key(Map.of("connectionId", AttributeValue.builder().s(connectionId).build()))
-                        .build());
+                connectionRegistry.remove(connectionId);
+                break;
+            case "subscribe":
+                // {"action":"subscribe","shortCodes":["abc123", ...]}; an empty list means all codes
+                try {
+                    Set<String> shortCodes = new HashSet<>();
+                    JsonNode body = objectMapper.readTree(request.body());
+                    body.path("shortCodes").forEach(code -> shortCodes.add(code.asText()));
+                    connectionRegistry.subscribe(connectionId, shortCodes);
+                } catch (IOException | IllegalArgumentException e) {
+                    return new WebSocketResponse(400, "Bad subscribe message");
+                }
                 break;
         }
 
-        APIGatewayV2WebSocketResponse response = new APIGatewayV2WebSocketResponse();
-        response.setStatusCode(200);
-        response.setBody("OK");
-        return response;
+        return new WebSocketResponse(200, "OK");
     }
 
-    private void handleDynamoDbStreamEvent(DynamodbEvent ddbEvent) {
-        for (DynamodbEvent.DynamodbStreamRecord record : ddbEvent.getRecords()) {
-            if (!"INSERT".equals(record.getEventName()) && !"MODIFY".equals(record.getEventName())) continue;
-            var stream = record.getDynamodb();
-            if (stream == null || stream.getNewImage() == null) continue;
-
-            String shortCode = stream.getNewImage().get("shortCode").getS();
-            String clicks    = stream.getNewImage().get("clicks").getN();
-
-            String message = "{\"shortCode\":\"" + shortCode + "\",\"clicks\":" + clicks + "}";
-
-            List<String> connectionIds = dynamoDbClient.scan(ScanRequest.builder()
-                            .tableName(connectionsTableName).build())
-                    .items().stream()
-                    .map(item -> item.get("connectionId").s())
-                    .toList();
-
-            for (String connectionId : connectionIds) {
-                apiGatewayManagementApiClient.postToConnection(PostToConnectionRequest.builder()
-                        .connectionId(connectionId)
-                        .data(SdkBytes.fromUtf8String(message))
-                        .build());
+    private void handleDynamoDbStreamEvent(List<DashboardEventParser.StreamChange> changes, Context context) throws IOException, InterruptedException {
+        // Coalesce the whole batch into one update per shortCode. Counters only grow,
+        // so the highest value seen for a code is its latest.
+        streamBatchSizes.record(changes.size());
+        Map<String, Long> latestClicks = new LinkedHashMap<>();
+        Set<String> shardedCodes = new LinkedHashSet<>();
+        for (DashboardEventParser.StreamChange change : changes) {
+            // Hot codes are write-sharded: report the sum of every shard under the base code.
+            if (change.baseCode() != null) {
+                shardedCodes.add(change.baseCode());
+            } else if (change.shards() > 1) {
+                shardedCodes.add(change.shortCode());
+            } else {
+                latestClicks.merge(change.shortCode(), change.clicks(), Math::max);
+            }
+        }
+        for (String shortCode : shardedCodes) {
+            latestClicks.put(shortCode, counterReader.totalClicks(shortCode));
+        }
+        if (latestClicks.isEmpty()) return;
+
+        List<ConnectionRegistry.Connection> connections = connectionRegistry.connections();
+        connectionCounts.record(connections.size());
+        if (connections.isEmpty()) return;
+
+        // One merged frame per connection for the whole batch, encoded once per distinct subscription.
+        Map<Set<String>, List<SdkBytes>> framesBySubscription = new HashMap<>();
+        Map<String, List<SdkBytes>> framesByConnection = new LinkedHashMap<>();
+        for (ConnectionRegistry.Connection connection : connections) {
+            List<SdkBytes> encoded = framesBySubscription.get(connection.shortCodes());
+            if (encoded == null) {
+                encoded = frames.encode(latestClicks, connection.shortCodes());
+                framesBySubscription.put(connection.shortCodes(), encoded);
+            }
+            if (!encoded.isEmpty()) {
+                framesByConnection.put(connection.connectionId(), encoded);
             }
         }
+
+        int failures = fanOut.send(framesByConnection);
+        if (failures > 0) {
+            pushFailures.add(failures);
+            context.getLogger().log("Failed to push " + failures + " dashboard updates");
+        }
     }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    record WebSocketResponse(int statusCode, String body) {}
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.bro.quicklink;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads click totals from the analytics table, summing the shards of promoted codes.
+ * See ShardedCounterWriter in analytics-service for the layout: shard 0 is the plain
+ * shortCode item (which also holds the shard count), shards 1..N-1 are {@code shortCode#k}.
+ */
+public class ShardedCounterReader {
+
+    static final String SHARD_SEPARATOR = "#";
+    private static final int MAX_KEYS_PER_BATCH_GET = 100;
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+
+    public ShardedCounterReader(DynamoDbClient dynamoDbClient, String tableName) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+    }
+
+    public long totalClicks(String shortCode) {
+        Map<String, AttributeValue> base = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(tableName)
+                .key(key(shortCode))
+                .projectionExpression("clicks, shards")
+                .build()).item();
+        if (base == null || base.isEmpty()) return 0;
+
+        long total = number(base.get("clicks"));
+        int shards = (int) number(base.get("shards"));
+        if (shards <= 1) return total;
+
+        List<Map<String, AttributeValue>> keys = new ArrayList<>(shards - 1);
+        for (int k = 1; k < shards; k++) {
+            keys.add(key(shortCode + SHARD_SEPARATOR + k));
+        }
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_BATCH_GET) {
+            total += sumClicks(keys.subList(from, Math.min(keys.size(), from + MAX_KEYS_PER_BATCH_GET)));
+        }
+        return total;
+    }
+
+    private long sumClicks(List<Map<String, AttributeValue>> keys) {
+        long sum = 0;
+        Map<String, KeysAndAttributes> request = Map.of(tableName, KeysAndAttributes.builder()
+                .keys(keys)
+                .projectionExpression("clicks")
+                .build());
+        while (request != null && !request.isEmpty()) {
+            BatchGetItemResponse response = dynamoDbClient.batchGetItem(BatchGetItemRequest.builder()
+                    .requestItems(request)
+                    .build());
+            for (Map<String, AttributeValue> item : response.responses().getOrDefault(tableName, List.of())) {
+                sum += number(item.get("clicks"));
+            }
+            request = response.hasUnprocessedKeys() ? response.unprocessedKeys() : null;
+        }
+        return sum;
+    }
+
+    private static Map<String, AttributeValue> key(String shortCode) {
+        return Map.of("shortCode", AttributeValue.builder().s(shortCode).build());
+    }
+
+    private static long number(AttributeValue value) {
+        return value == null || value.n() == null ? 0 : Long.parseLong(value.n());
+    }
+}
@@ -0,0 +1,83 @@
+package com.bro.quicklink;
+
+import com.bro.quicklink.metrics.Counter;
+import com.bro.quicklink.metrics.Metrics;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.apigatewaymanagementapi.ApiGatewayManagementApiAsyncClient;
+import software.amazon.awssdk.services.apigatewaymanagementapi.model.GoneException;
+import software.amazon.awssdk.services.apigatewaymanagementapi.model.PostToConnectionRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Posts messages to many WebSocket connections in parallel on the async client,
+ * with at most {@code maxConcurrency} PostToConnection calls in flight. Connections
+ * that API Gateway reports as gone are pruned from the registry.
+ */
+public class WebSocketFanOut {
+
+    private final ApiGatewayManagementApiAsyncClient apiClient;
+    private final ConnectionRegistry connectionRegistry;
+    private final int maxConcurrency;
+    private final Counter goneConnections;
+
+    public WebSocketFanOut(ApiGatewayManagementApiAsyncClient apiClient, ConnectionRegistry connectionRegistry,
+                           int maxConcurrency, Metrics metrics) {
+        this.apiClient = apiClient;
+        this.connectionRegistry = connectionRegistry;
+        this.maxConcurrency = maxConcurrency;
+        this.goneConnections = metrics.counter("DashboardGoneConnections");
+    }
+
+    /**
+     * Sends each connection its frames and waits until all posts have completed.
+     * @return The number of failed posts, not counting connections that were gone.
+     */
+    public int send(Map<String, List<SdkBytes>> framesByConnection) throws InterruptedException {
+        Semaphore permits = new Semaphore(maxConcurrency);
+        AtomicInteger failures = new AtomicInteger();
+        List<CompletableFuture<?>> posts = new ArrayList<>(framesByConnection.size());
+        List<String> gone = Collections.synchronizedList(new ArrayList<>());
+
+        for (Map.Entry<String, List<SdkBytes>> entry : framesByConnection.entrySet()) {
+            String connectionId = entry.getKey();
+            for (SdkBytes message : entry.getValue()) {
+                permits.acquire();
+                CompletableFuture<?> post = apiClient.postToConnection(PostToConnectionRequest.builder()
+                                .connectionId(connectionId)
+                                .data(message)
+                                .build())
+                        .whenComplete((response, error) -> {
+                            permits.release();
+                            if (error == null) return;
+                            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                            if (cause instanceof GoneException) {
+                                gone.add(connectionId);
+                            } else {
+                                failures.incrementAndGet();
+                            }
+                        });
+                posts.add(post);
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(posts.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            // Individual failures are already counted.
+        }
+
+        gone.stream().distinct().forEach(connectionId -> {
+            goneConnections.increment();
+            connectionRegistry.remove(connectionId);
+        });
+        return failures.get();
+    }
+}
@@ -0,0 +1,118 @@
+package com.bro.quicklink;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DashboardEventParserTest {
+
+	private final DashboardEventParser parser = new DashboardEventParser(new JsonFactory());
+
+	@Test
+	void keepsInsertsAndModifiesInOrder() throws IOException {
+		DashboardEventParser.DashboardEvent event = parse("""
+				{"Records": [
+				  {"eventID": "1", "eventName": "INSERT", "dynamodb": {
+				    "ApproximateCreationDateTime": 1700000000,
+				    "Keys": {"shortCode": {"S": "abc"}},
+				    "NewImage": {"shortCode": {"S": "abc"}, "clicks": {"N": "1"}},
+				    "SequenceNumber": "100", "SizeBytes": 40, "StreamViewType": "NEW_IMAGE"}},
+				  {"eventID": "2", "eventName": "REMOVE", "dynamodb": {
+				    "Keys": {"shortCode": {"S": "gone"}},
+				    "NewImage": {"shortCode": {"S": "gone"}, "clicks": {"N": "3"}}}},
+				  {"eventID": "3", "eventName": "MODIFY", "dynamodb": {
+				    "NewImage": {"clicks": {"N": "42"}, "shortCode": {"S": "xyz"}, "shards": {"N": "8"}}}},
+				  {"eventName": "MODIFY", "dynamodb": {
+				    "NewImage": {"shortCode": {"S": "xyz#3"}, "baseCode": {"S": "xyz"}, "clicks": {"N": "5"}}}}
+				]}
+				""");
+
+		assertNull(event.webSocketRequest());
+		assertEquals(List.of(
+				new DashboardEventParser.StreamChange("abc", null, 1, 0),
+				new DashboardEventParser.StreamChange("xyz", null, 42, 8),
+				new DashboardEventParser.StreamChange("xyz#3", "xyz", 5, 0)), event.changes());
+	}
+
+	@Test
+	void skipsRecordsWithoutAnImageOrShortCode() throws IOException {
+		DashboardEventParser.DashboardEvent event = parse("""
+				{"Records": [
+				  {"eventName": "INSERT", "dynamodb": {"Keys": {"shortCode": {"S": "keys-only"}}}},
+				  {"eventName": "MODIFY", "dynamodb": {"NewImage": {"clicks": {"N": "4"}}}},
+				  {"eventName": "MODIFY"},
+				  {"dynamodb": {"NewImage": {"shortCode": {"S": "no-event-name"}}}},
+				  {"eventName": "INSERT", "dynamodb": {"NewImage": {"shortCode": {"S": "no-clicks"}}}}
+				]}
+				""");
+
+		assertEquals(List.of(new DashboardEventParser.StreamChange("no-clicks", null, 0, 0)), event.changes());
+	}
+
+	@Test
+	void ignoresAttributesOfOtherTypes() throws IOException {
+		DashboardEventParser.DashboardEvent event = parse("""
+				{"Records": [{"eventName": "INSERT", "dynamodb": {"NewImage": {
+				  "shortCode": {"S": "abc"},
+				  "clicks": {"N": "7"},
+				  "shards": {"NULL": true},
+				  "tags": {"L": [{"S": "a"}, {"M": {"x": {"N": "1"}}}]},
+				  "weird": "not an attribute value"}}}]}
+				""");
+
+		assertEquals(List.of(new DashboardEventParser.StreamChange("abc", null, 7, 0)), event.changes());
+	}
+
+	@Test
+	void emptyRecordsGiveNoChanges() throws IOException {
+		DashboardEventParser.DashboardEvent event = parse("{\"Records\": []}");
+
+		assertTrue(event.changes().isEmpty());
+		assertNull(event.webSocketRequest());
+	}
+
+	@Test
+	void readsAWebSocketRequest() throws IOException {
+		DashboardEventParser.DashboardEvent event = parse("""
+				{"headers": {"Host": "example.com"},
+				 "requestContext": {"routeKey": "subscribe", "eventType": "MESSAGE", "connectionId": "conn-1",
+				   "identity": {"sourceIp": "127.0.0.1"}},
+				 "body": "{\\"shortCodes\\":[\\"abc\\"]}",
+				 "isBase64Encoded": false}
+				""");
+
+		assertNull(event.changes());
+		assertEquals(new DashboardEventParser.WebSocketRequest("subscribe", "conn-1", "{\"shortCodes\":[\"abc\"]}"),
+				event.webSocketRequest());
+	}
+
+	@Test
+	void connectWithoutABodyHasANullBody() throws IOException {
+		DashboardEventParser.DashboardEvent event = parse("""
+				{"requestContext": {"routeKey": "$connect", "connectionId": "conn-2"}}
+				""");
+
+		assertEquals(new DashboardEventParser.WebSocketRequest("$connect", "conn-2", null), event.webSocketRequest());
+	}
+
+	@Test
+	void unsupportedInputGivesAnEmptyEvent() throws IOException {
+		for (String input : List.of("[]", "{}", "{\"detail\": {\"shortCode\": \"abc\"}}", "{\"Records\": \"nope\"}")) {
+			DashboardEventParser.DashboardEvent event = parse(input);
+			assertNull(event.changes(), input);
+			assertNull(event.webSocketRequest(), input);
+		}
+	}
+
+	private DashboardEventParser.DashboardEvent parse(String json) throws IOException {
+		return parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
+}
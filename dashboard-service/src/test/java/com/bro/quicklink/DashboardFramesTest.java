@@ -0,0 +1,78 @@
+package com.bro.quicklink;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DashboardFramesTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final DashboardFrames frames = new DashboardFrames(new JsonFactory());
+
+	@Test
+	void encodesUpdatesAsPairs() throws IOException {
+		Map<String, Long> clicks = new LinkedHashMap<>();
+		clicks.put("abc123", 42L);
+		clicks.put("xyz789", 7L);
+
+		List<SdkBytes> encoded = frames.encode(clicks, null);
+
+		assertEquals(1, encoded.size());
+		assertEquals("{\"type\":\"clicks\",\"updates\":[[\"abc123\",42],[\"xyz789\",7]]}", encoded.get(0).asUtf8String());
+	}
+
+	@Test
+	void sendsOnlySubscribedCodes() throws IOException {
+		Map<String, Long> clicks = new LinkedHashMap<>();
+		clicks.put("abc123", 42L);
+		clicks.put("xyz789", 7L);
+
+		List<SdkBytes> encoded = frames.encode(clicks, Set.of("xyz789"));
+
+		assertEquals("{\"type\":\"clicks\",\"updates\":[[\"xyz789\",7]]}", encoded.get(0).asUtf8String());
+	}
+
+	@Test
+	void sendsNothingWhenNoUpdateMatches() throws IOException {
+		assertTrue(frames.encode(Map.of("abc123", 1L), Set.of("other")).isEmpty());
+		assertTrue(frames.encode(Map.of(), null).isEmpty());
+	}
+
+	@Test
+	void splitsLargeUpdatesIntoFramesUnderTheLimit() throws IOException {
+		Map<String, Long> clicks = new LinkedHashMap<>();
+		for (int i = 0; i < 5000; i++) {
+			clicks.put("code-" + i + "-" + "x".repeat(i % 40), (long) i * 1_000_003);
+		}
+
+		List<SdkBytes> encoded = frames.encode(clicks, null);
+
+		assertTrue(encoded.size() > 1, "frames: " + encoded.size());
+		Map<String, Long> decoded = new HashMap<>();
+		for (SdkBytes frame : encoded) {
+			assertTrue(frame.asByteArray().length < 32 * 1024, "frame of " + frame.asByteArray().length + " bytes");
+			JsonNode json = objectMapper.readTree(frame.asByteArray());
+			assertEquals("clicks", json.path("type").asText());
+			assertTrue(json.path("updates").size() > 0);
+			for (JsonNode update : json.path("updates")) {
+				decoded.put(update.get(0).asText(), update.get(1).asLong());
+			}
+		}
+		assertEquals(clicks, decoded);
+		for (SdkBytes frame : encoded.subList(0, encoded.size() - 1)) {
+			assertTrue(frame.asByteArray().length >= DashboardFrames.MAX_FRAME_BYTES);
+		}
+	}
+}
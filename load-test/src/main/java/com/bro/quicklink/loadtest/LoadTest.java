@@ -0,0 +1,391 @@
+package com.bro.quicklink.loadtest;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.bro.quicklink.AnalyticsHandler;
+import com.bro.quicklink.ClickEventEmitter;
+import com.bro.quicklink.DashboardHandler;
+import com.bro.quicklink.MappingCache;
+import com.bro.quicklink.RedirectHandler;
+import com.bro.quicklink.ShardedCounterWriter;
+import com.bro.quicklink.SketchStore;
+import com.bro.quicklink.TimeBucketWriter;
+import com.bro.quicklink.adapter.in.web.UrlMappingController;
+import com.bro.quicklink.adapter.out.messaging.EventBridgePublisher;
+import com.bro.quicklink.adapter.out.persistence.DynamoDbRepository;
+import com.bro.quicklink.adapter.out.shortcode.BlockLeasedShortCodeGenerator;
+import com.bro.quicklink.adapter.out.shortcode.DynamoDbIdBlockLeaser;
+import com.bro.quicklink.aws.AwsClients;
+import com.bro.quicklink.benchmarks.Zipf;
+import com.bro.quicklink.core.domain.BulkCreateItem;
+import com.bro.quicklink.core.domain.UrlMapping;
+import com.bro.quicklink.core.service.UrlShortenerService;
+import com.bro.quicklink.metrics.Metrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.http.ResponseEntity;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load test: drives create -> redirect -> analytics -> dashboard through the
+ * real handler classes, in-process, against DynamoDB Local.
+ *
+ * Creates go through UrlMappingController and redirects through RedirectHandler, each at
+ * its own fixed rate; redirects pick links from a pre-created key space with Zipf skew.
+ * Click events flow through an in-memory EventBridge (LocalEventBus) into AnalyticsHandler
+ * in SQS-sized batches, and the counters it writes are replayed to DashboardHandler as
+ * stream events (StreamEmulator), which fans out to stubbed WebSocket connections
+ * (LocalWebSocketApi). Each stage reports HdrHistogram percentiles; "click-to-push" is the
+ * time from a click event being published to the dashboard push that includes it.
+ *
+ * One instance of each handler serves all worker threads, so this is the load one very
+ * busy container would see, not a fleet. Tables are created on first use; the handlers
+ * read the same tuning variables they do in Lambda (MAPPING_CACHE_*, CLICK_EVENTS_*,
+ * COUNTER_MAX_SHARDS, ...). Run with --help for the options.
+ */
+public final class LoadTest {
+
+    private static final String USAGE = """
+            Usage: AWS_ENDPOINT_URL=http://localhost:8000 java -jar load-test.jar [options]
+              --duration SECONDS          measured run time (default 60)
+              --warmup SECONDS            load before measuring starts (default 10)
+              --create-rate N             creates per second through the controller (default 20)
+              --redirect-rate N           redirects per second (default 1000)
+              --threads N                 workers per paced stage (default 32)
+              --keys N                    links created up front for redirects to pick from (default 10000)
+              --zipf EXPONENT             skew of the redirect key distribution, 0 = uniform (default 1.0)
+              --connections N             dashboard WebSocket connections (default 100)
+              --batch-size N              analytics batch size, as the SQS event source mapping (default 500)
+              --batch-window-ms N         analytics batching window (default 5000)
+              --websocket-latency-ms N    simulated PostToConnection round trip (default 20)
+              --fan-out-concurrency N     dashboard pushes in flight (default 64)
+              --report-interval SECONDS   progress line interval (default 10)
+            """;
+
+    private final Options options;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final LocalEventBus eventBus = new LocalEventBus(objectMapper);
+    private final LocalWebSocketApi webSocketApi;
+    private final DynamoDbClient dynamoDbClient;
+
+    private final StageStats createStats = new StageStats("create");
+    private final StageStats redirectStats = new StageStats("redirect");
+    private final StageStats analyticsStats = new StageStats("analytics");
+    private final StageStats dashboardStats = new StageStats("dashboard");
+    private final StageStats clickToPushStats = new StageStats("click-to-push");
+    private final List<StageStats> stages = List.of(createStats, redirectStats, analyticsStats, dashboardStats, clickToPushStats);
+
+    private final AtomicLong createdUrls = new AtomicLong();
+    private volatile boolean loadFinished;
+
+    private LoadTest(Options options) {
+        this.options = options;
+        this.webSocketApi = new LocalWebSocketApi(options.webSocketLatencyMillis());
+        this.dynamoDbClient = AwsClients.sync(DynamoDbClient.builder());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options == null) {
+            System.out.print(USAGE);
+            return;
+        }
+        // The harness creates tables and writes freely; never let it loose on a real account.
+        String endpoint = System.getenv("AWS_ENDPOINT_URL");
+        if (endpoint == null || endpoint.isBlank()) {
+            System.err.println("AWS_ENDPOINT_URL is not set; point it at DynamoDB Local (see load-test/docker-compose.yml).");
+            System.exit(2);
+        }
+        new LoadTest(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        LocalTables.createIfMissing(dynamoDbClient);
+
+        // Shortening service, wired like LightweightLambdaHandler but publishing to the local bus.
+        DynamoDbRepository repository = new DynamoDbRepository(dynamoDbClient);
+        UrlShortenerService urlShortenerService = new UrlShortenerService(
+                repository,
+                new EventBridgePublisher(eventBus.syncClient(), objectMapper),
+                new BlockLeasedShortCodeGenerator(
+                        new DynamoDbIdBlockLeaser(dynamoDbClient, LocalTables.COUNTERS, "shortCode"), 1000, 0));
+        UrlMappingController controller = new UrlMappingController(urlShortenerService, repository, objectMapper);
+
+        Metrics redirectMetrics = Metrics.discarding("redirect-service");
+        ClickEventEmitter clickEventEmitter = ClickEventEmitter.fromEnvironment(eventBus.asyncClient(), objectMapper,
+                redirectMetrics);
+        RedirectHandler redirectHandler = new RedirectHandler(dynamoDbClient, LocalTables.MAPPINGS,
+                MappingCache.fromEnvironment(), clickEventEmitter, redirectMetrics);
+
+        StreamEmulator stream = new StreamEmulator(dynamoDbClient, LocalTables.ANALYTICS, objectMapper);
+        AnalyticsHandler analyticsHandler = new AnalyticsHandler(
+                ShardedCounterWriter.fromEnvironment(stream.client(), LocalTables.ANALYTICS),
+                TimeBucketWriter.fromEnvironment(dynamoDbClient, LocalTables.ANALYTICS_BUCKETS),
+                SketchStore.fromEnvironment(dynamoDbClient, LocalTables.ANALYTICS_SKETCHES),
+                Metrics.discarding("analytics-service"));
+
+        DashboardHandler dashboardHandler = new DashboardHandler(dynamoDbClient, webSocketApi.client(),
+                LocalTables.ANALYTICS, LocalTables.CONNECTIONS, 5000, options.fanOutConcurrency(),
+                Metrics.discarding("dashboard-service"));
+
+        connectDashboards(dashboardHandler);
+        APIGatewayV2HTTPEvent[] redirects = seedLinks(urlShortenerService);
+        Zipf zipf = options.zipfExponent() > 0 ? new Zipf(redirects.length, options.zipfExponent()) : null;
+        Context redirectContext = new LocalContext("redirect-service");
+
+        PacedLoad creates = new PacedLoad("create", options.createRate(), Math.min(options.threads(), 8), () -> {
+            String url = "https://example.com/load-test/created/" + createdUrls.incrementAndGet();
+            ResponseEntity<UrlMapping> response = controller.createShortUrl(
+                    new UrlMappingController.CreateShortUrlRequest(url, null, null, null), null);
+            return response.getStatusCode().is2xxSuccessful();
+        }, createStats);
+        PacedLoad clicks = new PacedLoad("redirect", options.redirectRate(), options.threads(), () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int rank = zipf != null ? zipf.next(random) : random.nextInt(redirects.length);
+            APIGatewayV2HTTPResponse response = redirectHandler.handleRequest(redirects[rank], redirectContext);
+            return response.getStatusCode() == 302 || response.getStatusCode() == 301;
+        }, redirectStats);
+
+        Thread pipeline = new Thread(() -> runPipeline(analyticsHandler, stream, dashboardHandler), "analytics-pipeline");
+        pipeline.setDaemon(true);
+        pipeline.start();
+
+        long warmupNanos = TimeUnit.SECONDS.toNanos(options.warmupSeconds());
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds());
+        creates.start(start, end);
+        clicks.start(start, end);
+
+        if (warmupNanos > 0) {
+            System.out.printf("Warming up for %ds...%n", options.warmupSeconds());
+            sleepUntil(measureFrom);
+            stages.forEach(StageStats::reset);
+        }
+        report(measureFrom, end);
+
+        creates.join();
+        clicks.join();
+        clickEventEmitter.flush(5000);
+        loadFinished = true;
+        pipeline.join(TimeUnit.SECONDS.toMillis(30) + options.batchWindowMillis());
+
+        double measured = (System.nanoTime() - measureFrom) / 1e9;
+        System.out.printf("%n== Totals (%.1fs measured) ==%n%s%n", measured, StageStats.header());
+        for (StageStats stage : stages) {
+            stage.intervalLine(0);
+            System.out.println(stage.totalLine(measured));
+        }
+        System.out.printf("%nclick events: accepted %d, dropped %d, failed %d; analytics backlog %d%n",
+                clickEventEmitter.accepted(), clickEventEmitter.dropped(), clickEventEmitter.failed(), eventBus.backlog());
+        System.out.printf("dashboard: %d frames, %d bytes pushed to %d connections%n",
+                webSocketApi.frames(), webSocketApi.bytes(), options.connections());
+    }
+
+    /**
+     * Registers the dashboard connections through the handler's $connect route, the way
+     * API Gateway would. Connection ids are stable, so reruns reuse them.
+     */
+    private void connectDashboards(DashboardHandler dashboardHandler) throws IOException {
+        Context context = new LocalContext("dashboard-service");
+        for (int i = 0; i < options.connections(); i++) {
+            String event = """
+                    {"requestContext": {"routeKey": "$connect", "connectionId": "load-test-%d"}}
+                    """.formatted(i);
+            dashboardHandler.handleRequest(new ByteArrayInputStream(event.getBytes(StandardCharsets.UTF_8)),
+                    new ByteArrayOutputStream(), context);
+        }
+    }
+
+    /**
+     * Creates the redirect key space with the bulk path and pre-builds one request per link,
+     * so the generator itself allocates next to nothing while it runs.
+     */
+    private APIGatewayV2HTTPEvent[] seedLinks(UrlShortenerService urlShortenerService) {
+        System.out.printf("Creating %d links...%n", options.keys());
+        List<String> shortCodes = new ArrayList<>(options.keys());
+        Iterator<BulkCreateItem> items = new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < options.keys();
+            }
+
+            @Override
+            public BulkCreateItem next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return new BulkCreateItem("https://example.com/load-test/seeded/" + next++);
+            }
+        };
+        urlShortenerService.createShortUrls(items, result -> {
+            if (result.mapping() == null) {
+                throw new IllegalStateException("Failed to seed " + result.originalUrl() + ": " + result.error());
+            }
+            shortCodes.add(result.mapping().shortCode());
+        });
+
+        APIGatewayV2HTTPEvent[] events = new APIGatewayV2HTTPEvent[shortCodes.size()];
+        for (int i = 0; i < events.length; i++) {
+            String shortCode = shortCodes.get(i);
+            events[i] = APIGatewayV2HTTPEvent.builder()
+                    .withRouteKey("GET /{shortCode}")
+                    .withRawPath("/" + shortCode)
+                    .withPathParameters(Map.of("shortCode", shortCode))
+                    .build();
+        }
+        return events;
+    }
+
+    /**
+     * Plays the SQS event source mapping and the DynamoDB stream: batches click events into
+     * the analytics handler, then hands the counters it changed to the dashboard handler.
+     * Runs until the load is over and the bus is drained.
+     */
+    @SuppressWarnings("unchecked")
+    private void runPipeline(AnalyticsHandler analyticsHandler, StreamEmulator stream, DashboardHandler dashboardHandler) {
+        Context analyticsContext = new LocalContext("analytics-service");
+        Context dashboardContext = new LocalContext("dashboard-service");
+        while (!loadFinished || eventBus.backlog() > 0) {
+            try {
+                List<LocalEventBus.Message> batch = eventBus.poll(options.batchSize(), options.batchWindowMillis());
+                if (batch.isEmpty()) continue;
+
+                List<Map<String, Object>> records = new ArrayList<>(batch.size());
+                for (LocalEventBus.Message message : batch) {
+                    records.add(Map.of(
+                            "messageId", message.messageId(),
+                            "body", message.body(),
+                            "eventSource", "aws:sqs"));
+                }
+                long started = System.nanoTime();
+                Map<String, Object> result = (Map<String, Object>) analyticsHandler.handleRequest(
+                        Map.of("Records", records), analyticsContext);
+                analyticsStats.record(System.nanoTime() - started);
+                if (!((List<?>) result.get("batchItemFailures")).isEmpty()) analyticsStats.recordError();
+
+                byte[] streamEvent = stream.drainEvent();
+                if (streamEvent == null) continue;
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                started = System.nanoTime();
+                dashboardHandler.handleRequest(new ByteArrayInputStream(streamEvent), output, dashboardContext);
+                long pushed = System.nanoTime();
+                dashboardStats.record(pushed - started);
+                if (!"\"OK\"".equals(output.toString(StandardCharsets.UTF_8))) dashboardStats.recordError();
+                for (LocalEventBus.Message message : batch) {
+                    clickToPushStats.record(pushed - message.publishedAtNanos());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("Analytics pipeline failed: " + e);
+                analyticsStats.recordError();
+            }
+        }
+    }
+
+    private void report(long measureFrom, long end) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(options.reportIntervalSeconds());
+        long last = measureFrom;
+        while (last < end) {
+            long next = Math.min(end, last + intervalNanos);
+            sleepUntil(next);
+            System.out.printf("%n== %.0fs ==%n%s%n", (next - measureFrom) / 1e9, StageStats.header());
+            for (StageStats stage : stages) {
+                System.out.println(stage.intervalLine((next - last) / 1e9));
+            }
+            last = next;
+        }
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    record Options(int durationSeconds, int warmupSeconds, double createRate, double redirectRate, int threads,
+                   int keys, double zipfExponent, int connections, int batchSize, long batchWindowMillis,
+                   long webSocketLatencyMillis, int fanOutConcurrency, int reportIntervalSeconds) {
+
+        /**
+         * Returns null when --help was asked for.
+         */
+        static Options parse(String[] args) {
+            int durationSeconds = 60;
+            int warmupSeconds = 10;
+            double createRate = 20;
+            double redirectRate = 1000;
+            int threads = 32;
+            int keys = 10_000;
+            double zipfExponent = 1.0;
+            int connections = 100;
+            int batchSize = 500;
+            long batchWindowMillis = 5000;
+            long webSocketLatencyMillis = 20;
+            int fanOutConcurrency = 64;
+            int reportIntervalSeconds = 10;
+            try {
+                for (int i = 0; i < args.length; i++) {
+                    switch (args[i]) {
+                        case "--duration" -> durationSeconds = Integer.parseInt(args[++i]);
+                        case "--warmup" -> warmupSeconds = Integer.parseInt(args[++i]);
+                        case "--create-rate" -> createRate = Double.parseDouble(args[++i]);
+                        case "--redirect-rate" -> redirectRate = Double.parseDouble(args[++i]);
+                        case "--threads" -> threads = Integer.parseInt(args[++i]);
+                        case "--keys" -> keys = Integer.parseInt(args[++i]);
+                        case "--zipf" -> zipfExponent = Double.parseDouble(args[++i]);
+                        case "--connections" -> connections = Integer.parseInt(args[++i]);
+                        case "--batch-size" -> batchSize = Integer.parseInt(args[++i]);
+                        case "--batch-window-ms" -> batchWindowMillis = Long.parseLong(args[++i]);
+                        case "--websocket-latency-ms" -> webSocketLatencyMillis = Long.parseLong(args[++i]);
+                        case "--fan-out-concurrency" -> fanOutConcurrency = Integer.parseInt(args[++i]);
+                        case "--report-interval" -> reportIntervalSeconds = Integer.parseInt(args[++i]);
+                        case "--help", "-h" -> {
+                            return null;
+                        }
+                        default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                    }
+                }
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Missing value for " + args[args.length - 1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad number: " + e.getMessage());
+            }
+            if (keys < 1 || durationSeconds < 1 || batchSize < 1 || reportIntervalSeconds < 1) {
+                throw new IllegalArgumentException("--keys, --duration, --batch-size and --report-interval must be positive");
+            }
+            return new Options(durationSeconds, warmupSeconds, createRate, redirectRate, threads, keys, zipfExponent,
+                    connections, batchSize, batchWindowMillis, webSocketLatencyMillis, fanOutConcurrency,
+                    reportIntervalSeconds);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.bro.quicklink.loadtest;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lambda context for invoking the handlers in-process. Handler log lines go to stderr,
+ * so failures show up next to the report instead of disappearing.
+ */
+final class LocalContext implements Context {
+
+    private static final LambdaLogger STDERR_LOGGER = new LambdaLogger() {
+        @Override public void log(String message) { System.err.println(message); }
+        @Override public void log(byte[] message) { log(new String(message, StandardCharsets.UTF_8)); }
+    };
+
+    private final String functionName;
+
+    LocalContext(String functionName) {
+        this.functionName = functionName;
+    }
+
+    @Override public String getAwsRequestId() { return "load-test"; }
+    @Override public String getLogGroupName() { return "/aws/lambda/" + functionName; }
+    @Override public String getLogStreamName() { return "load-test"; }
+    @Override public String getFunctionName() { return functionName; }
+    @Override public String getFunctionVersion() { return "$LATEST"; }
+    @Override public String getInvokedFunctionArn() { return "arn:aws:lambda:us-east-1:000000000000:function:" + functionName; }
+    @Override public CognitoIdentity getIdentity() { return null; }
+    @Override public ClientContext getClientContext() { return null; }
+    @Override public int getRemainingTimeInMillis() { return 30_000; }
+    @Override public int getMemoryLimitInMB() { return 1024; }
+    @Override public LambdaLogger getLogger() { return STDERR_LOGGER; }
+}
@@ -0,0 +1,143 @@
+package com.bro.quicklink.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient;
+import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stands in for EventBridge plus the rule that routes click events to the analytics
+ * queue. PutEvents wraps every entry in the envelope EventBridge would deliver and queues
+ * the clicks; {@link #poll} hands them out in batches the way an SQS event source mapping
+ * does, up to a batch size or until the batching window closes.
+ */
+final class LocalEventBus {
+
+    private static final String CLICK_DETAIL_TYPE = "UrlAccessedEvent";
+
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<Message> clicks = new LinkedBlockingQueue<>();
+    private final AtomicLong published = new AtomicLong();
+
+    LocalEventBus(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * A delivered event as the analytics handler sees it in an SQS record.
+     */
+    record Message(String messageId, String body, long publishedAtNanos) {}
+
+    EventBridgeClient syncClient() {
+        return new EventBridgeClient() {
+            @Override
+            public PutEventsResponse putEvents(PutEventsRequest request) {
+                return accept(request);
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    EventBridgeAsyncClient asyncClient() {
+        return new EventBridgeAsyncClient() {
+            @Override
+            public CompletableFuture<PutEventsResponse> putEvents(PutEventsRequest request) {
+                return CompletableFuture.completedFuture(accept(request));
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Waits up to {@code windowMillis} for the first message, then keeps collecting until
+     * the batch is full or the window has passed. Returns an empty list if nothing arrived.
+     */
+    List<Message> poll(int batchSize, long windowMillis) throws InterruptedException {
+        List<Message> batch = new ArrayList<>(batchSize);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        Message first = clicks.poll(windowMillis, TimeUnit.MILLISECONDS);
+        if (first == null) return batch;
+        batch.add(first);
+        while (batch.size() < batchSize) {
+            clicks.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) break;
+            Message next = clicks.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    int backlog() {
+        return clicks.size();
+    }
+
+    long published() {
+        return published.get();
+    }
+
+    private PutEventsResponse accept(PutEventsRequest request) {
+        List<PutEventsResultEntry> results = new ArrayList<>(request.entries().size());
+        long now = System.nanoTime();
+        for (PutEventsRequestEntry entry : request.entries()) {
+            String eventId = UUID.randomUUID().toString();
+            if (CLICK_DETAIL_TYPE.equals(entry.detailType())) {
+                clicks.add(new Message(eventId, envelope(eventId, entry), now));
+            }
+            published.incrementAndGet();
+            results.add(PutEventsResultEntry.builder().eventId(eventId).build());
+        }
+        return PutEventsResponse.builder().failedEntryCount(0).entries(results).build();
+    }
+
+    private String envelope(String eventId, PutEventsRequestEntry entry) {
+        try {
+            ObjectNode event = objectMapper.createObjectNode()
+                    .put("version", "0")
+                    .put("id", eventId)
+                    .put("detail-type", entry.detailType())
+                    .put("source", entry.source())
+                    .put("account", "000000000000")
+                    .put("time", Instant.now().toString())
+                    .put("region", "us-east-1");
+            event.putArray("resources");
+            event.set("detail", objectMapper.readTree(entry.detail()));
+            return objectMapper.writeValueAsString(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.bro.quicklink.loadtest;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+/**
+ * Creates the tables defined under terraform/ in DynamoDB Local. Streams are not
+ * enabled: the harness replays analytics changes to the dashboard itself.
+ */
+final class LocalTables {
+
+    static final String MAPPINGS = "quicklink-mappings";
+    static final String COUNTERS = "quicklink-counters";
+    static final String DEDUP = "quicklink-dedup";
+    static final String ANALYTICS = "quicklink-analytics";
+    static final String ANALYTICS_BUCKETS = "quicklink-analytics-buckets";
+    static final String ANALYTICS_SKETCHES = "quicklink-analytics-sketches";
+    static final String CONNECTIONS = "quicklink-connections";
+
+    private LocalTables() {
+    }
+
+    static void createIfMissing(DynamoDbClient dynamoDbClient) {
+        create(dynamoDbClient, MAPPINGS, "shortCode");
+        create(dynamoDbClient, COUNTERS, "counterName");
+        create(dynamoDbClient, DEDUP, "dedupKey");
+        create(dynamoDbClient, ANALYTICS, "shortCode");
+        create(dynamoDbClient, CreateTableRequest.builder()
+                .tableName(ANALYTICS_BUCKETS)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(
+                        AttributeDefinition.builder().attributeName("bucketKey").attributeType(ScalarAttributeType.S).build(),
+                        AttributeDefinition.builder().attributeName("bucketStart").attributeType(ScalarAttributeType.N).build())
+                .keySchema(
+                        KeySchemaElement.builder().attributeName("bucketKey").keyType(KeyType.HASH).build(),
+                        KeySchemaElement.builder().attributeName("bucketStart").keyType(KeyType.RANGE).build())
+                .build());
+        create(dynamoDbClient, ANALYTICS_SKETCHES, "sketchKey");
+        create(dynamoDbClient, CONNECTIONS, "connectionId");
+    }
+
+    private static void create(DynamoDbClient dynamoDbClient, String tableName, String hashKey) {
+        create(dynamoDbClient, CreateTableRequest.builder()
+                .tableName(tableName)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(AttributeDefinition.builder()
+                        .attributeName(hashKey)
+                        .attributeType(ScalarAttributeType.S)
+                        .build())
+                .keySchema(KeySchemaElement.builder()
+                        .attributeName(hashKey)
+                        .keyType(KeyType.HASH)
+                        .build())
+                .build());
+    }
+
+    private static void create(DynamoDbClient dynamoDbClient, CreateTableRequest request) {
+        try {
+            dynamoDbClient.createTable(request);
+            dynamoDbClient.waiter().waitUntilTableExists(b -> b.tableName(request.tableName()));
+        } catch (ResourceInUseException e) {
+            // Left over from an earlier run; counters keep growing, which is harmless.
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.bro.quicklink.loadtest;
+
+import software.amazon.awssdk.services.apigatewaymanagementapi.ApiGatewayManagementApiAsyncClient;
+import software.amazon.awssdk.services.apigatewaymanagementapi.model.PostToConnectionRequest;
+import software.amazon.awssdk.services.apigatewaymanagementapi.model.PostToConnectionResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stands in for the WebSocket API's management endpoint. Every PostToConnection succeeds
+ * after {@code latencyMillis}, which models the round trip to API Gateway so that the
+ * dashboard's fan-out concurrency limit actually matters.
+ */
+final class LocalWebSocketApi {
+
+    private final long latencyMillis;
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    LocalWebSocketApi(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    ApiGatewayManagementApiAsyncClient client() {
+        return new ApiGatewayManagementApiAsyncClient() {
+            @Override
+            public CompletableFuture<PostToConnectionResponse> postToConnection(PostToConnectionRequest request) {
+                frames.incrementAndGet();
+                bytes.addAndGet(request.data().asByteBuffer().remaining());
+                PostToConnectionResponse response = PostToConnectionResponse.builder().build();
+                if (latencyMillis <= 0) {
+                    return CompletableFuture.completedFuture(response);
+                }
+                return CompletableFuture.supplyAsync(() -> response,
+                        CompletableFuture.delayedExecutor(latencyMillis, TimeUnit.MILLISECONDS));
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    long frames() {
+        return frames.get();
+    }
+
+    long bytes() {
+        return bytes.get();
+    }
+}
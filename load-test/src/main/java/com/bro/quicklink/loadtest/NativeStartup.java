@@ -0,0 +1,236 @@
+package com.bro.quicklink.loadtest;
+
+import com.bro.quicklink.aws.AwsClients;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-start comparison of a service's native executable against its JVM jar. Each run
+ * starts a fresh process against a {@link StubRuntimeApi} serving one representative
+ * event, the way a new Lambda sandbox would, and records:
+ * <ul>
+ * <li>init: process start to the first poll of the Runtime API (handler constructed);</li>
+ * <li>first response: process start to the posted result of the first invocation;</li>
+ * <li>RSS and peak RSS of the process once it has answered (Linux only).</li>
+ * </ul>
+ * The handlers talk to DynamoDB Local through AWS_ENDPOINT_URL, which the children inherit,
+ * so the first invocation includes a real table round trip. Both artifacts come from
+ * {@code mvn -Pnative package} in the service module; the JVM is started with the flags the
+ * managed java21 runtime uses.
+ */
+public final class NativeStartup {
+
+    private static final String USAGE = """
+            Usage: AWS_ENDPOINT_URL=http://localhost:8000 \\
+                     java -cp load-test.jar com.bro.quicklink.loadtest.NativeStartup [options]
+              --service NAME      redirect, analytics or dashboard (default redirect)
+              --target DIR        the module's build output (default ../<service>-service/target)
+              --runs N            cold starts per variant; medians are reported (default 5)
+              --memory-mb N       AWS_LAMBDA_FUNCTION_MEMORY_SIZE and the JVM's heap bound (default 512)
+            """;
+
+    private static final String RUNTIME_CLIENT = "com.amazonaws.services.lambda.runtime.api.client.AWSLambda";
+    private static final String SHORT_CODE = "native-startup";
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private NativeStartup() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String service = "redirect";
+        Path target = null;
+        int runs = 5;
+        int memoryMb = 512;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--service" -> service = args[++i];
+                    case "--target" -> target = Path.of(args[++i]);
+                    case "--runs" -> runs = Integer.parseInt(args[++i]);
+                    case "--memory-mb" -> memoryMb = Integer.parseInt(args[++i]);
+                    case "--help", "-h" -> {
+                        System.out.print(USAGE);
+                        return;
+                    }
+                    default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+            if (runs < 1) throw new IllegalArgumentException("--runs must be positive");
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing value for " + args[args.length - 1] : e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+        String endpoint = System.getenv("AWS_ENDPOINT_URL");
+        if (endpoint == null || endpoint.isBlank()) {
+            System.err.println("AWS_ENDPOINT_URL is not set; point it at DynamoDB Local (see load-test/docker-compose.yml).");
+            System.exit(2);
+        }
+
+        Workload workload = Workload.of(service);
+        String module = service + "-service";
+        if (target == null) target = Path.of("..", module, "target");
+        Path executable = target.resolve(module);
+        Path jar = target.resolve(module + "-1.0.0.jar");
+        for (Path artifact : List.of(executable, jar)) {
+            if (!Files.exists(artifact)) {
+                System.err.println(artifact + " is missing; build it with mvn -Pnative package in " + module + ".");
+                System.exit(2);
+            }
+        }
+
+        DynamoDbClient dynamoDbClient = AwsClients.sync(DynamoDbClient.builder());
+        LocalTables.createIfMissing(dynamoDbClient);
+        seed(dynamoDbClient);
+
+        List<String> nativeCommand = List.of(executable.toAbsolutePath().toString(), workload.handler());
+        List<String> jvmCommand = List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-XX:+TieredCompilation", "-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC",
+                "-Xmx" + memoryMb * 85 / 100 + "m",
+                "-cp", jar.toAbsolutePath().toString(), RUNTIME_CLIENT, workload.handler());
+
+        Result nativeResult = measure("native", nativeCommand, workload, memoryMb, runs);
+        Result jvmResult = measure("jvm", jvmCommand, workload, memoryMb, runs);
+
+        System.out.printf("%n%s, median of %d cold starts%n", workload.handler(), runs);
+        System.out.printf("%-8s %10s %16s %10s %10s%n", "variant", "init ms", "first resp. ms", "RSS MB", "peak MB");
+        for (Result result : List.of(nativeResult, jvmResult)) {
+            System.out.printf("%-8s %10.1f %16.1f %10.1f %10.1f%n", result.variant(), result.initMillis(),
+                    result.firstResponseMillis(), result.rssMb(), result.peakRssMb());
+        }
+        System.out.printf("native/jvm: first response %.2fx, RSS %.2fx%n",
+                nativeResult.firstResponseMillis() / jvmResult.firstResponseMillis(),
+                nativeResult.rssMb() / jvmResult.rssMb());
+        System.exit(0);
+    }
+
+    private static Result measure(String variant, List<String> command, Workload workload, int memoryMb, int runs)
+            throws IOException, InterruptedException {
+        double[] init = new double[runs];
+        double[] firstResponse = new double[runs];
+        double[] rss = new double[runs];
+        double[] peakRss = new double[runs];
+        for (int run = 0; run < runs; run++) {
+            try (StubRuntimeApi runtimeApi = new StubRuntimeApi(workload.event())) {
+                ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+                Map<String, String> env = builder.environment();
+                env.put("AWS_LAMBDA_RUNTIME_API", runtimeApi.address());
+                env.put("_HANDLER", workload.handler());
+                env.put("AWS_LAMBDA_FUNCTION_NAME", "native-startup");
+                env.put("AWS_LAMBDA_FUNCTION_VERSION", "$LATEST");
+                env.put("AWS_LAMBDA_FUNCTION_MEMORY_SIZE", Integer.toString(memoryMb));
+                env.putIfAbsent("AWS_REGION", "us-east-1");
+                env.putAll(workload.environment());
+
+                long startNanos = System.nanoTime();
+                Process process = builder.start();
+                try {
+                    if (!runtimeApi.awaitResult(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException(variant + " did not answer within " + TIMEOUT_SECONDS + "s"
+                                + (process.isAlive() ? "" : " (exited with " + process.exitValue() + ")"));
+                    }
+                    if (!runtimeApi.succeeded()) {
+                        throw new IllegalStateException(variant + " failed: " + runtimeApi.result());
+                    }
+                    long[] memory = memoryKb(process.pid());
+                    init[run] = (runtimeApi.firstPollNanos() - startNanos) / 1e6;
+                    firstResponse[run] = (runtimeApi.resultNanos() - startNanos) / 1e6;
+                    rss[run] = memory[0] / 1024.0;
+                    peakRss[run] = memory[1] / 1024.0;
+                } finally {
+                    process.destroyForcibly().waitFor();
+                }
+            }
+            System.out.printf("%s run %d: init %.1f ms, first response %.1f ms, RSS %.1f MB%n",
+                    variant, run + 1, init[run], firstResponse[run], rss[run]);
+        }
+        return new Result(variant, median(init), median(firstResponse), median(rss), median(peakRss));
+    }
+
+    /**
+     * VmRSS and VmHWM of the process in kB, or zeros where /proc isn't available.
+     */
+    private static long[] memoryKb(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        long[] memory = new long[2];
+        if (!Files.exists(status)) return memory;
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) memory[0] = kilobytes(line);
+            if (line.startsWith("VmHWM:")) memory[1] = kilobytes(line);
+        }
+        return memory;
+    }
+
+    private static long kilobytes(String statusLine) {
+        return Long.parseLong(statusLine.replaceAll("[^0-9]", ""));
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static void seed(DynamoDbClient dynamoDbClient) {
+        dynamoDbClient.putItem(PutItemRequest.builder()
+                .tableName(LocalTables.MAPPINGS)
+                .item(Map.of(
+                        "shortCode", AttributeValue.builder().s(SHORT_CODE).build(),
+                        "originalUrl", AttributeValue.builder().s("https://example.com/native-startup").build(),
+                        "createdAt", AttributeValue.builder().s(Instant.now().toString()).build()))
+                .build());
+    }
+
+    private record Result(String variant, double initMillis, double firstResponseMillis, double rssMb,
+                          double peakRssMb) {}
+
+    /**
+     * The handler to start and one event of the kind it serves in production.
+     */
+    private record Workload(String handler, String event, Map<String, String> environment) {
+
+        static Workload of(String service) {
+            return switch (service) {
+                case "redirect" -> new Workload("com.bro.quicklink.RedirectHandler::handleRequest", """
+                        {"version":"2.0","routeKey":"GET /{shortCode}","rawPath":"/%s",
+                         "pathParameters":{"shortCode":"%s"},"headers":{"user-agent":"native-startup"},
+                         "requestContext":{"http":{"method":"GET","path":"/%s","sourceIp":"127.0.0.1",
+                         "userAgent":"native-startup"}},"isBase64Encoded":false}
+                        """.formatted(SHORT_CODE, SHORT_CODE, SHORT_CODE),
+                        Map.of("TABLE_NAME", LocalTables.MAPPINGS, "EVENT_BUS_NAME", "default"));
+                case "analytics" -> new Workload("com.bro.quicklink.AnalyticsHandler::handleRequest", """
+                        {"Records":[{"messageId":"1","body":%s}]}
+                        """.formatted(jsonString("""
+                        {"detail-type":"UrlAccessedEvent","time":"%s","detail":{"shortCode":"%s"}}"""
+                        .formatted(Instant.now(), SHORT_CODE))),
+                        Map.of("ANALYTICS_TABLE_NAME", LocalTables.ANALYTICS,
+                                "ANALYTICS_BUCKETS_TABLE_NAME", LocalTables.ANALYTICS_BUCKETS,
+                                "ANALYTICS_SKETCHES_TABLE_NAME", LocalTables.ANALYTICS_SKETCHES));
+                case "dashboard" -> new Workload("com.bro.quicklink.DashboardHandler::handleRequest", """
+                        {"Records":[{"eventName":"MODIFY","dynamodb":{"NewImage":{
+                         "shortCode":{"S":"%s"},"clicks":{"N":"1"}}}}]}
+                        """.formatted(SHORT_CODE),
+                        Map.of("ANALYTICS_TABLE_NAME", LocalTables.ANALYTICS,
+                                "CONNECTIONS_TABLE_NAME", LocalTables.CONNECTIONS,
+                                "WEBSOCKET_API_ID", "local", "WEBSOCKET_API_STAGE", "local"));
+                default -> throw new IllegalArgumentException("Unknown service: " + service);
+            };
+        }
+
+        private static String jsonString(String value) {
+            return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        }
+    }
+}
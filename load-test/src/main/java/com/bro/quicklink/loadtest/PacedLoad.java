@@ -0,0 +1,80 @@
+package com.bro.quicklink.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load at a fixed rate. Each worker owns an evenly spaced slice of the schedule
+ * and latency is measured from when an operation was due, not from when it actually
+ * started, so a stall shows up in the percentiles instead of silently lowering the offered
+ * rate (coordinated omission). If the workers fall behind they run back to back until
+ * they catch up.
+ */
+final class PacedLoad {
+
+    /**
+     * One operation; returns false (or throws) when it failed.
+     */
+    @FunctionalInterface
+    interface Operation {
+        boolean run() throws Exception;
+    }
+
+    private final String name;
+    private final double ratePerSecond;
+    private final int threads;
+    private final Operation operation;
+    private final StageStats stats;
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicBoolean failureLogged = new AtomicBoolean();
+
+    PacedLoad(String name, double ratePerSecond, int threads, Operation operation, StageStats stats) {
+        this.name = name;
+        this.ratePerSecond = ratePerSecond;
+        this.threads = Math.max(1, threads);
+        this.operation = operation;
+        this.stats = stats;
+    }
+
+    void start(long startNanos, long endNanos) {
+        if (ratePerSecond <= 0) return;
+        double spacing = 1e9 / ratePerSecond;
+        long period = (long) (spacing * threads);
+        for (int i = 0; i < threads; i++) {
+            long first = startNanos + (long) (spacing * i);
+            Thread worker = new Thread(() -> run(first, period, endNanos), name + "-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    void join() throws InterruptedException {
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private void run(long first, long period, long endNanos) {
+        for (long due = first; due < endNanos; due += period) {
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean ok;
+            try {
+                ok = operation.run();
+            } catch (Exception e) {
+                // Only the first one, so a broken stage doesn't drown the report.
+                if (failureLogged.compareAndSet(false, true)) {
+                    System.err.println(name + " failed: " + e);
+                }
+                ok = false;
+            }
+            stats.record(System.nanoTime() - due);
+            if (!ok) stats.recordError();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.bro.quicklink.loadtest;
+
+import com.bro.quicklink.ClickEventEmitter;
+import com.bro.quicklink.MappingCache;
+import com.bro.quicklink.RedirectHandler;
+import com.bro.quicklink.RedirectServer;
+import com.bro.quicklink.aws.AwsClients;
+import com.bro.quicklink.metrics.Metrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the standalone {@link RedirectServer} over real HTTP against DynamoDB Local: the
+ * responses for each kind of link, the health and metrics endpoints, keep-alive, a paced
+ * load over pooled connections, and a graceful shutdown that reports unhealthy while it
+ * drains and delivers every accepted click event. Exits with 1 if any check fails.
+ *
+ * Click events go to the in-memory EventBridge (LocalEventBus).
+ */
+public final class RedirectServerCheck {
+
+    private static final String USAGE = """
+            Usage: AWS_ENDPOINT_URL=http://localhost:8000 \\
+                     java -cp load-test.jar com.bro.quicklink.loadtest.RedirectServerCheck [options]
+              --duration SECONDS  paced load run time (default 10)
+              --rate N            redirects per second during the load (default 2000)
+              --threads N         load workers (default 32)
+              --keys N            links seeded for the load to pick from (default 1000)
+            """;
+
+    private static final String PREFIX = "server-check-";
+    private static final String CACHED = PREFIX + "cached";
+    private static final String EXPIRED = PREFIX + "expired";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private int failures;
+
+    private RedirectServerCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int durationSeconds = 10;
+        double rate = 2000;
+        int threads = 32;
+        int keys = 1000;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--duration" -> durationSeconds = Integer.parseInt(args[++i]);
+                    case "--rate" -> rate = Double.parseDouble(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--keys" -> keys = Integer.parseInt(args[++i]);
+                    case "--help", "-h" -> {
+                        System.out.print(USAGE);
+                        return;
+                    }
+                    default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+            if (keys < 1 || durationSeconds < 1) throw new IllegalArgumentException("--keys and --duration must be positive");
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing value for " + args[args.length - 1] : e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+        String endpoint = System.getenv("AWS_ENDPOINT_URL");
+        if (endpoint == null || endpoint.isBlank()) {
+            System.err.println("AWS_ENDPOINT_URL is not set; point it at DynamoDB Local (see load-test/docker-compose.yml).");
+            System.exit(2);
+        }
+        System.exit(new RedirectServerCheck().run(durationSeconds, rate, threads, keys) ? 0 : 1);
+    }
+
+    private boolean run(int durationSeconds, double rate, int threads, int keys) throws Exception {
+        DynamoDbClient dynamoDbClient = AwsClients.sync(DynamoDbClient.builder());
+        LocalTables.createIfMissing(dynamoDbClient);
+        System.out.printf("Seeding %d links...%n", keys);
+        seed(dynamoDbClient, keys);
+
+        LocalEventBus eventBus = new LocalEventBus(objectMapper);
+        Metrics metrics = Metrics.discarding("redirect-service");
+        MappingCache mappingCache = MappingCache.fromEnvironment();
+        ClickEventEmitter clickEventEmitter = new ClickEventEmitter(eventBus.asyncClient(), objectMapper, "default",
+                10_000, 4, 0, metrics);
+        RedirectServer server = new RedirectServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                new RedirectHandler(dynamoDbClient, LocalTables.MAPPINGS, mappingCache, clickEventEmitter, metrics),
+                mappingCache, clickEventEmitter, metrics, false);
+        server.start(100, 60_000);
+        String base = "http://127.0.0.1:" + server.port();
+
+        HttpResponse<String> found = get(base + "/" + PREFIX + "0", null);
+        check("302 with Location for a link", found.statusCode() == 302
+                && "https://example.com/server-check/0".equals(found.headers().firstValue("Location").orElse(null)));
+        HttpResponse<String> cached = get(base + "/" + CACHED, null);
+        String etag = cached.headers().firstValue("ETag").orElse(null);
+        check("301 with Cache-Control and ETag for a cacheable link", cached.statusCode() == 301 && etag != null
+                && cached.headers().firstValue("Cache-Control").orElse("").contains("max-age="));
+        check("304 for a matching If-None-Match", get(base + "/" + CACHED, etag).statusCode() == 304);
+        check("410 for an expired link", get(base + "/" + EXPIRED, null).statusCode() == 410);
+        check("404 for an unknown link", get(base + "/" + PREFIX + "missing", null).statusCode() == 404);
+        check("404 for a nested path", get(base + "/" + PREFIX + "0/more", null).statusCode() == 404);
+        check("405 for POST", httpClient.send(HttpRequest.newBuilder(URI.create(base + "/" + PREFIX + "0"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding())
+                .statusCode() == 405);
+        check("200 from the health endpoint", get(base + RedirectServer.HEALTH_PATH, null).statusCode() == 200);
+        check("two pipelined requests answered on one connection", keepAlive(server.port()));
+
+        System.out.printf("Load: %.0f redirects/s for %ds over pooled connections...%n", rate, durationSeconds);
+        StageStats stats = new StageStats("redirect");
+        PacedLoad load = new PacedLoad("redirect", rate, threads, () -> {
+            int key = ThreadLocalRandom.current().nextInt(keys);
+            HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(URI.create(base + "/" + PREFIX + key))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 302;
+        }, stats);
+        long start = System.nanoTime();
+        load.start(start, start + TimeUnit.SECONDS.toNanos(durationSeconds));
+        load.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        stats.intervalLine(seconds);
+        System.out.printf("%s%n%s%n", StageStats.header(), stats.totalLine(seconds));
+        check("no failed redirects under load", stats.errors() == 0);
+
+        HttpResponse<String> snapshot = get(base + RedirectServer.METRICS_PATH, null);
+        JsonNode metricsJson = objectMapper.readTree(snapshot.body());
+        System.out.println("Metrics endpoint: " + snapshot.body());
+        check("metrics endpoint counts the requests", snapshot.statusCode() == 200
+                && metricsJson.path("requests").asLong() >= 10 && metricsJson.path("mappingCache").path("hits").asLong() > 0);
+
+        Thread stopping = Thread.ofPlatform().name("server-check-stop").start(() -> server.stop(1000, 5));
+        TimeUnit.MILLISECONDS.sleep(200);
+        HttpResponse<String> draining = get(base + RedirectServer.HEALTH_PATH, null);
+        check("503 with Connection: close from the health endpoint while draining", draining.statusCode() == 503
+                && "close".equalsIgnoreCase(draining.headers().firstValue("Connection").orElse("")));
+        check("redirects still served while draining", get(base + "/" + PREFIX + "1", null).statusCode() == 302);
+        stopping.join();
+        check("connections refused after shutdown", refused(server.port()));
+        check("every accepted click event delivered (accepted " + clickEventEmitter.accepted() + ", delivered "
+                        + eventBus.published() + ", dropped " + clickEventEmitter.dropped() + ")",
+                clickEventEmitter.dropped() == 0 && clickEventEmitter.buffered() == 0
+                        && eventBus.published() == clickEventEmitter.accepted());
+
+        System.out.println(failures == 0 ? "All checks passed." : failures + " check(s) failed.");
+        return failures == 0;
+    }
+
+    private HttpResponse<String> get(String url, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).header("User-Agent", "server-check");
+        if (ifNoneMatch != null) request.header("If-None-Match", ifNoneMatch);
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS " : "FAIL ") + name);
+        if (!passed) failures++;
+    }
+
+    /**
+     * Writes two requests back to back on one socket and expects both answers on it. The
+     * second one asks to close the connection, so the read ends there.
+     */
+    private static boolean keepAlive(int port) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /" + PREFIX + "0 HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /" + PREFIX + "1 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            String responses = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+            return responses.split("HTTP/1.1 302", -1).length == 3;
+        }
+    }
+
+    private static boolean refused(int port) throws IOException {
+        try (Socket ignored = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            return false;
+        } catch (ConnectException e) {
+            return true;
+        }
+    }
+
+    private static void seed(DynamoDbClient dynamoDbClient, int keys) {
+        String createdAt = Instant.now().toString();
+        for (int i = 0; i < keys; i++) {
+            put(dynamoDbClient, PREFIX + i, "https://example.com/server-check/" + i, createdAt, Map.of());
+        }
+        put(dynamoDbClient, CACHED, "https://example.com/server-check/cached", createdAt, Map.of(
+                "redirectStatus", AttributeValue.builder().n("301").build(),
+                "maxAgeSeconds", AttributeValue.builder().n("3600").build(),
+                "etag", AttributeValue.builder().s("\"server-check\"").build()));
+        put(dynamoDbClient, EXPIRED, "https://example.com/server-check/expired", createdAt, Map.of(
+                "expiresAt", AttributeValue.builder().n(Long.toString(Instant.now().getEpochSecond() - 60)).build()));
+    }
+
+    private static void put(DynamoDbClient dynamoDbClient, String shortCode, String originalUrl, String createdAt,
+                            Map<String, AttributeValue> policy) {
+        Map<String, AttributeValue> item = new HashMap<>(policy);
+        item.put("shortCode", AttributeValue.builder().s(shortCode).build());
+        item.put("originalUrl", AttributeValue.builder().s(originalUrl).build());
+        item.put("createdAt", AttributeValue.builder().s(createdAt).build());
+        dynamoDbClient.putItem(PutItemRequest.builder().tableName(LocalTables.MAPPINGS).item(item).build());
+    }
+}
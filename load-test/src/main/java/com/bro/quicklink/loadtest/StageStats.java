@@ -0,0 +1,84 @@
+package com.bro.quicklink.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and error counts for one stage. Workers record into an HdrHistogram
+ * {@link Recorder}; the reporter swaps out an interval histogram for each progress line
+ * and folds it into the run total, so recording never waits on reporting.
+ */
+final class StageStats {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final String name;
+    private final Recorder recorder = new Recorder(3);
+    private final Histogram total = new Histogram(3);
+    private final LongAdder errors = new LongAdder();
+    private Histogram interval;
+    private long intervalErrors;
+
+    StageStats(String name) {
+        this.name = name;
+    }
+
+    void record(long latencyNanos) {
+        recorder.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    /**
+     * Discards everything recorded so far, e.g. at the end of the warmup.
+     */
+    synchronized void reset() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.reset();
+        errors.reset();
+        intervalErrors = 0;
+    }
+
+    synchronized String intervalLine(double seconds) {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        long errorCount = errors.sum();
+        String line = line(interval, seconds, errorCount - intervalErrors);
+        intervalErrors = errorCount;
+        return line;
+    }
+
+    /**
+     * Call after the final {@link #intervalLine}, which moves the last samples into the total.
+     */
+    synchronized String totalLine(double seconds) {
+        return line(total, seconds, errors.sum());
+    }
+
+    static String header() {
+        return String.format("%-12s %10s %10s %9s %9s %9s %9s %9s %8s",
+                "stage", "count", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+    }
+
+    private String line(Histogram histogram, double seconds, long errorCount) {
+        return String.format("%-12s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %8d",
+                name,
+                histogram.getTotalCount(),
+                seconds > 0 ? histogram.getTotalCount() / seconds : 0,
+                histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(90) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                histogram.getMaxValue() / MICROS_PER_MILLI,
+                errorCount);
+    }
+}
@@ -0,0 +1,92 @@
+package com.bro.quicklink.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stands in for the analytics table's DynamoDB stream. The analytics handler writes
+ * through {@link #client()}, which remembers the key of every counter it updates;
+ * {@link #drainEvent()} then reads each changed item back and renders the batch as the
+ * NEW_IMAGE stream event the dashboard handler receives in production.
+ *
+ * Only the calls the analytics handler makes are forwarded. Only used from one thread.
+ */
+final class StreamEmulator {
+
+    private final DynamoDbClient delegate;
+    private final String tableName;
+    private final ObjectMapper objectMapper;
+    private final Set<String> changedKeys = new LinkedHashSet<>();
+
+    StreamEmulator(DynamoDbClient delegate, String tableName, ObjectMapper objectMapper) {
+        this.delegate = delegate;
+        this.tableName = tableName;
+        this.objectMapper = objectMapper;
+    }
+
+    DynamoDbClient client() {
+        return new DynamoDbClient() {
+            @Override
+            public UpdateItemResponse updateItem(UpdateItemRequest request) {
+                UpdateItemResponse response = delegate.updateItem(request);
+                if (tableName.equals(request.tableName())) {
+                    changedKeys.add(request.key().get("shortCode").s());
+                }
+                return response;
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Returns the stream event for every item changed since the last call, or null if
+     * nothing changed.
+     */
+    byte[] drainEvent() throws IOException {
+        if (changedKeys.isEmpty()) return null;
+
+        ObjectNode event = objectMapper.createObjectNode();
+        ArrayNode records = event.putArray("Records");
+        for (String shortCode : changedKeys) {
+            Map<String, AttributeValue> item = delegate.getItem(GetItemRequest.builder()
+                    .tableName(tableName)
+                    .key(Map.of("shortCode", AttributeValue.builder().s(shortCode).build()))
+                    .consistentRead(true)
+                    .build()).item();
+            if (item == null || item.isEmpty()) continue;
+
+            ObjectNode record = records.addObject()
+                    .put("eventName", "MODIFY")
+                    .put("eventSource", "aws:dynamodb");
+            ObjectNode newImage = record.putObject("dynamodb").putObject("NewImage");
+            item.forEach((name, value) -> {
+                if (value.s() != null) {
+                    newImage.putObject(name).put("S", value.s());
+                } else if (value.n() != null) {
+                    newImage.putObject(name).put("N", value.n());
+                }
+            });
+        }
+        changedKeys.clear();
+        return objectMapper.writeValueAsBytes(event);
+    }
+}
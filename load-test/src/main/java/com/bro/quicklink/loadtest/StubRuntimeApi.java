@@ -0,0 +1,130 @@
+package com.bro.quicklink.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for the Lambda Runtime API a custom runtime polls. Hands out a single
+ * invocation and records when the runtime first asked for work (init done) and when it
+ * posted the result; later polls block until {@link #close}, like an idle sandbox.
+ */
+final class StubRuntimeApi implements AutoCloseable {
+
+    private static final String PREFIX = "/2018-06-01/runtime/";
+    private static final String REQUEST_ID = "00000000-0000-0000-0000-000000000001";
+
+    private final HttpServer server;
+    private final byte[] event;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private volatile long firstPollNanos;
+    private volatile long resultNanos;
+    private volatile boolean succeeded;
+    private volatile String result;
+    private boolean handedOut;
+
+    StubRuntimeApi(String event) throws IOException {
+        this.event = event.getBytes(StandardCharsets.UTF_8);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext(PREFIX, this::handle);
+        this.server.start();
+    }
+
+    /**
+     * The value for AWS_LAMBDA_RUNTIME_API.
+     */
+    String address() {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Waits for the invocation result (or an init error).
+     */
+    boolean awaitResult(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    long firstPollNanos() {
+        return firstPollNanos;
+    }
+
+    long resultNanos() {
+        return resultNanos;
+    }
+
+    boolean succeeded() {
+        return succeeded;
+    }
+
+    String result() {
+        return result;
+    }
+
+    @Override
+    public void close() {
+        closed.countDown();
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath().substring(PREFIX.length());
+        try (exchange) {
+            if (path.equals("invocation/next")) {
+                next(exchange);
+            } else if (path.endsWith("/response") || path.endsWith("/error")) {
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                if (resultNanos == 0) {
+                    resultNanos = System.nanoTime();
+                    succeeded = path.endsWith("/response");
+                    result = body;
+                    done.countDown();
+                }
+                exchange.sendResponseHeaders(202, -1);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        }
+    }
+
+    private void next(HttpExchange exchange) throws IOException {
+        boolean first;
+        synchronized (this) {
+            if (firstPollNanos == 0) firstPollNanos = System.nanoTime();
+            first = !handedOut;
+            handedOut = true;
+        }
+        if (!first) {
+            awaitClose();
+            return;
+        }
+        exchange.getResponseHeaders().add("Lambda-Runtime-Aws-Request-Id", REQUEST_ID);
+        exchange.getResponseHeaders().add("Lambda-Runtime-Deadline-Ms",
+                Long.toString(System.currentTimeMillis() + 60_000));
+        exchange.getResponseHeaders().add("Lambda-Runtime-Invoked-Function-Arn",
+                "arn:aws:lambda:us-east-1:000000000000:function:native-startup");
+        exchange.getResponseHeaders().add("Lambda-Runtime-Trace-Id", "Root=1-00000000-000000000000000000000000");
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, event.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(event);
+        }
+    }
+
+    private void awaitClose() {
+        try {
+            closed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.bro.quicklink.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that is reported and reset on every flush, e.g. dropped events or retries.
+ */
+public final class Counter {
+
+    private final String name;
+    private final Unit unit;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name, Unit unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    String name() {
+        return name;
+    }
+
+    Unit unit() {
+        return unit;
+    }
+
+    long sumThenReset() {
+        return count.sumThenReset();
+    }
+}
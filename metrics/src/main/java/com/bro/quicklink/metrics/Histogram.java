@@ -0,0 +1,117 @@
+package com.bro.quicklink.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free, fixed-size histogram of non-negative values: latencies, batch sizes,
+ * hit (1) / miss (0) flags. Recording is an index computation and one atomic increment,
+ * with no allocation.
+ *
+ * Buckets are log-linear: exact below 8, then 8 buckets per power of two, so a reported
+ * value is within about 6% of the recorded one. On flush the buckets are drained into at
+ * most 100 values, the most EMF accepts per metric: every sample when there are that few,
+ * otherwise 100 values at evenly spaced quantiles, which keeps CloudWatch's percentile
+ * and average statistics right while its sample count becomes a lower bound.
+ */
+public final class Histogram {
+
+    static final int MAX_VALUES = 100;
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final String name;
+    private final Unit unit;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    Histogram(String name, Unit unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+
+    public void record(long value) {
+        counts.incrementAndGet(bucket(Math.max(0, value)));
+    }
+
+    /**
+     * Records a duration measured with {@link System#nanoTime()} in this histogram's unit
+     * (microseconds for timers).
+     */
+    public void recordNanos(long nanos) {
+        record(unit == Unit.MICROSECONDS ? TimeUnit.NANOSECONDS.toMicros(nanos) : nanos);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, taken from {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    String name() {
+        return name;
+    }
+
+    Unit unit() {
+        return unit;
+    }
+
+    /**
+     * Drains the buckets and returns up to {@link #MAX_VALUES} representative values in
+     * ascending order, or an empty array if nothing was recorded since the last call.
+     * Samples recorded concurrently land either in this drain or the next one.
+     */
+    long[] drainValues() {
+        long[] drained = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts.get(i) != 0) {
+                drained[i] = counts.getAndSet(i, 0);
+                total += drained[i];
+            }
+        }
+        if (total == 0) return new long[0];
+
+        long[] values = new long[(int) Math.min(total, MAX_VALUES)];
+        if (total <= MAX_VALUES) {
+            int next = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                for (long n = 0; n < drained[i]; n++) {
+                    values[next++] = representative(i);
+                }
+            }
+            return values;
+        }
+
+        // Value i is the sample at rank (i + 0.5) / 100 of the distribution.
+        int bucket = 0;
+        long seen = drained[0];
+        for (int i = 0; i < MAX_VALUES; i++) {
+            double rank = (i + 0.5) * total / MAX_VALUES;
+            while (seen <= rank) {
+                seen += drained[++bucket];
+            }
+            values[i] = representative(bucket);
+        }
+        return values;
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * The midpoint of a bucket, or its only value below 16.
+     */
+    static long representative(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + ((1L << shift) >>> 1);
+    }
+}
@@ -0,0 +1,200 @@
+package com.bro.quicklink.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * The metrics of one service, written as CloudWatch Embedded Metric Format (EMF) log
+ * lines. Lambda ships stdout to CloudWatch Logs, which turns each line into metric data
+ * points, so there is no PutMetricData call and nothing to batch or retry.
+ *
+ * Handlers look their histograms and counters up once, record into them on the hot path
+ * (lock-free, allocation-free), and call {@link #flush()} at the end of every invocation.
+ * A flush writes one line holding everything recorded since the previous one and resets
+ * it; nothing is written if nothing was recorded.
+ *
+ * Cache hit ratios are recorded as a histogram of 1 (hit) and 0 (miss): the Average
+ * statistic of such a metric is the hit ratio.
+ *
+ * Usage:
+ * <pre>
+ * Metrics metrics = Metrics.fromEnvironment("redirect-service");
+ * Histogram getLatency = metrics.timer("MappingLookupLatency");
+ * long start = System.nanoTime();
+ * ...
+ * getLatency.recordSince(start);
+ * ...
+ * metrics.flush();
+ * </pre>
+ */
+public final class Metrics {
+
+    private static final String DEFAULT_NAMESPACE = "QuickLink";
+
+    private final String namespace;
+    private final Map<String, String> dimensions;
+    private final Consumer<String> sink;
+    private final LongSupplier clock;
+    private final ConcurrentMap<String, Object> byName = new ConcurrentHashMap<>();
+    private final List<Histogram> histograms = new CopyOnWriteArrayList<>();
+    private final List<Counter> counters = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param dimensions Dimension names and values attached to every metric, in order.
+     * @param sink       Receives each EMF line; stdout in Lambda, a list in tests.
+     * @param clock      Epoch milliseconds for the EMF timestamp.
+     */
+    public Metrics(String namespace, Map<String, String> dimensions, Consumer<String> sink, LongSupplier clock) {
+        this.namespace = namespace;
+        this.dimensions = new LinkedHashMap<>(dimensions);
+        this.sink = sink;
+        this.clock = clock;
+    }
+
+    /**
+     * Metrics for a service in the {@code METRICS_NAMESPACE} namespace (default
+     * QuickLink), with a {@code Service} dimension, written to stdout.
+     */
+    public static Metrics fromEnvironment(String service) {
+        String namespace = System.getenv("METRICS_NAMESPACE");
+        return new Metrics(namespace == null || namespace.isBlank() ? DEFAULT_NAMESPACE : namespace.trim(),
+                Map.of("Service", service), System.out::println, System::currentTimeMillis);
+    }
+
+    /**
+     * Metrics that are recorded but never written, for benchmarks and in-process harnesses.
+     */
+    public static Metrics discarding(String service) {
+        return new Metrics(DEFAULT_NAMESPACE, Map.of("Service", service), line -> { }, System::currentTimeMillis);
+    }
+
+    /**
+     * A latency histogram in microseconds.
+     */
+    public Histogram timer(String name) {
+        return histogram(name, Unit.MICROSECONDS);
+    }
+
+    public Histogram histogram(String name, Unit unit) {
+        Object metric = byName.computeIfAbsent(name, n -> {
+            Histogram histogram = new Histogram(n, unit);
+            histograms.add(histogram);
+            return histogram;
+        });
+        if (!(metric instanceof Histogram histogram)) {
+            throw new IllegalArgumentException(name + " is already registered as a counter");
+        }
+        return histogram;
+    }
+
+    public Counter counter(String name) {
+        return counter(name, Unit.COUNT);
+    }
+
+    public Counter counter(String name, Unit unit) {
+        Object metric = byName.computeIfAbsent(name, n -> {
+            Counter counter = new Counter(n, unit);
+            counters.add(counter);
+            return counter;
+        });
+        if (!(metric instanceof Counter counter)) {
+            throw new IllegalArgumentException(name + " is already registered as a histogram");
+        }
+        return counter;
+    }
+
+    /**
+     * Writes everything recorded since the last flush as one EMF line and resets it.
+     * Histograms without samples and counters that stayed at zero are left out.
+     */
+    public void flush() {
+        String line = drain(true);
+        if (line != null) sink.accept(line);
+    }
+
+    /**
+     * Resets everything recorded so far without writing it, e.g. after warming up a
+     * handler with synthetic requests before a SnapStart snapshot.
+     */
+    public void discard() {
+        drain(false);
+    }
+
+    private String drain(boolean render) {
+        List<String> names = new ArrayList<>();
+        List<Unit> units = new ArrayList<>();
+        StringBuilder values = new StringBuilder();
+        for (Histogram histogram : histograms) {
+            long[] drained = histogram.drainValues();
+            if (drained.length == 0) continue;
+            names.add(histogram.name());
+            units.add(histogram.unit());
+            appendString(values.append(','), histogram.name()).append(":[");
+            for (int i = 0; i < drained.length; i++) {
+                if (i > 0) values.append(',');
+                values.append(drained[i]);
+            }
+            values.append(']');
+        }
+        for (Counter counter : counters) {
+            long count = counter.sumThenReset();
+            if (count == 0) continue;
+            names.add(counter.name());
+            units.add(counter.unit());
+            appendString(values.append(','), counter.name()).append(':').append(count);
+        }
+        if (!render || names.isEmpty()) return null;
+
+        StringBuilder line = new StringBuilder(256 + values.length());
+        line.append("{\"_aws\":{\"Timestamp\":").append(clock.getAsLong())
+                .append(",\"CloudWatchMetrics\":[{\"Namespace\":");
+        appendString(line, namespace).append(",\"Dimensions\":[[");
+        int d = 0;
+        for (String dimension : dimensions.keySet()) {
+            if (d++ > 0) line.append(',');
+            appendString(line, dimension);
+        }
+        line.append("]],\"Metrics\":[");
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) line.append(',');
+            appendString(line.append("{\"Name\":"), names.get(i))
+                    .append(",\"Unit\":\"").append(units.get(i).cloudWatchName()).append("\"}");
+        }
+        line.append("]}]}");
+        for (Map.Entry<String, String> dimension : dimensions.entrySet()) {
+            appendString(line.append(','), dimension.getKey()).append(':');
+            appendString(line, dimension.getValue());
+        }
+        line.append(values).append('}');
+        return line.toString();
+    }
+
+    private static StringBuilder appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"');
+    }
+}
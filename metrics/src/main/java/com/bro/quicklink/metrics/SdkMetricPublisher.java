@@ -0,0 +1,72 @@
+package com.bro.quicklink.metrics;
+
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records what the AWS SDK measures for every API call into {@link Metrics}: the call
+ * latency per operation (e.g. {@code DynamoDBGetItemLatency}, {@code EventBridgePutEventsLatency},
+ * {@code ApiGatewayManagementApiPostToConnectionLatency}), including retries and backoff,
+ * plus the retries and throttled attempts behind them, which are otherwise invisible
+ * to the handlers. Register it on a client with {@code AwsClients.sync(builder, publisher)}.
+ *
+ * Called on the SDK's completion thread; looking up an operation's histogram allocates
+ * nothing once it exists.
+ */
+public final class SdkMetricPublisher implements MetricPublisher {
+
+    private static final String THROTTLING_ERROR_TYPE = "Throttling";
+
+    private final Metrics metrics;
+    private final Counter retries;
+    private final Counter throttles;
+    private final ConcurrentMap<String, ConcurrentMap<String, Histogram>> latencies = new ConcurrentHashMap<>();
+
+    public SdkMetricPublisher(Metrics metrics) {
+        this.metrics = metrics;
+        this.retries = metrics.counter("AwsSdkRetries");
+        this.throttles = metrics.counter("AwsSdkThrottles");
+    }
+
+    @Override
+    public void publish(MetricCollection metricCollection) {
+        String service = first(metricCollection, CoreMetric.SERVICE_ID);
+        String operation = first(metricCollection, CoreMetric.OPERATION_NAME);
+        Duration duration = first(metricCollection, CoreMetric.API_CALL_DURATION);
+        if (service != null && operation != null && duration != null) {
+            latency(service, operation).record(TimeUnit.NANOSECONDS.toMicros(duration.toNanos()));
+        }
+
+        Integer retryCount = first(metricCollection, CoreMetric.RETRY_COUNT);
+        if (retryCount != null && retryCount > 0) {
+            retries.add(retryCount);
+        }
+        for (MetricCollection attempt : metricCollection.children()) {
+            if (THROTTLING_ERROR_TYPE.equals(first(attempt, CoreMetric.ERROR_TYPE))) {
+                throttles.increment();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private Histogram latency(String service, String operation) {
+        return latencies.computeIfAbsent(service, s -> new ConcurrentHashMap<>())
+                .computeIfAbsent(operation, o -> metrics.timer(service.replace(" ", "") + o + "Latency"));
+    }
+
+    private static <T> T first(MetricCollection collection, SdkMetric<T> metric) {
+        List<T> values = collection.metricValues(metric);
+        return values.isEmpty() ? null : values.get(0);
+    }
+}
@@ -0,0 +1,21 @@
+package com.bro.quicklink.metrics;
+
+/**
+ * The CloudWatch units the services report in.
+ */
+public enum Unit {
+    MICROSECONDS("Microseconds"),
+    COUNT("Count"),
+    BYTES("Bytes"),
+    NONE("None");
+
+    private final String cloudWatchName;
+
+    Unit(String cloudWatchName) {
+        this.cloudWatchName = cloudWatchName;
+    }
+
+    String cloudWatchName() {
+        return cloudWatchName;
+    }
+}
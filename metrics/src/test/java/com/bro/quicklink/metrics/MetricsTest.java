@@ -0,0 +1,99 @@
+package com.bro.quicklink.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final List<String> lines = new ArrayList<>();
+	private final Metrics metrics = new Metrics("QuickLink", Map.of("Service", "redirect-service"), lines::add, () -> 1_700_000_000_000L);
+
+	@Test
+	void flushWritesOneEmfLine() throws Exception {
+		metrics.timer("DynamoDBGetItemLatency").recordNanos(1_500_000);
+		metrics.counter("ClickEventsDropped").add(3);
+
+		metrics.flush();
+
+		assertEquals(1, lines.size());
+		JsonNode line = objectMapper.readTree(lines.get(0));
+		JsonNode directive = line.path("_aws").path("CloudWatchMetrics").get(0);
+		assertEquals(1_700_000_000_000L, line.path("_aws").path("Timestamp").asLong());
+		assertEquals("QuickLink", directive.path("Namespace").asText());
+		assertEquals("Service", directive.path("Dimensions").get(0).get(0).asText());
+		assertEquals("DynamoDBGetItemLatency", directive.path("Metrics").get(0).path("Name").asText());
+		assertEquals("Microseconds", directive.path("Metrics").get(0).path("Unit").asText());
+		assertEquals("ClickEventsDropped", directive.path("Metrics").get(1).path("Name").asText());
+		assertEquals("Count", directive.path("Metrics").get(1).path("Unit").asText());
+		assertEquals("redirect-service", line.path("Service").asText());
+		assertEquals(3, line.path("ClickEventsDropped").asLong());
+		long latency = line.path("DynamoDBGetItemLatency").get(0).asLong();
+		assertTrue(Math.abs(latency - 1500) <= 1500 / 16, "latency " + latency);
+	}
+
+	@Test
+	void flushResetsAndSkipsEmptyMetrics() throws Exception {
+		metrics.counter("ClickEventsDropped");
+		metrics.flush();
+		assertTrue(lines.isEmpty());
+
+		metrics.histogram("AnalyticsBatchSize", Unit.COUNT).record(5);
+		metrics.flush();
+		metrics.flush();
+
+		assertEquals(1, lines.size());
+		JsonNode line = objectMapper.readTree(lines.get(0));
+		assertEquals(1, line.path("_aws").path("CloudWatchMetrics").get(0).path("Metrics").size());
+		assertTrue(line.path("ClickEventsDropped").isMissingNode());
+	}
+
+	@Test
+	void hitRatioIsTheAverageOfHitFlags() throws Exception {
+		Histogram cacheHit = metrics.histogram("MappingCacheHit", Unit.NONE);
+		cacheHit.record(1);
+		cacheHit.record(0);
+		cacheHit.record(1);
+		cacheHit.record(1);
+
+		metrics.flush();
+
+		JsonNode values = objectMapper.readTree(lines.get(0)).path("MappingCacheHit");
+		assertEquals("[0,1,1,1]", values.toString());
+	}
+
+	@Test
+	void largeHistogramsAreResampledToQuantiles() throws Exception {
+		Histogram batchSize = metrics.histogram("AnalyticsBatchSize", Unit.COUNT);
+		for (int value = 1; value <= 10_000; value++) {
+			batchSize.record(value);
+		}
+
+		metrics.flush();
+
+		JsonNode values = objectMapper.readTree(lines.get(0)).path("AnalyticsBatchSize");
+		assertEquals(Histogram.MAX_VALUES, values.size());
+		long median = values.get(49).asLong();
+		assertTrue(Math.abs(median - 4950) <= 4950 / 16, "median " + median);
+		long p99 = values.get(98).asLong();
+		assertTrue(Math.abs(p99 - 9850) <= 9850 / 16, "p99 " + p99);
+	}
+
+	@Test
+	void bucketsStayWithinPrecision() {
+		for (long value = 0; value < 1_000_000; value += value / 7 + 1) {
+			long representative = Histogram.representative(Histogram.bucket(value));
+			assertTrue(Math.abs(representative - value) <= value / 16, value + " -> " + representative);
+		}
+		long max = Histogram.representative(Histogram.bucket(Long.MAX_VALUE));
+		assertTrue(max > 0);
+	}
+}
@@ -0,0 +1,298 @@
+package com.bro.quicklink;
+
+import com.bro.quicklink.metrics.Counter;
+import com.bro.quicklink.metrics.Histogram;
+import com.bro.quicklink.metrics.Metrics;
+import com.bro.quicklink.metrics.Unit;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking emitter for UrlAccessedEvents. Events are buffered in a bounded queue and
+ * sent with the async EventBridge client in batches of up to 10 entries (the PutEvents limit),
+ * so the redirect response never waits on analytics. When both the buffer and the in-flight
+ * window are full, new events are dropped and counted instead of blocking the caller.
+ *
+ * A partial batch is held back until its oldest event has waited for the linger window, so
+ * a steady trickle of clicks still goes out in batches. Entries that fail, alone or with
+ * their whole request, are re-queued for up to {@link #MAX_ATTEMPTS} attempts.
+ *
+ * In Lambda nothing waits for delivery: each invocation sends the batches whose linger has
+ * passed, at its start and at its end, and the rest stays buffered for the next invocation
+ * or the SIGTERM hook. Loss is bounded by one buffer: events still buffered when a
+ * container is reclaimed without SIGTERM (no extension registered) are lost, and sends cut
+ * off by a freeze come back as failures and are retried or counted in {@link #failed()}.
+ *
+ * Batch sizes, drops, retried entries and failed batches are also reported as metrics.
+ * PutEvents completes after the invocation that sent it has flushed its metrics, so
+ * those results are reported with the next invocation.
+ */
+public class ClickEventEmitter implements AutoCloseable {
+
+    static final int MAX_ENTRIES_PER_REQUEST = 10;
+    static final int MAX_ATTEMPTS = 3;
+
+    private final EventBridgeAsyncClient eventBridgeClient;
+    private final ObjectMapper objectMapper;
+    private final String eventBusName;
+    private final ArrayBlockingQueue<Pending> buffer;
+    private final Semaphore inFlightPermits;
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+    private final long lingerNanos;
+    private volatile long oldestBufferedAt = System.nanoTime();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private final Histogram batchSizes;
+    private final Counter droppedMetric;
+    private final Counter retriedMetric;
+    private final Counter failedMetric;
+
+    public ClickEventEmitter(EventBridgeAsyncClient eventBridgeClient, ObjectMapper objectMapper, String eventBusName,
+                             int bufferCapacity, int maxInFlightBatches, long lingerMillis, Metrics metrics) {
+        this.eventBridgeClient = eventBridgeClient;
+        this.objectMapper = objectMapper;
+        this.eventBusName = eventBusName;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.inFlightPermits = new Semaphore(maxInFlightBatches);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.batchSizes = metrics.histogram("ClickEventsBatchSize", Unit.COUNT);
+        this.droppedMetric = metrics.counter("ClickEventsDropped");
+        this.retriedMetric = metrics.counter("ClickEventsRetried");
+        this.failedMetric = metrics.counter("ClickEventsFailed");
+    }
+
+    public static ClickEventEmitter fromEnvironment(EventBridgeAsyncClient eventBridgeClient, ObjectMapper objectMapper,
+                                                    Metrics metrics) {
+        ClickEventEmitter emitter = new ClickEventEmitter(
+                eventBridgeClient,
+                objectMapper,
+                System.getenv("EVENT_BUS_NAME"),
+                intEnv("CLICK_EVENTS_BUFFER_CAPACITY", 1000),
+                intEnv("CLICK_EVENTS_MAX_IN_FLIGHT", 4),
+                intEnv("CLICK_EVENTS_LINGER_MS", 50),
+                metrics);
+        // Only runs when the runtime delivers SIGTERM (i.e. an extension is registered),
+        // but it's cheap insurance against losing whatever is still buffered.
+        Runtime.getRuntime().addShutdownHook(new Thread(emitter::close, "click-event-emitter-shutdown"));
+        return emitter;
+    }
+
+    /**
+     * Queues a UrlAccessedEvent. Never blocks: if the buffer is full the event is dropped.
+     */
+    public void emit(String shortCode) {
+        emit(shortCode, null, 1);
+    }
+
+    /**
+     * Queues a UrlAccessedEvent carrying an anonymous visitor ID (see {@link VisitorId}),
+     * which analytics uses to estimate unique visitors, and the number of clicks the event
+     * stands for: more than 1 for a sampled visitor, 0 for one whose other clicks are
+     * served from cache and counted through the sample.
+     */
+    public void emit(String shortCode, String visitor, int weight) {
+        emit(shortCode, visitor, weight, 0);
+    }
+
+    /**
+     * Like {@link #emit(String, String, int)}, for a link that expires at {@code expiresAt}
+     * (epoch second, 0 for never). Analytics expires the link's data with it, so clicks
+     * still queued when an expired link's analytics are purged don't leave items behind.
+     */
+    public void emit(String shortCode, String visitor, int weight, long expiresAt) {
+        Map<String, Object> detail = new HashMap<>(8);
+        detail.put("shortCode", shortCode);
+        if (visitor != null) detail.put("visitor", visitor);
+        if (weight != 1) detail.put("weight", weight);
+        if (expiresAt > 0) detail.put("expiresAt", expiresAt);
+
+        PutEventsRequestEntry entry;
+        try {
+            entry = PutEventsRequestEntry.builder()
+                    .eventBusName(eventBusName)
+                    .source("com.bro.quicklink.redirect-service")
+                    .detailType("UrlAccessedEvent")
+                    .detail(objectMapper.writeValueAsString(detail))
+                    .build();
+        } catch (JsonProcessingException e) {
+            recordDropped();
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (buffer.offer(new Pending(entry, 1))) {
+            accepted.incrementAndGet();
+            if (buffer.size() == 1) oldestBufferedAt = now;
+        } else {
+            recordDropped();
+        }
+        if (buffer.size() >= MAX_ENTRIES_PER_REQUEST) {
+            dispatch(false);
+        }
+    }
+
+    /**
+     * Starts sending whatever is buffered once the oldest buffered event has waited for the
+     * linger window. Does not wait for the sends to complete, so it is what both a Lambda
+     * invocation and the standalone server's timer call; {@link #flush(long)} is for shutdown.
+     */
+    public void flushAsync() {
+        if (!buffer.isEmpty() && System.nanoTime() - oldestBufferedAt >= lingerNanos) {
+            dispatch(true);
+        }
+    }
+
+    /**
+     * Sends everything still buffered, including entries re-queued by failed batches, and
+     * waits for all in-flight batches to complete or the timeout to pass.
+     *
+     * @return Whether everything was delivered or given up on within the timeout.
+     */
+    public boolean flush(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        do {
+            dispatch(true);
+            if (!awaitInFlight(deadline) && Thread.currentThread().isInterrupted()) break;
+        } while (!(buffer.isEmpty() && inFlight.isEmpty()) && System.nanoTime() < deadline);
+        return buffer.isEmpty() && inFlight.isEmpty();
+    }
+
+    @Override
+    public void close() {
+        flush(2000);
+    }
+
+    private void dispatch(boolean includePartialBatch) {
+        while (includePartialBatch ? !buffer.isEmpty() : buffer.size() >= MAX_ENTRIES_PER_REQUEST) {
+            // Backpressure: with the in-flight window full, events wait in the buffer.
+            if (!inFlightPermits.tryAcquire()) return;
+
+            List<Pending> batch = new ArrayList<>(MAX_ENTRIES_PER_REQUEST);
+            buffer.drainTo(batch, MAX_ENTRIES_PER_REQUEST);
+            if (batch.isEmpty()) {
+                inFlightPermits.release();
+                return;
+            }
+            send(batch);
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        batchSizes.record(batch.size());
+        List<PutEventsRequestEntry> entries = new ArrayList<>(batch.size());
+        for (Pending pending : batch) entries.add(pending.entry());
+        CompletableFuture<?> future;
+        try {
+            future = eventBridgeClient.putEvents(PutEventsRequest.builder().entries(entries).build())
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            // The whole request failed (throttled, timed out, connection lost): retry every entry.
+                            batch.forEach(this::retry);
+                            return;
+                        }
+                        List<PutEventsResultEntry> results = response.entries();
+                        for (int i = 0; i < batch.size(); i++) {
+                            if (i < results.size() && results.get(i).errorCode() != null) {
+                                // Entry-level failures (throttling, internal errors) are re-queued for a later batch.
+                                retry(batch.get(i));
+                            } else {
+                                sent.incrementAndGet();
+                            }
+                        }
+                    });
+        } catch (RuntimeException e) {
+            // Rejected before anything was sent, e.g. an invalid request; retrying won't help.
+            inFlightPermits.release();
+            recordFailed(batch.size());
+            return;
+        }
+        inFlight.add(future);
+        future.whenComplete((ignored, error) -> {
+            inFlight.remove(future);
+            inFlightPermits.release();
+        });
+    }
+
+    private void retry(Pending pending) {
+        if (pending.attempts() >= MAX_ATTEMPTS) {
+            recordFailed(1);
+        } else if (buffer.offer(new Pending(pending.entry(), pending.attempts() + 1))) {
+            retriedMetric.increment();
+        } else {
+            recordDropped();
+        }
+    }
+
+    private void recordDropped() {
+        dropped.incrementAndGet();
+        droppedMetric.increment();
+    }
+
+    private void recordFailed(int events) {
+        failed.addAndGet(events);
+        failedMetric.add(events);
+    }
+
+    private boolean awaitInFlight(long deadlineNanos) {
+        for (CompletableFuture<?> future : List.copyOf(inFlight)) {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) return inFlight.isEmpty();
+            try {
+                future.get(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (Exception ignored) {
+                // Failures are already counted in the completion callback.
+            }
+        }
+        return inFlight.isEmpty();
+    }
+
+    public int buffered() {
+        return buffer.size();
+    }
+
+    public long accepted() {
+        return accepted.get();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    public long sent() {
+        return sent.get();
+    }
+
+    public long failed() {
+        return failed.get();
+    }
+
+    private record Pending(PutEventsRequestEntry entry, int attempts) {}
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
@@ -0,0 +1,145 @@
+package com.bro.quicklink;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded in-process cache of shortCode -> redirect lookups for warm containers.
+ * Mappings never change once written, so hits can be kept for a while; misses are
+ * cached too (with a shorter TTL) so repeated 404s don't hit the table either.
+ * Entries are evicted in LRU order once the total weight passes the configured limit.
+ */
+public class MappingCache {
+
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public MappingCache(long maxWeight, long ttlMillis, long negativeTtlMillis) {
+        this(maxWeight, ttlMillis, negativeTtlMillis, System::nanoTime);
+    }
+
+    MappingCache(long maxWeight, long ttlMillis, long negativeTtlMillis, LongSupplier clock) {
+        this.maxWeight = maxWeight;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.negativeTtlNanos = negativeTtlMillis * 1_000_000L;
+        this.clock = clock;
+    }
+
+    public static MappingCache fromEnvironment() {
+        return new MappingCache(
+                longEnv("MAPPING_CACHE_MAX_WEIGHT", 8L * 1024 * 1024),
+                longEnv("MAPPING_CACHE_TTL_MS", 10 * 60 * 1000L),
+                longEnv("MAPPING_CACHE_NEGATIVE_TTL_MS", 30 * 1000L));
+    }
+
+    /**
+     * Result of a cache lookup: a cached redirect, a cached miss (the shortCode is known
+     * not to exist), or nothing cached at all.
+     */
+    public sealed interface Lookup permits Hit, NegativeHit, Miss {}
+
+    public record Hit(Redirect redirect) implements Lookup {}
+
+    public record NegativeHit() implements Lookup {}
+
+    public record Miss() implements Lookup {}
+
+    private static final Lookup NEGATIVE_HIT = new NegativeHit();
+    private static final Lookup MISS = new Miss();
+
+    public synchronized Lookup lookup(String shortCode) {
+        Entry entry = entries.get(shortCode);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return MISS;
+        }
+        if (clock.getAsLong() - entry.expiresAt() >= 0) {
+            remove(shortCode, entry);
+            misses.incrementAndGet();
+            return MISS;
+        }
+        if (entry.redirect() == null) {
+            negativeHits.incrementAndGet();
+            return NEGATIVE_HIT;
+        }
+        hits.incrementAndGet();
+        return new Hit(entry.redirect());
+    }
+
+    public void put(String shortCode, Redirect redirect) {
+        store(shortCode, redirect, ttlNanos);
+    }
+
+    public void putMissing(String shortCode) {
+        store(shortCode, null, negativeTtlNanos);
+    }
+
+    private synchronized void store(String shortCode, Redirect redirect, long ttl) {
+        if (ttl <= 0) return;
+        Entry entry = new Entry(redirect, clock.getAsLong() + ttl, weigh(shortCode, redirect));
+        if (entry.weight() > maxWeight) return;
+
+        Entry previous = entries.put(shortCode, entry);
+        if (previous != null) weight -= previous.weight();
+        weight += entry.weight();
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            Map.Entry<String, Entry> next = eldest.next();
+            weight -= next.getValue().weight();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(String shortCode, Entry entry) {
+        entries.remove(shortCode);
+        weight -= entry.weight();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long negativeHits() {
+        return negativeHits.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    // Rough per-entry footprint: the strings plus entry/node/redirect overhead.
+    private static long weigh(String shortCode, Redirect redirect) {
+        if (redirect == null) return 64L + 2L * shortCode.length();
+        return 96L + 2L * shortCode.length() + 2L * redirect.location().length()
+                + (redirect.etag() == null ? 0 : 2L * redirect.etag().length());
+    }
+
+    private static long longEnv(String name, long defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    private record Entry(Redirect redirect, long expiresAt, long weight) {}
+}
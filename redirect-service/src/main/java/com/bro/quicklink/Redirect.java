@@ -0,0 +1,28 @@
+package com.bro.quicklink;
+
+/**
+ * A resolved link as the redirect service needs it: where it points and how the response
+ * may be cached. Built from the mapping item the shortening service wrote.
+ *
+ * @param maxAgeSeconds How long browsers and caches may reuse the redirect; 0 for never.
+ * @param etag          Validator for conditional requests; null for items written before it existed.
+ * @param expiresAt     Epoch second from which the link is gone; 0 for links that never expire.
+ */
+public record Redirect(String location, int statusCode, long maxAgeSeconds, String etag, long expiresAt) {
+
+    public boolean cacheable() {
+        return maxAgeSeconds > 0;
+    }
+
+    public boolean expired(long nowEpochSecond) {
+        return expiresAt > 0 && nowEpochSecond >= expiresAt;
+    }
+
+    /**
+     * The max-age to send at {@code nowEpochSecond}: caches must not keep serving the
+     * redirect after the link expires.
+     */
+    public long maxAgeSeconds(long nowEpochSecond) {
+        return expiresAt > 0 ? Math.min(maxAgeSeconds, expiresAt - nowEpochSecond) : maxAgeSeconds;
+    }
+}
@@ -4,70 +4,223 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.bro.quicklink.aws.AwsClients;
+import com.bro.quicklink.metrics.Counter;
+import com.bro.quicklink.metrics.Histogram;
+import com.bro.quicklink.metrics.Metrics;
+import com.bro.quicklink.metrics.SdkMetricPublisher;
+import com.bro.quicklink.metrics.Unit;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
-import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
-import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
-import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient;
 
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
+/**
+ * Resolves a short code and redirects with the link's policy: 301 or 302, and for links
+ * with a max-age, Cache-Control and an ETag so browsers and caches can reuse the redirect
+ * (and revalidate it with a 304) instead of invoking this function for every click.
+ *
+ * Clicks served from a cache never reach analytics. With {@code CACHED_CLICK_SAMPLE_ONE_IN}
+ * set to N, one visitor in N (chosen by visitor ID, so consistently) is served uncacheable
+ * redirects and each of their clicks counts N times; everyone else may cache privately and
+ * their clicks count 0 times. Total clicks stay an unbiased estimate while most repeat
+ * clicks never reach the origin. Without it, cacheable links are publicly cacheable and
+ * cached clicks are not counted.
+ *
+ * Links created with an expiry answer 410 Gone from then on. DynamoDB's TTL deletes the
+ * item eventually, but the expiry is checked on every request, including ones served from
+ * the mapping cache, so an expired link never costs a table read while it is cached, and
+ * the max-age sent to caches never reaches past the expiry.
+ */
 public class RedirectHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
 
     private final DynamoDbClient dynamoDbClient;
-    private final EventBridgeClient eventBridgeClient;
-    private final ObjectMapper objectMapper = new ObjectMapper();
     private final String tableName;
-    private final String eventBusName;
+    private final MappingCache mappingCache;
+    private final ClickEventEmitter clickEventEmitter;
+    private final int cachedClickSampleOneIn;
+    private final Metrics metrics;
+    private final Histogram mappingCacheHit;
+    private final Counter notModified;
+    private final Counter expired;
 
     public RedirectHandler() {
-        this.dynamoDbClient = DynamoDbClient.builder().region(Region.US_EAST_1).build();
-        this.eventBridgeClient = EventBridgeClient.builder().region(Region.US_EAST_1).build();
-        this.tableName = System.getenv("TABLE_NAME");
-        this.eventBusName = System.getenv("EVENT_BUS_NAME");
+        this(Metrics.fromEnvironment("redirect-service"));
+    }
+
+    private RedirectHandler(Metrics metrics) {
+        this(AwsClients.sync(DynamoDbClient.builder(), new SdkMetricPublisher(metrics)), System.getenv("TABLE_NAME"),
+                MappingCache.fromEnvironment(),
+                ClickEventEmitter.fromEnvironment(
+                        AwsClients.async(EventBridgeAsyncClient.builder(), new SdkMetricPublisher(metrics)),
+                        new ObjectMapper(), metrics),
+                intEnv("CACHED_CLICK_SAMPLE_ONE_IN", 0),
+                metrics);
+    }
+
+    public RedirectHandler(DynamoDbClient dynamoDbClient, String tableName, MappingCache mappingCache,
+                           ClickEventEmitter clickEventEmitter, Metrics metrics) {
+        this(dynamoDbClient, tableName, mappingCache, clickEventEmitter, 0, metrics);
+    }
+
+    /**
+     * @param cachedClickSampleOneIn Sample one visitor in this many to count clicks served
+     *                               from caches; 0 to not count them.
+     */
+    public RedirectHandler(DynamoDbClient dynamoDbClient, String tableName, MappingCache mappingCache,
+                           ClickEventEmitter clickEventEmitter, int cachedClickSampleOneIn, Metrics metrics) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+        this.mappingCache = mappingCache;
+        this.clickEventEmitter = clickEventEmitter;
+        this.cachedClickSampleOneIn = cachedClickSampleOneIn;
+        this.metrics = metrics;
+        this.mappingCacheHit = metrics.histogram("MappingCacheHit", Unit.NONE);
+        this.notModified = metrics.counter("RedirectNotModified");
+        this.expired = metrics.counter("RedirectExpired");
     }
 
     @Override
     public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
-        String shortCode = event.getPathParameters().get("shortCode");
+        // Clicks left buffered by earlier invocations go out first, once their linger has passed.
+        clickEventEmitter.flushAsync();
+        try {
+            return redirect(event);
+        } finally {
+            // Starts sending without waiting, so the redirect never waits on PutEvents. A
+            // send still in flight when the container is frozen resumes, or fails and is
+            // retried, when it thaws.
+            clickEventEmitter.flushAsync();
+            metrics.flush();
+        }
+    }
 
+    private APIGatewayV2HTTPResponse redirect(APIGatewayV2HTTPEvent event) {
+        return redirect(event.getPathParameters().get("shortCode"), visitor(event), header(event, "if-none-match"));
+    }
+
+    /**
+     * Answers one redirect request without the API Gateway event around it; shared with
+     * {@link RedirectServer}. Does not flush click events or metrics.
+     *
+     * @param visitor     {@link VisitorId#hash} of the client, or 0 if it is unknown.
+     * @param ifNoneMatch The If-None-Match request header, or null.
+     */
+    APIGatewayV2HTTPResponse redirect(String shortCode, long visitor, String ifNoneMatch) {
         if (shortCode == null || shortCode.trim().isEmpty()) {
             return createErrorResponse(400, "Short code is missing.");
         }
 
+        Optional<Redirect> found = findRedirect(shortCode);
+        if (found.isEmpty()) {
+            return createErrorResponse(404, "URL not found.");
+        }
+        Redirect redirect = found.get();
+        long now = System.currentTimeMillis() / 1000;
+        if (redirect.expired(now)) {
+            expired.increment();
+            return createErrorResponse(410, "URL has expired.");
+        }
+
+        boolean sampled = cachedClickSampleOneIn > 0 && visitor != 0
+                && Long.remainderUnsigned(visitor, cachedClickSampleOneIn) == 0;
+        // Visitors without an ID can't be sampled, so they always come back and count once.
+        long maxAge = redirect.maxAgeSeconds(now);
+        boolean cacheable = maxAge > 0 && !sampled && (cachedClickSampleOneIn == 0 || visitor != 0);
+        // Derived from what is sent: a response that can't be cached brings every click back
+        // here, so each counts once; only clicks caches may absorb are left to the sample.
+        int weight = sampled ? cachedClickSampleOneIn : !cacheable || cachedClickSampleOneIn == 0 ? 1 : 0;
+        clickEventEmitter.emit(shortCode, visitor == 0 ? null : VisitorId.hex(visitor), weight, redirect.expiresAt());
+
+        Map<String, String> headers = new HashMap<>(4);
+        headers.put("Location", redirect.location());
+        if (cacheable) {
+            headers.put("Cache-Control", (cachedClickSampleOneIn > 0 ? "private" : "public")
+                    + ", max-age=" + maxAge);
+            if (redirect.etag() != null) {
+                headers.put("ETag", redirect.etag());
+                if (matches(ifNoneMatch, redirect.etag())) {
+                    notModified.increment();
+                    return APIGatewayV2HTTPResponse.builder().withStatusCode(304).withHeaders(headers).build();
+                }
+            }
+        } else if (redirect.cacheable() || redirect.statusCode() == 301) {
+            // Browsers cache a 301 indefinitely unless told otherwise.
+            headers.put("Cache-Control", "no-store");
+        }
+        return APIGatewayV2HTTPResponse.builder()
+                .withStatusCode(redirect.statusCode())
+                .withHeaders(headers)
+                .build();
+    }
+
+    private Optional<Redirect> findRedirect(String shortCode) {
+        switch (mappingCache.lookup(shortCode)) {
+            case MappingCache.Hit hit -> {
+                mappingCacheHit.record(1);
+                return Optional.of(hit.redirect());
+            }
+            case MappingCache.NegativeHit negativeHit -> {
+                mappingCacheHit.record(1);
+                return Optional.empty();
+            }
+            case MappingCache.Miss miss -> mappingCacheHit.record(0);
+        }
+
         Map<String, AttributeValue> returnedItem = dynamoDbClient.getItem(GetItemRequest.builder()
                 .tableName(tableName)
                 .key(Map.of("shortCode", AttributeValue.builder().s(shortCode).build()))
                 .build()).item();
 
         if (returnedItem != null && returnedItem.containsKey("originalUrl")) {
-            publishUrlAccessedEvent(shortCode);
-            return APIGatewayV2HTTPResponse.builder()
-                    .withStatusCode(302)
-                    .withHeaders(Map.of("Location", returnedItem.get("originalUrl").s()))
-                    .build();
-        } else {
-            return createErrorResponse(404, "URL not found.");
+            Redirect redirect = toRedirect(returnedItem);
+            mappingCache.put(shortCode, redirect);
+            return Optional.of(redirect);
         }
+        mappingCache.putMissing(shortCode);
+        return Optional.empty();
     }
 
-    private void publishUrlAccessedEvent(String shortCode) {
-        try {
-            String detailJson = objectMapper.writeValueAsString(Map.of("shortCode", shortCode));
-            PutEventsRequestEntry requestEntry = PutEventsRequestEntry.builder()
-                    .eventBusName(eventBusName)
-                    .source("com.bro.quicklink.redirect-service")
-                    .detailType("UrlAccessedEvent")
-                    .detail(detailJson)
-                    .build();
-            eventBridgeClient.putEvents(PutEventsRequest.builder().entries(requestEntry).build());
-        } catch (Exception e) {
-            // Log the exception but do not fail the redirect
+    /**
+     * Items without redirect attributes use the default policy: an uncacheable 302 that
+     * never expires.
+     */
+    private static Redirect toRedirect(Map<String, AttributeValue> item) {
+        AttributeValue status = item.get("redirectStatus");
+        AttributeValue maxAge = item.get("maxAgeSeconds");
+        AttributeValue etag = item.get("etag");
+        AttributeValue expiresAt = item.get("expiresAt");
+        return new Redirect(item.get("originalUrl").s(),
+                status == null ? 302 : Integer.parseInt(status.n()),
+                maxAge == null ? 0 : Long.parseLong(maxAge.n()),
+                etag == null ? null : etag.s(),
+                expiresAt == null ? 0 : Long.parseLong(expiresAt.n()));
+    }
+
+    private static long visitor(APIGatewayV2HTTPEvent event) {
+        APIGatewayV2HTTPEvent.RequestContext requestContext = event.getRequestContext();
+        if (requestContext == null || requestContext.getHttp() == null) return 0;
+        return VisitorId.hash(requestContext.getHttp().getSourceIp(), requestContext.getHttp().getUserAgent());
+    }
+
+    private static String header(APIGatewayV2HTTPEvent event, String name) {
+        // HTTP APIs lower-case header names.
+        return event.getHeaders() == null ? null : event.getHeaders().get(name);
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals(etag) || tag.equals("*")) return true;
         }
+        return false;
     }
 
     private APIGatewayV2HTTPResponse createErrorResponse(int statusCode, String message) {
@@ -77,4 +230,9 @@ public class RedirectHandler implements RequestHandler<APIGatewayV2HTTPEvent, AP
                 .withBody("{\"error\": \"" + message + "\"}")
                 .build();
     }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
 }
\ No newline at end of file
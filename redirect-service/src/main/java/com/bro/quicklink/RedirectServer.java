@@ -0,0 +1,308 @@
+package com.bro.quicklink;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.bro.quicklink.aws.AwsClients;
+import com.bro.quicklink.metrics.Counter;
+import com.bro.quicklink.metrics.Histogram;
+import com.bro.quicklink.metrics.Metrics;
+import com.bro.quicklink.metrics.SdkMetricPublisher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves the redirect handler from an embedded HTTP server instead of API Gateway and
+ * Lambda, for long-lived containers behind a load balancer: no per-request invocation
+ * overhead, and the JIT, the mapping cache and the SDK's connections stay warm.
+ *
+ * Requests run on virtual threads, so a cache miss blocking on DynamoDB parks a cheap
+ * thread instead of holding a pooled one. Misses beyond {@code AWS_CLIENT_MAX_CONNECTIONS} at
+ * once still go out, on connections that are closed afterwards rather than kept alive. Connections are kept alive (HTTP/1.1) with an
+ * idle timeout above the load balancer's, so it is always the balancer that closes them.
+ * Besides {@code GET /{shortCode}} the server answers:
+ * <ul>
+ * <li>{@code /_health}: 200 while serving, 503 once shutdown has started, so the balancer
+ * stops routing here before the listener closes;</li>
+ * <li>{@code /_metrics}: a JSON snapshot of request, cache and click event counts since
+ * start.</li>
+ * </ul>
+ * Short codes are base62, so neither path can shadow a link.
+ *
+ * Click events are batched as in Lambda, and partial batches are sent on a timer instead
+ * of at the end of each invocation. Metrics go to stdout as EMF once a minute. On SIGTERM
+ * the server reports unhealthy, waits out the drain period, stops accepting connections,
+ * lets in-flight requests finish within the grace period, and then sends the remaining
+ * click events and metrics.
+ *
+ * Errors are logged through {@link System.Logger}, which goes to java.util.logging unless
+ * another backend is on the class path.
+ *
+ * Run with {@code java -jar redirect-service-1.0.0.jar}; besides the handler's variables it
+ * reads {@code PORT}, {@code TRUST_X_FORWARDED_FOR}, {@code HTTP_*}, {@code SHUTDOWN_*},
+ * {@code CLICK_EVENTS_FLUSH_INTERVAL_MS} and {@code METRICS_FLUSH_INTERVAL_MS}.
+ */
+public final class RedirectServer {
+
+    public static final String HEALTH_PATH = "/_health";
+    public static final String METRICS_PATH = "/_metrics";
+
+    private static final System.Logger LOG = System.getLogger(RedirectServer.class.getName());
+    private static final byte[] INTERNAL_ERROR = "{\"error\": \"Internal server error.\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final RedirectHandler redirectHandler;
+    private final MappingCache mappingCache;
+    private final ClickEventEmitter clickEventEmitter;
+    private final Metrics metrics;
+    private final boolean trustForwardedFor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().name("redirect-server-timer").daemon().unstarted(runnable));
+    private final HttpServer server;
+    private final long startedAt = System.nanoTime();
+    private volatile boolean draining;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final Map<Integer, LongAdder> responses = new ConcurrentHashMap<>();
+    private final Histogram latency;
+    private final Counter internalErrors;
+
+    /**
+     * @param trustForwardedFor Take the client address from the last X-Forwarded-For entry,
+     *                          the one the load balancer added; only safe behind one.
+     */
+    public RedirectServer(InetSocketAddress address, RedirectHandler redirectHandler, MappingCache mappingCache,
+                          ClickEventEmitter clickEventEmitter, Metrics metrics, boolean trustForwardedFor)
+            throws IOException {
+        this.redirectHandler = redirectHandler;
+        this.mappingCache = mappingCache;
+        this.clickEventEmitter = clickEventEmitter;
+        this.metrics = metrics;
+        this.trustForwardedFor = trustForwardedFor;
+        this.latency = metrics.timer("RedirectServerLatency");
+        this.internalErrors = metrics.counter("RedirectServerErrors");
+
+        configureConnections();
+        this.server = HttpServer.create(address, intEnv("HTTP_BACKLOG", 0));
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Metrics metrics = Metrics.fromEnvironment("redirect-service");
+        MappingCache mappingCache = MappingCache.fromEnvironment();
+        ClickEventEmitter clickEventEmitter = ClickEventEmitter.fromEnvironment(
+                AwsClients.async(EventBridgeAsyncClient.builder(), new SdkMetricPublisher(metrics)),
+                new ObjectMapper(), metrics);
+        RedirectHandler redirectHandler = new RedirectHandler(
+                AwsClients.sync(DynamoDbClient.builder(), new SdkMetricPublisher(metrics)), System.getenv("TABLE_NAME"),
+                mappingCache, clickEventEmitter, intEnv("CACHED_CLICK_SAMPLE_ONE_IN", 0), metrics);
+
+        RedirectServer server = new RedirectServer(new InetSocketAddress(intEnv("PORT", 8080)), redirectHandler,
+                mappingCache, clickEventEmitter, metrics, Boolean.parseBoolean(System.getenv("TRUST_X_FORWARDED_FOR")));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(
+                intEnv("SHUTDOWN_DRAIN_MS", 0), intEnv("SHUTDOWN_GRACE_SECONDS", 10)), "redirect-server-shutdown"));
+        server.start(intEnv("CLICK_EVENTS_FLUSH_INTERVAL_MS", 100), intEnv("METRICS_FLUSH_INTERVAL_MS", 60_000));
+        LOG.log(System.Logger.Level.INFO, "Serving redirects on port " + server.port());
+    }
+
+    /**
+     * Starts accepting connections.
+     *
+     * @param clickEventsFlushIntervalMillis How often partial click event batches are sent.
+     * @param metricsFlushIntervalMillis     How often metrics are written.
+     */
+    public void start(long clickEventsFlushIntervalMillis, long metricsFlushIntervalMillis) {
+        timer.scheduleWithFixedDelay(() -> quietly(clickEventEmitter::flushAsync),
+                clickEventsFlushIntervalMillis, clickEventsFlushIntervalMillis, TimeUnit.MILLISECONDS);
+        timer.scheduleWithFixedDelay(() -> quietly(metrics::flush),
+                metricsFlushIntervalMillis, metricsFlushIntervalMillis, TimeUnit.MILLISECONDS);
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Shuts down gracefully; see the class comment. Requests that arrive while draining are
+     * still served, with {@code Connection: close}.
+     *
+     * @param drainMillis  How long to keep serving while reporting unhealthy.
+     * @param graceSeconds How long in-flight requests get to complete once the listener is closed.
+     */
+    public void stop(long drainMillis, int graceSeconds) {
+        draining = true;
+        try {
+            Thread.sleep(drainMillis);
+            // stop(n) returns once the last in-flight exchange completes, but on JDK 21 it
+            // waits out all n seconds when there is none to begin with.
+            server.stop(inFlight.get() == 0 ? 0 : graceSeconds);
+            executor.shutdown();
+            executor.awaitTermination(graceSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            timer.shutdownNow();
+            clickEventEmitter.flush(TimeUnit.SECONDS.toMillis(Math.max(graceSeconds, 2)));
+            metrics.flush();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        requests.increment();
+        inFlight.incrementAndGet();
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                send(exchange, 405, null);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            switch (path) {
+                case HEALTH_PATH -> sendJson(exchange, draining ? 503 : 200, Map.of("status", draining ? "draining" : "serving"));
+                case METRICS_PATH -> sendJson(exchange, 200, snapshot());
+                default -> redirect(exchange, path);
+            }
+        } finally {
+            inFlight.decrementAndGet();
+            latency.recordSince(start);
+        }
+    }
+
+    private void redirect(HttpExchange exchange, String path) throws IOException {
+        // Like the API Gateway route GET /{shortCode}: a single path segment.
+        if (path.indexOf('/', 1) >= 0) {
+            send(exchange, 404, null);
+            return;
+        }
+        Headers requestHeaders = exchange.getRequestHeaders();
+        APIGatewayV2HTTPResponse response;
+        try {
+            response = redirectHandler.redirect(path.substring(1),
+                    VisitorId.hash(sourceIp(exchange), requestHeaders.getFirst("User-Agent")),
+                    requestHeaders.getFirst("If-None-Match"));
+        } catch (RuntimeException e) {
+            internalErrors.increment();
+            LOG.log(System.Logger.Level.ERROR, "Redirect for " + path + " failed", e);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            send(exchange, 500, INTERNAL_ERROR);
+            return;
+        }
+        if (response.getHeaders() != null) {
+            response.getHeaders().forEach(exchange.getResponseHeaders()::set);
+        }
+        send(exchange, response.getStatusCode(),
+                response.getBody() == null ? null : response.getBody().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String sourceIp(HttpExchange exchange) {
+        if (trustForwardedFor) {
+            String forwardedFor = exchange.getRequestHeaders().getFirst("X-Forwarded-For");
+            if (forwardedFor != null && !forwardedFor.isBlank()) {
+                return forwardedFor.substring(forwardedFor.lastIndexOf(',') + 1).trim();
+            }
+        }
+        return exchange.getRemoteAddress().getAddress().getHostAddress();
+    }
+
+    private void send(HttpExchange exchange, int statusCode, byte[] body) throws IOException {
+        responses.computeIfAbsent(statusCode, code -> new LongAdder()).increment();
+        if (draining) {
+            // Moves keep-alive clients to another instance before the listener closes.
+            exchange.getResponseHeaders().set("Connection", "close");
+        }
+        boolean withBody = body != null && !exchange.getRequestMethod().equals("HEAD");
+        exchange.sendResponseHeaders(statusCode, withBody ? body.length : -1);
+        if (withBody) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private void sendJson(HttpExchange exchange, int statusCode, Object value) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        send(exchange, statusCode, objectMapper.writeValueAsBytes(value));
+    }
+
+    private Map<String, Object> snapshot() {
+        Map<String, Long> byStatus = new TreeMap<>();
+        responses.forEach((status, count) -> byStatus.put(status.toString(), count.sum()));
+
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("size", mappingCache.size());
+        cache.put("hits", mappingCache.hits());
+        cache.put("negativeHits", mappingCache.negativeHits());
+        cache.put("misses", mappingCache.misses());
+        cache.put("evictions", mappingCache.evictions());
+
+        Map<String, Object> clickEvents = new LinkedHashMap<>();
+        clickEvents.put("accepted", clickEventEmitter.accepted());
+        clickEvents.put("sent", clickEventEmitter.sent());
+        clickEvents.put("buffered", clickEventEmitter.buffered());
+        clickEvents.put("dropped", clickEventEmitter.dropped());
+        clickEvents.put("failed", clickEventEmitter.failed());
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("status", draining ? "draining" : "serving");
+        snapshot.put("uptimeSeconds", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt));
+        snapshot.put("requests", requests.sum());
+        snapshot.put("inFlight", inFlight.get());
+        snapshot.put("responses", byStatus);
+        snapshot.put("mappingCache", cache);
+        snapshot.put("clickEvents", clickEvents);
+        return snapshot;
+    }
+
+    /**
+     * The JDK server reads its connection settings once, when the first server is created;
+     * explicit system properties win. Nagle is off because every response is one small write.
+     */
+    private static void configureConnections() {
+        setDefault("sun.net.httpserver.idleInterval", Integer.toString(intEnv("HTTP_IDLE_TIMEOUT_SECONDS", 75)));
+        setDefault("sun.net.httpserver.maxIdleConnections", Integer.toString(intEnv("HTTP_MAX_IDLE_CONNECTIONS", 1000)));
+        setDefault("sun.net.httpserver.nodelay", "true");
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    private static void quietly(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            // A failed tick must not cancel the schedule.
+            LOG.log(System.Logger.Level.WARNING, "Redirect server timer task failed", e);
+        }
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
@@ -0,0 +1,73 @@
+package com.bro.quicklink;
+
+/**
+ * Derives the anonymous visitor ID sent with click events: a 64-bit hash of the source IP
+ * and user agent, as 16 hex digits. Raw IPs never leave the redirect service; analytics
+ * only needs well-mixed hashes to count unique visitors.
+ *
+ * An optional {@code VISITOR_ID_SALT} makes the IDs useless outside this deployment (an
+ * unsalted IPv4 hash can be reversed by brute force). It must be the same in every
+ * container, or one visitor counts once per salt.
+ */
+final class VisitorId {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String SALT = System.getenv().getOrDefault("VISITOR_ID_SALT", "");
+
+    private VisitorId() {
+    }
+
+    /**
+     * @return The visitor ID, or null if the request has neither a source IP nor a user agent.
+     */
+    static String of(String sourceIp, String userAgent) {
+        long hash = hash(sourceIp, userAgent);
+        return hash == 0 ? null : hex(hash);
+    }
+
+    /**
+     * @return The visitor ID as a number, or 0 if the request has neither a source IP nor a user agent.
+     */
+    static long hash(String sourceIp, String userAgent) {
+        if (sourceIp == null && userAgent == null) return 0;
+        long hash = FNV_OFFSET_BASIS;
+        hash = fnv(hash, SALT);
+        hash = fnv(hash, sourceIp);
+        hash = fnv(hash, "\n");
+        hash = fnv(hash, userAgent);
+        hash = mix(hash);
+        return hash == 0 ? 1 : hash;
+    }
+
+    static String hex(long value) {
+        char[] digits = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            digits[i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+        return new String(digits);
+    }
+
+    private static long fnv(long hash, String value) {
+        if (value == null) return hash;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * MurmurHash3's 64-bit finalizer: FNV alone leaves the high bits, which HyperLogLog
+     * indexes by, poorly mixed.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,154 @@
+package com.bro.quicklink;
+
+import com.bro.quicklink.metrics.Metrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClickEventEmitterTest {
+
+	private final FakeEventBridge eventBridge = new FakeEventBridge();
+
+	@Test
+	void holdsAPartialBatchUntilTheLingerPasses() {
+		ClickEventEmitter emitter = emitter(60_000);
+		emitter.emit("a");
+		emitter.emit("b");
+
+		emitter.flushAsync();
+
+		assertEquals(0, eventBridge.requests.size());
+		assertEquals(2, emitter.buffered());
+	}
+
+	@Test
+	void sendsAPartialBatchOnceTheLingerPassed() {
+		ClickEventEmitter emitter = emitter(0);
+		emitter.emit("a");
+		emitter.emit("b");
+
+		emitter.flushAsync();
+
+		assertEquals(List.of(2), eventBridge.batchSizes());
+	}
+
+	@Test
+	void sendsFullBatchesWithoutWaitingForTheLinger() {
+		ClickEventEmitter emitter = emitter(60_000);
+		for (int i = 0; i < 25; i++) emitter.emit("code" + i);
+
+		assertEquals(List.of(10, 10), eventBridge.batchSizes());
+		assertTrue(emitter.flush(1000));
+		assertEquals(List.of(10, 10, 5), eventBridge.batchSizes());
+		assertEquals(25, emitter.sent());
+	}
+
+	@Test
+	void retriesEntriesOfAFailedRequest() {
+		ClickEventEmitter emitter = emitter(60_000);
+		eventBridge.failRequests.set(1);
+		emitter.emit("a");
+		emitter.emit("b");
+
+		assertTrue(emitter.flush(1000));
+
+		assertEquals(List.of(2, 2), eventBridge.batchSizes());
+		assertEquals(2, emitter.sent());
+		assertEquals(0, emitter.failed());
+	}
+
+	@Test
+	void retriesFailedEntriesOnly() {
+		ClickEventEmitter emitter = emitter(60_000);
+		eventBridge.failFirstEntryOfRequests.set(1);
+		emitter.emit("a");
+		emitter.emit("b");
+
+		assertTrue(emitter.flush(1000));
+
+		assertEquals(List.of(2, 1), eventBridge.batchSizes());
+		assertEquals(2, emitter.sent());
+	}
+
+	@Test
+	void givesUpAfterMaxAttempts() {
+		ClickEventEmitter emitter = emitter(60_000);
+		eventBridge.failRequests.set(Integer.MAX_VALUE);
+		emitter.emit("a");
+
+		assertTrue(emitter.flush(1000));
+
+		assertEquals(ClickEventEmitter.MAX_ATTEMPTS, eventBridge.requests.size());
+		assertEquals(0, emitter.sent());
+		assertEquals(1, emitter.failed());
+		assertEquals(0, emitter.buffered());
+	}
+
+	@Test
+	void dropsWhenTheBufferIsFull() {
+		ClickEventEmitter emitter = new ClickEventEmitter(eventBridge, new ObjectMapper(), "default", 2, 0, 0,
+				Metrics.discarding("redirect-service"));
+		emitter.emit("a");
+		emitter.emit("b");
+		emitter.emit("c");
+
+		assertEquals(2, emitter.accepted());
+		assertEquals(1, emitter.dropped());
+		assertFalse(emitter.flush(50));
+	}
+
+	private ClickEventEmitter emitter(long lingerMillis) {
+		return new ClickEventEmitter(eventBridge, new ObjectMapper(), "default", 100, 4, lingerMillis,
+				Metrics.discarding("redirect-service"));
+	}
+
+	private static final class FakeEventBridge implements EventBridgeAsyncClient {
+
+		final List<PutEventsRequest> requests = new CopyOnWriteArrayList<>();
+		final AtomicInteger failRequests = new AtomicInteger();
+		final AtomicInteger failFirstEntryOfRequests = new AtomicInteger();
+
+		@Override
+		public CompletableFuture<PutEventsResponse> putEvents(PutEventsRequest request) {
+			requests.add(request);
+			if (failRequests.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+				return CompletableFuture.failedFuture(new IllegalStateException("throttled"));
+			}
+			boolean failFirst = failFirstEntryOfRequests.getAndUpdate(n -> Math.max(0, n - 1)) > 0;
+			List<PutEventsResultEntry> results = new ArrayList<>();
+			for (int i = 0; i < request.entries().size(); i++) {
+				results.add(failFirst && i == 0
+						? PutEventsResultEntry.builder().errorCode("ThrottlingException").build()
+						: PutEventsResultEntry.builder().eventId("event-" + i).build());
+			}
+			return CompletableFuture.completedFuture(PutEventsResponse.builder()
+					.failedEntryCount(failFirst ? 1 : 0).entries(results).build());
+		}
+
+		List<Integer> batchSizes() {
+			return requests.stream().map(request -> request.entries().size()).toList();
+		}
+
+		@Override
+		public String serviceName() {
+			return SERVICE_NAME;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.bro.quicklink;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class MappingCacheTest {
+
+	private long now = 1_000_000_000L;
+	private final MappingCache cache = new MappingCache(1 << 20, 1000, 100, () -> now);
+
+	@Test
+	void hitUntilTtlExpires() {
+		cache.put("k1", redirect("k1"));
+
+		assertEquals(redirect("k1"), assertInstanceOf(MappingCache.Hit.class, cache.lookup("k1")).redirect());
+		advanceMillis(999);
+		assertInstanceOf(MappingCache.Hit.class, cache.lookup("k1"));
+		advanceMillis(1);
+		assertInstanceOf(MappingCache.Miss.class, cache.lookup("k1"));
+
+		assertEquals(0, cache.size());
+		assertEquals(2, cache.hits());
+		assertEquals(1, cache.misses());
+	}
+
+	@Test
+	void negativeEntriesUseTheShorterTtl() {
+		cache.putMissing("gone");
+
+		assertInstanceOf(MappingCache.NegativeHit.class, cache.lookup("gone"));
+		advanceMillis(100);
+		assertInstanceOf(MappingCache.Miss.class, cache.lookup("gone"));
+
+		assertEquals(1, cache.negativeHits());
+		assertEquals(0, cache.hits());
+		assertEquals(1, cache.misses());
+	}
+
+	@Test
+	void uncachedCodeIsAMiss() {
+		assertInstanceOf(MappingCache.Miss.class, cache.lookup("never-stored"));
+		assertEquals(1, cache.misses());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedOnceOverWeight() {
+		MappingCache small = new MappingCache(3 * weightOf("k1"), 60_000, 60_000, () -> now);
+		small.put("k1", redirect("k1"));
+		small.put("k2", redirect("k2"));
+		small.put("k3", redirect("k3"));
+		small.lookup("k1");
+
+		small.put("k4", redirect("k4"));
+
+		assertEquals(3, small.size());
+		assertEquals(1, small.evictions());
+		assertInstanceOf(MappingCache.Miss.class, small.lookup("k2"));
+		assertInstanceOf(MappingCache.Hit.class, small.lookup("k1"));
+		assertInstanceOf(MappingCache.Hit.class, small.lookup("k3"));
+		assertInstanceOf(MappingCache.Hit.class, small.lookup("k4"));
+	}
+
+	@Test
+	void replacingAnEntryDoesNotEvict() {
+		MappingCache small = new MappingCache(2 * weightOf("k1"), 60_000, 60_000, () -> now);
+		small.put("k1", redirect("k1"));
+		small.put("k2", redirect("k2"));
+
+		small.put("k1", redirect("k1"));
+
+		assertEquals(2, small.size());
+		assertEquals(0, small.evictions());
+	}
+
+	@Test
+	void entryHeavierThanTheLimitIsNotCached() {
+		MappingCache tiny = new MappingCache(weightOf("k1") - 1, 60_000, 60_000, () -> now);
+		tiny.put("k1", redirect("k1"));
+
+		assertInstanceOf(MappingCache.Miss.class, tiny.lookup("k1"));
+		assertEquals(0, tiny.size());
+	}
+
+	@Test
+	void zeroTtlDisablesCaching() {
+		MappingCache disabled = new MappingCache(1 << 20, 0, 0, () -> now);
+		disabled.put("k1", redirect("k1"));
+		disabled.putMissing("k2");
+
+		assertEquals(0, disabled.size());
+	}
+
+	private void advanceMillis(long millis) {
+		now += TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	private static Redirect redirect(String shortCode) {
+		return new Redirect("https://example.com/" + shortCode, 302, 0, null, 0);
+	}
+
+	// Matches the footprint estimate in MappingCache for the redirects built above.
+	private static long weightOf(String shortCode) {
+		return 96L + 2L * shortCode.length() + 2L * redirect(shortCode).location().length();
+	}
+}
@@ -0,0 +1,16 @@
+package com.bro.quicklink;
+
+import com.bro.quicklink.test.NativeImageConfigContract;
+
+import java.util.Set;
+
+/**
+ * Runs the native-image metadata checks against this module's handlers.
+ */
+class NativeImageConfigTest extends NativeImageConfigContract {
+
+	NativeImageConfigTest() {
+		// The handlers terraform deploys from this module.
+		super("redirect-service", Set.of("com.bro.quicklink.RedirectHandler"));
+	}
+}
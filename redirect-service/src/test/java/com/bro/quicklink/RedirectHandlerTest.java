@@ -0,0 +1,207 @@
+package com.bro.quicklink;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.bro.quicklink.metrics.Metrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedirectHandlerTest {
+
+	private static final int SAMPLE_ONE_IN = 4;
+	private static final String USER_AGENT = "test";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final Map<String, Map<String, AttributeValue>> items = new HashMap<>();
+	private final StalledEventBridge eventBridge = new StalledEventBridge();
+	private final ClickEventEmitter clickEventEmitter = new ClickEventEmitter(eventBridge, objectMapper, "default",
+			100, 4, 0, Metrics.discarding("redirect-service"));
+
+	@Test
+	void invocationReturnsWithoutWaitingForPutEvents() {
+		link("abc123", Map.of());
+		RedirectHandler handler = handler(0);
+
+		long start = System.nanoTime();
+		APIGatewayV2HTTPResponse response = handler.handleRequest(event("abc123"), null);
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+		assertEquals(302, response.getStatusCode());
+		assertEquals(1, eventBridge.requests.size());
+		assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + " ms");
+	}
+
+	@Test
+	void countsEveryClickWhenSamplingIsOff() throws Exception {
+		link("abc123", cacheablePolicy(Instant.now().plusSeconds(86_400)));
+
+		APIGatewayV2HTTPResponse response = handler(0).handleRequest(event("abc123", "203.0.113.7"), null);
+
+		assertEquals("public, max-age=3600", response.getHeaders().get("Cache-Control"));
+		assertEquals(List.of(1L), weights());
+	}
+
+	@Test
+	void visitorOutsideTheSampleCountsZeroOnlyWhenCachesMayAbsorbTheirClicks() throws Exception {
+		link("cached", cacheablePolicy(Instant.now().plusSeconds(86_400)));
+		link("plain", Map.of());
+		RedirectHandler handler = handler(SAMPLE_ONE_IN);
+		String ip = sourceIp(false);
+
+		APIGatewayV2HTTPResponse cached = handler.handleRequest(event("cached", ip), null);
+		APIGatewayV2HTTPResponse plain = handler.handleRequest(event("plain", ip), null);
+
+		assertEquals("private, max-age=3600", cached.getHeaders().get("Cache-Control"));
+		assertNull(plain.getHeaders().get("Cache-Control"));
+		assertEquals(List.of(0L, 1L), weights());
+	}
+
+	@Test
+	void maxAgeClippedByANearExpiryStillMatchesTheWeight() throws Exception {
+		Instant expiresAt = Instant.now().plusSeconds(2);
+		link("expiring", cacheablePolicy(expiresAt));
+
+		APIGatewayV2HTTPResponse response = handler(SAMPLE_ONE_IN).handleRequest(event("expiring", sourceIp(false)), null);
+
+		String cacheControl = response.getHeaders().get("Cache-Control");
+		long maxAge = Long.parseLong(cacheControl.substring(cacheControl.indexOf('=') + 1));
+		assertTrue(maxAge >= 1 && maxAge <= 2, cacheControl);
+		assertEquals(List.of(0L), weights());
+		// Analytics expires the link's data with it.
+		assertEquals(expiresAt.getEpochSecond(), details().get(0).path("expiresAt").asLong());
+	}
+
+	@Test
+	void sampledVisitorIsNeverCachedAndCountsForTheSample() throws Exception {
+		link("cached", cacheablePolicy(Instant.now().plusSeconds(86_400)));
+
+		APIGatewayV2HTTPResponse response = handler(SAMPLE_ONE_IN).handleRequest(event("cached", sourceIp(true)), null);
+
+		assertEquals("no-store", response.getHeaders().get("Cache-Control"));
+		assertEquals(List.of((long) SAMPLE_ONE_IN), weights());
+	}
+
+	private RedirectHandler handler(int cachedClickSampleOneIn) {
+		MappingCache mappingCache = new MappingCache(1 << 20, 60_000, 1000, System::nanoTime);
+		return new RedirectHandler(new FakeMappings(), "quicklink-mappings", mappingCache, clickEventEmitter,
+				cachedClickSampleOneIn, Metrics.discarding("redirect-service"));
+	}
+
+	private void link(String shortCode, Map<String, AttributeValue> policy) {
+		Map<String, AttributeValue> item = new HashMap<>(policy);
+		item.put("shortCode", AttributeValue.builder().s(shortCode).build());
+		item.put("originalUrl", AttributeValue.builder().s("https://example.com/" + shortCode).build());
+		items.put(shortCode, item);
+	}
+
+	private static Map<String, AttributeValue> cacheablePolicy(Instant expiresAt) {
+		return Map.of(
+				"redirectStatus", AttributeValue.builder().n("302").build(),
+				"maxAgeSeconds", AttributeValue.builder().n("3600").build(),
+				"expiresAt", AttributeValue.builder().n(Long.toString(expiresAt.getEpochSecond())).build());
+	}
+
+	/**
+	 * The weight of every click event sent so far; events leave it out when it is 1.
+	 */
+	private List<Long> weights() throws IOException {
+		return details().stream().map(detail -> detail.path("weight").asLong(1)).toList();
+	}
+
+	private List<JsonNode> details() throws IOException {
+		List<JsonNode> details = new ArrayList<>();
+		for (PutEventsRequest request : eventBridge.requests) {
+			for (PutEventsRequestEntry entry : request.entries()) {
+				details.add(objectMapper.readTree(entry.detail()));
+			}
+		}
+		return details;
+	}
+
+	/**
+	 * A source IP whose visitor, with the test user agent, is or isn't in the click sample.
+	 */
+	private static String sourceIp(boolean sampled) {
+		for (int i = 1; ; i++) {
+			String ip = "203.0.113." + i;
+			long visitor = VisitorId.hash(ip, USER_AGENT);
+			if ((Long.remainderUnsigned(visitor, SAMPLE_ONE_IN) == 0) == sampled) return ip;
+		}
+	}
+
+	private static APIGatewayV2HTTPEvent event(String shortCode) {
+		return event(shortCode, "203.0.113.7");
+	}
+
+	private static APIGatewayV2HTTPEvent event(String shortCode, String sourceIp) {
+		return APIGatewayV2HTTPEvent.builder()
+				.withPathParameters(Map.of("shortCode", shortCode))
+				.withRequestContext(APIGatewayV2HTTPEvent.RequestContext.builder()
+						.withHttp(APIGatewayV2HTTPEvent.RequestContext.Http.builder()
+								.withSourceIp(sourceIp).withUserAgent(USER_AGENT).build())
+						.build())
+				.build();
+	}
+
+	private final class FakeMappings implements DynamoDbClient {
+
+		@Override
+		public GetItemResponse getItem(GetItemRequest request) {
+			return GetItemResponse.builder().item(items.get(request.key().get("shortCode").s())).build();
+		}
+
+		@Override
+		public String serviceName() {
+			return SERVICE_NAME;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * Accepts every request and never answers, like a send cut off by a frozen container.
+	 */
+	private static final class StalledEventBridge implements EventBridgeAsyncClient {
+
+		final List<PutEventsRequest> requests = new CopyOnWriteArrayList<>();
+
+		@Override
+		public CompletableFuture<PutEventsResponse> putEvents(PutEventsRequest request) {
+			requests.add(request);
+			return new CompletableFuture<>();
+		}
+
+		@Override
+		public String serviceName() {
+			return SERVICE_NAME;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package com.bro.quicklink;
+
+import com.bro.quicklink.metrics.Metrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RedirectServerTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final HttpClient httpClient = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.followRedirects(HttpClient.Redirect.NEVER)
+			.build();
+	private final FakeEventBridge eventBridge = new FakeEventBridge();
+	private ClickEventEmitter clickEventEmitter;
+	private RedirectServer server;
+	private String base;
+	private boolean stopped;
+
+	@BeforeEach
+	void start() throws IOException {
+		Metrics metrics = Metrics.discarding("redirect-service");
+		MappingCache mappingCache = new MappingCache(1 << 20, 60_000, 1000, System::nanoTime);
+		clickEventEmitter = new ClickEventEmitter(eventBridge, objectMapper, "default", 1000, 4, 0, metrics);
+		RedirectHandler redirectHandler = new RedirectHandler(new FakeMappings(), "quicklink-mappings",
+				mappingCache, clickEventEmitter, metrics);
+		server = new RedirectServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), redirectHandler,
+				mappingCache, clickEventEmitter, metrics, false);
+		server.start(10, 60_000);
+		base = "http://127.0.0.1:" + server.port();
+	}
+
+	@AfterEach
+	void stop() {
+		if (!stopped) server.stop(0, 1);
+	}
+
+	@Test
+	void redirectsToTheOriginalUrl() throws Exception {
+		HttpResponse<String> response = get("/abc123");
+
+		assertEquals(302, response.statusCode());
+		assertEquals("https://example.com/abc", response.headers().firstValue("Location").orElse(null));
+	}
+
+	@Test
+	void unknownCodesAndNestedPathsAreNotFound() throws Exception {
+		assertEquals(404, get("/missing").statusCode());
+		assertEquals(404, get("/abc123/more").statusCode());
+	}
+
+	@Test
+	void onlyGetAndHeadAreAllowed() throws Exception {
+		HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(URI.create(base + "/abc123"))
+				.POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+
+		assertEquals(405, response.statusCode());
+		assertEquals("GET, HEAD", response.headers().firstValue("Allow").orElse(null));
+	}
+
+	@Test
+	void handlerFailuresBecomeInternalServerErrors() throws Exception {
+		HttpResponse<String> response = get("/broken");
+
+		assertEquals(500, response.statusCode());
+		assertEquals("Internal server error.", objectMapper.readTree(response.body()).path("error").asText());
+	}
+
+	@Test
+	void healthTurnsUnhealthyWhileDraining() throws Exception {
+		assertEquals(200, get(RedirectServer.HEALTH_PATH).statusCode());
+
+		Thread stopping = Thread.ofPlatform().start(() -> server.stop(1000, 1));
+		stopped = true;
+		HttpResponse<String> draining = awaitDraining();
+
+		assertEquals(503, draining.statusCode());
+		assertEquals("draining", objectMapper.readTree(draining.body()).path("status").asText());
+		assertEquals("close", draining.headers().firstValue("Connection").orElse(null));
+		assertEquals(302, get("/abc123").statusCode());
+		stopping.join();
+		assertEquals(clickEventEmitter.accepted(), eventBridge.published.get());
+	}
+
+	@Test
+	void metricsReportRequestsCacheAndClickEvents() throws Exception {
+		get("/abc123");
+		get("/abc123");
+		get("/missing");
+
+		HttpResponse<String> response = get(RedirectServer.METRICS_PATH);
+		JsonNode metrics = objectMapper.readTree(response.body());
+
+		assertEquals(200, response.statusCode());
+		assertEquals(List.of("status", "uptimeSeconds", "requests", "inFlight", "responses", "mappingCache", "clickEvents"),
+				fieldNames(metrics));
+		assertEquals("serving", metrics.path("status").asText());
+		assertEquals(4, metrics.path("requests").asLong());
+		assertEquals(2, metrics.path("responses").path("302").asLong());
+		assertEquals(1, metrics.path("responses").path("404").asLong());
+		assertEquals(List.of("size", "hits", "negativeHits", "misses", "evictions"), fieldNames(metrics.path("mappingCache")));
+		assertEquals(1, metrics.path("mappingCache").path("hits").asLong());
+		assertEquals(List.of("accepted", "sent", "buffered", "dropped", "failed"), fieldNames(metrics.path("clickEvents")));
+		assertEquals(2, metrics.path("clickEvents").path("accepted").asLong());
+	}
+
+	private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+		return httpClient.send(HttpRequest.newBuilder(URI.create(base + path)).build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private HttpResponse<String> awaitDraining() throws IOException, InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			HttpResponse<String> response = get(RedirectServer.HEALTH_PATH);
+			if (response.statusCode() != 200) return response;
+			Thread.sleep(10);
+		}
+		throw new AssertionError("health endpoint never reported draining");
+	}
+
+	private static List<String> fieldNames(JsonNode node) {
+		List<String> names = new ArrayList<>();
+		node.fieldNames().forEachRemaining(names::add);
+		return names;
+	}
+
+	private static final class FakeMappings implements DynamoDbClient {
+
+		@Override
+		public GetItemResponse getItem(GetItemRequest request) {
+			String shortCode = request.key().get("shortCode").s();
+			if (shortCode.equals("broken")) throw new IllegalStateException("table unavailable");
+			if (!shortCode.equals("abc123")) return GetItemResponse.builder().build();
+			return GetItemResponse.builder().item(Map.of(
+					"shortCode", AttributeValue.builder().s(shortCode).build(),
+					"originalUrl", AttributeValue.builder().s("https://example.com/abc").build())).build();
+		}
+
+		@Override
+		public String serviceName() {
+			return SERVICE_NAME;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static final class FakeEventBridge implements EventBridgeAsyncClient {
+
+		final AtomicInteger published = new AtomicInteger();
+
+		@Override
+		public CompletableFuture<PutEventsResponse> putEvents(PutEventsRequest request) {
+			published.addAndGet(request.entries().size());
+			return CompletableFuture.completedFuture(PutEventsResponse.builder().failedEntryCount(0)
+					.entries(request.entries().stream().map(entry -> PutEventsResultEntry.builder().eventId("e").build()).toList())
+					.build());
+		}
+
+		@Override
+		public String serviceName() {
+			return SERVICE_NAME;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,242 @@
+package com.bro.quicklink;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.bro.quicklink.adapter.out.messaging.EventBridgePublisher;
+import com.bro.quicklink.adapter.out.persistence.DynamoDbRepository;
+import com.bro.quicklink.adapter.out.shortcode.BlockLeasedShortCodeGenerator;
+import com.bro.quicklink.adapter.out.shortcode.DynamoDbIdBlockLeaser;
+import com.bro.quicklink.aws.AwsClients;
+import com.bro.quicklink.core.domain.BulkCreateItem;
+import com.bro.quicklink.core.domain.BulkCreateResult;
+import com.bro.quicklink.core.domain.IdempotencyConflictException;
+import com.bro.quicklink.core.domain.RedirectPolicy;
+import com.bro.quicklink.core.domain.UrlMapping;
+import com.bro.quicklink.core.ports.out.UrlMappingRepository;
+import com.bro.quicklink.core.service.UrlShortenerService;
+import com.bro.quicklink.metrics.Counter;
+import com.bro.quicklink.metrics.Histogram;
+import com.bro.quicklink.metrics.Metrics;
+import com.bro.quicklink.metrics.SdkMetricPublisher;
+import com.bro.quicklink.metrics.Unit;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.crac.Core;
+import org.crac.Resource;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Spring-free Lambda entry point for the shortening service. The hexagonal core is wired
+ * by hand, so a cold start only loads the SDK clients, Jackson and a handful of classes
+ * instead of booting an application context. Serves the same routes as
+ * UrlMappingController from an HTTP API (payload v2) event.
+ *
+ * It also registers as a CRaC resource: before a SnapStart snapshot is taken, Jackson,
+ * the SDK clients and the request path are exercised so they are captured warm.
+ */
+public class LightweightLambdaHandler implements RequestStreamHandler, Resource {
+
+    private final ObjectMapper objectMapper;
+    private final UrlMappingRepository urlMappingRepository;
+    private final BlockLeasedShortCodeGenerator shortCodeGenerator;
+    private final UrlShortenerService urlShortenerService;
+    private final Metrics metrics;
+    private final Histogram bulkCreateBatchSizes;
+    private final Counter idempotencyConflicts;
+
+    public LightweightLambdaHandler() {
+        this(Metrics.fromEnvironment("shortening-service"));
+    }
+
+    private LightweightLambdaHandler(Metrics metrics) {
+        this(AwsClients.sync(DynamoDbClient.builder(), new SdkMetricPublisher(metrics)),
+                AwsClients.sync(EventBridgeClient.builder(), new SdkMetricPublisher(metrics)),
+                metrics);
+    }
+
+    public LightweightLambdaHandler(DynamoDbClient dynamoDbClient, EventBridgeClient eventBridgeClient, Metrics metrics) {
+        this.objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.urlMappingRepository = new DynamoDbRepository(dynamoDbClient);
+        this.shortCodeGenerator = new BlockLeasedShortCodeGenerator(
+                new DynamoDbIdBlockLeaser(dynamoDbClient, env("SHORT_CODE_COUNTER_TABLE", "quicklink-counters"), "shortCode"),
+                Integer.parseInt(env("SHORT_CODE_BLOCK_SIZE", "1000")),
+                Integer.parseInt(env("SHORT_CODE_RANDOM_SUFFIX_LENGTH", "0")));
+        this.urlShortenerService = new UrlShortenerService(
+                urlMappingRepository,
+                new EventBridgePublisher(eventBridgeClient, objectMapper),
+                shortCodeGenerator);
+        this.urlShortenerService.setDedupEnabled(Boolean.parseBoolean(env("DEDUP_ENABLED", "false")));
+        this.urlShortenerService.setOutboxEnabled(Boolean.parseBoolean(env("EVENTS_OUTBOX_ENABLED", "false")));
+        this.metrics = metrics;
+        this.bulkCreateBatchSizes = metrics.histogram("BulkCreateBatchSize", Unit.COUNT);
+        this.idempotencyConflicts = metrics.counter("IdempotencyConflicts");
+
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+        try {
+            handle(input, output);
+        } finally {
+            metrics.flush();
+        }
+    }
+
+    private void handle(InputStream input, OutputStream output) throws IOException {
+        JsonNode event = objectMapper.readTree(input);
+        Map<String, Object> response;
+        try {
+            response = route(event);
+        } catch (IdempotencyConflictException e) {
+            idempotencyConflicts.increment();
+            response = jsonResponse(409, Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            response = jsonResponse(400, Map.of("error", e.getMessage()));
+        } catch (JsonProcessingException e) {
+            // Only request bodies are parsed past this point; the event itself was read above.
+            response = jsonResponse(400, Map.of("error", "Request body is not valid JSON: " + e.getOriginalMessage()));
+        }
+        objectMapper.writeValue(output, response);
+    }
+
+    private Map<String, Object> route(JsonNode event) throws IOException {
+        String method = event.path("requestContext").path("http").path("method").asText();
+        String path = event.path("rawPath").asText();
+
+        if ("POST".equals(method) && "/links".equals(path)) {
+            JsonNode body = objectMapper.readTree(body(event));
+            if (body == null || !body.isObject()) {
+                throw new IllegalArgumentException("Expected a JSON object");
+            }
+            String idempotencyKey = event.path("headers").path("idempotency-key").asText(null);
+            RedirectPolicy redirectPolicy = RedirectPolicy.of(
+                    body.hasNonNull("redirectStatus") ? body.get("redirectStatus").asInt() : null,
+                    body.hasNonNull("maxAgeSeconds") ? body.get("maxAgeSeconds").asLong() : null);
+            UrlMapping urlMapping = urlShortenerService.createShortUrl(body.path("originalUrl").asText(null),
+                    redirectPolicy, expiresAt(body), idempotencyKey);
+            return jsonResponse(200, urlMapping);
+        }
+        if ("POST".equals(method) && "/links/batch".equals(path)) {
+            return createShortUrls(objectMapper.readTree(body(event)));
+        }
+        if ("GET".equals(method) && path.startsWith("/links/")) {
+            Optional<UrlMapping> mapping = urlMappingRepository.findByShortCode(path.substring("/links/".length()));
+            return mapping.isPresent() ? jsonResponse(200, mapping.get()) : jsonResponse(404, null);
+        }
+        return jsonResponse(404, Map.of("error", "No route for " + method + " " + path));
+    }
+
+    private Map<String, Object> createShortUrls(JsonNode links) throws IOException {
+        if (!links.isArray()) {
+            throw new IllegalArgumentException("Expected a JSON array of links");
+        }
+        bulkCreateBatchSizes.record(links.size());
+        // The array is already in memory; reading every item up front turns an unparseable
+        // expiresAt into a 400 before anything is created.
+        List<BulkCreateItem> items = new ArrayList<>(links.size());
+        for (JsonNode link : links) {
+            items.add(link.isTextual() ? new BulkCreateItem(link.asText()) : new BulkCreateItem(
+                    link.path("originalUrl").asText(null),
+                    link.hasNonNull("redirectStatus") ? link.get("redirectStatus").asInt() : null,
+                    link.hasNonNull("maxAgeSeconds") ? link.get("maxAgeSeconds").asLong() : null,
+                    expiresAt(link)));
+        }
+
+        StringWriter body = new StringWriter();
+        try (JsonGenerator generator = objectMapper.createGenerator(body)) {
+            generator.writeStartArray();
+            urlShortenerService.createShortUrls(items.iterator(), (BulkCreateResult result) -> {
+                try {
+                    generator.writeObject(result);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
+        return rawJsonResponse(200, body.toString());
+    }
+
+    private static Instant expiresAt(JsonNode body) {
+        if (!body.hasNonNull("expiresAt")) return null;
+        try {
+            return Instant.parse(body.get("expiresAt").asText());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("expiresAt must be an ISO-8601 instant");
+        }
+    }
+
+    private static String body(JsonNode event) {
+        String body = event.path("body").asText("");
+        return event.path("isBase64Encoded").asBoolean(false)
+                ? new String(Base64.getDecoder().decode(body), StandardCharsets.UTF_8)
+                : body;
+    }
+
+    private Map<String, Object> jsonResponse(int statusCode, Object body) throws IOException {
+        return rawJsonResponse(statusCode, body == null ? null : objectMapper.writeValueAsString(body));
+    }
+
+    private static Map<String, Object> rawJsonResponse(int statusCode, String body) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("statusCode", statusCode);
+        response.put("headers", Map.of("Content-Type", "application/json"));
+        if (body != null) response.put("body", body);
+        return response;
+    }
+
+    /**
+     * Warms everything the first real request would otherwise pay for: Jackson
+     * (de)serializers for the event and domain types, the DynamoDB client's marshallers,
+     * credentials and HTTP stack (with a read of a key that doesn't exist), and the
+     * routing code. Nothing that must stay unique per instance is touched:
+     * no id block is leased and no event is published. The priming request's metrics
+     * are discarded.
+     */
+    @Override
+    public void beforeCheckpoint(org.crac.Context<? extends Resource> context) throws Exception {
+        String event = """
+                {"rawPath":"/links/__priming__","requestContext":{"http":{"method":"GET"}},"headers":{}}
+                """;
+        handle(new ByteArrayInputStream(event.getBytes(StandardCharsets.UTF_8)), new ByteArrayOutputStream());
+        objectMapper.writeValueAsString(new UrlMapping("priming", "https://example.com/", Instant.now()));
+        objectMapper.writeValueAsString(BulkCreateResult.failed(0, "https://example.com/", "priming"));
+        metrics.discard();
+    }
+
+    @Override
+    public void afterRestore(org.crac.Context<? extends Resource> context) {
+        // Every instance restored from the snapshot must lease its own ids.
+        shortCodeGenerator.discardBlock();
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+}
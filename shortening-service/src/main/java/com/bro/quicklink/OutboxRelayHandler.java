@@ -0,0 +1,136 @@
+package com.bro.quicklink;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.bro.quicklink.adapter.out.messaging.EventBridgePublisher;
+import com.bro.quicklink.adapter.out.persistence.DynamoDbRepository;
+import com.bro.quicklink.aws.AwsClients;
+import com.bro.quicklink.core.domain.UrlMapping;
+import com.bro.quicklink.metrics.Counter;
+import com.bro.quicklink.metrics.Histogram;
+import com.bro.quicklink.metrics.Metrics;
+import com.bro.quicklink.metrics.SdkMetricPublisher;
+import com.bro.quicklink.metrics.Unit;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Relays UrlCreatedEvents from the mappings table's stream to EventBridge when the
+ * shortening service runs in outbox mode. The mapping item is the outbox entry: it is
+ * written in the same single write that creates the link, so an event can't be lost to a
+ * failure after the save, and creating a link doesn't wait for EventBridge.
+ *
+ * New mappings are published in stream order, in 10-entry PutEvents calls with retries.
+ * When a batch still has unpublished entries, the earliest one is reported as a batch item
+ * failure and nothing after it is attempted, so the stream's checkpoint never passes an
+ * unpublished event. Delivery is at least once: entries of that batch that did go out are
+ * sent again on the retry, and consumers already treat a shortCode's creation as idempotent.
+ */
+public class OutboxRelayHandler implements RequestStreamHandler {
+
+    private static final int MAX_PUT_EVENTS_ENTRIES = 10; // PutEvents limit
+
+    private final ObjectMapper objectMapper;
+    private final EventBridgePublisher publisher;
+    private final Metrics metrics;
+    private final Histogram relayLag;
+    private final Counter relayedEvents;
+    private final Counter failedBatches;
+
+    public OutboxRelayHandler() {
+        this(Metrics.fromEnvironment("outbox-relay"));
+    }
+
+    private OutboxRelayHandler(Metrics metrics) {
+        this(AwsClients.sync(EventBridgeClient.builder(), new SdkMetricPublisher(metrics)), metrics);
+    }
+
+    public OutboxRelayHandler(EventBridgeClient eventBridgeClient, Metrics metrics) {
+        // Same serialization as the service's direct publishing, so consumers see one event format.
+        this.objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.publisher = new EventBridgePublisher(eventBridgeClient, objectMapper);
+        this.metrics = metrics;
+        this.relayLag = metrics.histogram("OutboxRelayLag", Unit.MICROSECONDS);
+        this.relayedEvents = metrics.counter("OutboxRelayedEvents");
+        this.failedBatches = metrics.counter("OutboxRelayFailedBatches");
+    }
+
+    @Override
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+        try {
+            objectMapper.writeValue(output, relay(objectMapper.readTree(input), context));
+        } finally {
+            metrics.flush();
+        }
+    }
+
+    private Map<String, Object> relay(JsonNode event, Context context) {
+        List<String> sequenceNumbers = new ArrayList<>();
+        List<UrlMapping> mappings = new ArrayList<>();
+        long nowMicros = System.currentTimeMillis() * 1000;
+        for (JsonNode record : event.path("Records")) {
+            JsonNode dynamodb = record.path("dynamodb");
+            if (!"INSERT".equals(record.path("eventName").asText()) || !dynamodb.has("NewImage")) continue;
+            sequenceNumbers.add(dynamodb.path("SequenceNumber").asText());
+            mappings.add(DynamoDbRepository.fromItem(item(dynamodb.get("NewImage"))));
+            if (dynamodb.has("ApproximateCreationDateTime")) {
+                // Stream timestamps are epoch seconds, so the lag is only accurate to a second.
+                relayLag.record(nowMicros - (long) (dynamodb.get("ApproximateCreationDateTime").asDouble() * 1_000_000));
+            }
+        }
+
+        List<Map<String, String>> batchItemFailures = new ArrayList<>();
+        for (int from = 0; from < mappings.size(); from += MAX_PUT_EVENTS_ENTRIES) {
+            int to = Math.min(mappings.size(), from + MAX_PUT_EVENTS_ENTRIES);
+            Set<Object> unpublished = new HashSet<>(publisher.publishAll(mappings.subList(from, to)));
+            if (unpublished.isEmpty()) {
+                relayedEvents.add(to - from);
+                continue;
+            }
+            for (int i = from; i < to; i++) {
+                if (unpublished.contains(mappings.get(i))) {
+                    context.getLogger().log("Failed to relay the creation of " + mappings.get(i).shortCode()
+                            + "; retrying from " + sequenceNumbers.get(i));
+                    batchItemFailures.add(Map.of("itemIdentifier", sequenceNumbers.get(i)));
+                    break;
+                }
+            }
+            failedBatches.increment();
+            break;
+        }
+        return Map.of("batchItemFailures", batchItemFailures);
+    }
+
+    /**
+     * Converts a stream image in DynamoDB JSON to the item form the repository reads. Mapping
+     * items only hold strings and numbers.
+     */
+    private static Map<String, AttributeValue> item(JsonNode image) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        for (Map.Entry<String, JsonNode> field : image.properties()) {
+            JsonNode value = field.getValue();
+            if (value.has("S")) {
+                item.put(field.getKey(), AttributeValue.builder().s(value.get("S").asText()).build());
+            } else if (value.has("N")) {
+                item.put(field.getKey(), AttributeValue.builder().n(value.get("N").asText()).build());
+            }
+        }
+        return item;
+    }
+}
@@ -1,12 +1,32 @@
 package com.bro.quicklink.adapter.in.web;
 
+import com.bro.quicklink.core.domain.BulkCreateItem;
+import com.bro.quicklink.core.domain.BulkCreateResult;
+import com.bro.quicklink.core.domain.IdempotencyConflictException;
+import com.bro.quicklink.core.domain.RedirectPolicy;
 import com.bro.quicklink.core.domain.UrlMapping;
 import com.bro.quicklink.core.ports.in.UrlShortenerUseCase;
 import com.bro.quicklink.core.ports.out.UrlMappingRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
 @RestController
 @RequestMapping("/")
 @RequiredArgsConstructor
@@ -14,13 +34,71 @@ public class UrlMappingController {
 
     private final UrlShortenerUseCase urlShortenerUseCase;
     private final UrlMappingRepository urlMappingRepository;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/links")
-    public ResponseEntity<UrlMapping> createShortUrl(@RequestBody CreateShortUrlRequest request) {
-        UrlMapping urlMapping = urlShortenerUseCase.createShortUrl(request.originalUrl());
+    public ResponseEntity<UrlMapping> createShortUrl(@RequestBody CreateShortUrlRequest request,
+                                                     @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        UrlMapping urlMapping = urlShortenerUseCase.createShortUrl(request.originalUrl(),
+                RedirectPolicy.of(request.redirectStatus(), request.maxAgeSeconds()), request.expiresAt(), idempotencyKey);
         return ResponseEntity.ok(urlMapping);
     }
 
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Map<String, String>> handleIdempotencyConflict(IdempotencyConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Accepts a JSON array of {@link CreateShortUrlRequest} objects (or plain URL strings) and streams back a JSON array
+     * with one result per item. Neither side is materialized, so very large batches are fine. Each item's redirect
+     * policy and expiry are honored as in a single create; an item with invalid ones fails on its own.
+     *
+     * The status is committed before the whole body has been read, so if the body turns out to be malformed part way
+     * through, the items before the break are still created and reported, and the array ends with one more result
+     * whose index is the first unreadable item and whose error describes the problem. Nothing after it is created.
+     */
+    @PostMapping("/links/batch")
+    public void createShortUrls(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(request.getInputStream())) {
+            if (nextTokenOrNull(parser) != JsonToken.START_ARRAY) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected a JSON array of links");
+                return;
+            }
+
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+                generator.writeStartArray();
+                BulkCreateItemIterator items = new BulkCreateItemIterator(parser);
+                urlShortenerUseCase.createShortUrls(items, result -> {
+                    try {
+                        generator.writeObject(result);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (items.failure != null) {
+                    generator.writeObject(BulkCreateResult.failed(items.consumed, null,
+                            "Malformed request body: " + items.failure.getOriginalMessage()));
+                }
+                generator.writeEndArray();
+            }
+        }
+    }
+
+    private static JsonToken nextTokenOrNull(JsonParser parser) throws IOException {
+        try {
+            return parser.nextToken();
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
     @GetMapping("/links/{shortCode}")
     public ResponseEntity<UrlMapping> findByShortCode(@PathVariable String shortCode) {
         return urlMappingRepository.findByShortCode(shortCode)
@@ -28,6 +106,68 @@ public class UrlMappingController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    // A simple DTO for the request body
-    public record CreateShortUrlRequest(String originalUrl) {}
-}
\ No newline at end of file
+    // A simple DTO for the request body; redirectStatus, maxAgeSeconds and expiresAt (ISO-8601) are optional
+    public record CreateShortUrlRequest(String originalUrl, Integer redirectStatus, Long maxAgeSeconds,
+                                        Instant expiresAt) {}
+
+    /**
+     * Pulls one item at a time off the request body. Elements that are neither a
+     * CreateShortUrlRequest nor a string come back without a URL and are reported as invalid.
+     * A malformed body (including a field of the wrong type, such as an expiresAt that isn't
+     * ISO-8601) ends the iteration early and is kept in {@link #failure}.
+     */
+    private static final class BulkCreateItemIterator implements Iterator<BulkCreateItem> {
+
+        private final JsonParser parser;
+        private boolean ready;
+        private boolean done;
+        private BulkCreateItem next;
+        private int consumed;
+        private JsonProcessingException failure;
+
+        private BulkCreateItemIterator(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!ready && !done) advance();
+            return ready;
+        }
+
+        @Override
+        public BulkCreateItem next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            ready = false;
+            consumed++;
+            return next;
+        }
+
+        // Reads the whole element here, so a parse error surfaces before it is handed out.
+        private void advance() {
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    done = true;
+                    return;
+                }
+                if (token == JsonToken.START_OBJECT) {
+                    CreateShortUrlRequest request = parser.readValueAs(CreateShortUrlRequest.class);
+                    next = new BulkCreateItem(request.originalUrl(), request.redirectStatus(),
+                            request.maxAgeSeconds(), request.expiresAt());
+                } else if (token == JsonToken.VALUE_STRING) {
+                    next = new BulkCreateItem(parser.getText());
+                } else {
+                    parser.skipChildren();
+                    next = new BulkCreateItem(null);
+                }
+                ready = true;
+            } catch (JsonProcessingException e) {
+                failure = e;
+                done = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -1,16 +1,20 @@
 package com.bro.quicklink.adapter.out.messaging;
 
-import com.bro.quicklink.core.domain.UrlMapping;
+import com.bro.quicklink.aws.RetryBackoff;
 import com.bro.quicklink.core.ports.out.EventPublisher;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+import software.amazon.awssdk.services.eventbridge.model.EventBridgeException;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * This is an Output Adapter. It implements the event publisher port for EventBridge.
@@ -22,18 +26,11 @@ public class EventBridgePublisher implements EventPublisher {
     private final EventBridgeClient eventBridgeClient;
     private final ObjectMapper objectMapper; // Spring Boot provides this bean by default
     private final String EVENT_BUS_NAME = "quicklink-event-bus"; // We will create this with Terraform
+    private static final int MAX_PUT_EVENTS_ENTRIES = 10; // PutEvents limit
 
     @Override
-    @SneakyThrows // A Lombok annotation to avoid boilerplate try/catch for the JSON conversion
     public void publishUrlCreatedEvent(Object event) {
-        String eventJson = objectMapper.writeValueAsString(event);
-
-        PutEventsRequestEntry requestEntry = PutEventsRequestEntry.builder()
-                .eventBusName(EVENT_BUS_NAME)
-                .source("com.bro.quicklink.shortening-service")
-                .detailType("UrlCreatedEvent")
-                .detail(eventJson)
-                .build();
+        PutEventsRequestEntry requestEntry = toEntry(event);
 
         PutEventsRequest request = PutEventsRequest.builder()
                 .entries(Collections.singletonList(requestEntry))
@@ -41,4 +38,54 @@ public class EventBridgePublisher implements EventPublisher {
 
         eventBridgeClient.putEvents(request);
     }
+
+    /**
+     * Publishes in 10-entry PutEvents calls, retrying failed entries with backoff.
+     */
+    @Override
+    public List<Object> publishAll(List<?> events) {
+        List<Object> unpublished = new ArrayList<>();
+        for (int from = 0; from < events.size(); from += MAX_PUT_EVENTS_ENTRIES) {
+            List<?> chunk = events.subList(from, Math.min(events.size(), from + MAX_PUT_EVENTS_ENTRIES));
+            List<Object> pendingEvents = new ArrayList<>(chunk);
+            List<PutEventsRequestEntry> pendingEntries = new ArrayList<>(chunk.size());
+            for (Object event : chunk) {
+                pendingEntries.add(toEntry(event));
+            }
+
+            for (int attempt = 1; !pendingEntries.isEmpty() && attempt <= RetryBackoff.MAX_ATTEMPTS; attempt++) {
+                if (attempt > 1) RetryBackoff.pause(attempt - 1);
+                List<PutEventsResultEntry> results;
+                try {
+                    results = eventBridgeClient.putEvents(PutEventsRequest.builder().entries(pendingEntries).build()).entries();
+                } catch (EventBridgeException e) {
+                    continue; // Throttled or failed as a whole: retry the same entries.
+                }
+
+                // Result entries line up with request entries; keep only those that failed.
+                List<Object> failedEvents = new ArrayList<>();
+                List<PutEventsRequestEntry> failedEntries = new ArrayList<>();
+                for (int i = 0; i < pendingEntries.size(); i++) {
+                    if (i < results.size() && results.get(i).errorCode() != null) {
+                        failedEvents.add(pendingEvents.get(i));
+                        failedEntries.add(pendingEntries.get(i));
+                    }
+                }
+                pendingEvents = failedEvents;
+                pendingEntries = failedEntries;
+            }
+            unpublished.addAll(pendingEvents);
+        }
+        return unpublished;
+    }
+
+    @SneakyThrows // A Lombok annotation to avoid boilerplate try/catch for the JSON conversion
+    private PutEventsRequestEntry toEntry(Object event) {
+        return PutEventsRequestEntry.builder()
+                .eventBusName(EVENT_BUS_NAME)
+                .source("com.bro.quicklink.shortening-service")
+                .detailType("UrlCreatedEvent")
+                .detail(objectMapper.writeValueAsString(event))
+                .build();
+    }
 }
\ No newline at end of file
@@ -1,46 +1,202 @@
 package com.bro.quicklink.adapter.out.persistence;
 
+import com.bro.quicklink.aws.RetryBackoff;
+import com.bro.quicklink.core.domain.DuplicateShortCodeException;
+import com.bro.quicklink.core.domain.RedirectPolicy;
 import com.bro.quicklink.core.domain.UrlMapping;
 import com.bro.quicklink.core.ports.out.UrlMappingRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.Put;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * This is an Output Adapter. It implements the repository port for DynamoDB.
  * It translates domain objects into DynamoDB items and vice-versa.
  */
 @Repository
+@ConditionalOnProperty(name = "quicklink.storage.type", havingValue = "dynamodb", matchIfMissing = true)
 @RequiredArgsConstructor
 public class DynamoDbRepository implements UrlMappingRepository {
 
     private final DynamoDbClient dynamoDbClient;
     private final String TABLE_NAME = "quicklink-mappings"; // We will create this with Terraform
+    private final String DEDUP_TABLE_NAME = "quicklink-dedup"; // dedupKey -> copy of the owning mapping
+    private static final int MAX_BATCH_WRITE_ITEMS = 25; // BatchWriteItem limit
 
     @Override
     public UrlMapping save(UrlMapping urlMapping) {
-        Map<String, AttributeValue> item = new HashMap<>();
-        item.put("shortCode", AttributeValue.builder().s(urlMapping.shortCode()).build());
-        item.put("originalUrl", AttributeValue.builder().s(urlMapping.originalUrl()).build());
-        item.put("createdAt", AttributeValue.builder().s(urlMapping.createdAt().toString()).build());
-
         PutItemRequest request = PutItemRequest.builder()
                 .tableName(TABLE_NAME)
-                .item(item)
+                .item(toItem(urlMapping))
+                .conditionExpression("attribute_not_exists(shortCode)") // Never overwrite an existing mapping
                 .build();
 
-        dynamoDbClient.putItem(request);
+        try {
+            dynamoDbClient.putItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            throw new DuplicateShortCodeException(urlMapping.shortCode());
+        }
         return urlMapping;
     }
 
+    /**
+     * Writes in 25-item BatchWriteItem calls, retrying unprocessed items with backoff.
+     * BatchWriteItem can't carry condition expressions, so this relies on the generator
+     * handing out unique codes rather than on attribute_not_exists.
+     */
+    @Override
+    public List<UrlMapping> saveAll(List<UrlMapping> urlMappings) {
+        List<UrlMapping> saved = new ArrayList<>(urlMappings.size());
+        for (int from = 0; from < urlMappings.size(); from += MAX_BATCH_WRITE_ITEMS) {
+            List<UrlMapping> chunk = urlMappings.subList(from, Math.min(urlMappings.size(), from + MAX_BATCH_WRITE_ITEMS));
+            Set<String> unsaved = writeBatch(chunk);
+            for (UrlMapping mapping : chunk) {
+                if (!unsaved.contains(mapping.shortCode())) saved.add(mapping);
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * @return The short codes that were still unprocessed after all attempts.
+     */
+    private Set<String> writeBatch(List<UrlMapping> chunk) {
+        List<WriteRequest> pending = chunk.stream()
+                .map(mapping -> WriteRequest.builder()
+                        .putRequest(PutRequest.builder().item(toItem(mapping)).build())
+                        .build())
+                .toList();
+
+        for (int attempt = 1; !pending.isEmpty() && attempt <= RetryBackoff.MAX_ATTEMPTS; attempt++) {
+            if (attempt > 1) RetryBackoff.pause(attempt - 1);
+            try {
+                pending = dynamoDbClient.batchWriteItem(BatchWriteItemRequest.builder()
+                                .requestItems(Map.of(TABLE_NAME, pending))
+                                .build())
+                        .unprocessedItems()
+                        .getOrDefault(TABLE_NAME, List.of());
+            } catch (DynamoDbException e) {
+                // Throttled or failed as a whole: retry the same items.
+            }
+        }
+
+        Set<String> unsaved = new HashSet<>();
+        for (WriteRequest request : pending) {
+            unsaved.add(request.putRequest().item().get("shortCode").s());
+        }
+        return unsaved;
+    }
+
+    /**
+     * Writes the mapping and its dedup item in one transaction. The dedup item carries a copy
+     * of the mapping, so when the key is already taken the owner comes back with the
+     * cancellation reason and no extra read is needed.
+     *
+     * The claim's expiry goes into the dedup table's TTL attribute. TTL deletes lag by up to
+     * a couple of days, so an expired claim that is still there is simply overwritten.
+     *
+     * Concurrent creates of the same key can cancel each other with TransactionConflict
+     * instead of failing the condition. Each conflict is followed by a consistent read of
+     * the claim, and the transaction is retried with backoff while nobody holds it.
+     */
+    @Override
+    public UrlMapping saveOrGetExisting(UrlMapping urlMapping, String dedupKey, Instant claimExpiresAt) {
+        Map<String, AttributeValue> dedupItem = toItem(urlMapping);
+        dedupItem.put("dedupKey", AttributeValue.builder().s(dedupKey).build());
+        if (claimExpiresAt != null) {
+            dedupItem.put("ttl", AttributeValue.builder().n(Long.toString(claimExpiresAt.getEpochSecond())).build());
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                dynamoDbClient.transactWriteItems(claimRequest(urlMapping, dedupItem));
+                return urlMapping;
+            } catch (TransactionCanceledException e) {
+                List<CancellationReason> reasons = e.cancellationReasons();
+                if (reasons.size() > 1 && "ConditionalCheckFailed".equals(reasons.get(1).code())) {
+                    Map<String, AttributeValue> existing = reasons.get(1).item();
+                    if (existing != null && !existing.isEmpty()) {
+                        return fromItem(existing);
+                    }
+                    return findByDedupKey(dedupKey).orElseThrow(() -> e);
+                }
+                if (!reasons.isEmpty() && "ConditionalCheckFailed".equals(reasons.get(0).code())) {
+                    throw new DuplicateShortCodeException(urlMapping.shortCode());
+                }
+                // Another transaction on the same key was in flight, typically a concurrent
+                // create of the same URL. If it won, its mapping is the answer.
+                if (reasons.stream().anyMatch(reason -> "TransactionConflict".equals(reason.code()))
+                        && attempt < RetryBackoff.MAX_ATTEMPTS) {
+                    Optional<UrlMapping> existing = findByDedupKey(dedupKey);
+                    if (existing.isPresent()) return existing.get();
+                    RetryBackoff.pause(attempt);
+                    continue;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private TransactWriteItemsRequest claimRequest(UrlMapping urlMapping, Map<String, AttributeValue> dedupItem) {
+        return TransactWriteItemsRequest.builder()
+                .transactItems(
+                        TransactWriteItem.builder().put(Put.builder()
+                                .tableName(TABLE_NAME)
+                                .item(toItem(urlMapping))
+                                .conditionExpression("attribute_not_exists(shortCode)")
+                                .build()).build(),
+                        TransactWriteItem.builder().put(Put.builder()
+                                .tableName(DEDUP_TABLE_NAME)
+                                .item(dedupItem)
+                                .conditionExpression("attribute_not_exists(dedupKey) OR #ttl <= :now")
+                                .expressionAttributeNames(Map.of("#ttl", "ttl"))
+                                .expressionAttributeValues(Map.of(":now",
+                                        AttributeValue.builder().n(Long.toString(Instant.now().getEpochSecond())).build()))
+                                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                                .build()).build())
+                .build();
+    }
+
+    /**
+     * A consistent read of the live claim on a key; an expired claim TTL hasn't deleted yet
+     * counts as absent.
+     */
+    private Optional<UrlMapping> findByDedupKey(String dedupKey) {
+        Map<String, AttributeValue> item = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(DEDUP_TABLE_NAME)
+                .key(Map.of("dedupKey", AttributeValue.builder().s(dedupKey).build()))
+                .consistentRead(true)
+                .build()).item();
+        if (item == null || item.isEmpty()) return Optional.empty();
+        AttributeValue ttl = item.get("ttl");
+        if (ttl != null && Long.parseLong(ttl.n()) <= Instant.now().getEpochSecond()) return Optional.empty();
+        return Optional.of(fromItem(item));
+    }
+
     @Override
     public Optional<UrlMapping> findByShortCode(String shortCode) {
         Map<String, AttributeValue> keyToGet = new HashMap<>();
@@ -53,15 +209,48 @@ public class DynamoDbRepository implements UrlMappingRepository {
 
         Map<String, AttributeValue> returnedItem = dynamoDbClient.getItem(request).item();
 
+        // TTL deletes lag expiry by up to a couple of days; an expired item is as good as gone.
         if (returnedItem != null && !returnedItem.isEmpty()) {
-            UrlMapping mapping = new UrlMapping(
-                    returnedItem.get("shortCode").s(),
-                    returnedItem.get("originalUrl").s(),
-                    Instant.parse(returnedItem.get("createdAt").s())
-            );
-            return Optional.of(mapping);
+            return Optional.of(fromItem(returnedItem)).filter(mapping -> !mapping.isExpired(Instant.now()));
         } else {
             return Optional.empty();
         }
     }
+
+    private static Map<String, AttributeValue> toItem(UrlMapping urlMapping) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("shortCode", AttributeValue.builder().s(urlMapping.shortCode()).build());
+        item.put("originalUrl", AttributeValue.builder().s(urlMapping.originalUrl()).build());
+        item.put("createdAt", AttributeValue.builder().s(urlMapping.createdAt().toString()).build());
+        // Read by the redirect service as-is; the default policy is implied by their absence.
+        item.put("etag", AttributeValue.builder().s(urlMapping.etag()).build());
+        RedirectPolicy policy = urlMapping.redirectPolicy();
+        if (!RedirectPolicy.DEFAULT.equals(policy)) {
+            item.put("redirectStatus", AttributeValue.builder().n(Integer.toString(policy.statusCode())).build());
+            item.put("maxAgeSeconds", AttributeValue.builder().n(Long.toString(policy.maxAgeSeconds())).build());
+        }
+        // The mappings table's TTL attribute, in epoch seconds. The dedup table expires claims by "ttl" instead.
+        if (urlMapping.expiresAt() != null) {
+            item.put("expiresAt", AttributeValue.builder().n(Long.toString(urlMapping.expiresAt().getEpochSecond())).build());
+        }
+        return item;
+    }
+
+    /**
+     * Reads a mapping item, also as it arrives in a stream record's NewImage.
+     */
+    public static UrlMapping fromItem(Map<String, AttributeValue> item) {
+        AttributeValue redirectStatus = item.get("redirectStatus");
+        AttributeValue maxAgeSeconds = item.get("maxAgeSeconds");
+        AttributeValue expiresAt = item.get("expiresAt");
+        return new UrlMapping(
+                item.get("shortCode").s(),
+                item.get("originalUrl").s(),
+                Instant.parse(item.get("createdAt").s()),
+                RedirectPolicy.of(
+                        redirectStatus == null ? null : Integer.valueOf(redirectStatus.n()),
+                        maxAgeSeconds == null ? null : Long.valueOf(maxAgeSeconds.n())),
+                expiresAt == null ? null : Instant.ofEpochSecond(Long.parseLong(expiresAt.n()))
+        );
+    }
 }
\ No newline at end of file
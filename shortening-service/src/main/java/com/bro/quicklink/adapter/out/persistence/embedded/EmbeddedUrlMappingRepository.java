@@ -0,0 +1,212 @@
+package com.bro.quicklink.adapter.out.persistence.embedded;
+
+import com.bro.quicklink.core.domain.DuplicateShortCodeException;
+import com.bro.quicklink.core.domain.UrlMapping;
+import com.bro.quicklink.core.ports.out.UrlMappingRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This is an Output Adapter for self-hosted and edge deployments. It implements the
+ * repository port with an embedded store: an append-only log on local disk (see
+ * MappingLog) plus off-heap hash indexes from shortCode and from dedup key to the log
+ * offset of the owning record. Nothing but the indexes is kept in memory, so a lookup
+ * is a probe of the off-heap table and one positional read, normally served from the
+ * page cache.
+ *
+ * Reads run concurrently; writes and compaction are serialized. The indexes are rebuilt
+ * from the log on startup, which is also the crash recovery. Like the DynamoDB adapter,
+ * {@link #save} never overwrites a code while {@link #saveAll} does, and rewritten codes
+ * leave dead records behind that compaction reclaims. Expired links read as missing and are
+ * dropped by the next compaction, the same way DynamoDB TTL eventually deletes them.
+ */
+public class EmbeddedUrlMappingRepository implements UrlMappingRepository, Closeable {
+
+    private static final String LOG_FILE_NAME = "mappings.log";
+    private static final long MIN_COMPACTION_BYTES = 64L << 20;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int expectedEntries;
+    private final MappingLog log;
+    private OffHeapIndex byShortCode;
+    private OffHeapIndex byDedupKey;
+    private long deadBytes;
+
+    public EmbeddedUrlMappingRepository(Path directory, int expectedEntries, boolean syncOnWrite) throws IOException {
+        Files.createDirectories(directory);
+        this.expectedEntries = expectedEntries;
+        this.byShortCode = new OffHeapIndex(expectedEntries);
+        this.byDedupKey = new OffHeapIndex(16);
+        this.log = MappingLog.open(directory.resolve(LOG_FILE_NAME), syncOnWrite);
+        this.log.replay(this::index);
+    }
+
+    @Override
+    public UrlMapping save(UrlMapping urlMapping) {
+        lock.writeLock().lock();
+        try {
+            if (find(urlMapping.shortCode()) != null) {
+                throw new DuplicateShortCodeException(urlMapping.shortCode());
+            }
+            index(log.append(urlMapping, null));
+            return urlMapping;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends the whole batch with one write, so every mapping is either saved or the
+     * call fails.
+     */
+    @Override
+    public List<UrlMapping> saveAll(List<UrlMapping> urlMappings) {
+        lock.writeLock().lock();
+        try {
+            log.appendAll(urlMappings, this::index);
+            compactIfWorthIt();
+            return urlMappings;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<UrlMapping> findByShortCode(String shortCode) {
+        lock.readLock().lock();
+        try {
+            MappingLog.Entry entry = find(shortCode);
+            return entry == null || entry.mapping().isExpired(Instant.now())
+                    ? Optional.empty()
+                    : Optional.of(entry.mapping());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The mapping and its dedup key go into a single record, so they are claimed together
+     * or not at all. The claim's expiry is stored with them. From then on the claim counts as
+     * absent, here and in compaction, just as an expired claim in the DynamoDB adapter is
+     * overwritten.
+     */
+    @Override
+    public UrlMapping saveOrGetExisting(UrlMapping urlMapping, String dedupKey, Instant claimExpiresAt) {
+        lock.writeLock().lock();
+        try {
+            MappingLog.Entry existing = byDedupKey.find(OffHeapIndex.hash(dedupKey), offset -> {
+                MappingLog.Entry entry = read(offset);
+                return dedupKey.equals(entry.dedupKey()) ? entry : null;
+            });
+            if (existing != null && !existing.claimExpired(Instant.now())) {
+                return existing.mapping();
+            }
+            if (find(urlMapping.shortCode()) != null) {
+                throw new DuplicateShortCodeException(urlMapping.shortCode());
+            }
+            index(log.append(urlMapping, dedupKey, claimExpiresAt));
+            return urlMapping;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the log without dead records. Blocks reads and writes while it runs.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            int liveCodes = byShortCode.size();
+            int liveDedupKeys = byDedupKey.size();
+            log.compact(this::isLive);
+            byShortCode = new OffHeapIndex(Math.max(expectedEntries, liveCodes));
+            byDedupKey = new OffHeapIndex(liveDedupKeys);
+            deadBytes = 0;
+            log.replay(this::index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private MappingLog.Entry find(String shortCode) {
+        return byShortCode.find(OffHeapIndex.hash(shortCode), offset -> {
+            MappingLog.Entry entry = read(offset);
+            return shortCode.equals(entry.mapping().shortCode()) ? entry : null;
+        });
+    }
+
+    /**
+     * Points the indexes at a record that was just appended or recovered. A record whose
+     * code is rewritten later stays live only while a dedup key still points at it.
+     */
+    private void index(MappingLog.Entry entry) {
+        String shortCode = entry.mapping().shortCode();
+        long replaced = byShortCode.put(OffHeapIndex.hash(shortCode), entry.offset(),
+                offset -> shortCode.equals(read(offset).mapping().shortCode()));
+        if (entry.dedupKey() != null) {
+            String dedupKey = entry.dedupKey();
+            byDedupKey.put(OffHeapIndex.hash(dedupKey), entry.offset(),
+                    offset -> dedupKey.equals(read(offset).dedupKey()));
+        }
+        if (replaced >= 0) {
+            MappingLog.Entry previous = read(replaced);
+            if (previous.dedupKey() == null) deadBytes += previous.size();
+        }
+    }
+
+    /**
+     * Compaction is stop-the-world, so it only runs once dead records make up most of a
+     * log that is big enough to matter.
+     */
+    private void compactIfWorthIt() {
+        if (log.size() >= MIN_COMPACTION_BYTES && deadBytes * 2 > log.size()) {
+            compact();
+        }
+    }
+
+    private boolean isLive(MappingLog.Entry entry) {
+        Instant now = Instant.now();
+        if (entry.mapping().isExpired(now)) return false;
+        Boolean byCode = byShortCode.find(OffHeapIndex.hash(entry.mapping().shortCode()),
+                offset -> offset == entry.offset() ? Boolean.TRUE : null);
+        if (byCode != null) return true;
+        return entry.dedupKey() != null && !entry.claimExpired(now) && byDedupKey.find(OffHeapIndex.hash(entry.dedupKey()),
+                offset -> offset == entry.offset() ? Boolean.TRUE : null) != null;
+    }
+
+    private MappingLog.Entry read(long offset) {
+        try {
+            return log.read(offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
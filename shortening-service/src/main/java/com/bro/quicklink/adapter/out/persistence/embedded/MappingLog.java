@@ -0,0 +1,346 @@
+package com.bro.quicklink.adapter.out.persistence.embedded;
+
+import com.bro.quicklink.core.domain.RedirectPolicy;
+import com.bro.quicklink.core.domain.UrlMapping;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only file of mapping records. Each record is framed as
+ * {@code [int payloadLength][int crc32c][payload]}, with the payload holding the createdAt
+ * instant, the short code, the dedup key (empty when none), the original URL and, for links
+ * that don't use the default, expire or carry an expiring claim, the redirect status and
+ * max-age, then the link's expiry in epoch seconds (0 for none), then the claim's expiry.
+ * Records end after the last field they need, so older records simply end earlier.
+ *
+ * Recovery replays the file from the start and cuts it at the first torn or corrupt
+ * record, which can only be the tail of an interrupted write. Compaction copies the live
+ * records to a new file and swaps it in with an atomic rename, so a crash at any point
+ * leaves either the old or the new file intact. The log keeps using the old file until
+ * the rename has succeeded, so a failed compaction changes nothing.
+ */
+final class MappingLog implements Closeable {
+
+    private static final int MAGIC = 0x514C4D31; // "QLM1"
+    private static final int FILE_HEADER_BYTES = 4;
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final int MAX_PAYLOAD_BYTES = 1 << 20;
+    private static final int READ_AHEAD_BYTES = 512;
+
+    /**
+     * @param claimExpiresAt When the dedup key's claim lapses; null if it never does or there is no key.
+     */
+    record Entry(long offset, int size, UrlMapping mapping, String dedupKey, Instant claimExpiresAt) {
+
+        boolean claimExpired(Instant now) {
+            return claimExpiresAt != null && !now.isBefore(claimExpiresAt);
+        }
+    }
+
+    private final Path path;
+    private final boolean syncOnWrite;
+    private FileChannel channel;
+    private FileLock lock;
+    private long end;
+
+    private MappingLog(Path path, boolean syncOnWrite) {
+        this.path = path;
+        this.syncOnWrite = syncOnWrite;
+    }
+
+    /**
+     * Opens (or creates) the log. {@link #replay} must run before anything is appended.
+     */
+    static MappingLog open(Path path, boolean syncOnWrite) throws IOException {
+        MappingLog log = new MappingLog(path, syncOnWrite);
+        log.openChannel();
+        // Leftover of a compaction that never got swapped in; only deleted once the lock
+        // shows no other process is compacting this log.
+        Files.deleteIfExists(compactionPath(path));
+        return log;
+    }
+
+    /**
+     * Hands every intact record to {@code consumer}, oldest first, and cuts the file after
+     * the last one. The consumer may {@link #read} records that were already replayed.
+     */
+    void replay(Consumer<Entry> consumer) throws IOException {
+        long validEnd = scan(consumer);
+        if (validEnd < end) {
+            // Torn write at the tail: drop it so new records follow the last intact one.
+            channel.truncate(validEnd);
+            channel.force(true);
+        }
+        end = validEnd;
+    }
+
+    long size() {
+        return end;
+    }
+
+    Entry append(UrlMapping mapping, String dedupKey) throws IOException {
+        return append(mapping, dedupKey, null);
+    }
+
+    Entry append(UrlMapping mapping, String dedupKey, Instant claimExpiresAt) throws IOException {
+        // Stored in whole seconds, like the DynamoDB adapter's TTL attribute.
+        claimExpiresAt = dedupKey == null || claimExpiresAt == null ? null : Instant.ofEpochSecond(claimExpiresAt.getEpochSecond());
+        ByteBuffer frame = encode(mapping, dedupKey, claimExpiresAt);
+        int size = frame.remaining();
+        long offset = end;
+        writeFully(channel, frame, offset);
+        end += size;
+        if (syncOnWrite) channel.force(false);
+        return new Entry(offset, size, mapping, dedupKey, claimExpiresAt);
+    }
+
+    /**
+     * Appends all records with a single write and at most one sync.
+     */
+    void appendAll(List<UrlMapping> mappings, Consumer<Entry> appended) throws IOException {
+        ByteBuffer[] frames = new ByteBuffer[mappings.size()];
+        long total = 0;
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = encode(mappings.get(i), null, null);
+            total += frames[i].remaining();
+        }
+        channel.position(end);
+        long written = 0;
+        while (written < total) {
+            written += channel.write(frames);
+        }
+        long offset = end;
+        end += total;
+        if (syncOnWrite) channel.force(false);
+        for (int i = 0; i < frames.length; i++) {
+            int size = frames[i].limit();
+            appended.accept(new Entry(offset, size, mappings.get(i), null, null));
+            offset += size;
+        }
+    }
+
+    /**
+     * Reads the record at {@code offset}; safe to call from many threads at once.
+     */
+    Entry read(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(READ_AHEAD_BYTES, end - offset));
+        readFully(buffer, offset);
+        int length = buffer.getInt(0);
+        if (length > buffer.capacity() - FRAME_HEADER_BYTES) {
+            ByteBuffer full = ByteBuffer.allocate(FRAME_HEADER_BYTES + length);
+            full.put(buffer.flip());
+            readFully(full, offset + buffer.limit());
+            buffer = full;
+        }
+        buffer.position(FRAME_HEADER_BYTES).limit(FRAME_HEADER_BYTES + length);
+        return decode(offset, FRAME_HEADER_BYTES + length, buffer.slice());
+    }
+
+    /**
+     * Rewrites the log with only the records {@code isLive} accepts. Offsets change, so
+     * the caller has to {@link #replay} the compacted log to rebuild its indexes.
+     */
+    void compact(Predicate<Entry> isLive) throws IOException {
+        Path compactionPath = compactionPath(path);
+        FileChannel target = FileChannel.open(compactionPath,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock targetLock = null;
+        long targetEnd = FILE_HEADER_BYTES;
+        try {
+            // Locked before it is renamed, so the log is never unlocked under its own name.
+            targetLock = target.tryLock();
+            if (targetLock == null) throw new IllegalStateException(compactionPath + " is locked by another process");
+            writeFully(target, ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(0, MAGIC), 0);
+            long[] written = {targetEnd};
+            scan(entry -> {
+                if (!isLive.test(entry)) return;
+                try {
+                    writeFully(target, encode(entry.mapping(), entry.dedupKey(), entry.claimExpiresAt()), written[0]);
+                    written[0] += entry.size();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            targetEnd = written[0];
+            target.force(true);
+            Files.move(compactionPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            if (targetLock != null) targetLock.release();
+            target.close();
+            Files.deleteIfExists(compactionPath);
+            throw e;
+        }
+        // The rename only survives a crash once the directory entry is on disk.
+        syncDirectory(path.toAbsolutePath().getParent());
+
+        lock.release();
+        channel.close();
+        channel = target;
+        lock = targetLock;
+        end = targetEnd;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(true);
+            lock.release();
+            channel.close();
+        }
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lock = channel.tryLock();
+        if (lock == null) {
+            channel.close();
+            throw new IllegalStateException(path + " is already open in another process");
+        }
+        if (channel.size() == 0) {
+            writeFully(channel, ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(0, MAGIC), 0);
+            channel.force(true);
+        }
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        readFully(header, 0);
+        if (header.getInt(0) != MAGIC) {
+            lock.release();
+            channel.close();
+            throw new IOException(path + " is not a quicklink mapping log");
+        }
+        end = channel.size();
+    }
+
+    /**
+     * Streams the records in file order and returns the end of the last intact one.
+     */
+    private long scan(Consumer<Entry> consumer) throws IOException {
+        InputStream stream = Channels.newInputStream(channel.position(FILE_HEADER_BYTES));
+        DataInputStream input = new DataInputStream(new BufferedInputStream(stream, 1 << 20));
+        long offset = FILE_HEADER_BYTES;
+        CRC32C crc = new CRC32C();
+        while (offset + FRAME_HEADER_BYTES <= end) {
+            int length;
+            int checksum;
+            byte[] payload;
+            try {
+                length = input.readInt();
+                checksum = input.readInt();
+                if (length <= 0 || length > MAX_PAYLOAD_BYTES || offset + FRAME_HEADER_BYTES + length > end) break;
+                payload = input.readNBytes(length);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum || payload.length != length) break;
+
+            consumer.accept(decode(offset, FRAME_HEADER_BYTES + length, ByteBuffer.wrap(payload)));
+            offset += FRAME_HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    private static ByteBuffer encode(UrlMapping mapping, String dedupKey, Instant claimExpiresAt) {
+        byte[] shortCode = mapping.shortCode().getBytes(StandardCharsets.UTF_8);
+        byte[] dedup = dedupKey == null ? new byte[0] : dedupKey.getBytes(StandardCharsets.UTF_8);
+        byte[] url = mapping.originalUrl().getBytes(StandardCharsets.UTF_8);
+        boolean claimExpires = claimExpiresAt != null;
+        boolean expires = claimExpires || mapping.expiresAt() != null;
+        boolean customPolicy = expires || !RedirectPolicy.DEFAULT.equals(mapping.redirectPolicy());
+        int length = 8 + 4 + 2 + shortCode.length + 2 + dedup.length + 4 + url.length
+                + (customPolicy ? 2 + 8 : 0) + (expires ? 8 : 0) + (claimExpires ? 8 : 0);
+        if (length > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Mapping for " + mapping.shortCode() + " is too large to store");
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + length);
+        frame.putInt(length).putInt(0)
+                .putLong(mapping.createdAt().getEpochSecond())
+                .putInt(mapping.createdAt().getNano())
+                .putShort((short) shortCode.length).put(shortCode)
+                .putShort((short) dedup.length).put(dedup)
+                .putInt(url.length).put(url);
+        if (customPolicy) {
+            frame.putShort((short) mapping.redirectPolicy().statusCode()).putLong(mapping.redirectPolicy().maxAgeSeconds());
+        }
+        if (expires) {
+            frame.putLong(mapping.expiresAt() == null ? 0 : mapping.expiresAt().getEpochSecond());
+        }
+        if (claimExpires) {
+            frame.putLong(claimExpiresAt.getEpochSecond());
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(frame.array(), FRAME_HEADER_BYTES, length);
+        frame.putInt(4, (int) crc.getValue());
+        return frame.flip();
+    }
+
+    private static Entry decode(long offset, int size, ByteBuffer payload) {
+        Instant createdAt = Instant.ofEpochSecond(payload.getLong(), payload.getInt());
+        String shortCode = string(payload, Short.toUnsignedInt(payload.getShort()));
+        String dedupKey = string(payload, Short.toUnsignedInt(payload.getShort()));
+        String originalUrl = string(payload, payload.getInt());
+        RedirectPolicy policy = payload.remaining() >= 2 + 8
+                ? new RedirectPolicy(payload.getShort(), payload.getLong())
+                : RedirectPolicy.DEFAULT;
+        long expiresAt = payload.remaining() >= 8 ? payload.getLong() : 0;
+        Instant claimExpiresAt = payload.remaining() >= 8 ? Instant.ofEpochSecond(payload.getLong()) : null;
+        return new Entry(offset, size,
+                new UrlMapping(shortCode, originalUrl, createdAt, policy, expiresAt == 0 ? null : Instant.ofEpochSecond(expiresAt)),
+                dedupKey.isEmpty() ? null : dedupKey, claimExpiresAt);
+    }
+
+    private static String string(ByteBuffer buffer, int length) {
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long next = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, next);
+            if (read < 0) throw new EOFException("Unexpected end of " + path + " at " + next);
+            next += read;
+        }
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += target.write(buffer, position + written);
+        }
+    }
+
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform can open a directory for syncing; the rename itself is atomic.
+        }
+    }
+
+    private static Path compactionPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".compact");
+    }
+}
@@ -0,0 +1,123 @@
+package com.bro.quicklink.adapter.out.persistence.embedded;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing hash table stored in a direct buffer, so millions of entries cost no
+ * heap objects and no GC work. Each 16-byte slot holds a 64-bit key hash and the log
+ * offset of the record that owns the key. Keys themselves live only in the log: on a
+ * hash match the caller verifies the key against the record.
+ *
+ * Not thread-safe; EmbeddedUrlMappingRepository guards it with its lock.
+ */
+final class OffHeapIndex {
+
+    private static final int SLOT_BYTES = 16;
+    private static final int MAX_SLOTS = 1 << 26; // 1 GiB, the largest power of two a ByteBuffer can hold
+    private static final double LOAD_FACTOR = 0.7;
+
+    private ByteBuffer slots;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    OffHeapIndex(int expectedEntries) {
+        allocate(tableSizeFor((long) Math.ceil(Math.max(16, expectedEntries) / LOAD_FACTOR)));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Probes every slot with the given hash and returns the first non-null result of
+     * {@code match}, which receives the candidate's log offset.
+     */
+    <T> T find(long hash, LongFunction<T> match) {
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            long slotHash = slots.getLong(slot * SLOT_BYTES);
+            if (slotHash == 0) return null;
+            if (slotHash == hash) {
+                T result = match.apply(slots.getLong(slot * SLOT_BYTES + 8));
+                if (result != null) return result;
+            }
+        }
+    }
+
+    /**
+     * Points the key at {@code offset}, replacing the entry whose current offset satisfies
+     * {@code isSameKey}.
+     * @return The replaced offset, or -1 if the key was new.
+     */
+    long put(long hash, long offset, LongPredicate isSameKey) {
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            int position = slot * SLOT_BYTES;
+            long slotHash = slots.getLong(position);
+            if (slotHash == 0) {
+                slots.putLong(position, hash).putLong(position + 8, offset);
+                if (++size > resizeThreshold) grow();
+                return -1;
+            }
+            if (slotHash == hash) {
+                long previous = slots.getLong(position + 8);
+                if (isSameKey.test(previous)) {
+                    slots.putLong(position + 8, offset);
+                    return previous;
+                }
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of the key so consecutive short codes land in different slots.
+     * Never returns 0, which marks an empty slot.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L; // FNV-1a over the UTF-16 chars
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private void grow() {
+        if (mask + 1 >= MAX_SLOTS) {
+            throw new IllegalStateException("Embedded index is full (" + size + " entries)");
+        }
+        ByteBuffer old = slots;
+        int oldSlots = mask + 1;
+        allocate(oldSlots * 2);
+        for (int slot = 0; slot < oldSlots; slot++) {
+            long hash = old.getLong(slot * SLOT_BYTES);
+            if (hash != 0) insertUnique(hash, old.getLong(slot * SLOT_BYTES + 8));
+        }
+    }
+
+    private void insertUnique(long hash, long offset) {
+        int slot = (int) hash & mask;
+        while (slots.getLong(slot * SLOT_BYTES) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots.putLong(slot * SLOT_BYTES, hash).putLong(slot * SLOT_BYTES + 8, offset);
+        size++;
+    }
+
+    private void allocate(int slotCount) {
+        slots = ByteBuffer.allocateDirect(slotCount * SLOT_BYTES);
+        mask = slotCount - 1;
+        size = 0;
+        resizeThreshold = (int) (slotCount * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(long slotCount) {
+        int size = 16;
+        while (size < slotCount && size < MAX_SLOTS) size <<= 1;
+        return size;
+    }
+}
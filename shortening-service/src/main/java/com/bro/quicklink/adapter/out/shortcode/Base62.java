@@ -0,0 +1,42 @@
+package com.bro.quicklink.adapter.out.shortcode;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Allocation-light Base62 encoding of non-negative longs (0-9, A-Z, a-z).
+ * Digits are written right-aligned into a small scratch buffer, so the only
+ * object that escapes is the resulting String.
+ */
+public final class Base62 {
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final int MAX_LENGTH = 11; // 62^11 > Long.MAX_VALUE
+
+    private Base62() {
+    }
+
+    public static String encode(long value) {
+        return encode(value, 0);
+    }
+
+    /**
+     * Encodes {@code value} followed by {@code randomSuffixLength} random Base62 characters.
+     */
+    public static String encode(long value, int randomSuffixLength) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Cannot encode negative value: " + value);
+        }
+        char[] buffer = new char[MAX_LENGTH + randomSuffixLength];
+        int pos = MAX_LENGTH;
+        do {
+            buffer[--pos] = ALPHABET[(int) (value % 62)];
+            value /= 62;
+        } while (value > 0);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = MAX_LENGTH; i < buffer.length; i++) {
+            buffer[i] = ALPHABET[random.nextInt(62)];
+        }
+        return new String(buffer, pos, buffer.length - pos);
+    }
+}
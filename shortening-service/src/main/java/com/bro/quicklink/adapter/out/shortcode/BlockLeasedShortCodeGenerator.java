@@ -0,0 +1,72 @@
+package com.bro.quicklink.adapter.out.shortcode;
+
+import com.bro.quicklink.core.ports.out.ShortCodeGenerator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out Base62-encoded ids from blocks reserved through an {@link IdBlockLeaser}.
+ * Codes within a block need no coordination at all; only exhausting a block goes back
+ * to the leaser. An optional random suffix makes codes non-sequential and hard to guess
+ * while the counter part still guarantees uniqueness.
+ */
+public class BlockLeasedShortCodeGenerator implements ShortCodeGenerator {
+
+    private final IdBlockLeaser leaser;
+    private final int blockSize;
+    private final int randomSuffixLength;
+    private final Object leaseLock = new Object();
+    private volatile Block block;
+
+    public BlockLeasedShortCodeGenerator(IdBlockLeaser leaser, int blockSize, int randomSuffixLength) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        this.leaser = leaser;
+        this.blockSize = blockSize;
+        this.randomSuffixLength = randomSuffixLength;
+    }
+
+    @Override
+    public String nextShortCode() {
+        return Base62.encode(nextId(), randomSuffixLength);
+    }
+
+    /**
+     * Drops the current block so the next code comes from a freshly leased one. Needed after
+     * restoring from a snapshot, where every restored instance would otherwise share the block.
+     */
+    public void discardBlock() {
+        synchronized (leaseLock) {
+            block = null;
+        }
+    }
+
+    long nextId() {
+        while (true) {
+            Block current = block;
+            if (current != null) {
+                long id = current.next.getAndIncrement();
+                if (id < current.end) {
+                    return id;
+                }
+            }
+            synchronized (leaseLock) {
+                if (block == current) {
+                    long start = leaser.leaseBlock(blockSize);
+                    block = new Block(start, start + blockSize);
+                }
+            }
+        }
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.bro.quicklink.adapter.out.shortcode;
+
+import lombok.RequiredArgsConstructor;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.Map;
+
+/**
+ * Leases id blocks from an atomic counter item in DynamoDB. One UpdateItem
+ * reserves a whole block, so instances only coordinate once per block.
+ */
+@RequiredArgsConstructor
+public class DynamoDbIdBlockLeaser implements IdBlockLeaser {
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+    private final String counterName;
+
+    @Override
+    public long leaseBlock(int blockSize) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of("counterName", AttributeValue.builder().s(counterName).build()))
+                .updateExpression("ADD nextValue :block")
+                .expressionAttributeValues(Map.of(":block", AttributeValue.builder().n(Integer.toString(blockSize)).build()))
+                .returnValues(ReturnValue.UPDATED_NEW)
+                .build();
+
+        long end = Long.parseLong(dynamoDbClient.updateItem(request).attributes().get("nextValue").n());
+        return end - blockSize;
+    }
+}
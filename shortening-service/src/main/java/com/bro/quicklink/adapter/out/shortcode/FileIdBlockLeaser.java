@@ -0,0 +1,42 @@
+package com.bro.quicklink.adapter.out.shortcode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Leases id blocks from a counter kept in a local file, for deployments that run on the
+ * embedded store. The file is locked for each lease, so several processes on one host
+ * can share it, and synced before the block is handed out, so a crash never reissues ids.
+ */
+public class FileIdBlockLeaser implements IdBlockLeaser {
+
+    private final Path counterFile;
+
+    public FileIdBlockLeaser(Path counterFile) {
+        this.counterFile = counterFile;
+    }
+
+    @Override
+    public synchronized long leaseBlock(int blockSize) {
+        try {
+            Files.createDirectories(counterFile.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(counterFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                ByteBuffer value = ByteBuffer.allocate(Long.BYTES);
+                long start = channel.read(value, 0) == Long.BYTES ? value.getLong(0) : 0;
+                channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, start + blockSize), 0);
+                channel.force(false);
+                return start;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.bro.quicklink.adapter.out.shortcode;
+
+/**
+ * Reserves a contiguous block of ids that no other instance will hand out.
+ */
+@FunctionalInterface
+public interface IdBlockLeaser {
+
+    /**
+     * @param blockSize The number of ids to reserve.
+     * @return The first id of the reserved block; the block is [start, start + blockSize).
+     */
+    long leaseBlock(int blockSize);
+}
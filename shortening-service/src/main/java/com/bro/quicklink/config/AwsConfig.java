@@ -1,8 +1,9 @@
 package com.bro.quicklink.config;
 
+import com.bro.quicklink.aws.AwsClients;
+import com.bro.quicklink.metrics.SdkMetricPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
 
@@ -10,19 +11,14 @@ import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
 public class AwsConfig {
 
     @Bean
-    public DynamoDbClient dynamoDbClient() {
-        // This creates a standard DynamoDB client.
-        // The SDK will automatically use the credentials and region from your
-        // environment (e.g., from `aws configure` or IAM role on Lambda).
-        return DynamoDbClient.builder()
-                .region(Region.US_EAST_1) // Or your preferred region
-                .build();
+    public DynamoDbClient dynamoDbClient(SdkMetricPublisher sdkMetricPublisher) {
+        // Region, HTTP client, timeouts and retries come from the shared AwsClients
+        // settings, so every service talks to AWS (or a local stand-in) the same way.
+        return AwsClients.sync(DynamoDbClient.builder(), sdkMetricPublisher);
     }
 
     @Bean
-    public EventBridgeClient eventBridgeClient() {
-        return EventBridgeClient.builder()
-                .region(Region.US_EAST_1) // Must be the same region
-                .build();
+    public EventBridgeClient eventBridgeClient(SdkMetricPublisher sdkMetricPublisher) {
+        return AwsClients.sync(EventBridgeClient.builder(), sdkMetricPublisher);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package com.bro.quicklink.config;
+
+import com.bro.quicklink.adapter.out.persistence.embedded.EmbeddedUrlMappingRepository;
+import com.bro.quicklink.adapter.out.shortcode.FileIdBlockLeaser;
+import com.bro.quicklink.adapter.out.shortcode.IdBlockLeaser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Swaps DynamoDB for the embedded store when {@code quicklink.storage.type=embedded}:
+ * mappings and the short-code counter then live in a local directory and no network
+ * is needed to create or resolve links.
+ */
+@Configuration
+@ConditionalOnProperty(name = "quicklink.storage.type", havingValue = "embedded")
+public class EmbeddedStorageConfig {
+
+    @Bean(destroyMethod = "close")
+    public EmbeddedUrlMappingRepository embeddedUrlMappingRepository(
+            @Value("${quicklink.storage.embedded.directory:./data}") Path directory,
+            @Value("${quicklink.storage.embedded.expected-entries:1000000}") int expectedEntries,
+            @Value("${quicklink.storage.embedded.sync-on-write:false}") boolean syncOnWrite) throws IOException {
+        return new EmbeddedUrlMappingRepository(directory, expectedEntries, syncOnWrite);
+    }
+
+    @Bean
+    public IdBlockLeaser fileIdBlockLeaser(@Value("${quicklink.storage.embedded.directory:./data}") Path directory) {
+        return new FileIdBlockLeaser(directory.resolve("shortcode.counter"));
+    }
+}
@@ -0,0 +1,33 @@
+package com.bro.quicklink.config;
+
+import com.bro.quicklink.metrics.Metrics;
+import com.bro.quicklink.metrics.SdkMetricPublisher;
+import jakarta.servlet.Filter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public Metrics metrics() {
+        return Metrics.fromEnvironment("shortening-service");
+    }
+
+    @Bean
+    public SdkMetricPublisher sdkMetricPublisher(Metrics metrics) {
+        return new SdkMetricPublisher(metrics);
+    }
+
+    @Bean
+    public Filter metricsFlushFilter(Metrics metrics) {
+        // One EMF line per request, like the Lambda handlers write one per invocation.
+        return (request, response, chain) -> {
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                metrics.flush();
+            }
+        };
+    }
+}
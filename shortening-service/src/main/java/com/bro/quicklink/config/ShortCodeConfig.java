@@ -0,0 +1,33 @@
+package com.bro.quicklink.config;
+
+import com.bro.quicklink.adapter.out.shortcode.BlockLeasedShortCodeGenerator;
+import com.bro.quicklink.adapter.out.shortcode.DynamoDbIdBlockLeaser;
+import com.bro.quicklink.adapter.out.shortcode.IdBlockLeaser;
+import com.bro.quicklink.core.ports.out.ShortCodeGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+@Configuration
+public class ShortCodeConfig {
+
+    @Bean
+    public ShortCodeGenerator shortCodeGenerator(
+            IdBlockLeaser idBlockLeaser,
+            @Value("${quicklink.shortcode.block-size:1000}") int blockSize,
+            @Value("${quicklink.shortcode.random-suffix-length:0}") int randomSuffixLength) {
+        // Each instance reserves a block of ids with one lease and then
+        // hands out codes from it without any further coordination.
+        return new BlockLeasedShortCodeGenerator(idBlockLeaser, blockSize, randomSuffixLength);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "quicklink.storage.type", havingValue = "dynamodb", matchIfMissing = true)
+    public IdBlockLeaser dynamoDbIdBlockLeaser(
+            DynamoDbClient dynamoDbClient,
+            @Value("${quicklink.shortcode.counter-table:quicklink-counters}") String counterTable) {
+        return new DynamoDbIdBlockLeaser(dynamoDbClient, counterTable, "shortCode");
+    }
+}
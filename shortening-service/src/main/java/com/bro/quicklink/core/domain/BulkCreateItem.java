@@ -0,0 +1,20 @@
+package com.bro.quicklink.core.domain;
+
+import java.time.Instant;
+
+/**
+ * One link in a bulk create request, as the client sent it. The optional fields are
+ * validated per item, so one bad item fails on its own instead of failing the request.
+ * A null redirectStatus, maxAgeSeconds or expiresAt takes the single-create default.
+ */
+public record BulkCreateItem(
+        String originalUrl,
+        Integer redirectStatus,
+        Long maxAgeSeconds,
+        Instant expiresAt
+) {
+
+    public BulkCreateItem(String originalUrl) {
+        this(originalUrl, null, null, null);
+    }
+}
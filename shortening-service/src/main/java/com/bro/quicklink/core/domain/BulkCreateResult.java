@@ -0,0 +1,22 @@
+package com.bro.quicklink.core.domain;
+
+/**
+ * The outcome of one URL in a bulk create request.
+ * Exactly one of {@code mapping} and {@code error} is set.
+ */
+public record BulkCreateResult(
+        int index,
+        String originalUrl,
+        UrlMapping mapping,
+        boolean eventPublished,
+        String error
+) {
+
+    public static BulkCreateResult created(int index, UrlMapping mapping, boolean eventPublished) {
+        return new BulkCreateResult(index, mapping.originalUrl(), mapping, eventPublished, null);
+    }
+
+    public static BulkCreateResult failed(int index, String originalUrl, String error) {
+        return new BulkCreateResult(index, originalUrl, null, false, error);
+    }
+}
@@ -0,0 +1,12 @@
+package com.bro.quicklink.core.domain;
+
+/**
+ * Thrown by persistence adapters when a short code is already taken,
+ * so an existing mapping is never silently overwritten.
+ */
+public class DuplicateShortCodeException extends RuntimeException {
+
+    public DuplicateShortCodeException(String shortCode) {
+        super("Short code already exists: " + shortCode);
+    }
+}
@@ -0,0 +1,11 @@
+package com.bro.quicklink.core.domain;
+
+/**
+ * Thrown when an Idempotency-Key is reused for a different URL.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException(String idempotencyKey) {
+        super("Idempotency-Key was already used for a different URL: " + idempotencyKey);
+    }
+}
@@ -0,0 +1,36 @@
+package com.bro.quicklink.core.domain;
+
+/**
+ * How a link redirects: a permanent (301) or temporary (302) redirect, and for how long
+ * browsers and caches may reuse it without asking again.
+ * The default is an uncacheable 302, which sends every click to the redirect service.
+ */
+public record RedirectPolicy(
+        int statusCode,
+        long maxAgeSeconds
+) {
+
+    public static final RedirectPolicy DEFAULT = new RedirectPolicy(302, 0);
+
+    // One year, the longest max-age caches are expected to honor.
+    public static final long MAX_AGE_LIMIT_SECONDS = 365L * 24 * 60 * 60;
+
+    public RedirectPolicy {
+        if (statusCode != 301 && statusCode != 302) {
+            throw new IllegalArgumentException("redirectStatus must be 301 or 302");
+        }
+        if (maxAgeSeconds < 0 || maxAgeSeconds > MAX_AGE_LIMIT_SECONDS) {
+            throw new IllegalArgumentException("maxAgeSeconds must be between 0 and " + MAX_AGE_LIMIT_SECONDS);
+        }
+    }
+
+    /**
+     * A policy from optional request fields; missing fields take the default's value.
+     */
+    public static RedirectPolicy of(Integer statusCode, Long maxAgeSeconds) {
+        if (statusCode == null && maxAgeSeconds == null) return DEFAULT;
+        return new RedirectPolicy(
+                statusCode == null ? DEFAULT.statusCode() : statusCode,
+                maxAgeSeconds == null ? DEFAULT.maxAgeSeconds() : maxAgeSeconds);
+    }
+}
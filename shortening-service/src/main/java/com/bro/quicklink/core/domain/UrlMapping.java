@@ -5,9 +5,37 @@ import java.time.Instant;
 /**
  * Represents the core domain entity of our service.
  * A simple, immutable record with no framework or infrastructure dependencies.
+ * A null expiresAt means the link never expires.
  */
 public record UrlMapping(
         String shortCode,
         String originalUrl,
-        Instant createdAt
-) {}
\ No newline at end of file
+        Instant createdAt,
+        RedirectPolicy redirectPolicy,
+        Instant expiresAt
+) {
+
+    public UrlMapping {
+        if (redirectPolicy == null) redirectPolicy = RedirectPolicy.DEFAULT;
+    }
+
+    public UrlMapping(String shortCode, String originalUrl, Instant createdAt) {
+        this(shortCode, originalUrl, createdAt, RedirectPolicy.DEFAULT, null);
+    }
+
+    public UrlMapping(String shortCode, String originalUrl, Instant createdAt, RedirectPolicy redirectPolicy) {
+        this(shortCode, originalUrl, createdAt, redirectPolicy, null);
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+
+    /**
+     * A strong validator for the redirect response. A mapping is never rewritten, so the
+     * short code and creation time identify its content.
+     */
+    public String etag() {
+        return "\"" + shortCode + "-" + Long.toString(createdAt.toEpochMilli(), 36) + "\"";
+    }
+}
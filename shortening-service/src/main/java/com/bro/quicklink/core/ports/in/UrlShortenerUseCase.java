@@ -1,7 +1,14 @@
 package com.bro.quicklink.core.ports.in;
 
+import com.bro.quicklink.core.domain.BulkCreateItem;
+import com.bro.quicklink.core.domain.BulkCreateResult;
+import com.bro.quicklink.core.domain.RedirectPolicy;
 import com.bro.quicklink.core.domain.UrlMapping;
 
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
 /**
  * This is an Input Port. It defines the contract for the primary use case
  * of our application, which is to create a shortened URL.
@@ -14,4 +21,34 @@ public interface UrlShortenerUseCase {
      * @return The created UrlMapping domain object.
      */
     UrlMapping createShortUrl(String originalUrl);
+
+    /**
+     * Like {@link #createShortUrl(String)}, but repeated calls with the same idempotency key
+     * return the mapping created by the first call instead of creating a new one.
+     * @param originalUrl The URL to be shortened.
+     * @param idempotencyKey A client-chosen key for this request, or null.
+     * @return The created (or previously created) UrlMapping domain object.
+     */
+    UrlMapping createShortUrl(String originalUrl, String idempotencyKey);
+
+    /**
+     * Like {@link #createShortUrl(String, String)}, with a redirect policy other than the default
+     * and an optional expiry.
+     * @param originalUrl The URL to be shortened.
+     * @param redirectPolicy How the link redirects and how long the redirect may be cached.
+     * @param expiresAt When the link stops redirecting, or null to keep it forever. Must be in the future.
+     * @param idempotencyKey A client-chosen key for this request, or null.
+     * @return The created (or previously created) UrlMapping domain object.
+     */
+    UrlMapping createShortUrl(String originalUrl, RedirectPolicy redirectPolicy, Instant expiresAt,
+                              String idempotencyKey);
+
+    /**
+     * Shortens many URLs at once, each with its own redirect policy and expiry. Items are consumed
+     * and results produced chunk by chunk, so arbitrarily large requests never have to be held in memory.
+     * @param items The links to be created, in request order.
+     * @param results Receives one result per item, carrying its position in the request; items with
+     *                an invalid policy or expiry fail with the same message a single create would give.
+     */
+    void createShortUrls(Iterator<BulkCreateItem> items, Consumer<BulkCreateResult> results);
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.bro.quicklink.core.ports.out;
 
+import java.util.List;
+
 /**
  * This is an Output Port. It defines the contract for any adapter that
  * needs to publish domain events.
@@ -7,4 +9,10 @@ package com.bro.quicklink.core.ports.out;
 public interface EventPublisher {
 
     void publishUrlCreatedEvent(Object event);
+
+    /**
+     * Publishes a batch of events.
+     * @return The events that could not be published.
+     */
+    List<Object> publishAll(List<?> events);
 }
\ No newline at end of file
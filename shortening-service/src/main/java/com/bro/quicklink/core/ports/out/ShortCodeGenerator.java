@@ -0,0 +1,13 @@
+package com.bro.quicklink.core.ports.out;
+
+/**
+ * This is an Output Port. It defines the contract for any adapter that
+ * hands out new, unique short codes.
+ */
+public interface ShortCodeGenerator {
+
+    /**
+     * @return A short code that has not been handed out before.
+     */
+    String nextShortCode();
+}
@@ -1,6 +1,9 @@
 package com.bro.quicklink.core.ports.out;
 
 import com.bro.quicklink.core.domain.UrlMapping;
+
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -11,5 +14,21 @@ public interface UrlMappingRepository {
 
     UrlMapping save(UrlMapping urlMapping);
 
+    /**
+     * Saves a batch of mappings.
+     * @return The mappings that were persisted; any others could not be saved.
+     */
+    List<UrlMapping> saveAll(List<UrlMapping> urlMappings);
+
     Optional<UrlMapping> findByShortCode(String shortCode);
+
+    /**
+     * Atomically saves the mapping and claims {@code dedupKey} for it. If another mapping
+     * already holds the key, nothing is written and that mapping is returned instead, so
+     * concurrent duplicates always resolve to a single row.
+     * @param claimExpiresAt When the key may be claimed again, or null to hold it for as long as the
+     *                       mapping exists. Stores that can't expire claims may hold them longer.
+     * @return The new mapping, or the one that already owned the key.
+     */
+    UrlMapping saveOrGetExisting(UrlMapping urlMapping, String dedupKey, Instant claimExpiresAt);
 }
\ No newline at end of file
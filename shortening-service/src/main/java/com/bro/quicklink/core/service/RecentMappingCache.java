@@ -0,0 +1,45 @@
+package com.bro.quicklink.core.service;
+
+import com.bro.quicklink.core.domain.UrlMapping;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small LRU of recently resolved dedup keys, so repeat submits of the same
+ * URL or Idempotency-Key are answered without a round trip. Entries stop
+ * answering once the key's claim expires, like the claim in the store.
+ */
+final class RecentMappingCache {
+
+    private final Map<String, Entry> entries;
+
+    RecentMappingCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    synchronized UrlMapping get(String dedupKey, Instant now) {
+        Entry entry = entries.get(dedupKey);
+        if (entry == null) return null;
+        if (entry.claimExpiresAt() != null && !now.isBefore(entry.claimExpiresAt())) {
+            entries.remove(dedupKey);
+            return null;
+        }
+        return entry.mapping();
+    }
+
+    /**
+     * @param claimExpiresAt When the key stops resolving to the mapping, or null for never.
+     */
+    synchronized void put(String dedupKey, UrlMapping mapping, Instant claimExpiresAt) {
+        entries.put(dedupKey, new Entry(mapping, claimExpiresAt));
+    }
+
+    private record Entry(UrlMapping mapping, Instant claimExpiresAt) {}
+}
@@ -0,0 +1,59 @@
+package com.bro.quicklink.core.service;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Normalizes URLs so trivially different spellings of the same link
+ * (case of scheme/host, default ports, empty path, fragments) dedup to one hash.
+ * Query parameter order and trailing slashes are kept: servers may tell those apart.
+ */
+final class UrlNormalizer {
+
+    private UrlNormalizer() {
+    }
+
+    static String normalize(String url) {
+        String trimmed = url.trim();
+        try {
+            URI uri = new URI(trimmed);
+            if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+                return trimmed;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            String host = uri.getHost() == null ? null : uri.getHost().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)) {
+                port = -1;
+            }
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+
+            StringBuilder normalized = new StringBuilder(trimmed.length()).append(scheme).append("://");
+            if (uri.getRawUserInfo() != null) normalized.append(uri.getRawUserInfo()).append('@');
+            normalized.append(host != null ? host : uri.getRawAuthority());
+            if (host != null && port != -1) normalized.append(':').append(port);
+            normalized.append(path);
+            if (uri.getRawQuery() != null) normalized.append('?').append(uri.getRawQuery());
+            return normalized.toString();
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+    }
+
+    /**
+     * @return A URL-safe SHA-256 digest of the input.
+     */
+    static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
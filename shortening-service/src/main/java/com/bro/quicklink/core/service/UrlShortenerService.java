@@ -1,14 +1,29 @@
 package com.bro.quicklink.core.service;
 
+import com.bro.quicklink.core.domain.BulkCreateItem;
+import com.bro.quicklink.core.domain.BulkCreateResult;
+import com.bro.quicklink.core.domain.DuplicateShortCodeException;
+import com.bro.quicklink.core.domain.IdempotencyConflictException;
+import com.bro.quicklink.core.domain.RedirectPolicy;
 import com.bro.quicklink.core.domain.UrlMapping;
 import com.bro.quicklink.core.ports.in.UrlShortenerUseCase;
 import com.bro.quicklink.core.ports.out.EventPublisher;
+import com.bro.quicklink.core.ports.out.ShortCodeGenerator;
 import com.bro.quicklink.core.ports.out.UrlMappingRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.util.UUID;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * This is the primary implementation of our application's core logic.
@@ -24,40 +39,217 @@ public class UrlShortenerService implements UrlShortenerUseCase {
     // We depend on the interfaces, not the concrete implementations.
     private final UrlMappingRepository urlMappingRepository;
     private final EventPublisher eventPublisher;
+    private final ShortCodeGenerator shortCodeGenerator;
+
+    // Generated codes are unique by construction; retries only guard against
+    // clashes with codes written by the old UUID-based generator.
+    private static final int MAX_SAVE_ATTEMPTS = 3;
+
+    // Bulk requests are processed this many URLs at a time
+    // (4 BatchWriteItem calls and 10 PutEvents calls per chunk).
+    private static final int BULK_CHUNK_SIZE = 100;
+
+    // How long an Idempotency-Key keeps answering with the mapping it created.
+    static final Duration IDEMPOTENCY_KEY_TTL = Duration.ofHours(24);
+
+    // When enabled, shortening a URL that was shortened before returns the existing mapping.
+    private boolean dedupEnabled;
+
+    // When enabled, the saved mapping is the outbox: OutboxRelayHandler publishes its event
+    // from the mappings table's stream, so creating a link costs a single write.
+    private boolean outboxEnabled;
+
+    private final RecentMappingCache recentMappings = new RecentMappingCache(10_000);
+
+    @Value("${quicklink.dedup.enabled:false}")
+    public void setDedupEnabled(boolean dedupEnabled) {
+        this.dedupEnabled = dedupEnabled;
+    }
+
+    // Only DynamoDB storage has a stream to relay from; the embedded store always publishes directly.
+    @Value("#{${quicklink.events.outbox:false} and '${quicklink.storage.type:dynamodb}' == 'dynamodb'}")
+    public void setOutboxEnabled(boolean outboxEnabled) {
+        this.outboxEnabled = outboxEnabled;
+    }
 
     @Override
     public UrlMapping createShortUrl(String originalUrl) {
-        // 1. Generate a unique short code.
-        // For now, we'll use a simple method. This can be replaced with a more
-        // sophisticated algorithm (like Base62 encoding) later without
-        // changing the core architecture.
-        String shortCode = generateShortCode();
-
-        // 2. Create the domain object.
-        UrlMapping newMapping = new UrlMapping(
-                shortCode,
-                originalUrl,
-                Instant.now()
-        );
-
-        // 3. Persist the new mapping using the repository output port.
-        UrlMapping savedMapping = urlMappingRepository.save(newMapping);
-
-        // 4. Publish an event using the event publisher output port.
+        return createShortUrl(originalUrl, null);
+    }
+
+    @Override
+    public UrlMapping createShortUrl(String originalUrl, String idempotencyKey) {
+        return createShortUrl(originalUrl, RedirectPolicy.DEFAULT, null, idempotencyKey);
+    }
+
+    @Override
+    public UrlMapping createShortUrl(String originalUrl, RedirectPolicy redirectPolicy, Instant expiresAt,
+                                     String idempotencyKey) {
+        expiresAt = checkExpiresAt(expiresAt, Instant.now());
+        String dedupKey = dedupKey(originalUrl, expiresAt, idempotencyKey);
+        if (dedupKey == null) {
+            return createNewShortUrl(originalUrl, redirectPolicy, expiresAt);
+        }
+
+        Instant claimExpiresAt = claimExpiresAt(expiresAt, idempotencyKey);
+
+        // Repeat submits are answered from memory.
+        UrlMapping recent = recentMappings.get(dedupKey, Instant.now());
+        if (recent != null) {
+            return checkIdempotencyKey(recent, originalUrl, redirectPolicy, expiresAt, idempotencyKey);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            UrlMapping newMapping = new UrlMapping(shortCodeGenerator.nextShortCode(), originalUrl, Instant.now(),
+                    redirectPolicy, expiresAt);
+            UrlMapping storedMapping;
+            try {
+                // Conditional on the dedup key: concurrent duplicates resolve to one row.
+                storedMapping = urlMappingRepository.saveOrGetExisting(newMapping, dedupKey, claimExpiresAt);
+            } catch (DuplicateShortCodeException e) {
+                if (attempt >= MAX_SAVE_ATTEMPTS) throw e;
+                continue;
+            }
+            recentMappings.put(dedupKey, storedMapping, claimExpiresAt);
+
+            if (!storedMapping.shortCode().equals(newMapping.shortCode())) {
+                return checkIdempotencyKey(storedMapping, originalUrl, redirectPolicy, expiresAt, idempotencyKey);
+            }
+            publishCreated(storedMapping);
+            return storedMapping;
+        }
+    }
+
+    private static Instant checkExpiresAt(Instant expiresAt, Instant now) {
+        if (expiresAt == null) return null;
+        if (!expiresAt.isAfter(now)) {
+            throw new IllegalArgumentException("expiresAt must be in the future");
+        }
+        // DynamoDB TTL has second precision; a replayed request must compare equal to what was stored.
+        return expiresAt.truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private UrlMapping createNewShortUrl(String originalUrl, RedirectPolicy redirectPolicy, Instant expiresAt) {
+        // 1-3. Generate a unique short code, create the domain object and persist it.
+        UrlMapping savedMapping = saveWithNewShortCode(originalUrl, redirectPolicy, expiresAt);
+
+        // 4. Publish an event using the event publisher output port (unless the relay does).
         // The event object itself could be more complex, but for now,
         // we'll just send the domain object.
-        eventPublisher.publishUrlCreatedEvent(savedMapping);
+        publishCreated(savedMapping);
 
         // 5. Return the created object.
         return savedMapping;
     }
 
+    private void publishCreated(UrlMapping mapping) {
+        if (!outboxEnabled) {
+            eventPublisher.publishUrlCreatedEvent(mapping);
+        }
+    }
+
+    /**
+     * An Idempotency-Key identifies one request; a URL hash (in dedup mode) identifies one link.
+     * Expiring links only dedup against links with the same expiry, so a shortening never
+     * hands back a link that dies earlier (or later) than asked for.
+     */
+    private String dedupKey(String originalUrl, Instant expiresAt, String idempotencyKey) {
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            return "idem:" + UrlNormalizer.hash(idempotencyKey);
+        }
+        if (dedupEnabled) {
+            String normalized = UrlNormalizer.normalize(originalUrl);
+            return "url:" + UrlNormalizer.hash(expiresAt == null ? normalized : normalized + "|" + expiresAt.getEpochSecond());
+        }
+        return null;
+    }
+
+    /**
+     * Idempotency-Keys only guard against retries, so their claims lapse after a day (or with
+     * the link, if that is sooner). URL claims last as long as the link.
+     */
+    private static Instant claimExpiresAt(Instant expiresAt, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return expiresAt;
+        }
+        Instant keyExpiresAt = Instant.now().plus(IDEMPOTENCY_KEY_TTL).truncatedTo(ChronoUnit.SECONDS);
+        return expiresAt != null && expiresAt.isBefore(keyExpiresAt) ? expiresAt : keyExpiresAt;
+    }
+
+    private static UrlMapping checkIdempotencyKey(UrlMapping existing, String originalUrl, RedirectPolicy redirectPolicy,
+                                                  Instant expiresAt, String idempotencyKey) {
+        if (idempotencyKey != null && !idempotencyKey.isBlank()
+                && (!existing.originalUrl().equals(originalUrl) || !existing.redirectPolicy().equals(redirectPolicy)
+                        || !Objects.equals(existing.expiresAt(), expiresAt))) {
+            throw new IdempotencyConflictException(idempotencyKey);
+        }
+        return existing;
+    }
+
+    @Override
+    public void createShortUrls(Iterator<BulkCreateItem> items, Consumer<BulkCreateResult> results) {
+        List<UrlMapping> chunk = new ArrayList<>(BULK_CHUNK_SIZE);
+        List<Integer> chunkIndexes = new ArrayList<>(BULK_CHUNK_SIZE);
+        int index = 0;
+
+        while (items.hasNext()) {
+            chunk.clear();
+            chunkIndexes.clear();
+            Instant now = Instant.now();
+            while (items.hasNext() && chunk.size() < BULK_CHUNK_SIZE) {
+                BulkCreateItem item = items.next();
+                String originalUrl = item.originalUrl();
+                int position = index++;
+                if (originalUrl == null || originalUrl.isBlank()) {
+                    results.accept(BulkCreateResult.failed(position, originalUrl, "originalUrl is required"));
+                    continue;
+                }
+                RedirectPolicy redirectPolicy;
+                Instant expiresAt;
+                try {
+                    redirectPolicy = RedirectPolicy.of(item.redirectStatus(), item.maxAgeSeconds());
+                    expiresAt = checkExpiresAt(item.expiresAt(), now);
+                } catch (IllegalArgumentException e) {
+                    results.accept(BulkCreateResult.failed(position, originalUrl, e.getMessage()));
+                    continue;
+                }
+                chunk.add(new UrlMapping(shortCodeGenerator.nextShortCode(), originalUrl, now, redirectPolicy, expiresAt));
+                chunkIndexes.add(position);
+            }
+            if (chunk.isEmpty()) continue;
+
+            List<UrlMapping> saved = urlMappingRepository.saveAll(chunk);
+            // In outbox mode every saved mapping's event is delivered by the relay.
+            Set<Object> unpublished = outboxEnabled ? Set.of() : new HashSet<>(eventPublisher.publishAll(saved));
+            Set<UrlMapping> savedSet = new HashSet<>(saved);
+
+            for (int i = 0; i < chunk.size(); i++) {
+                UrlMapping mapping = chunk.get(i);
+                results.accept(savedSet.contains(mapping)
+                        ? BulkCreateResult.created(chunkIndexes.get(i), mapping, !unpublished.contains(mapping))
+                        : BulkCreateResult.failed(chunkIndexes.get(i), mapping.originalUrl(), "Could not be saved"));
+            }
+        }
+    }
+
     /**
-     * Generates a short, pseudo-unique identifier.
-     * @return A 7-character string.
+     * Persists the URL under a freshly generated short code, retrying with a new code
+     * if the repository reports that the code is already taken.
      */
-    private String generateShortCode() {
-        // A simple implementation using the first 7 chars of a UUID.
-        return UUID.randomUUID().toString().substring(0, 7);
+    private UrlMapping saveWithNewShortCode(String originalUrl, RedirectPolicy redirectPolicy, Instant expiresAt) {
+        for (int attempt = 1; ; attempt++) {
+            UrlMapping newMapping = new UrlMapping(
+                    shortCodeGenerator.nextShortCode(),
+                    originalUrl,
+                    Instant.now(),
+                    redirectPolicy,
+                    expiresAt
+            );
+            try {
+                return urlMappingRepository.save(newMapping);
+            } catch (DuplicateShortCodeException e) {
+                if (attempt >= MAX_SAVE_ATTEMPTS) throw e;
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package com.bro.quicklink;
+
+import com.bro.quicklink.metrics.Metrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LightweightLambdaHandlerTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final LightweightLambdaHandler handler = new LightweightLambdaHandler(new EmptyDynamoDb(), new UnusedEventBridge(),
+			Metrics.discarding("shortening-service"));
+
+	@Test
+	void invalidJsonBodyIsABadRequest() throws IOException {
+		JsonNode response = invoke(request("POST", "/links", "{\"originalUrl\": "));
+
+		assertEquals(400, response.path("statusCode").asInt());
+		JsonNode body = objectMapper.readTree(response.path("body").asText());
+		assertTrue(body.path("error").asText().startsWith("Request body is not valid JSON"), body.toString());
+	}
+
+	@Test
+	void invalidBase64EncodedJsonBodyIsABadRequest() throws IOException {
+		Map<String, Object> request = request("POST", "/links",
+				Base64.getEncoder().encodeToString("not json".getBytes(StandardCharsets.UTF_8)));
+		request.put("isBase64Encoded", true);
+
+		assertEquals(400, invoke(request).path("statusCode").asInt());
+	}
+
+	@Test
+	void invalidJsonBatchIsABadRequest() throws IOException {
+		assertEquals(400, invoke(request("POST", "/links/batch", "[\"https://example.com\", ")).path("statusCode").asInt());
+	}
+
+	@Test
+	void batchItemWithAnUnreadableExpiryIsABadRequest() throws IOException {
+		String batch = "[{\"originalUrl\": \"https://example.com\", \"expiresAt\": \"tomorrow\"}]";
+
+		assertEquals(400, invoke(request("POST", "/links/batch", batch)).path("statusCode").asInt());
+	}
+
+	@Test
+	void batchItemWithAnInvalidPolicyFailsOnItsOwn() throws IOException {
+		String batch = "[{\"originalUrl\": \"https://example.com\", \"redirectStatus\": 307}]";
+
+		JsonNode response = invoke(request("POST", "/links/batch", batch));
+
+		assertEquals(200, response.path("statusCode").asInt());
+		JsonNode results = objectMapper.readTree(response.path("body").asText());
+		assertEquals("redirectStatus must be 301 or 302", results.get(0).path("error").asText());
+	}
+
+	@Test
+	void bodyThatIsNotAnObjectIsABadRequest() throws IOException {
+		assertEquals(400, invoke(request("POST", "/links", "[]")).path("statusCode").asInt());
+		assertEquals(400, invoke(request("POST", "/links", "")).path("statusCode").asInt());
+	}
+
+	@Test
+	void unknownLinkIsNotFound() throws IOException {
+		assertEquals(404, invoke(request("GET", "/links/missing", null)).path("statusCode").asInt());
+	}
+
+	@Test
+	void unknownRouteIsNotFound() throws IOException {
+		assertEquals(404, invoke(request("DELETE", "/links", null)).path("statusCode").asInt());
+	}
+
+	private static Map<String, Object> request(String method, String path, String body) {
+		Map<String, Object> request = new HashMap<>();
+		request.put("rawPath", path);
+		request.put("requestContext", Map.of("http", Map.of("method", method)));
+		request.put("headers", Map.of());
+		if (body != null) request.put("body", body);
+		return request;
+	}
+
+	private JsonNode invoke(Map<String, Object> request) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		handler.handleRequest(new ByteArrayInputStream(objectMapper.writeValueAsBytes(request)), output, null);
+		return objectMapper.readTree(output.toByteArray());
+	}
+
+	private static final class EmptyDynamoDb implements DynamoDbClient {
+
+		@Override
+		public GetItemResponse getItem(GetItemRequest request) {
+			return GetItemResponse.builder().build();
+		}
+
+		@Override
+		public String serviceName() {
+			return SERVICE_NAME;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static final class UnusedEventBridge implements EventBridgeClient {
+
+		@Override
+		public String serviceName() {
+			return SERVICE_NAME;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.bro.quicklink.adapter.in.web;
+
+import com.bro.quicklink.core.domain.BulkCreateItem;
+import com.bro.quicklink.core.domain.BulkCreateResult;
+import com.bro.quicklink.core.domain.RedirectPolicy;
+import com.bro.quicklink.core.domain.UrlMapping;
+import com.bro.quicklink.core.ports.in.UrlShortenerUseCase;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+class UrlMappingControllerBatchTest {
+
+	private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+	private final List<String> created = new ArrayList<>();
+	private final List<BulkCreateItem> items = new ArrayList<>();
+	private final MockMvc mockMvc = MockMvcBuilders
+			.standaloneSetup(new UrlMappingController(new RecordingUseCase(), null, objectMapper))
+			.build();
+
+	@Test
+	void returnsOneResultPerItem() throws Exception {
+		JsonNode results = batch("[\"https://a.example\", {\"originalUrl\": \"https://b.example\"}, 5]");
+
+		assertEquals(3, results.size());
+		assertEquals("code0", results.get(0).path("mapping").path("shortCode").asText());
+		assertEquals("https://b.example", results.get(1).path("mapping").path("originalUrl").asText());
+		assertEquals("originalUrl is required", results.get(2).path("error").asText());
+		assertEquals(List.of("https://a.example", "https://b.example"), created);
+	}
+
+	@Test
+	void passesEachItemsPolicyAndExpiryThrough() throws Exception {
+		batch("[{\"originalUrl\": \"https://a.example\", \"redirectStatus\": 301, \"maxAgeSeconds\": 600,"
+				+ " \"expiresAt\": \"2030-01-01T00:00:00Z\"}, \"https://b.example\"]");
+
+		assertEquals(List.of(
+				new BulkCreateItem("https://a.example", 301, 600L, Instant.parse("2030-01-01T00:00:00Z")),
+				new BulkCreateItem("https://b.example")), items);
+	}
+
+	@Test
+	void endsWithAnErrorResultWhenAnItemHasAnUnreadableExpiry() throws Exception {
+		JsonNode results = batch("[\"https://a.example\", {\"originalUrl\": \"https://b.example\", \"expiresAt\": \"tomorrow\"}]");
+
+		assertEquals(2, results.size());
+		assertEquals(1, results.get(1).path("index").asInt());
+		assertTrue(results.get(1).path("error").asText().startsWith("Malformed request body: "));
+		assertEquals(List.of("https://a.example"), created);
+	}
+
+	@Test
+	void endsWithAnErrorResultWhenTheBodyBreaksOff() throws Exception {
+		JsonNode results = batch("[\"https://a.example\", \"https://b.example\", {\"originalUrl\": }, \"https://c.example\"]");
+
+		assertEquals(3, results.size());
+		assertEquals("code1", results.get(1).path("mapping").path("shortCode").asText());
+		JsonNode error = results.get(2);
+		assertEquals(2, error.path("index").asInt());
+		assertTrue(error.path("mapping").isNull());
+		assertTrue(error.path("error").asText().startsWith("Malformed request body: "), error.toString());
+		assertEquals(List.of("https://a.example", "https://b.example"), created);
+	}
+
+	@Test
+	void endsWithAnErrorResultWhenTheArrayIsNotClosed() throws Exception {
+		JsonNode results = batch("[\"https://a.example\"");
+
+		assertEquals(2, results.size());
+		assertEquals(1, results.get(1).path("index").asInt());
+		assertTrue(results.get(1).path("error").asText().startsWith("Malformed request body: "));
+	}
+
+	@Test
+	void rejectsABodyThatIsNotAnArray() throws Exception {
+		assertEquals(400, postBatch("{\"originalUrl\": \"https://a.example\"}").getResponse().getStatus());
+		assertEquals(400, postBatch("not json").getResponse().getStatus());
+		assertTrue(created.isEmpty());
+	}
+
+	private JsonNode batch(String body) throws Exception {
+		MvcResult result = postBatch(body);
+		assertEquals(200, result.getResponse().getStatus());
+		return objectMapper.readTree(result.getResponse().getContentAsString());
+	}
+
+	private MvcResult postBatch(String body) throws Exception {
+		return mockMvc.perform(post("/links/batch").contentType(MediaType.APPLICATION_JSON).content(body)).andReturn();
+	}
+
+	/**
+	 * Creates every non-blank URL it is given, one result at a time, like the real service.
+	 */
+	private final class RecordingUseCase implements UrlShortenerUseCase {
+
+		@Override
+		public void createShortUrls(Iterator<BulkCreateItem> bulkItems, Consumer<BulkCreateResult> results) {
+			int index = 0;
+			while (bulkItems.hasNext()) {
+				BulkCreateItem item = bulkItems.next();
+				items.add(item);
+				String originalUrl = item.originalUrl();
+				int position = index++;
+				if (originalUrl == null || originalUrl.isBlank()) {
+					results.accept(BulkCreateResult.failed(position, originalUrl, "originalUrl is required"));
+					continue;
+				}
+				created.add(originalUrl);
+				results.accept(BulkCreateResult.created(position,
+						new UrlMapping("code" + position, originalUrl, Instant.EPOCH), true));
+			}
+		}
+
+		@Override
+		public UrlMapping createShortUrl(String originalUrl) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public UrlMapping createShortUrl(String originalUrl, String idempotencyKey) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public UrlMapping createShortUrl(String originalUrl, RedirectPolicy redirectPolicy, Instant expiresAt,
+										 String idempotencyKey) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
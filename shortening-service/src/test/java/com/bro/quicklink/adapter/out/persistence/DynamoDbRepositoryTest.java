@@ -0,0 +1,118 @@
+package com.bro.quicklink.adapter.out.persistence;
+
+import com.bro.quicklink.core.domain.UrlMapping;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DynamoDbRepositoryTest {
+
+	private static final Instant CREATED_AT = Instant.parse("2026-03-14T15:09:26Z");
+
+	private final FakeDynamoDb dynamoDb = new FakeDynamoDb();
+	private final DynamoDbRepository repository = new DynamoDbRepository(dynamoDb);
+
+	@Test
+	void returnsTheWinnerOfAConflictingCreate() {
+		UrlMapping winner = mapping("winner");
+		dynamoDb.conflicts = 1;
+		dynamoDb.claimAfterConflict = claim(winner, Instant.now().plusSeconds(3600));
+
+		assertEquals(winner, repository.saveOrGetExisting(mapping("loser"), "url:a", null));
+		assertEquals(1, dynamoDb.transactions);
+	}
+
+	@Test
+	void retriesAConflictNobodyWon() {
+		dynamoDb.conflicts = 2;
+
+		UrlMapping mine = mapping("mine");
+		assertEquals(mine, repository.saveOrGetExisting(mine, "url:a", null));
+		assertEquals(3, dynamoDb.transactions);
+	}
+
+	@Test
+	void expiredClaimReadAfterAConflictCountsAsAbsent() {
+		dynamoDb.conflicts = 1;
+		dynamoDb.claimAfterConflict = claim(mapping("old"), Instant.now().minusSeconds(1));
+
+		UrlMapping mine = mapping("mine");
+		assertEquals(mine, repository.saveOrGetExisting(mine, "url:a", null));
+		assertEquals(2, dynamoDb.transactions);
+	}
+
+	@Test
+	void givesUpOnPersistentConflicts() {
+		dynamoDb.conflicts = Integer.MAX_VALUE;
+
+		assertThrows(TransactionCanceledException.class, () -> repository.saveOrGetExisting(mapping("mine"), "url:a", null));
+	}
+
+	private static UrlMapping mapping(String shortCode) {
+		return new UrlMapping(shortCode, "https://example.com/a", CREATED_AT);
+	}
+
+	private static Map<String, AttributeValue> claim(UrlMapping mapping, Instant expiresAt) {
+		Map<String, AttributeValue> item = new HashMap<>();
+		item.put("dedupKey", AttributeValue.builder().s("url:a").build());
+		item.put("shortCode", AttributeValue.builder().s(mapping.shortCode()).build());
+		item.put("originalUrl", AttributeValue.builder().s(mapping.originalUrl()).build());
+		item.put("createdAt", AttributeValue.builder().s(mapping.createdAt().toString()).build());
+		item.put("ttl", AttributeValue.builder().n(Long.toString(expiresAt.getEpochSecond())).build());
+		return item;
+	}
+
+	/**
+	 * Cancels the first {@link #conflicts} transactions with TransactionConflict on the dedup
+	 * item, after which consistent reads see {@link #claimAfterConflict}.
+	 */
+	private static final class FakeDynamoDb implements DynamoDbClient {
+
+		int conflicts;
+		int transactions;
+		Map<String, AttributeValue> claimAfterConflict;
+
+		@Override
+		public TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest request) {
+			transactions++;
+			if (conflicts > 0) {
+				conflicts--;
+				throw TransactionCanceledException.builder()
+						.message("Transaction cancelled")
+						.cancellationReasons(
+								CancellationReason.builder().code("None").build(),
+								CancellationReason.builder().code("TransactionConflict").build())
+						.build();
+			}
+			return TransactWriteItemsResponse.builder().build();
+		}
+
+		@Override
+		public GetItemResponse getItem(GetItemRequest request) {
+			assertEquals(Boolean.TRUE, request.consistentRead());
+			return GetItemResponse.builder().item(claimAfterConflict).build();
+		}
+
+		@Override
+		public String serviceName() {
+			return SERVICE_NAME;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.bro.quicklink.adapter.out.persistence.embedded;
+
+import com.bro.quicklink.core.domain.DuplicateShortCodeException;
+import com.bro.quicklink.core.domain.UrlMapping;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedUrlMappingRepositoryTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void recoversMappingsAndClaimsAfterARestart() throws IOException {
+		UrlMapping claimed = mapping("a");
+		try (EmbeddedUrlMappingRepository repository = open()) {
+			repository.saveOrGetExisting(claimed, "url:a", null);
+			repository.saveAll(List.of(mapping("b"), mapping("c")));
+		}
+
+		try (EmbeddedUrlMappingRepository repository = open()) {
+			assertEquals(Optional.of(mapping("b")), repository.findByShortCode("b"));
+			assertEquals(claimed, repository.saveOrGetExisting(mapping("other"), "url:a", null));
+			assertTrue(repository.findByShortCode("other").isEmpty());
+			assertThrows(DuplicateShortCodeException.class, () -> repository.save(mapping("c")));
+		}
+	}
+
+	@Test
+	void recoversFromATornLastWrite() throws IOException {
+		try (EmbeddedUrlMappingRepository repository = open()) {
+			repository.save(mapping("a"));
+			repository.save(mapping("b"));
+		}
+		Path log = logFile();
+		try (RandomAccessFile raf = new RandomAccessFile(log.toFile(), "rw")) {
+			raf.setLength(raf.length() - 1);
+		}
+
+		try (EmbeddedUrlMappingRepository repository = open()) {
+			assertTrue(repository.findByShortCode("a").isPresent());
+			assertTrue(repository.findByShortCode("b").isEmpty());
+			repository.save(mapping("b"));
+		}
+		try (EmbeddedUrlMappingRepository repository = open()) {
+			assertEquals(Optional.of(mapping("b")), repository.findByShortCode("b"));
+		}
+	}
+
+	@Test
+	void expiredClaimsCountAsAbsent() throws IOException {
+		Instant lapsed = Instant.now().minusSeconds(1);
+		Instant live = Instant.now().plusSeconds(3600);
+		try (EmbeddedUrlMappingRepository repository = open()) {
+			repository.saveOrGetExisting(mapping("old"), "idem:lapsed", lapsed);
+			repository.saveOrGetExisting(mapping("kept"), "idem:live", live);
+		}
+
+		try (EmbeddedUrlMappingRepository repository = open()) {
+			assertEquals(mapping("new"), repository.saveOrGetExisting(mapping("new"), "idem:lapsed", live));
+			assertEquals(mapping("kept"), repository.saveOrGetExisting(mapping("other"), "idem:live", live));
+			// The link behind a lapsed claim stays, only the claim is gone.
+			assertEquals(Optional.of(mapping("old")), repository.findByShortCode("old"));
+		}
+	}
+
+	@Test
+	void compactionDropsRecordsKeptOnlyByAnExpiredClaim() throws IOException {
+		// Claims are kept to the second; two whole seconds leave room for the first compaction.
+		Instant claimExpiresAt = Instant.ofEpochSecond(Instant.now().getEpochSecond() + 2);
+		try (EmbeddedUrlMappingRepository repository = open()) {
+			repository.saveOrGetExisting(mapping("a"), "idem:a", claimExpiresAt);
+			// Rewriting the code leaves the claimed record live only through its claim.
+			repository.saveAll(List.of(new UrlMapping("a", "https://example.com/rewritten", Instant.ofEpochSecond(1_700_000_000))));
+			long before = Files.size(logFile());
+			repository.compact();
+			assertEquals(before, Files.size(logFile()));
+
+			sleepUntil(claimExpiresAt.plusMillis(50));
+			repository.compact();
+
+			assertTrue(Files.size(logFile()) < before);
+			assertEquals(mapping("b"), repository.saveOrGetExisting(mapping("b"), "idem:a", null));
+		}
+	}
+
+	@Test
+	void compactionDropsExpiredLinksAndKeepsTheRest() throws IOException {
+		UrlMapping expired = new UrlMapping("gone", "https://example.com/gone", Instant.ofEpochSecond(1_700_000_000),
+				null, Instant.now().minusSeconds(60));
+		try (EmbeddedUrlMappingRepository repository = open()) {
+			repository.save(expired);
+			for (int i = 0; i < 50; i++) repository.save(mapping("code" + i));
+			long before = Files.size(logFile());
+
+			repository.compact();
+
+			assertTrue(Files.size(logFile()) < before);
+			assertTrue(repository.findByShortCode("gone").isEmpty());
+			assertEquals(Optional.of(mapping("code49")), repository.findByShortCode("code49"));
+			repository.save(mapping("after"));
+		}
+		try (EmbeddedUrlMappingRepository repository = open()) {
+			assertTrue(repository.findByShortCode("code0").isPresent());
+			assertTrue(repository.findByShortCode("after").isPresent());
+		}
+	}
+
+	private static void sleepUntil(Instant instant) {
+		try {
+			Thread.sleep(Math.max(0, instant.toEpochMilli() - System.currentTimeMillis()));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private EmbeddedUrlMappingRepository open() throws IOException {
+		return new EmbeddedUrlMappingRepository(dir, 1024, false);
+	}
+
+	private Path logFile() {
+		return dir.resolve("mappings.log");
+	}
+
+	private static UrlMapping mapping(String shortCode) {
+		return new UrlMapping(shortCode, "https://example.com/" + shortCode, Instant.ofEpochSecond(1_700_000_000));
+	}
+}
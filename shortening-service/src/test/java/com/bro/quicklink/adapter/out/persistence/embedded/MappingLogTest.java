@@ -0,0 +1,222 @@
+package com.bro.quicklink.adapter.out.persistence.embedded;
+
+import com.bro.quicklink.core.domain.RedirectPolicy;
+import com.bro.quicklink.core.domain.UrlMapping;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappingLogTest {
+
+	@TempDir
+	Path dir;
+
+	private Path file() {
+		return dir.resolve("mappings.log");
+	}
+
+	@Test
+	void replaysEveryRecordAfterReopening() throws IOException {
+		List<UrlMapping> mappings = List.of(
+				mapping("a"),
+				new UrlMapping("b", "https://example.com/b", Instant.ofEpochSecond(1_700_000_000, 123), new RedirectPolicy(301, 3600)),
+				new UrlMapping("c", "https://example.com/c", Instant.ofEpochSecond(1_700_000_001), RedirectPolicy.DEFAULT,
+						Instant.ofEpochSecond(1_800_000_000)));
+		try (MappingLog log = open()) {
+			log.replay(entry -> {});
+			log.append(mappings.get(0), "idem:key");
+			log.appendAll(mappings.subList(1, 3), entry -> {});
+		}
+
+		List<MappingLog.Entry> replayed = replay();
+
+		assertEquals(mappings, replayed.stream().map(MappingLog.Entry::mapping).toList());
+		assertEquals("idem:key", replayed.get(0).dedupKey());
+		assertNull(replayed.get(1).dedupKey());
+	}
+
+	@Test
+	void keepsClaimExpiriesWithAndWithoutALinkExpiry() throws IOException {
+		Instant claimExpiresAt = Instant.ofEpochSecond(1_700_086_400);
+		UrlMapping expiring = new UrlMapping("b", "https://example.com/b", Instant.ofEpochSecond(1_700_000_000),
+				new RedirectPolicy(301, 60), Instant.ofEpochSecond(1_800_000_000));
+		try (MappingLog log = open()) {
+			log.replay(entry -> {});
+			log.append(mapping("a"), "url:a", claimExpiresAt);
+			log.append(expiring, "url:b", claimExpiresAt);
+			log.append(mapping("c"), null, claimExpiresAt);
+		}
+
+		List<MappingLog.Entry> replayed = replay();
+
+		assertEquals(List.of(mapping("a"), expiring, mapping("c")), replayed.stream().map(MappingLog.Entry::mapping).toList());
+		assertEquals(claimExpiresAt, replayed.get(0).claimExpiresAt());
+		assertEquals(claimExpiresAt, replayed.get(1).claimExpiresAt());
+		// A claim expiry without a dedup key means nothing and isn't stored.
+		assertNull(replayed.get(2).claimExpiresAt());
+	}
+
+	@Test
+	void cutsATornFinalRecordAndAppendsAfterTheLastIntactOne() throws IOException {
+		long intactEnd;
+		try (MappingLog log = open()) {
+			log.replay(entry -> {});
+			log.append(mapping("a"), null);
+			log.append(mapping("b"), null);
+			intactEnd = log.size();
+			log.append(mapping("c"), null);
+		}
+		truncate(Files.size(file()) - 3);
+
+		try (MappingLog log = open()) {
+			List<MappingLog.Entry> replayed = new ArrayList<>();
+			log.replay(replayed::add);
+			assertEquals(List.of("a", "b"), shortCodes(replayed));
+			assertEquals(intactEnd, log.size());
+			assertEquals(intactEnd, Files.size(file()));
+			log.append(mapping("d"), null);
+		}
+
+		assertEquals(List.of("a", "b", "d"), shortCodes(replay()));
+	}
+
+	@Test
+	void cutsAtATornFrameHeader() throws IOException {
+		try (MappingLog log = open()) {
+			log.replay(entry -> {});
+			log.append(mapping("a"), null);
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file().toFile(), "rw")) {
+			raf.seek(raf.length());
+			raf.write(new byte[] {0, 0, 0});
+		}
+
+		assertEquals(List.of("a"), shortCodes(replay()));
+	}
+
+	@Test
+	void cutsAtACorruptRecord() throws IOException {
+		long secondOffset;
+		try (MappingLog log = open()) {
+			log.replay(entry -> {});
+			log.append(mapping("a"), null);
+			secondOffset = log.append(mapping("b"), null).offset();
+			log.append(mapping("c"), null);
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file().toFile(), "rw")) {
+			raf.seek(secondOffset + 12);
+			raf.write(raf.read() ^ 0xFF);
+		}
+
+		assertEquals(List.of("a"), shortCodes(replay()));
+		assertEquals(secondOffset, Files.size(file()));
+	}
+
+	@Test
+	void rejectsAFileThatIsNotAMappingLog() throws IOException {
+		Files.write(file(), new byte[] {1, 2, 3, 4, 5});
+
+		assertThrows(IOException.class, this::open);
+	}
+
+	@Test
+	void compactionKeepsOnlyLiveRecords() throws IOException {
+		long liveBytes = 4;
+		try (MappingLog log = open()) {
+			log.replay(entry -> {});
+			for (int i = 0; i < 100; i++) {
+				MappingLog.Entry entry = log.append(mapping("code" + i), i % 10 == 0 ? "url:" + i : null);
+				if (i % 10 == 0) liveBytes += entry.size();
+			}
+
+			log.compact(entry -> entry.dedupKey() != null);
+
+			assertEquals(liveBytes, log.size());
+			assertEquals(liveBytes, Files.size(file()));
+			assertFalse(Files.exists(compactionFile()));
+			assertEquals("code0", log.read(4).mapping().shortCode());
+			log.append(mapping("after"), null);
+		}
+
+		List<MappingLog.Entry> replayed = replay();
+		assertEquals(List.of("code0", "code10", "code20", "code30", "code40", "code50", "code60", "code70", "code80",
+				"code90", "after"), shortCodes(replayed));
+		assertEquals("url:50", replayed.get(5).dedupKey());
+	}
+
+	@Test
+	void failedCompactionLeavesTheLogAsItWas() throws IOException {
+		try (MappingLog log = open()) {
+			log.replay(entry -> {});
+			MappingLog.Entry first = log.append(mapping("a"), null);
+			log.append(mapping("b"), null);
+			long size = log.size();
+
+			assertThrows(IllegalStateException.class, () -> log.compact(entry -> {
+				if (entry.mapping().shortCode().equals("b")) throw new IllegalStateException("boom");
+				return true;
+			}));
+
+			assertFalse(Files.exists(compactionFile()));
+			assertEquals(size, log.size());
+			assertEquals(first.mapping(), log.read(first.offset()).mapping());
+			log.append(mapping("c"), null);
+		}
+
+		assertEquals(List.of("a", "b", "c"), shortCodes(replay()));
+	}
+
+	@Test
+	void deletesALeftoverCompactionFileOnOpen() throws IOException {
+		try (MappingLog log = open()) {
+			log.replay(entry -> {});
+			log.append(mapping("a"), null);
+		}
+		Files.write(compactionFile(), new byte[] {1, 2, 3});
+
+		assertEquals(List.of("a"), shortCodes(replay()));
+		assertFalse(Files.exists(compactionFile()));
+	}
+
+	private Path compactionFile() {
+		return dir.resolve("mappings.log.compact");
+	}
+
+	private MappingLog open() throws IOException {
+		return MappingLog.open(file(), false);
+	}
+
+	private List<MappingLog.Entry> replay() throws IOException {
+		List<MappingLog.Entry> entries = new ArrayList<>();
+		try (MappingLog log = open()) {
+			log.replay(entries::add);
+		}
+		return entries;
+	}
+
+	private void truncate(long length) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file().toFile(), "rw")) {
+			raf.setLength(length);
+		}
+	}
+
+	private static List<String> shortCodes(List<MappingLog.Entry> entries) {
+		return entries.stream().map(entry -> entry.mapping().shortCode()).toList();
+	}
+
+	private static UrlMapping mapping(String shortCode) {
+		return new UrlMapping(shortCode, "https://example.com/" + shortCode, Instant.ofEpochSecond(1_700_000_000));
+	}
+}
@@ -0,0 +1,63 @@
+package com.bro.quicklink.adapter.out.shortcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Base62Test {
+
+	private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+	@Test
+	void encodesKnownValues() {
+		assertEquals("0", Base62.encode(0));
+		assertEquals("9", Base62.encode(9));
+		assertEquals("A", Base62.encode(10));
+		assertEquals("z", Base62.encode(61));
+		assertEquals("10", Base62.encode(62));
+		assertEquals("AzL8n0Y58m7", Base62.encode(Long.MAX_VALUE));
+	}
+
+	@Test
+	void roundTripsAcrossTheRange() {
+		SplittableRandom random = new SplittableRandom(42);
+		long[] edges = {0, 1, 61, 62, 3843, 3844, 238327, 238328, Long.MAX_VALUE - 1, Long.MAX_VALUE};
+		for (long value : edges) {
+			assertEquals(value, decode(Base62.encode(value)));
+		}
+		for (int i = 0; i < 100_000; i++) {
+			long value = random.nextLong(Long.MAX_VALUE);
+			assertEquals(value, decode(Base62.encode(value)));
+		}
+	}
+
+	@Test
+	void keepsTheCounterPartInFrontOfTheRandomSuffix() {
+		for (long value : new long[] {0, 12345, Long.MAX_VALUE}) {
+			String plain = Base62.encode(value);
+			String suffixed = Base62.encode(value, 3);
+
+			assertEquals(plain.length() + 3, suffixed.length());
+			assertTrue(suffixed.startsWith(plain), suffixed);
+			assertEquals(value, decode(suffixed.substring(0, plain.length())));
+			suffixed.chars().forEach(c -> assertTrue(ALPHABET.indexOf(c) >= 0, suffixed));
+		}
+	}
+
+	@Test
+	void rejectsNegativeValues() {
+		assertThrows(IllegalArgumentException.class, () -> Base62.encode(-1));
+	}
+
+	private static long decode(String encoded) {
+		long value = 0;
+		for (int i = 0; i < encoded.length(); i++) {
+			value = Math.addExact(Math.multiplyExact(value, 62), ALPHABET.indexOf(encoded.charAt(i)));
+		}
+		return value;
+	}
+}
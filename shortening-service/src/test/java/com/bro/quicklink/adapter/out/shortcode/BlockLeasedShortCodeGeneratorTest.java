@@ -0,0 +1,112 @@
+package com.bro.quicklink.adapter.out.shortcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockLeasedShortCodeGeneratorTest {
+
+	private final AtomicLong counter = new AtomicLong();
+	private final AtomicInteger leases = new AtomicInteger();
+	private final IdBlockLeaser leaser = blockSize -> {
+		leases.incrementAndGet();
+		return counter.getAndAdd(blockSize);
+	};
+
+	@Test
+	void rollsOverToANewBlockWhenTheCurrentOneIsUsedUp() {
+		List<Long> starts = new ArrayList<>(List.of(0L, 100L));
+		BlockLeasedShortCodeGenerator generator = new BlockLeasedShortCodeGenerator(blockSize -> {
+			leases.incrementAndGet();
+			return starts.remove(0);
+		}, 3, 0);
+
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 6; i++) ids.add(generator.nextId());
+
+		assertEquals(List.of(0L, 1L, 2L, 100L, 101L, 102L), ids);
+		assertEquals(2, leases.get());
+	}
+
+	@Test
+	void leasesLazily() {
+		new BlockLeasedShortCodeGenerator(leaser, 10, 0);
+
+		assertEquals(0, leases.get());
+	}
+
+	@Test
+	void discardedBlockIsReplacedOnTheNextCode() {
+		BlockLeasedShortCodeGenerator generator = new BlockLeasedShortCodeGenerator(leaser, 10, 0);
+		assertEquals(0, generator.nextId());
+
+		generator.discardBlock();
+
+		assertEquals(10, generator.nextId());
+		assertEquals(2, leases.get());
+	}
+
+	@Test
+	void encodesIdsWithTheRandomSuffix() {
+		counter.set(61);
+		BlockLeasedShortCodeGenerator generator = new BlockLeasedShortCodeGenerator(leaser, 10, 2);
+
+		String first = generator.nextShortCode();
+		String second = generator.nextShortCode();
+
+		assertEquals(3, first.length());
+		assertTrue(first.startsWith("z"), first);
+		assertTrue(second.startsWith("10"), second);
+	}
+
+	@Test
+	void concurrentCallersGetUniqueIdsAndLeaseEachBlockOnce() throws Exception {
+		int threads = 8;
+		int perThread = 10_000;
+		int blockSize = 64;
+		BlockLeasedShortCodeGenerator generator = new BlockLeasedShortCodeGenerator(leaser, blockSize, 0);
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < perThread; i++) {
+						ids.add(generator.nextId());
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) future.get();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		int total = threads * perThread;
+		assertEquals(total, ids.size());
+		assertEquals((total + blockSize - 1) / blockSize, leases.get());
+		assertTrue(ids.stream().allMatch(id -> id >= 0 && id < total));
+	}
+
+	@Test
+	void rejectsNonPositiveBlockSize() {
+		assertThrows(IllegalArgumentException.class, () -> new BlockLeasedShortCodeGenerator(leaser, 0, 0));
+	}
+}
@@ -0,0 +1,31 @@
+package com.bro.quicklink.adapter.out.shortcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileIdBlockLeaserTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void leasesConsecutiveBlocks() {
+		FileIdBlockLeaser leaser = new FileIdBlockLeaser(dir.resolve("counter"));
+
+		assertEquals(0, leaser.leaseBlock(100));
+		assertEquals(100, leaser.leaseBlock(100));
+		assertEquals(200, leaser.leaseBlock(5));
+	}
+
+	@Test
+	void continuesAfterARestart() {
+		Path counterFile = dir.resolve("nested/counter");
+		new FileIdBlockLeaser(counterFile).leaseBlock(1000);
+
+		assertEquals(1000, new FileIdBlockLeaser(counterFile).leaseBlock(1000));
+	}
+}
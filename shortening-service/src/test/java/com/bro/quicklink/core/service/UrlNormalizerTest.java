@@ -0,0 +1,59 @@
+package com.bro.quicklink.core.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class UrlNormalizerTest {
+
+	@Test
+	void lowercasesSchemeAndHostOnly() {
+		assertEquals("https://example.com/Path/To?Q=V", UrlNormalizer.normalize("HTTPS://Example.COM/Path/To?Q=V"));
+	}
+
+	@Test
+	void dropsDefaultPorts() {
+		assertEquals("http://example.com/", UrlNormalizer.normalize("http://example.com:80/"));
+		assertEquals("https://example.com/a", UrlNormalizer.normalize("https://example.com:443/a"));
+		assertEquals("https://example.com:8443/a", UrlNormalizer.normalize("https://example.com:8443/a"));
+		assertEquals("http://example.com:443/", UrlNormalizer.normalize("http://example.com:443"));
+	}
+
+	@Test
+	void addsTheRootPathButKeepsOtherTrailingSlashes() {
+		assertEquals("https://example.com/", UrlNormalizer.normalize("https://example.com"));
+		assertEquals(UrlNormalizer.normalize("https://example.com/?a=1"), UrlNormalizer.normalize("https://example.com?a=1"));
+		// Servers may answer /docs and /docs/ differently.
+		assertNotEquals(UrlNormalizer.normalize("https://example.com/docs"), UrlNormalizer.normalize("https://example.com/docs/"));
+	}
+
+	@Test
+	void keepsQueryOrderAndDropsFragments() {
+		// Parameter order can matter to the target (e.g. repeated keys), so it is not sorted.
+		assertNotEquals(UrlNormalizer.normalize("https://example.com/?a=1&b=2"), UrlNormalizer.normalize("https://example.com/?b=2&a=1"));
+		assertEquals("https://example.com/p?a=1&b=2", UrlNormalizer.normalize("https://example.com/p?a=1&b=2#section"));
+	}
+
+	@Test
+	void keepsUserInfoAndTrimsWhitespace() {
+		assertEquals("https://user@example.com/", UrlNormalizer.normalize("  https://user@EXAMPLE.com  "));
+	}
+
+	@Test
+	void leavesUnparseableAndRelativeUrlsAsTheyAre() {
+		assertEquals("not a url", UrlNormalizer.normalize(" not a url "));
+		assertEquals("/relative/Path", UrlNormalizer.normalize("/relative/Path"));
+	}
+
+	@Test
+	void hashIsStableAndUrlSafe() {
+		String hash = UrlNormalizer.hash("https://example.com/");
+
+		assertEquals(hash, UrlNormalizer.hash("https://example.com/"));
+		assertEquals(43, hash.length());
+		assertEquals(-1, hash.indexOf('+'));
+		assertEquals(-1, hash.indexOf('/'));
+		assertNotEquals(hash, UrlNormalizer.hash("https://example.com/a"));
+	}
+}
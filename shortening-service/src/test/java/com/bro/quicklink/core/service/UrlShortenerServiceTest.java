@@ -0,0 +1,257 @@
+package com.bro.quicklink.core.service;
+
+import com.bro.quicklink.adapter.in.web.UrlMappingController;
+import com.bro.quicklink.core.domain.BulkCreateItem;
+import com.bro.quicklink.core.domain.BulkCreateResult;
+import com.bro.quicklink.core.domain.DuplicateShortCodeException;
+import com.bro.quicklink.core.domain.IdempotencyConflictException;
+import com.bro.quicklink.core.domain.RedirectPolicy;
+import com.bro.quicklink.core.domain.UrlMapping;
+import com.bro.quicklink.core.ports.out.EventPublisher;
+import com.bro.quicklink.core.ports.out.UrlMappingRepository;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+class UrlShortenerServiceTest {
+
+	private final FakeRepository repository = new FakeRepository();
+	private final List<Object> published = new ArrayList<>();
+	private final AtomicInteger codes = new AtomicInteger();
+	private final UrlShortenerService service = new UrlShortenerService(repository, new RecordingPublisher(),
+			() -> "code" + codes.getAndIncrement());
+
+	@Test
+	void createsAndPublishesAMapping() {
+		UrlMapping mapping = service.createShortUrl("https://example.com/a");
+
+		assertEquals("code0", mapping.shortCode());
+		assertEquals(mapping, repository.byShortCode.get("code0"));
+		assertEquals(List.of(mapping), published);
+	}
+
+	@Test
+	void retriesWithANewCodeWhenTheCodeIsTaken() {
+		repository.taken.add("code0");
+		repository.taken.add("code1");
+
+		UrlMapping mapping = service.createShortUrl("https://example.com/a");
+
+		assertEquals("code2", mapping.shortCode());
+		assertEquals(List.of(mapping), published);
+	}
+
+	@Test
+	void givesUpAfterThreeTakenCodes() {
+		repository.taken.addAll(Set.of("code0", "code1", "code2"));
+
+		assertThrows(DuplicateShortCodeException.class, () -> service.createShortUrl("https://example.com/a"));
+		assertTrue(published.isEmpty());
+	}
+
+	@Test
+	void retriesADedupedCreateWhenTheCodeIsTaken() {
+		repository.taken.add("code0");
+
+		UrlMapping mapping = service.createShortUrl("https://example.com/a", "key-1");
+
+		assertEquals("code1", mapping.shortCode());
+		assertEquals(mapping, repository.byDedupKey.get("idem:" + UrlNormalizer.hash("key-1")));
+	}
+
+	@Test
+	void replayedIdempotencyKeyReturnsTheFirstMapping() {
+		UrlMapping first = service.createShortUrl("https://example.com/a", "key-1");
+		UrlMapping second = new UrlShortenerService(repository, new RecordingPublisher(), () -> "other")
+				.createShortUrl("https://example.com/a", "key-1");
+
+		assertEquals(first, second);
+		assertEquals(1, repository.byShortCode.size());
+		assertEquals(List.of(first), published);
+	}
+
+	@Test
+	void idempotencyKeyReusedForAnotherUrlConflicts() {
+		service.createShortUrl("https://example.com/a", "key-1");
+
+		assertThrows(IdempotencyConflictException.class, () -> service.createShortUrl("https://example.com/b", "key-1"));
+		assertThrows(IdempotencyConflictException.class, () -> service.createShortUrl("https://example.com/a",
+				RedirectPolicy.of(301, 60L), null, "key-1"));
+	}
+
+	@Test
+	void idempotencyKeyReusedForAnotherUrlAnswers409() throws Exception {
+		MockMvc mockMvc = MockMvcBuilders
+				.standaloneSetup(new UrlMappingController(service, repository, JsonMapper.builder().findAndAddModules().build()))
+				.build();
+		String first = "{\"originalUrl\": \"https://example.com/a\"}";
+		String second = "{\"originalUrl\": \"https://example.com/b\"}";
+
+		assertEquals(200, mockMvc.perform(post("/links").contentType(MediaType.APPLICATION_JSON)
+				.header("Idempotency-Key", "key-1").content(first)).andReturn().getResponse().getStatus());
+		assertEquals(409, mockMvc.perform(post("/links").contentType(MediaType.APPLICATION_JSON)
+				.header("Idempotency-Key", "key-1").content(second)).andReturn().getResponse().getStatus());
+	}
+
+	@Test
+	void idempotencyKeyClaimsLapseAfterADay() {
+		Instant before = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+		service.createShortUrl("https://example.com/a", "key-1");
+
+		Instant claimExpiresAt = repository.claimExpiries.get("idem:" + UrlNormalizer.hash("key-1"));
+		assertTrue(!claimExpiresAt.isBefore(before.plus(UrlShortenerService.IDEMPOTENCY_KEY_TTL)), claimExpiresAt.toString());
+		assertTrue(claimExpiresAt.isBefore(before.plus(UrlShortenerService.IDEMPOTENCY_KEY_TTL).plusSeconds(5)));
+	}
+
+	@Test
+	void idempotencyKeyClaimOfAnEarlierExpiringLinkLapsesWithIt() {
+		Instant expiresAt = Instant.now().plus(Duration.ofHours(1)).truncatedTo(ChronoUnit.SECONDS);
+		service.createShortUrl("https://example.com/a", RedirectPolicy.DEFAULT, expiresAt, "key-1");
+
+		assertEquals(expiresAt, repository.claimExpiries.get("idem:" + UrlNormalizer.hash("key-1")));
+	}
+
+	@Test
+	void dedupModeReturnsTheExistingMappingForTheSameNormalizedUrl() {
+		service.setDedupEnabled(true);
+		UrlShortenerService otherInstance = new UrlShortenerService(repository, new RecordingPublisher(), () -> "other");
+		otherInstance.setDedupEnabled(true);
+
+		UrlMapping first = service.createShortUrl("https://Example.com:443");
+		UrlMapping second = otherInstance.createShortUrl("HTTPS://example.com/");
+
+		assertEquals(first, second);
+		assertNull(repository.claimExpiries.get("url:" + UrlNormalizer.hash("https://example.com/")));
+		assertTrue(repository.claimExpiries.containsKey("url:" + UrlNormalizer.hash("https://example.com/")));
+	}
+
+	@Test
+	void dedupModeKeepsDifferentExpiriesApart() {
+		service.setDedupEnabled(true);
+		Instant expiresAt = Instant.now().plus(Duration.ofDays(1));
+
+		UrlMapping forever = service.createShortUrl("https://example.com/a");
+		UrlMapping expiring = service.createShortUrl("https://example.com/a", RedirectPolicy.DEFAULT, expiresAt, null);
+
+		assertNotEquals(forever.shortCode(), expiring.shortCode());
+	}
+
+	@Test
+	void rejectsAnExpiryInThePast() {
+		assertThrows(IllegalArgumentException.class, () -> service.createShortUrl("https://example.com/a",
+				RedirectPolicy.DEFAULT, Instant.now().minusSeconds(1), null));
+	}
+
+	@Test
+	void bulkCreateHonorsEachItemsPolicyAndExpiry() {
+		Instant expiresAt = Instant.now().plus(Duration.ofDays(1));
+		List<BulkCreateResult> results = new ArrayList<>();
+
+		service.createShortUrls(List.of(
+				new BulkCreateItem("https://example.com/a", 301, 600L, expiresAt),
+				new BulkCreateItem("https://example.com/b")).iterator(), results::add);
+
+		UrlMapping a = repository.byShortCode.get(results.get(0).mapping().shortCode());
+		assertEquals(new RedirectPolicy(301, 600), a.redirectPolicy());
+		assertEquals(expiresAt.truncatedTo(ChronoUnit.SECONDS), a.expiresAt());
+		UrlMapping b = repository.byShortCode.get(results.get(1).mapping().shortCode());
+		assertEquals(RedirectPolicy.DEFAULT, b.redirectPolicy());
+		assertNull(b.expiresAt());
+	}
+
+	@Test
+	void bulkCreateFailsOnlyTheItemsWithAnInvalidPolicyOrExpiry() {
+		List<BulkCreateResult> results = new ArrayList<>();
+
+		service.createShortUrls(List.of(
+				new BulkCreateItem("https://example.com/a", 307, null, null),
+				new BulkCreateItem("https://example.com/b", null, -1L, null),
+				new BulkCreateItem("https://example.com/c", null, null, Instant.now().minusSeconds(1)),
+				new BulkCreateItem("https://example.com/d")).iterator(), results::add);
+
+		assertEquals(List.of("redirectStatus must be 301 or 302",
+						"maxAgeSeconds must be between 0 and " + RedirectPolicy.MAX_AGE_LIMIT_SECONDS,
+						"expiresAt must be in the future"),
+				results.subList(0, 3).stream().map(BulkCreateResult::error).toList());
+		assertEquals(3, results.get(3).index());
+		assertEquals(List.of("https://example.com/d"),
+				repository.byShortCode.values().stream().map(UrlMapping::originalUrl).toList());
+	}
+
+	private final class RecordingPublisher implements EventPublisher {
+
+		@Override
+		public void publishUrlCreatedEvent(Object event) {
+			published.add(event);
+		}
+
+		@Override
+		public List<Object> publishAll(List<?> events) {
+			published.addAll(events);
+			return List.of();
+		}
+	}
+
+	/**
+	 * Keeps mappings and dedup claims in maps; short codes in {@link #taken} behave as if
+	 * another mapping already had them.
+	 */
+	private static final class FakeRepository implements UrlMappingRepository {
+
+		final Map<String, UrlMapping> byShortCode = new HashMap<>();
+		final Map<String, UrlMapping> byDedupKey = new HashMap<>();
+		final Map<String, Instant> claimExpiries = new HashMap<>();
+		final Set<String> taken = new HashSet<>();
+
+		@Override
+		public UrlMapping save(UrlMapping urlMapping) {
+			if (taken.contains(urlMapping.shortCode()) || byShortCode.containsKey(urlMapping.shortCode())) {
+				throw new DuplicateShortCodeException(urlMapping.shortCode());
+			}
+			byShortCode.put(urlMapping.shortCode(), urlMapping);
+			return urlMapping;
+		}
+
+		@Override
+		public List<UrlMapping> saveAll(List<UrlMapping> urlMappings) {
+			urlMappings.forEach(this::save);
+			return urlMappings;
+		}
+
+		@Override
+		public Optional<UrlMapping> findByShortCode(String shortCode) {
+			return Optional.ofNullable(byShortCode.get(shortCode));
+		}
+
+		@Override
+		public UrlMapping saveOrGetExisting(UrlMapping urlMapping, String dedupKey, Instant claimExpiresAt) {
+			UrlMapping existing = byDedupKey.get(dedupKey);
+			if (existing != null) return existing;
+			save(urlMapping);
+			byDedupKey.put(dedupKey, urlMapping);
+			claimExpiries.put(dedupKey, claimExpiresAt);
+			return urlMapping;
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.bro.quicklink.shortening_service;
+
+import com.bro.quicklink.core.service.UrlShortenerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The variables terraform sets for LightweightLambdaHandler configure the Spring entry point too.
+ */
+@SpringBootTest(properties = {"EVENTS_OUTBOX_ENABLED=true", "DEDUP_ENABLED=true"})
+class LambdaVariablesBindingTests {
+
+	@Autowired
+	private UrlShortenerService urlShortenerService;
+
+	@Test
+	void outboxAndDedupFollowTheLambdaVariables() {
+		assertEquals(true, ReflectionTestUtils.getField(urlShortenerService, "outboxEnabled"));
+		assertEquals(true, ReflectionTestUtils.getField(urlShortenerService, "dedupEnabled"));
+	}
+}
@@ -11,6 +11,55 @@ resource "aws_dynamodb_table" "analytics_table" {
   
   stream_enabled   = true
   stream_view_type = "NEW_IMAGE"
+
+  # Only counters of expiring links have it: clicks that arrive after a link's
+  # analytics were purged must not leave a counter behind forever.
+  ttl {
+    attribute_name = "expiresAt"
+    enabled        = true
+  }
+}
+
+# Clicks per link and minute/hour/day bucket, e.g. bucketKey "abc123#hour",
+# bucketStart 1704067200. Fine-grained buckets expire through TTL.
+resource "aws_dynamodb_table" "analytics_buckets_table" {
+  name         = "quicklink-analytics-buckets"
+  billing_mode = "PAY_PER_REQUEST"
+  hash_key     = "bucketKey"
+  range_key    = "bucketStart"
+
+  attribute {
+    name = "bucketKey"
+    type = "S"
+  }
+
+  attribute {
+    name = "bucketStart"
+    type = "N"
+  }
+
+  ttl {
+    attribute_name = "expiresAt"
+    enabled        = true
+  }
+}
+
+# Binary sketches: "visitors#<shortCode>" (HyperLogLog of visitor IDs) and
+# "top#<hourStart>" (Space-Saving summary of the hour's most clicked links)
+resource "aws_dynamodb_table" "analytics_sketches_table" {
+  name         = "quicklink-analytics-sketches"
+  billing_mode = "PAY_PER_REQUEST"
+  hash_key     = "sketchKey"
+
+  attribute {
+    name = "sketchKey"
+    type = "S"
+  }
+
+  ttl {
+    attribute_name = "expiresAt"
+    enabled        = true
+  }
 }
 
 # IAM Role and Policy for the Analytics Service
@@ -48,7 +97,20 @@ resource "aws_iam_policy" "analytics_lambda_policy" {
       {
         Action   = "dynamodb:UpdateItem",
         Effect   = "Allow",
-        Resource = aws_dynamodb_table.analytics_table.arn
+        Resource = [
+          aws_dynamodb_table.analytics_table.arn,
+          aws_dynamodb_table.analytics_buckets_table.arn
+        ]
+      },
+      {
+        Action   = ["dynamodb:GetItem", "dynamodb:PutItem"],
+        Effect   = "Allow",
+        Resource = aws_dynamodb_table.analytics_sketches_table.arn
+      },
+      {
+        Action   = ["sqs:ReceiveMessage", "sqs:DeleteMessage", "sqs:GetQueueAttributes"],
+        Effect   = "Allow",
+        Resource = aws_sqs_queue.url_accessed_queue.arn
       }
     ]
   })
@@ -84,7 +146,17 @@ resource "aws_lambda_function" "analytics_service_lambda" {
 
   environment {
     variables = {
-      ANALYTICS_TABLE_NAME = aws_dynamodb_table.analytics_table.name
+      ANALYTICS_TABLE_NAME              = aws_dynamodb_table.analytics_table.name
+      ANALYTICS_BUCKETS_TABLE_NAME      = aws_dynamodb_table.analytics_buckets_table.name
+      ANALYTICS_MINUTE_RETENTION_HOURS  = "48"
+      ANALYTICS_HOUR_RETENTION_DAYS     = "90"
+      ANALYTICS_DAY_RETENTION_DAYS      = "0"
+      ANALYTICS_SKETCHES_TABLE_NAME     = aws_dynamodb_table.analytics_sketches_table.name
+      ANALYTICS_TOP_CAPACITY            = "512"
+      ANALYTICS_TOP_SHARDS              = "8"
+      ANALYTICS_TOP_RETENTION_DAYS      = "7"
+      COUNTER_MAX_SHARDS                = "10"
+      SHARD_PROMOTION_CLICKS_PER_SECOND = "100"
     }
   }
 }
@@ -100,17 +172,264 @@ resource "aws_cloudwatch_event_rule" "url_accessed_rule" {
   })
 }
 
-resource "aws_cloudwatch_event_target" "lambda_target" {
+# Buffer click events in SQS so the Lambda receives them in batches and can
+# collapse them into one UpdateItem per shortCode
+resource "aws_sqs_queue" "url_accessed_dlq" {
+  name = "quicklink-url-accessed-dlq"
+}
+
+resource "aws_sqs_queue" "url_accessed_queue" {
+  name                       = "quicklink-url-accessed"
+  visibility_timeout_seconds = 60
+
+  redrive_policy = jsonencode({
+    deadLetterTargetArn = aws_sqs_queue.url_accessed_dlq.arn
+    maxReceiveCount     = 5
+  })
+}
+
+resource "aws_sqs_queue_policy" "url_accessed_queue_policy" {
+  queue_url = aws_sqs_queue.url_accessed_queue.id
+
+  policy = jsonencode({
+    Version   = "2012-10-17",
+    Statement = [{
+      Action    = "sqs:SendMessage",
+      Effect    = "Allow",
+      Principal = {
+        Service = "events.amazonaws.com"
+      },
+      Resource  = aws_sqs_queue.url_accessed_queue.arn,
+      Condition = {
+        ArnEquals = { "aws:SourceArn" = aws_cloudwatch_event_rule.url_accessed_rule.arn }
+      }
+    }]
+  })
+}
+
+resource "aws_cloudwatch_event_target" "queue_target" {
   rule      = aws_cloudwatch_event_rule.url_accessed_rule.name
   event_bus_name = aws_cloudwatch_event_bus.event_bus.name
-  arn       = aws_lambda_function.analytics_service_lambda.arn
+  arn       = aws_sqs_queue.url_accessed_queue.arn
+}
+
+resource "aws_lambda_event_source_mapping" "url_accessed_queue_mapping" {
+  event_source_arn                   = aws_sqs_queue.url_accessed_queue.arn
+  function_name                      = aws_lambda_function.analytics_service_lambda.arn
+  batch_size                         = 500
+  maximum_batching_window_in_seconds = 5
+  function_response_types            = ["ReportBatchItemFailures"]
+}
+
+# Range queries over the time buckets, served from the same JAR
+resource "aws_iam_role" "analytics_query_lambda_role" {
+  name = "quicklink-analytics-query-role"
+
+  assume_role_policy = jsonencode({
+    Version   = "2012-10-17",
+    Statement = [{
+      Action    = "sts:AssumeRole",
+      Effect    = "Allow",
+      Principal = {
+        Service = "lambda.amazonaws.com"
+      }
+    }]
+  })
+}
+
+resource "aws_iam_policy" "analytics_query_lambda_policy" {
+  name        = "quicklink-analytics-query-policy"
+  description = "Policy for the QuickLink analytics query endpoint"
+
+  policy = jsonencode({
+    Version   = "2012-10-17",
+    Statement = [
+      {
+        Action   = [
+          "logs:CreateLogGroup",
+          "logs:CreateLogStream",
+          "logs:PutLogEvents"
+        ],
+        Effect   = "Allow",
+        Resource = "arn:aws:logs:*:*:*"
+      },
+      {
+        Action   = "dynamodb:Query",
+        Effect   = "Allow",
+        Resource = aws_dynamodb_table.analytics_buckets_table.arn
+      },
+      {
+        Action   = ["dynamodb:GetItem", "dynamodb:BatchGetItem"],
+        Effect   = "Allow",
+        Resource = aws_dynamodb_table.analytics_sketches_table.arn
+      }
+    ]
+  })
+}
+
+resource "aws_iam_role_policy_attachment" "analytics_query_policy_attach" {
+  role       = aws_iam_role.analytics_query_lambda_role.name
+  policy_arn = aws_iam_policy.analytics_query_lambda_policy.arn
+}
+
+resource "aws_lambda_function" "analytics_query_lambda" {
+  function_name = "analytics-query"
+  role          = aws_iam_role.analytics_query_lambda_role.arn
+
+  s3_bucket         = aws_s3_bucket.lambda_bucket.id
+  s3_key            = aws_s3_object.analytics_jar.key
+  s3_object_version = aws_s3_object.analytics_jar.version_id
+
+  handler = "com.bro.quicklink.AnalyticsQueryHandler"
+  runtime = "java21"
+
+  memory_size = 512
+  timeout     = 10
+
+  environment {
+    variables = {
+      ANALYTICS_BUCKETS_TABLE_NAME  = aws_dynamodb_table.analytics_buckets_table.name
+      ANALYTICS_SKETCHES_TABLE_NAME = aws_dynamodb_table.analytics_sketches_table.name
+      ANALYTICS_TOP_CAPACITY        = "512"
+      ANALYTICS_TOP_SHARDS          = "8"
+    }
+  }
+}
+
+resource "aws_apigatewayv2_route" "analytics_query_route" {
+  api_id    = aws_apigatewayv2_api.lambda_api.id
+  route_key = "GET /analytics/{shortCode}"
+  target    = "integrations/${aws_apigatewayv2_integration.analytics_query_integration.id}"
 }
 
-# Add permission for EventBridge to invoke this Lambda
-resource "aws_lambda_permission" "analytics_eventbridge_permission" {
-  statement_id  = "AllowEventBridgeInvokeAnalytics"
+resource "aws_apigatewayv2_route" "analytics_visitors_route" {
+  api_id    = aws_apigatewayv2_api.lambda_api.id
+  route_key = "GET /analytics/{shortCode}/visitors"
+  target    = "integrations/${aws_apigatewayv2_integration.analytics_query_integration.id}"
+}
+
+resource "aws_apigatewayv2_route" "analytics_top_links_route" {
+  api_id    = aws_apigatewayv2_api.lambda_api.id
+  route_key = "GET /analytics/top-links"
+  target    = "integrations/${aws_apigatewayv2_integration.analytics_query_integration.id}"
+}
+
+resource "aws_apigatewayv2_integration" "analytics_query_integration" {
+  api_id               = aws_apigatewayv2_api.lambda_api.id
+  integration_type     = "AWS_PROXY"
+  integration_uri      = aws_lambda_function.analytics_query_lambda.invoke_arn
+  payload_format_version = "2.0"
+}
+
+resource "aws_lambda_permission" "analytics_query_api_gateway_permission" {
+  statement_id  = "AllowAPIGatewayInvokeAnalyticsQuery"
   action        = "lambda:InvokeFunction"
-  function_name = aws_lambda_function.analytics_service_lambda.function_name
-  principal     = "events.amazonaws.com"
-  source_arn    = aws_cloudwatch_event_rule.url_accessed_rule.arn
-}
\ No newline at end of file
+  function_name = aws_lambda_function.analytics_query_lambda.function_name
+  principal     = "apigateway.amazonaws.com"
+  source_arn    = "${aws_apigatewayv2_api.lambda_api.execution_arn}/*/*"
+}
+
+# Purges the analytics of links whose mapping was removed (expired links, through TTL),
+# served from the same JAR
+resource "aws_iam_role" "analytics_purge_lambda_role" {
+  name = "quicklink-analytics-purge-role"
+
+  assume_role_policy = jsonencode({
+    Version   = "2012-10-17",
+    Statement = [{
+      Action    = "sts:AssumeRole",
+      Effect    = "Allow",
+      Principal = {
+        Service = "lambda.amazonaws.com"
+      }
+    }]
+  })
+}
+
+resource "aws_iam_policy" "analytics_purge_lambda_policy" {
+  name        = "quicklink-analytics-purge-policy"
+  description = "Policy for the QuickLink analytics purge"
+
+  policy = jsonencode({
+    Version   = "2012-10-17",
+    Statement = [
+      {
+        Action   = [
+          "logs:CreateLogGroup",
+          "logs:CreateLogStream",
+          "logs:PutLogEvents"
+        ],
+        Effect   = "Allow",
+        Resource = "arn:aws:logs:*:*:*"
+      },
+      {
+        Action   = ["dynamodb:GetItem", "dynamodb:BatchWriteItem"],
+        Effect   = "Allow",
+        Resource = aws_dynamodb_table.analytics_table.arn
+      },
+      {
+        Action   = ["dynamodb:Query", "dynamodb:BatchWriteItem"],
+        Effect   = "Allow",
+        Resource = aws_dynamodb_table.analytics_buckets_table.arn
+      },
+      {
+        Action   = "dynamodb:BatchWriteItem",
+        Effect   = "Allow",
+        Resource = aws_dynamodb_table.analytics_sketches_table.arn
+      },
+      {
+        Action   = [
+          "dynamodb:DescribeStream",
+          "dynamodb:GetRecords",
+          "dynamodb:GetShardIterator",
+          "dynamodb:ListStreams"
+        ],
+        Effect   = "Allow",
+        Resource = aws_dynamodb_table.mappings_table.stream_arn
+      }
+    ]
+  })
+}
+
+resource "aws_iam_role_policy_attachment" "analytics_purge_policy_attach" {
+  role       = aws_iam_role.analytics_purge_lambda_role.name
+  policy_arn = aws_iam_policy.analytics_purge_lambda_policy.arn
+}
+
+resource "aws_lambda_function" "analytics_purge_lambda" {
+  function_name = "analytics-purge"
+  role          = aws_iam_role.analytics_purge_lambda_role.arn
+
+  s3_bucket         = aws_s3_bucket.lambda_bucket.id
+  s3_key            = aws_s3_object.analytics_jar.key
+  s3_object_version = aws_s3_object.analytics_jar.version_id
+
+  handler = "com.bro.quicklink.PurgeHandler"
+  runtime = "java21"
+
+  memory_size = 512
+  timeout     = 60
+
+  environment {
+    variables = {
+      ANALYTICS_TABLE_NAME          = aws_dynamodb_table.analytics_table.name
+      ANALYTICS_BUCKETS_TABLE_NAME  = aws_dynamodb_table.analytics_buckets_table.name
+      ANALYTICS_SKETCHES_TABLE_NAME = aws_dynamodb_table.analytics_sketches_table.name
+    }
+  }
+}
+
+resource "aws_lambda_event_source_mapping" "mappings_stream_mapping" {
+  event_source_arn        = aws_dynamodb_table.mappings_table.stream_arn
+  function_name           = aws_lambda_function.analytics_purge_lambda.arn
+  starting_position       = "LATEST"
+  batch_size              = 100
+  function_response_types = ["ReportBatchItemFailures"]
+
+  # Only removals reach the function; inserts of new links are filtered out for free.
+  filter_criteria {
+    filter {
+      pattern = jsonencode({ eventName = ["REMOVE"] })
+    }
+  }
+}
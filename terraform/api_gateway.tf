@@ -4,7 +4,7 @@ resource "aws_apigatewayv2_api" "lambda_api" {
   cors_configuration {
     allow_origins = ["*"] # Allows all origins for simplicity, can be restricted to your S3 URL
     allow_methods = ["GET", "POST", "OPTIONS"]
-    allow_headers = ["Content-Type"]
+    allow_headers = ["Content-Type", "Idempotency-Key"]
   }
 }
 
@@ -17,7 +17,8 @@ resource "aws_apigatewayv2_stage" "default_stage" {
 resource "aws_apigatewayv2_integration" "api_integration" {
   api_id             = aws_apigatewayv2_api.lambda_api.id
   integration_type   = "AWS_PROXY"
-  integration_uri    = aws_lambda_function.shortening_service_lambda.invoke_arn
+  # Invoke the published version so requests are served from the SnapStart snapshot
+  integration_uri    = aws_lambda_function.shortening_service_lambda.qualified_invoke_arn
   payload_format_version = "2.0"
 }
 
@@ -27,10 +28,17 @@ resource "aws_apigatewayv2_route" "api_route" {
   target    = "integrations/${aws_apigatewayv2_integration.api_integration.id}"
 }
 
+resource "aws_apigatewayv2_route" "batch_api_route" {
+  api_id    = aws_apigatewayv2_api.lambda_api.id
+  route_key = "POST /links/batch"
+  target    = "integrations/${aws_apigatewayv2_integration.api_integration.id}"
+}
+
 resource "aws_lambda_permission" "api_gateway_permission" {
   statement_id  = "AllowAPIGatewayInvoke"
   action        = "lambda:InvokeFunction"
   function_name = aws_lambda_function.shortening_service_lambda.function_name
+  qualifier     = aws_lambda_function.shortening_service_lambda.version
   principal     = "apigateway.amazonaws.com"
   source_arn    = "${aws_apigatewayv2_api.lambda_api.execution_arn}/*/*"
 }
\ No newline at end of file
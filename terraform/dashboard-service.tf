@@ -42,10 +42,15 @@ resource "aws_iam_policy" "dashboard_lambda_policy" {
         Resource = "arn:aws:logs:*:*:*"
       },
       {
-        Action   = ["dynamodb:PutItem", "dynamodb:DeleteItem", "dynamodb:Scan"],
+        Action   = ["dynamodb:PutItem", "dynamodb:UpdateItem", "dynamodb:DeleteItem", "dynamodb:Scan"],
         Effect   = "Allow",
         Resource = aws_dynamodb_table.connections_table.arn
       },
+      {
+        Action   = ["dynamodb:GetItem", "dynamodb:BatchGetItem"],
+        Effect   = "Allow",
+        Resource = aws_dynamodb_table.analytics_table.arn
+      },
       {
         Action   = ["dynamodb:DescribeStream", "dynamodb:GetRecords", "dynamodb:GetShardIterator", "dynamodb:ListStreams"],
         Effect   = "Allow",
@@ -100,6 +105,7 @@ resource "aws_lambda_function" "dashboard_service_lambda" {
   environment {
     variables = {
       CONNECTIONS_TABLE_NAME = aws_dynamodb_table.connections_table.name
+      ANALYTICS_TABLE_NAME   = aws_dynamodb_table.analytics_table.name
       WEBSOCKET_API_ID       = aws_apigatewayv2_api.websocket_api.id
       WEBSOCKET_API_STAGE    = aws_apigatewayv2_stage.websocket_stage.name
     }
@@ -111,6 +117,11 @@ resource "aws_lambda_event_source_mapping" "analytics_stream_mapping" {
   event_source_arn  = aws_dynamodb_table.analytics_table.stream_arn
   function_name     = aws_lambda_function.dashboard_service_lambda.arn
   starting_position = "LATEST"
+
+  # Doubles as the push throttle: updates arriving within the window are merged
+  # into a single frame per dashboard connection.
+  batch_size                         = 1000
+  maximum_batching_window_in_seconds = 1
 }
 
 # Configure WebSocket API routes and deployment stage
@@ -132,6 +143,12 @@ resource "aws_apigatewayv2_route" "disconnect_route" {
   target    = "integrations/${aws_apigatewayv2_integration.websocket_integration.id}"
 }
 
+resource "aws_apigatewayv2_route" "subscribe_route" {
+  api_id    = aws_apigatewayv2_api.websocket_api.id
+  route_key = "subscribe"
+  target    = "integrations/${aws_apigatewayv2_integration.websocket_integration.id}"
+}
+
 resource "aws_apigatewayv2_stage" "websocket_stage" {
   api_id      = aws_apigatewayv2_api.websocket_api.id
   name        = "prod"
@@ -1,3 +1,6 @@
+# Links created with an expiry carry expiresAt (epoch seconds); TTL deletes them and the
+# stream hands the removal to the analytics purge. The stream is also the outbox of
+# UrlCreatedEvents: the relay publishes every inserted mapping.
 resource "aws_dynamodb_table" "mappings_table" {
   name           = "quicklink-mappings"
   billing_mode   = "PAY_PER_REQUEST"
@@ -7,6 +10,44 @@ resource "aws_dynamodb_table" "mappings_table" {
     name = "shortCode"
     type = "S"
   }
+
+  ttl {
+    attribute_name = "expiresAt"
+    enabled        = true
+  }
+
+  stream_enabled   = true
+  stream_view_type = "NEW_IMAGE"
+}
+
+# Atomic counters the shortening service leases short-code id blocks from
+resource "aws_dynamodb_table" "counters_table" {
+  name           = "quicklink-counters"
+  billing_mode   = "PAY_PER_REQUEST"
+  hash_key       = "counterName"
+
+  attribute {
+    name = "counterName"
+    type = "S"
+  }
+}
+
+# Claims normalized-URL hashes and Idempotency-Keys for the mapping that owns them
+resource "aws_dynamodb_table" "dedup_table" {
+  name           = "quicklink-dedup"
+  billing_mode   = "PAY_PER_REQUEST"
+  hash_key       = "dedupKey"
+
+  attribute {
+    name = "dedupKey"
+    type = "S"
+  }
+
+  # Idempotency-Key claims expire after a day, URL claims of expiring links with the link
+  ttl {
+    attribute_name = "ttl"
+    enabled        = true
+  }
 }
 
 resource "aws_cloudwatch_event_bus" "event_bus" {
@@ -32,11 +32,25 @@ resource "aws_iam_policy" "lambda_policy" {
       {
         Action   = [
           "dynamodb:PutItem",
-          "dynamodb:GetItem"
+          "dynamodb:GetItem",
+          "dynamodb:BatchWriteItem"
         ],
         Effect   = "Allow",
         Resource = aws_dynamodb_table.mappings_table.arn
       },
+      {
+        Action   = "dynamodb:UpdateItem",
+        Effect   = "Allow",
+        Resource = aws_dynamodb_table.counters_table.arn
+      },
+      {
+        Action   = [
+          "dynamodb:PutItem",
+          "dynamodb:GetItem"
+        ],
+        Effect   = "Allow",
+        Resource = aws_dynamodb_table.dedup_table.arn
+      },
       {
         Action   = "events:PutEvents",
         Effect   = "Allow",
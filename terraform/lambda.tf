@@ -38,12 +38,121 @@ resource "aws_lambda_function" "shortening_service_lambda" {
   # This tells Lambda to use the specific version of the JAR we just uploaded.
   s3_object_version = aws_s3_object.lambda_jar.version_id
 
-  handler = "com.bro.quicklink.LambdaHandler"
+  # Spring-free entry point; com.bro.quicklink.LambdaHandler still serves the same
+  # routes through the Spring Boot container if it is ever needed.
+  handler = "com.bro.quicklink.LightweightLambdaHandler"
   runtime = "java21"
 
   memory_size = 1024
   timeout     = 30
 
+  environment {
+    variables = {
+      # UrlCreatedEvents go out through the outbox relay below
+      EVENTS_OUTBOX_ENABLED = "true"
+    }
+  }
+
+  # SnapStart restores published versions from a primed snapshot instead of
+  # running the init phase on every cold start.
+  publish = true
+  snap_start {
+    apply_on = "PublishedVersions"
+  }
+
   # This depends on the versioning resource to ensure it's enabled first
   depends_on = [aws_s3_bucket_versioning.lambda_bucket_versioning]
-}
\ No newline at end of file
+}
+# Publishes the UrlCreatedEvent of every new mapping from the mappings table's stream,
+# served from the same JAR
+resource "aws_iam_role" "outbox_relay_role" {
+  name = "quicklink-outbox-relay-role"
+
+  assume_role_policy = jsonencode({
+    Version   = "2012-10-17",
+    Statement = [{
+      Action    = "sts:AssumeRole",
+      Effect    = "Allow",
+      Principal = {
+        Service = "lambda.amazonaws.com"
+      }
+    }]
+  })
+}
+
+resource "aws_iam_policy" "outbox_relay_policy" {
+  name        = "quicklink-outbox-relay-policy"
+  description = "Policy for the QuickLink outbox relay"
+
+  policy = jsonencode({
+    Version   = "2012-10-17",
+    Statement = [
+      {
+        Action   = [
+          "logs:CreateLogGroup",
+          "logs:CreateLogStream",
+          "logs:PutLogEvents"
+        ],
+        Effect   = "Allow",
+        Resource = "arn:aws:logs:*:*:*"
+      },
+      {
+        Action   = [
+          "dynamodb:DescribeStream",
+          "dynamodb:GetRecords",
+          "dynamodb:GetShardIterator",
+          "dynamodb:ListStreams"
+        ],
+        Effect   = "Allow",
+        Resource = aws_dynamodb_table.mappings_table.stream_arn
+      },
+      {
+        Action   = "events:PutEvents",
+        Effect   = "Allow",
+        Resource = aws_cloudwatch_event_bus.event_bus.arn
+      }
+    ]
+  })
+}
+
+resource "aws_iam_role_policy_attachment" "outbox_relay_policy_attach" {
+  role       = aws_iam_role.outbox_relay_role.name
+  policy_arn = aws_iam_policy.outbox_relay_policy.arn
+}
+
+resource "aws_lambda_function" "outbox_relay_lambda" {
+  function_name = "outbox-relay"
+  role          = aws_iam_role.outbox_relay_role.arn
+
+  s3_bucket         = aws_s3_bucket.lambda_bucket.id
+  s3_key            = aws_s3_object.lambda_jar.key
+  s3_object_version = aws_s3_object.lambda_jar.version_id
+
+  handler = "com.bro.quicklink.OutboxRelayHandler"
+  runtime = "java21"
+
+  memory_size = 512
+  timeout     = 30
+}
+
+resource "aws_lambda_event_source_mapping" "outbox_relay_mapping" {
+  event_source_arn  = aws_dynamodb_table.mappings_table.stream_arn
+  function_name     = aws_lambda_function.outbox_relay_lambda.arn
+  # Events written before the relay first runs are still published
+  starting_position = "TRIM_HORIZON"
+
+  batch_size                         = 100
+  maximum_batching_window_in_seconds = 1
+  function_response_types            = ["ReportBatchItemFailures"]
+
+  # Retried in order until published: records are never skipped, so a failing batch
+  # holds back the shard instead of losing events (stream retention is 24 hours).
+  maximum_retry_attempts        = -1
+  maximum_record_age_in_seconds = -1
+
+  filter_criteria {
+    filter {
+      pattern = jsonencode({ eventName = ["INSERT"] })
+    }
+  }
+}
@@ -74,8 +74,10 @@ resource "aws_lambda_function" "redirect_service_lambda" {
 
   environment {
     variables = {
-      TABLE_NAME     = aws_dynamodb_table.mappings_table.name
-      EVENT_BUS_NAME = aws_cloudwatch_event_bus.event_bus.name
+      TABLE_NAME                 = aws_dynamodb_table.mappings_table.name
+      EVENT_BUS_NAME             = aws_cloudwatch_event_bus.event_bus.name
+      # Links with a max-age: 1 visitor in 10 bypasses caches and counts for 10 clicks
+      CACHED_CLICK_SAMPLE_ONE_IN = "10"
     }
   }
 }
@@ -0,0 +1,128 @@
+package com.bro.quicklink.test;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks a Lambda module's native-image metadata against its code, since a stale entry
+ * only shows up when the native executable fails at run time. Each module runs it by
+ * extending it with its artifact ID and the handlers terraform deploys from it.
+ */
+public abstract class NativeImageConfigContract {
+
+    private static final String EVENTS_PACKAGE = "com.amazonaws.services.lambda.runtime.events";
+
+    private final String configDir;
+    private final Set<String> handlers;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    protected NativeImageConfigContract(String artifactId, Set<String> handlers) {
+        this.configDir = "META-INF/native-image/com.bro.quicklink/" + artifactId + "/";
+        this.handlers = handlers;
+    }
+
+    @Test
+    public void registeredClassesExist() throws IOException {
+        for (String name : registeredClasses()) {
+            assertDoesNotThrow(() -> load(name), name);
+        }
+    }
+
+    @Test
+    public void registersEveryHandlerWithAPublicNoArgConstructor() throws Exception {
+        Set<String> registered = new TreeSet<>();
+        for (String name : registeredClasses()) {
+            if (name.startsWith("com.bro.quicklink.")) registered.add(name);
+        }
+        assertEquals(new TreeSet<>(handlers), registered);
+
+        for (String name : handlers) {
+            Class<?> handler = load(name);
+            assertTrue(RequestHandler.class.isAssignableFrom(handler) || RequestStreamHandler.class.isAssignableFrom(handler), name);
+            assertTrue(Modifier.isPublic(handler.getConstructor().getModifiers()), name);
+        }
+    }
+
+    @Test
+    public void registersTheEventClassesTheRuntimeBinds() throws Exception {
+        Set<String> registered = registeredClasses();
+        for (String name : handlers) {
+            for (Class<?> eventClass : boundEventClasses(load(name))) {
+                assertTrue(registered.contains(eventClass.getName()), eventClass.getName() + " used by " + name);
+            }
+        }
+    }
+
+    @Test
+    public void resourcePatternsCompile() throws IOException {
+        JsonNode includes = read("resource-config.json").path("resources").path("includes");
+        assertTrue(includes.size() > 0);
+        for (JsonNode include : includes) {
+            assertDoesNotThrow(() -> Pattern.compile(include.path("pattern").asText()), include.toString());
+        }
+    }
+
+    private Set<String> registeredClasses() throws IOException {
+        Set<String> names = new LinkedHashSet<>();
+        for (JsonNode entry : read("reflect-config.json")) names.add(entry.path("name").asText());
+        return names;
+    }
+
+    private JsonNode read(String file) throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(configDir + file)) {
+            assertNotNull(in, configDir + file);
+            return objectMapper.readTree(in);
+        }
+    }
+
+    private Class<?> load(String name) throws ClassNotFoundException {
+        return Class.forName(name, false, getClass().getClassLoader());
+    }
+
+    /**
+     * The Lambda event classes in a handler's input and output types, and those reachable
+     * from their fields, which the runtime's Jackson instantiates and populates reflectively.
+     */
+    private static Set<Class<?>> boundEventClasses(Class<?> handler) {
+        Deque<Type> pending = new ArrayDeque<>();
+        for (Type type : handler.getGenericInterfaces()) {
+            if (type instanceof ParameterizedType parameterized && parameterized.getRawType() == RequestHandler.class) {
+                pending.addAll(List.of(parameterized.getActualTypeArguments()));
+            }
+        }
+        Set<Class<?>> found = new LinkedHashSet<>();
+        while (!pending.isEmpty()) {
+            Type type = pending.pop();
+            if (type instanceof ParameterizedType parameterized) {
+                pending.addAll(List.of(parameterized.getActualTypeArguments()));
+            } else if (type instanceof Class<?> cls && cls.getPackageName().equals(EVENTS_PACKAGE) && found.add(cls)) {
+                for (Field field : cls.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) pending.push(field.getGenericType());
+                }
+            }
+        }
+        return found;
+    }
+}